@@ -0,0 +1,76 @@
+package com.dkv.dkvbenchmarks;
+
+import com.dkv.dkvcommon.model.KvMessage;
+import com.dkv.dkvstorage.codec.KvMessageDecoder;
+import com.dkv.dkvstorage.codec.KvMessageEncoder;
+import io.netty.buffer.ByteBuf;
+import io.netty.channel.embedded.EmbeddedChannel;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * KvMessage 二进制编解码，按 value 大小区分
+ * 通过 EmbeddedChannel 走真实的 pipeline，包含帧长度处理和 ByteBuf 分配
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class CodecBenchmark {
+
+    @Param({"0", "128", "4096", "65536"})
+    public int valueSize;
+
+    private KvMessage message;
+    private ByteBuf frame;
+    private EmbeddedChannel encoder;
+    private EmbeddedChannel decoder;
+
+    @Setup
+    public void setUp() {
+        byte[] value = new byte[valueSize];
+        new Random(42).nextBytes(value);
+        message = new KvMessage(KvMessage.Type.PUT, "user:00001024", valueSize == 0 ? null : value);
+        message.setRequestId("1024");
+        message.setNamespace("default");
+        message.setAcceptCompression(KvMessage.Compression.LZ4);
+
+        encoder = new EmbeddedChannel(new KvMessageEncoder());
+        decoder = new EmbeddedChannel(new KvMessageDecoder());
+        encoder.writeOutbound(message);
+        frame = encoder.readOutbound();
+    }
+
+    @TearDown
+    public void tearDown() {
+        frame.release();
+        encoder.finishAndReleaseAll();
+        decoder.finishAndReleaseAll();
+    }
+
+    @Benchmark
+    public int encode() {
+        encoder.writeOutbound(message);
+        ByteBuf out = encoder.readOutbound();
+        int length = out.readableBytes();
+        out.release();
+        return length;
+    }
+
+    @Benchmark
+    public KvMessage decode() {
+        decoder.writeInbound(frame.retainedDuplicate());
+        return decoder.readInbound();
+    }
+
+    @Benchmark
+    public KvMessage roundTrip() {
+        encoder.writeOutbound(message);
+        decoder.writeInbound((ByteBuf) encoder.readOutbound());
+        return decoder.readInbound();
+    }
+}
@@ -0,0 +1,54 @@
+package com.dkv.dkvbenchmarks;
+
+import com.dkv.dkvcommon.utils.HashUtil;
+import com.google.common.hash.HashFunction;
+import com.google.common.hash.Hashing;
+import org.openjdk.jmh.annotations.*;
+
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 路由哈希的开销，配合 -prof gc 看 gc.alloc.rate.norm：
+ * HashUtil 的几个方法应为 0 B/op，guava 基线每次都会分配 HashCode 和编码缓冲
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class HashUtilBenchmark {
+
+    private static final HashFunction GUAVA = Hashing.murmur3_32_fixed();
+
+    @Param({"user:1024", "order:2024-10-19:0000123456:item", "用户:缓存:热点数据"})
+    public String key;
+
+    private byte[] keyBytes;
+
+    @Setup
+    public void setUp() {
+        keyBytes = key.getBytes(StandardCharsets.UTF_8);
+    }
+
+    @Benchmark
+    public int hashString() {
+        return HashUtil.getHash(key);
+    }
+
+    @Benchmark
+    public int hashBytes() {
+        return HashUtil.getHash(keyBytes);
+    }
+
+    @Benchmark
+    public int guavaHashString() {
+        return GUAVA.hashString(key, StandardCharsets.UTF_8).asInt();
+    }
+
+    @Benchmark
+    public int guavaHashBytes() {
+        return GUAVA.hashBytes(keyBytes).asInt();
+    }
+}
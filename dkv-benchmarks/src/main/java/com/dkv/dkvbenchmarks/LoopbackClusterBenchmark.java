@@ -0,0 +1,133 @@
+package com.dkv.dkvbenchmarks;
+
+import com.dkv.dkvclient.client.DkvClient;
+import com.dkv.dkvstorage.rocksdb.DataNode;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.net.ServerSocket;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * 端到端：同一进程内启动若干 DataNode（回环地址），DkvClient 用固定节点列表直接路由
+ * SampleTime 模式输出延迟分位数（p50/p90/p99/p99.9），吞吐看 *Pipelined 的结果
+ */
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class LoopbackClusterBenchmark {
+
+    private static final int KEY_COUNT = 10_000;
+    private static final int PIPELINE_DEPTH = 64;
+
+    @Param({"1", "3"})
+    public int nodeCount;
+
+    @Param({"128", "4096"})
+    public int valueSize;
+
+    private final List<DataNode> nodes = new ArrayList<>();
+    private Path dataRoot;
+    private DkvClient client;
+    private String[] keys;
+    private byte[] value;
+
+    @Setup
+    public void setUp() throws Exception {
+        dataRoot = Files.createTempDirectory("dkv-bench-cluster");
+        List<String> addresses = new ArrayList<>();
+        for (int i = 0; i < nodeCount; i++) {
+            int port = freePort();
+            // 每个节点是自己分片的主节点，不配置副本，只测请求路径本身
+            DataNode node = new DataNode("bench-" + i, dataRoot.resolve("node-" + i).toString(),
+                    port, true, List.of(), 1);
+            node.start();
+            nodes.add(node);
+            addresses.add("127.0.0.1:" + port);
+        }
+        client = new DkvClient(addresses);
+
+        value = new byte[valueSize];
+        new Random(42).nextBytes(value);
+        keys = new String[KEY_COUNT];
+        for (int i = 0; i < KEY_COUNT; i++) {
+            keys[i] = "user:" + i;
+            client.put(keys[i], value);
+        }
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        client.close();
+        for (DataNode node : nodes) {
+            node.stop();
+        }
+        nodes.clear();
+        try (Stream<Path> files = Files.walk(dataRoot)) {
+            files.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+        }
+    }
+
+    private static int freePort() throws IOException {
+        try (ServerSocket socket = new ServerSocket(0)) {
+            return socket.getLocalPort();
+        }
+    }
+
+    private String randomKey() {
+        return keys[ThreadLocalRandom.current().nextInt(KEY_COUNT)];
+    }
+
+    @Benchmark
+    public void put() throws InterruptedException {
+        client.put(randomKey(), value);
+    }
+
+    @Benchmark
+    public byte[] get() throws InterruptedException {
+        return client.get(randomKey());
+    }
+
+    @Benchmark
+    @Threads(8)
+    public byte[] getContended() throws InterruptedException {
+        return client.get(randomKey());
+    }
+
+    /** 一次发出 PIPELINE_DEPTH 个异步写再统一等待，结果按单个请求计 */
+    @Benchmark
+    @BenchmarkMode(Mode.Throughput)
+    @OutputTimeUnit(TimeUnit.SECONDS)
+    @OperationsPerInvocation(PIPELINE_DEPTH)
+    public void putPipelined() {
+        CompletableFuture<?>[] futures = new CompletableFuture<?>[PIPELINE_DEPTH];
+        for (int i = 0; i < PIPELINE_DEPTH; i++) {
+            futures[i] = client.putAsync(randomKey(), value);
+        }
+        CompletableFuture.allOf(futures).join();
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.Throughput)
+    @OutputTimeUnit(TimeUnit.SECONDS)
+    @OperationsPerInvocation(PIPELINE_DEPTH)
+    public void getPipelined() {
+        CompletableFuture<?>[] futures = new CompletableFuture<?>[PIPELINE_DEPTH];
+        for (int i = 0; i < PIPELINE_DEPTH; i++) {
+            futures[i] = client.getAsync(randomKey());
+        }
+        CompletableFuture.allOf(futures).join();
+    }
+}
@@ -0,0 +1,117 @@
+package com.dkv.dkvbenchmarks;
+
+import com.dkv.dkvstorage.rocksdb.RocksDbEngine;
+import com.dkv.dkvstorage.rocksdb.StorageEngine;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.Random;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * RocksDbEngine 的读写，按 value 大小和线程数区分
+ * 预先写入 KEY_COUNT 个key，读只命中已有key；线程数用带 @Threads 的变体或命令行 -t 调整
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class RocksDbEngineBenchmark {
+
+    private static final int KEY_COUNT = 100_000;
+    private static final int BATCH_SIZE = 32;
+
+    @Param({"128", "4096", "65536"})
+    public int valueSize;
+
+    private Path dataDir;
+    private RocksDbEngine engine;
+    private byte[][] keys;
+    private byte[] value;
+
+    @State(Scope.Thread)
+    public static class ReadBuffer {
+        ByteBuffer target;
+
+        @Setup
+        public void setUp(RocksDbEngineBenchmark benchmark) {
+            target = ByteBuffer.allocateDirect(benchmark.valueSize);
+        }
+    }
+
+    @Setup
+    public void setUp() throws Exception {
+        dataDir = Files.createTempDirectory("dkv-bench-rocksdb");
+        engine = new RocksDbEngine();
+        engine.init(dataDir.toString());
+        keys = new byte[KEY_COUNT][];
+        value = new byte[valueSize];
+        new Random(42).nextBytes(value);
+        for (int i = 0; i < KEY_COUNT; i++) {
+            keys[i] = ("user:" + i).getBytes(StandardCharsets.UTF_8);
+            engine.put(StorageEngine.DEFAULT_NAMESPACE, keys[i], value);
+        }
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        engine.close();
+        try (Stream<Path> files = Files.walk(dataDir)) {
+            files.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+        }
+    }
+
+    private byte[] randomKey() {
+        return keys[ThreadLocalRandom.current().nextInt(KEY_COUNT)];
+    }
+
+    @Benchmark
+    public void put() throws Exception {
+        engine.put(StorageEngine.DEFAULT_NAMESPACE, randomKey(), value);
+    }
+
+    @Benchmark
+    public byte[] get() throws Exception {
+        return engine.get(StorageEngine.DEFAULT_NAMESPACE, randomKey());
+    }
+
+    /** 零拷贝读路径：直接读进调用方的堆外缓冲区 */
+    @Benchmark
+    public int getDirect(ReadBuffer buffer) throws Exception {
+        buffer.target.clear();
+        return engine.get(StorageEngine.DEFAULT_NAMESPACE, randomKey(), buffer.target);
+    }
+
+    /**
+     * 一批随机key的读取；引擎没有批量读接口，这里是逐个点查，结果按单个key计
+     */
+    @Benchmark
+    @OperationsPerInvocation(BATCH_SIZE)
+    public void multiGet(Blackhole blackhole) throws Exception {
+        for (int i = 0; i < BATCH_SIZE; i++) {
+            blackhole.consume(engine.get(StorageEngine.DEFAULT_NAMESPACE, randomKey()));
+        }
+    }
+
+    @Benchmark
+    @Threads(8)
+    public void putContended() throws Exception {
+        engine.put(StorageEngine.DEFAULT_NAMESPACE, randomKey(), value);
+    }
+
+    @Benchmark
+    @Threads(8)
+    public byte[] getContended() throws Exception {
+        return engine.get(StorageEngine.DEFAULT_NAMESPACE, randomKey());
+    }
+}
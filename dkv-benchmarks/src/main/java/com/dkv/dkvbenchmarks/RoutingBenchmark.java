@@ -0,0 +1,62 @@
+package com.dkv.dkvbenchmarks;
+
+import com.dkv.dkvmaster.router.ConsistentHashRouter;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * ConsistentHashRouter 的路由查找，按集群规模区分
+ * 每次调用换一个key，避免只测到同一条热路径
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class RoutingBenchmark {
+
+    private static final int KEY_COUNT = 4096;  // 2的幂，取下标用位与
+
+    @Param({"3", "10", "50"})
+    public int nodes;
+
+    private ConsistentHashRouter router;
+    private String[] keys;
+
+    @State(Scope.Thread)
+    public static class Cursor {
+        int next;
+    }
+
+    @Setup
+    public void setUp() {
+        router = new ConsistentHashRouter();
+        for (int i = 0; i < nodes; i++) {
+            router.addNode("10.0.0." + (i + 1), 9001);
+        }
+        keys = new String[KEY_COUNT];
+        for (int i = 0; i < KEY_COUNT; i++) {
+            keys[i] = "user:" + i;
+        }
+    }
+
+    @Benchmark
+    public String routeNode(Cursor cursor) {
+        return router.routeNode(keys[cursor.next++ & (KEY_COUNT - 1)]);
+    }
+
+    @Benchmark
+    public List<String> routeNodeWithReplicas(Cursor cursor) {
+        return router.routeNodeWithReplicas(keys[cursor.next++ & (KEY_COUNT - 1)], 3);
+    }
+
+    /** 多线程同时路由，反映 synchronized 路由表的竞争 */
+    @Benchmark
+    @Threads(8)
+    public String routeNodeContended(Cursor cursor) {
+        return router.routeNode(keys[cursor.next++ & (KEY_COUNT - 1)]);
+    }
+}
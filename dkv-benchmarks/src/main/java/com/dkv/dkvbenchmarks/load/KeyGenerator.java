@@ -0,0 +1,78 @@
+package com.dkv.dkvbenchmarks.load;
+
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 运行阶段选择要访问的key编号
+ */
+public interface KeyGenerator {
+
+    long next(Random random);
+
+    /**
+     * @param inserted 已写入的最大key编号 + 1，插入操作会让它增长
+     */
+    static KeyGenerator of(WorkloadOptions options, AtomicLong inserted) {
+        switch (options.getKeyDistribution()) {
+            case UNIFORM:
+                return random -> (long) (random.nextDouble() * inserted.get());
+            case LATEST:
+                return new Latest(options, inserted);
+            case ZIPFIAN:
+            default:
+                return new ScrambledZipfian(options);
+        }
+    }
+
+    /**
+     * 热点打散到整个key空间：Zipf 的排名再过一次 FNV 哈希，
+     * 避免热key都挤在编号最小的一段（也就是同一批节点上），与 YCSB 的 zipfian 一致
+     */
+    final class ScrambledZipfian implements KeyGenerator {
+        private static final long FNV_OFFSET_BASIS = 0xCBF29CE484222325L;
+        private static final long FNV_PRIME = 1099511628211L;
+
+        private final ZipfianGenerator zipfian;
+        private final long recordCount;
+
+        ScrambledZipfian(WorkloadOptions options) {
+            this.zipfian = new ZipfianGenerator(options.getRecordCount(), options.getZipfianConstant());
+            this.recordCount = options.getRecordCount();
+        }
+
+        @Override
+        public long next(Random random) {
+            return Math.floorMod(fnv64(zipfian.next(random)), recordCount);
+        }
+
+        private static long fnv64(long value) {
+            long hash = FNV_OFFSET_BASIS;
+            for (int i = 0; i < 8; i++) {
+                hash ^= value & 0xff;
+                hash *= FNV_PRIME;
+                value >>>= 8;
+            }
+            return hash;
+        }
+    }
+
+    /**
+     * 最近写入的key最热：从最新的编号往回按 Zipf 分布取
+     */
+    final class Latest implements KeyGenerator {
+        private final ZipfianGenerator zipfian;
+        private final AtomicLong inserted;
+
+        Latest(WorkloadOptions options, AtomicLong inserted) {
+            this.zipfian = new ZipfianGenerator(options.getRecordCount(), options.getZipfianConstant());
+            this.inserted = inserted;
+        }
+
+        @Override
+        public long next(Random random) {
+            long latest = inserted.get() - 1;
+            return Math.max(0, latest - zipfian.next(random));
+        }
+    }
+}
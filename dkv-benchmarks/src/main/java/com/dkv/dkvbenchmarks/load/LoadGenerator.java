@@ -0,0 +1,309 @@
+package com.dkv.dkvbenchmarks.load;
+
+import com.dkv.dkvbenchmarks.load.OperationStats.Operation;
+import com.dkv.dkvclient.client.DkvClient;
+import com.dkv.dkvstorage.rocksdb.DataNode;
+
+import java.io.FileInputStream;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Properties;
+import java.util.Random;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * YCSB 风格的负载生成器，直接驱动 DkvClient
+ * <pre>
+ * java -cp benchmarks.jar com.dkv.dkvbenchmarks.load.LoadGenerator \
+ *      [-zk 127.0.0.1:2181 | -nodes 127.0.0.1:9001,127.0.0.1:9002 | -local 3 [-port 9001]] \
+ *      [-P workload.properties] [-p readproportion=0.5 -p target=20000 ...] [-skipload]
+ * </pre>
+ * 先加载 recordcount 个key，再按配置的读/改/插/扫比例运行，最后输出 YCSB 格式的延迟分位数
+ * -local 在本进程内按 DataNodeLauncher 的方式启动一个本地集群（第一个节点为主，其余为副本）
+ */
+public class LoadGenerator {
+
+    private static final long STATUS_INTERVAL_SECONDS = 10;
+
+    private final WorkloadOptions options;
+    private final DkvClient client;
+    private final AtomicLong inserted;  // 已分配出去的最大key编号 + 1
+    private final LongAdder completed = new LongAdder();
+
+    public LoadGenerator(WorkloadOptions options, DkvClient client) {
+        this.options = options.validate();
+        this.client = client;
+        this.inserted = new AtomicLong(options.getRecordCount());
+    }
+
+    private String keyOf(long id) {
+        return options.getKeyPrefix() + id;
+    }
+
+    private byte[] valueOf(Random random, byte[] source) {
+        int size = options.getMinValueSize();
+        if (options.getValueSizeDistribution() == WorkloadOptions.ValueSizeDistribution.UNIFORM
+                && options.getMaxValueSize() > size) {
+            size += random.nextInt(options.getMaxValueSize() - size + 1);
+        }
+        return Arrays.copyOf(source, size);
+    }
+
+    private static byte[] randomSource(Random random, int size) {
+        byte[] source = new byte[size];
+        random.nextBytes(source);
+        return source;
+    }
+
+    /**
+     * 加载阶段：各线程按编号交错写入 [0, recordcount)
+     */
+    public OperationStats load() throws InterruptedException {
+        int threads = options.getThreads();
+        OperationStats[] stats = new OperationStats[threads];
+        Thread[] workers = new Thread[threads];
+        for (int t = 0; t < threads; t++) {
+            int index = t;
+            stats[t] = new OperationStats();
+            workers[t] = new Thread(() -> {
+                Random random = ThreadLocalRandom.current();
+                byte[] source = randomSource(random, options.getMaxValueSize());
+                for (long id = index; id < options.getRecordCount(); id += threads) {
+                    long begin = System.nanoTime();
+                    try {
+                        client.put(keyOf(id), valueOf(random, source));
+                    } catch (Exception e) {
+                        stats[index].error(Operation.INSERT);
+                    }
+                    long micros = (System.nanoTime() - begin) / 1000;
+                    stats[index].record(Operation.INSERT, micros, micros);
+                    completed.increment();
+                }
+            }, "load-" + t);
+        }
+        return runWorkers(workers, stats);
+    }
+
+    /**
+     * 运行阶段：限速时每个线程按固定间隔排定发出时刻，延迟从排定时刻算起
+     */
+    public OperationStats run() throws InterruptedException {
+        int threads = options.getThreads();
+        KeyGenerator keys = KeyGenerator.of(options, inserted);
+        long intervalNanos = options.getTargetOpsPerSecond() > 0
+                ? (long) (TimeUnit.SECONDS.toNanos(1) * threads / options.getTargetOpsPerSecond()) : 0;
+        long deadline = options.getMaxExecutionSeconds() > 0
+                ? System.nanoTime() + TimeUnit.SECONDS.toNanos(options.getMaxExecutionSeconds()) : Long.MAX_VALUE;
+        // 各线程共用操作数额度，先跑完的线程不会空等
+        AtomicLong remaining = new AtomicLong(options.getOperationCount() > 0 ? options.getOperationCount() : Long.MAX_VALUE);
+
+        OperationStats[] stats = new OperationStats[threads];
+        Thread[] workers = new Thread[threads];
+        for (int t = 0; t < threads; t++) {
+            int index = t;
+            stats[t] = new OperationStats();
+            workers[t] = new Thread(() -> {
+                Random random = ThreadLocalRandom.current();
+                byte[] source = randomSource(random, options.getMaxValueSize());
+                // 错开各线程的起点，避免所有线程在同一时刻发请求
+                long start = System.nanoTime() + (intervalNanos > 0 ? (long) (random.nextDouble() * intervalNanos) : 0);
+                for (long i = 0; remaining.getAndDecrement() > 0; i++) {
+                    long intendedStart = System.nanoTime();
+                    if (intervalNanos > 0) {
+                        intendedStart = start + i * intervalNanos;
+                        long wait;
+                        while ((wait = intendedStart - System.nanoTime()) > 0) {
+                            LockSupport.parkNanos(wait);
+                        }
+                    }
+                    if (System.nanoTime() - deadline > 0) {
+                        break;
+                    }
+                    long begin = System.nanoTime();
+                    Operation op = chooseOperation(random);
+                    try {
+                        if (!execute(op, random, keys, source)) {
+                            stats[index].miss(op);
+                        }
+                    } catch (Exception e) {
+                        stats[index].error(op);
+                    }
+                    long end = System.nanoTime();
+                    stats[index].record(op, (end - intendedStart) / 1000, (end - begin) / 1000);
+                    completed.increment();
+                }
+            }, "run-" + t);
+        }
+        return runWorkers(workers, stats);
+    }
+
+    private Operation chooseOperation(Random random) {
+        double r = random.nextDouble();
+        if ((r -= options.getReadProportion()) < 0) {
+            return Operation.READ;
+        }
+        if ((r -= options.getUpdateProportion()) < 0) {
+            return Operation.UPDATE;
+        }
+        if ((r -= options.getInsertProportion()) < 0) {
+            return Operation.INSERT;
+        }
+        return options.getScanProportion() > 0 ? Operation.SCAN : Operation.READ;
+    }
+
+    /**
+     * @return false 表示读到的key不存在
+     */
+    private boolean execute(Operation op, Random random, KeyGenerator keys, byte[] source) throws InterruptedException {
+        switch (op) {
+            case READ:
+                return client.get(keyOf(keys.next(random))) != null;
+            case UPDATE:
+                client.put(keyOf(keys.next(random)), valueOf(random, source));
+                return true;
+            case INSERT:
+                client.put(keyOf(inserted.getAndIncrement()), valueOf(random, source));
+                return true;
+            case SCAN:
+            default:
+                // DkvClient 没有范围查询，扫描按连续编号逐个读取，整段记一次延迟
+                long first = keys.next(random);
+                long last = Math.min(inserted.get(), first + 1 + random.nextInt(options.getMaxScanLength()));
+                boolean found = true;
+                for (long id = first; id < last; id++) {
+                    found &= client.get(keyOf(id)) != null;
+                }
+                return found;
+        }
+    }
+
+    private OperationStats runWorkers(Thread[] workers, OperationStats[] stats) throws InterruptedException {
+        ScheduledExecutorService status = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "load-status");
+            thread.setDaemon(true);
+            return thread;
+        });
+        completed.reset();
+        long begin = System.nanoTime();
+        long[] last = {0, begin};
+        status.scheduleAtFixedRate(() -> {
+            long now = System.nanoTime();
+            long done = completed.sum();
+            System.out.printf("[LoadGenerator] %d sec: %d operations; %.1f current ops/sec%n",
+                    TimeUnit.NANOSECONDS.toSeconds(now - begin), done,
+                    (done - last[0]) * 1e9 / (now - last[1]));
+            last[0] = done;
+            last[1] = now;
+        }, STATUS_INTERVAL_SECONDS, STATUS_INTERVAL_SECONDS, TimeUnit.SECONDS);
+
+        for (Thread worker : workers) {
+            worker.start();
+        }
+        for (Thread worker : workers) {
+            worker.join();
+        }
+        status.shutdownNow();
+
+        OperationStats total = new OperationStats();
+        for (OperationStats s : stats) {
+            total.add(s);
+        }
+        return total;
+    }
+
+    public static void main(String[] args) throws Exception {
+        Properties properties = new Properties();
+        String zkAddress = null;
+        String nodeList = null;
+        int localNodes = 0;
+        int basePort = 9001;
+        boolean skipLoad = false;
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "-P":
+                    try (InputStream in = new FileInputStream(args[++i])) {
+                        properties.load(in);
+                    }
+                    break;
+                case "-p":
+                    String[] pair = args[++i].split("=", 2);
+                    properties.setProperty(pair[0], pair[1]);
+                    break;
+                case "-zk":
+                    zkAddress = args[++i];
+                    break;
+                case "-nodes":
+                    nodeList = args[++i];
+                    break;
+                case "-local":
+                    localNodes = Integer.parseInt(args[++i]);
+                    break;
+                case "-port":
+                    basePort = Integer.parseInt(args[++i]);
+                    break;
+                case "-skipload":
+                    skipLoad = true;
+                    break;
+                default:
+                    throw new IllegalArgumentException("Unknown argument: " + args[i]);
+            }
+        }
+        WorkloadOptions options = WorkloadOptions.fromProperties(properties);
+        System.out.println("[LoadGenerator] " + options);
+
+        List<DataNode> cluster = new ArrayList<>();
+        List<String> nodes = new ArrayList<>();
+        if (localNodes > 0) {
+            startLocalCluster(localNodes, basePort, cluster, nodes);
+        } else if (nodeList != null) {
+            nodes.addAll(Arrays.asList(nodeList.split(",")));
+        } else if (zkAddress == null) {
+            throw new IllegalArgumentException("One of -zk, -nodes or -local is required");
+        }
+
+        DkvClient client = nodes.isEmpty() ? new DkvClient(zkAddress) : new DkvClient(nodes);
+        try {
+            LoadGenerator generator = new LoadGenerator(options, client);
+            if (!skipLoad) {
+                long begin = System.currentTimeMillis();
+                OperationStats load = generator.load();
+                load.report(System.out, "LOAD", System.currentTimeMillis() - begin, false);
+            }
+            long begin = System.currentTimeMillis();
+            OperationStats run = generator.run();
+            run.report(System.out, "OVERALL", System.currentTimeMillis() - begin, options.getTargetOpsPerSecond() > 0);
+        } finally {
+            client.close();
+            for (DataNode node : cluster) {
+                node.stop();
+            }
+        }
+    }
+
+    private static void startLocalCluster(int count, int basePort, List<DataNode> cluster, List<String> nodes)
+            throws Exception {
+        Path dataRoot = Files.createTempDirectory("dkv-load");
+        for (int i = 0; i < count; i++) {
+            nodes.add("127.0.0.1:" + (basePort + i));
+        }
+        for (int i = 0; i < count; i++) {
+            List<String> replicaNodes = new ArrayList<>(nodes);
+            replicaNodes.remove(i);
+            DataNode node = new DataNode("node_" + (basePort + i), dataRoot.resolve("node_" + (basePort + i)).toString(),
+                    basePort + i, i == 0, replicaNodes, count);
+            node.start();
+            cluster.add(node);
+        }
+        System.out.println("[LoadGenerator] Local cluster started: " + nodes + ", data: " + dataRoot);
+    }
+}
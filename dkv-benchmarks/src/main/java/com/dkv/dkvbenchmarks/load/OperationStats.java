@@ -0,0 +1,96 @@
+package com.dkv.dkvbenchmarks.load;
+
+import org.HdrHistogram.Histogram;
+
+import java.io.PrintStream;
+import java.util.EnumMap;
+import java.util.Map;
+
+/**
+ * 每个工作线程一份的操作统计，结束后合并；延迟单位微秒
+ * service 是请求真正发出到返回的时间；intended 从计划发出的时刻算起，
+ * 限速运行时服务端卡顿导致的排队也计入（协调遗漏修正），只看 service 会低估尾延迟
+ */
+public class OperationStats {
+
+    public enum Operation { READ, UPDATE, INSERT, SCAN }
+
+    private static final int SIGNIFICANT_DIGITS = 3;
+    private static final double[] PERCENTILES = {50, 90, 95, 99, 99.9, 99.99};
+
+    private final Map<Operation, Histogram> service = new EnumMap<>(Operation.class);
+    private final Map<Operation, Histogram> intended = new EnumMap<>(Operation.class);
+    private final Map<Operation, long[]> counters = new EnumMap<>(Operation.class);  // [未命中, 失败]
+
+    OperationStats() {
+        for (Operation op : Operation.values()) {
+            service.put(op, new Histogram(SIGNIFICANT_DIGITS));
+            intended.put(op, new Histogram(SIGNIFICANT_DIGITS));
+            counters.put(op, new long[2]);
+        }
+    }
+
+    void record(Operation op, long intendedMicros, long serviceMicros) {
+        service.get(op).recordValue(serviceMicros);
+        intended.get(op).recordValue(intendedMicros);
+    }
+
+    void miss(Operation op) {
+        counters.get(op)[0]++;
+    }
+
+    void error(Operation op) {
+        counters.get(op)[1]++;
+    }
+
+    public long totalOperations() {
+        long total = 0;
+        for (Histogram histogram : service.values()) {
+            total += histogram.getTotalCount();
+        }
+        return total;
+    }
+
+    void add(OperationStats other) {
+        for (Operation op : Operation.values()) {
+            service.get(op).add(other.service.get(op));
+            intended.get(op).add(other.intended.get(op));
+            counters.get(op)[0] += other.counters.get(op)[0];
+            counters.get(op)[1] += other.counters.get(op)[1];
+        }
+    }
+
+    /**
+     * 按 YCSB 的格式输出，便于沿用已有的结果处理脚本
+     */
+    public void report(PrintStream out, String phase, long elapsedMillis, boolean throttled) {
+        long total = totalOperations();
+        out.println("[" + phase + "], RunTime(ms), " + elapsedMillis);
+        out.println("[" + phase + "], Throughput(ops/sec), "
+                + String.format("%.1f", total * 1000.0 / Math.max(1, elapsedMillis)));
+        for (Operation op : Operation.values()) {
+            Histogram histogram = service.get(op);
+            if (histogram.getTotalCount() == 0) {
+                continue;
+            }
+            reportHistogram(out, op.name(), histogram);
+            out.println("[" + op + "], Misses, " + counters.get(op)[0]);
+            out.println("[" + op + "], Errors, " + counters.get(op)[1]);
+            if (throttled) {
+                reportHistogram(out, "INTENDED-" + op, intended.get(op));
+            }
+        }
+    }
+
+    private static void reportHistogram(PrintStream out, String name, Histogram histogram) {
+        out.println("[" + name + "], Operations, " + histogram.getTotalCount());
+        out.println("[" + name + "], AverageLatency(us), " + String.format("%.1f", histogram.getMean()));
+        out.println("[" + name + "], MinLatency(us), " + histogram.getMinValue());
+        for (double percentile : PERCENTILES) {
+            String label = percentile == Math.rint(percentile) ? String.valueOf((long) percentile) : String.valueOf(percentile);
+            out.println("[" + name + "], " + label + "thPercentileLatency(us), "
+                    + histogram.getValueAtPercentile(percentile));
+        }
+        out.println("[" + name + "], MaxLatency(us), " + histogram.getMaxValue());
+    }
+}
@@ -0,0 +1,183 @@
+package com.dkv.dkvbenchmarks.load;
+
+import java.util.Properties;
+
+/**
+ * 负载配置，属性名沿用 YCSB 的 workload 文件（readproportion、requestdistribution 等），
+ * 已有的 YCSB workload 文件可以直接拿来用
+ */
+public class WorkloadOptions {
+
+    public enum KeyDistribution { UNIFORM, ZIPFIAN, LATEST }
+
+    public enum ValueSizeDistribution { CONSTANT, UNIFORM }
+
+    private long recordCount = 100_000;          // 加载阶段写入的key数
+    private long operationCount = 1_000_000;     // 运行阶段的总操作数，0 表示只按时长
+    private long maxExecutionSeconds = 0;        // 运行阶段最长时间，0 表示不限
+    private int threads = 16;
+    private double targetOpsPerSecond = 0;       // 目标吞吐，0 表示不限速（此时无法做协调遗漏修正）
+
+    private double readProportion = 0.95;
+    private double updateProportion = 0.05;
+    private double insertProportion = 0;
+    private double scanProportion = 0;
+    private int maxScanLength = 100;
+
+    private KeyDistribution keyDistribution = KeyDistribution.ZIPFIAN;
+    private double zipfianConstant = ZipfianGenerator.DEFAULT_CONSTANT;
+    private ValueSizeDistribution valueSizeDistribution = ValueSizeDistribution.CONSTANT;
+    private int minValueSize = 1024;
+    private int maxValueSize = 1024;
+    private String keyPrefix = "user";
+
+    public static WorkloadOptions fromProperties(Properties p) {
+        WorkloadOptions o = new WorkloadOptions();
+        o.recordCount = Long.parseLong(p.getProperty("recordcount", String.valueOf(o.recordCount)));
+        o.operationCount = Long.parseLong(p.getProperty("operationcount", String.valueOf(o.operationCount)));
+        o.maxExecutionSeconds = Long.parseLong(p.getProperty("maxexecutiontime", String.valueOf(o.maxExecutionSeconds)));
+        o.threads = Integer.parseInt(p.getProperty("threadcount", String.valueOf(o.threads)));
+        o.targetOpsPerSecond = Double.parseDouble(p.getProperty("target", String.valueOf(o.targetOpsPerSecond)));
+        o.readProportion = Double.parseDouble(p.getProperty("readproportion", String.valueOf(o.readProportion)));
+        o.updateProportion = Double.parseDouble(p.getProperty("updateproportion", String.valueOf(o.updateProportion)));
+        o.insertProportion = Double.parseDouble(p.getProperty("insertproportion", String.valueOf(o.insertProportion)));
+        o.scanProportion = Double.parseDouble(p.getProperty("scanproportion", String.valueOf(o.scanProportion)));
+        o.maxScanLength = Integer.parseInt(p.getProperty("maxscanlength", String.valueOf(o.maxScanLength)));
+        o.keyDistribution = KeyDistribution.valueOf(
+                p.getProperty("requestdistribution", o.keyDistribution.name()).toUpperCase());
+        o.zipfianConstant = Double.parseDouble(p.getProperty("zipfianconstant", String.valueOf(o.zipfianConstant)));
+        o.valueSizeDistribution = ValueSizeDistribution.valueOf(
+                p.getProperty("fieldlengthdistribution", o.valueSizeDistribution.name()).toUpperCase());
+        o.minValueSize = Integer.parseInt(p.getProperty("minfieldlength", String.valueOf(o.minValueSize)));
+        o.maxValueSize = Integer.parseInt(p.getProperty("fieldlength", String.valueOf(o.maxValueSize)));
+        o.keyPrefix = p.getProperty("keyprefix", o.keyPrefix);
+        return o.validate();
+    }
+
+    public WorkloadOptions validate() {
+        double total = readProportion + updateProportion + insertProportion + scanProportion;
+        if (Math.abs(total - 1.0) > 1e-6) {
+            throw new IllegalArgumentException("Operation proportions must add up to 1, got " + total);
+        }
+        if (recordCount <= 0 || threads <= 0 || minValueSize < 0 || maxValueSize < minValueSize || maxScanLength <= 0) {
+            throw new IllegalArgumentException("Invalid workload options: " + this);
+        }
+        if (operationCount <= 0 && maxExecutionSeconds <= 0) {
+            throw new IllegalArgumentException("Either operationcount or maxexecutiontime must be set");
+        }
+        return this;
+    }
+
+    public long getRecordCount() { return recordCount; }
+    public WorkloadOptions setRecordCount(long recordCount) {
+        this.recordCount = recordCount;
+        return this;
+    }
+
+    public long getOperationCount() { return operationCount; }
+    public WorkloadOptions setOperationCount(long operationCount) {
+        this.operationCount = operationCount;
+        return this;
+    }
+
+    public long getMaxExecutionSeconds() { return maxExecutionSeconds; }
+    public WorkloadOptions setMaxExecutionSeconds(long maxExecutionSeconds) {
+        this.maxExecutionSeconds = maxExecutionSeconds;
+        return this;
+    }
+
+    public int getThreads() { return threads; }
+    public WorkloadOptions setThreads(int threads) {
+        this.threads = threads;
+        return this;
+    }
+
+    public double getTargetOpsPerSecond() { return targetOpsPerSecond; }
+    public WorkloadOptions setTargetOpsPerSecond(double targetOpsPerSecond) {
+        this.targetOpsPerSecond = targetOpsPerSecond;
+        return this;
+    }
+
+    public double getReadProportion() { return readProportion; }
+    public WorkloadOptions setReadProportion(double readProportion) {
+        this.readProportion = readProportion;
+        return this;
+    }
+
+    public double getUpdateProportion() { return updateProportion; }
+    public WorkloadOptions setUpdateProportion(double updateProportion) {
+        this.updateProportion = updateProportion;
+        return this;
+    }
+
+    public double getInsertProportion() { return insertProportion; }
+    public WorkloadOptions setInsertProportion(double insertProportion) {
+        this.insertProportion = insertProportion;
+        return this;
+    }
+
+    public double getScanProportion() { return scanProportion; }
+    public WorkloadOptions setScanProportion(double scanProportion) {
+        this.scanProportion = scanProportion;
+        return this;
+    }
+
+    public int getMaxScanLength() { return maxScanLength; }
+    public WorkloadOptions setMaxScanLength(int maxScanLength) {
+        this.maxScanLength = maxScanLength;
+        return this;
+    }
+
+    public KeyDistribution getKeyDistribution() { return keyDistribution; }
+    public WorkloadOptions setKeyDistribution(KeyDistribution keyDistribution) {
+        this.keyDistribution = keyDistribution;
+        return this;
+    }
+
+    public double getZipfianConstant() { return zipfianConstant; }
+    public WorkloadOptions setZipfianConstant(double zipfianConstant) {
+        this.zipfianConstant = zipfianConstant;
+        return this;
+    }
+
+    public ValueSizeDistribution getValueSizeDistribution() { return valueSizeDistribution; }
+    public WorkloadOptions setValueSizeDistribution(ValueSizeDistribution valueSizeDistribution) {
+        this.valueSizeDistribution = valueSizeDistribution;
+        return this;
+    }
+
+    public int getMinValueSize() { return minValueSize; }
+    public WorkloadOptions setMinValueSize(int minValueSize) {
+        this.minValueSize = minValueSize;
+        return this;
+    }
+
+    public int getMaxValueSize() { return maxValueSize; }
+    public WorkloadOptions setMaxValueSize(int maxValueSize) {
+        this.maxValueSize = maxValueSize;
+        return this;
+    }
+
+    public String getKeyPrefix() { return keyPrefix; }
+    public WorkloadOptions setKeyPrefix(String keyPrefix) {
+        this.keyPrefix = keyPrefix;
+        return this;
+    }
+
+    @Override
+    public String toString() {
+        return "WorkloadOptions{" +
+                "recordCount=" + recordCount +
+                ", operationCount=" + operationCount +
+                ", maxExecutionSeconds=" + maxExecutionSeconds +
+                ", threads=" + threads +
+                ", target=" + targetOpsPerSecond +
+                ", read=" + readProportion +
+                ", update=" + updateProportion +
+                ", insert=" + insertProportion +
+                ", scan=" + scanProportion +
+                ", distribution=" + keyDistribution +
+                ", valueSize=" + valueSizeDistribution + "[" + minValueSize + "," + maxValueSize + "]" +
+                '}';
+    }
+}
@@ -0,0 +1,54 @@
+package com.dkv.dkvbenchmarks.load;
+
+import java.util.Random;
+
+/**
+ * Zipf 分布的整数 [0, items)，0 最热；算法同 YCSB 的 ZipfianGenerator（Gray 等人的快速生成法）
+ * 构造时计算一次 zeta(n)，之后每次生成 O(1)；不可变，多线程共享，随机数由调用方提供
+ */
+public class ZipfianGenerator {
+
+    public static final double DEFAULT_CONSTANT = 0.99;
+
+    private final long items;
+    private final double theta;
+    private final double zetaN;
+    private final double alpha;
+    private final double eta;
+
+    public ZipfianGenerator(long items, double theta) {
+        if (items <= 0) {
+            throw new IllegalArgumentException("items must be positive");
+        }
+        this.items = items;
+        this.theta = theta;
+        this.zetaN = zeta(items, theta);
+        double zeta2 = zeta(2, theta);
+        this.alpha = 1.0 / (1.0 - theta);
+        this.eta = (1 - Math.pow(2.0 / items, 1 - theta)) / (1 - zeta2 / zetaN);
+    }
+
+    private static double zeta(long n, double theta) {
+        double sum = 0;
+        for (long i = 1; i <= n; i++) {
+            sum += 1 / Math.pow(i, theta);
+        }
+        return sum;
+    }
+
+    public long next(Random random) {
+        double u = random.nextDouble();
+        double uz = u * zetaN;
+        if (uz < 1.0) {
+            return 0;
+        }
+        if (uz < 1.0 + Math.pow(0.5, theta)) {
+            return 1;
+        }
+        return Math.min(items - 1, (long) (items * Math.pow(eta * u - eta + 1, alpha)));
+    }
+
+    public long getItems() {
+        return items;
+    }
+}
@@ -1,19 +1,81 @@
 package com.dkv.dkvclient.client;
 
 import com.dkv.dkvcommon.model.KvMessage;
+import io.netty.channel.Channel;
 import io.netty.channel.ChannelHandlerContext;
 import io.netty.channel.SimpleChannelInboundHandler;
 
+import java.io.IOException;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 长连接上的响应分发：一个连接上可以同时有多个未完成的请求（流水线），
+ * 服务端按key分通道执行，不同key的响应可能乱序到达，按 requestId 匹配
+ */
 public class ClientHandler extends SimpleChannelInboundHandler<KvMessage> {
 
-    private KvMessage response;
+    private final Map<String, CompletableFuture<KvMessage>> pending = new ConcurrentHashMap<>();
+    private volatile Throwable failure;
+
+    /**
+     * 发送请求，不等待响应；多个线程可以同时在一个连接上发送
+     */
+    public CompletableFuture<KvMessage> send(Channel channel, KvMessage request) {
+        CompletableFuture<KvMessage> future = new CompletableFuture<>();
+        pending.put(request.getRequestId(), future);
+        // 连接在登记之后才断开时，channelInactive 会负责失败这个请求
+        if (!channel.isActive()) {
+            failPending(request.getRequestId(), new IOException("Connection closed"));
+            return future;
+        }
+        channel.writeAndFlush(request).addListener(f -> {
+            if (!f.isSuccess()) {
+                failPending(request.getRequestId(), f.cause());
+            }
+        });
+        return future;
+    }
+
+    /**
+     * 放弃等待（如超时），迟到的响应会被丢弃
+     */
+    public void cancel(String requestId) {
+        pending.remove(requestId);
+    }
+
+    public int getPendingCount() {
+        return pending.size();
+    }
 
     @Override
     protected void channelRead0(ChannelHandlerContext ctx, KvMessage msg) {
-        this.response = msg;
+        CompletableFuture<KvMessage> future = msg.getRequestId() == null ? null : pending.remove(msg.getRequestId());
+        if (future != null) {
+            future.complete(msg);
+        }
+    }
+
+    @Override
+    public void channelInactive(ChannelHandlerContext ctx) {
+        IOException cause = new IOException("Connection closed", failure);
+        for (String requestId : pending.keySet()) {
+            failPending(requestId, cause);
+        }
+        ctx.fireChannelInactive();
+    }
+
+    @Override
+    public void exceptionCaught(ChannelHandlerContext ctx, Throwable cause) {
+        failure = cause;
+        ctx.close();
     }
 
-    public KvMessage getResponse() {
-        return response;
+    private void failPending(String requestId, Throwable cause) {
+        CompletableFuture<KvMessage> future = pending.remove(requestId);
+        if (future != null) {
+            future.completeExceptionally(cause);
+        }
     }
 }
@@ -1,30 +1,110 @@
 package com.dkv.dkvclient.client;
 
+import com.dkv.dkvcommon.costants.DkvConstants;
 import com.dkv.dkvcommon.model.KvMessage;
-import com.dkv.dkvstorage.KvClientHandler;
+import com.dkv.dkvcommon.trace.Span;
+import com.dkv.dkvcommon.trace.Tracer;
+import com.dkv.dkvcommon.utils.CounterUtil;
+import com.dkv.dkvcommon.utils.HashRing;
+import com.dkv.dkvstorage.codec.KvCompressionHandler;
+import com.dkv.dkvstorage.codec.KvMessageDecoder;
+import com.dkv.dkvstorage.codec.KvMessageEncoder;
+import com.dkv.dkvstorage.transport.NettyTransport;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import io.netty.bootstrap.Bootstrap;
 import io.netty.channel.*;
-import io.netty.channel.nio.NioEventLoopGroup;
-import io.netty.channel.socket.nio.NioSocketChannel;
-import io.netty.handler.codec.serialization.ClassResolvers;
-import io.netty.handler.codec.serialization.ObjectDecoder;
-import io.netty.handler.codec.serialization.ObjectEncoder;
+import io.netty.handler.flush.FlushConsolidationHandler;
 import org.apache.curator.framework.CuratorFramework;
 import org.apache.curator.framework.CuratorFrameworkFactory;
 import org.apache.curator.retry.ExponentialBackoffRetry;
-import org.apache.zookeeper.Watcher;
+import org.apache.curator.framework.recipes.cache.CuratorCache;
+import org.apache.curator.framework.recipes.cache.CuratorCacheListener;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
-import java.util.ArrayList;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
 import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.UUID;
+import java.util.concurrent.CancellationException;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
 
 public class DkvClient {
+    private static final Logger logger = LoggerFactory.getLogger(DkvClient.class);
+
+    private static final int STREAM_WINDOW = 4;              // 流式写入最多未确认分块数
+    private static final long STREAM_TIMEOUT_SECONDS = 10;   // 单个分块确认/到达超时
+    private static final long REQUEST_TIMEOUT_SECONDS = 5;   // 普通请求超时
+    private static final int FLUSH_CONSOLIDATION_LIMIT = 256; // 连续写这么多帧才强制flush一次
+    private static final long DEFAULT_HEDGE_DELAY_MILLIS = 10; // 读延迟样本不足时的对冲等待时间
+    private static final double MAX_HEDGE_RATIO = 0.1;        // 对冲请求最多占副本读的比例，避免慢节点时负载翻倍
+    private static final long ZK_INIT_TIMEOUT_SECONDS = 10;   // 等待节点列表首次加载的时间
+    private static final ObjectMapper JSON = new ObjectMapper();
+    private static final String[] SPAN_NAMES = new String[KvMessage.Type.values().length];
+
+    static {
+        for (KvMessage.Type type : KvMessage.Type.values()) {
+            SPAN_NAMES[type.ordinal()] = "client." + type.name().toLowerCase(Locale.ROOT);
+        }
+    }
 
     private final String zkAddress;  // ZooKeeper 地址
-    private final List<String> nodes = new ArrayList<>();
+    // 一致性哈希环，与 master 的路由一致；节点变化时在后台构建新环后整体替换，请求路径上不加锁
+    private volatile HashRing ring = HashRing.EMPTY;
+    // 当前环的输入，只在 rebuildRing 里读写
+    private Map<String, Integer> routedWeights = Map.of();
+    private Map<Integer, String> routedTokens = Map.of();
     private CuratorFramework zkClient;
+    private CuratorCache nodesCache;
+    private CuratorCache tokensCache;
+    private volatile boolean nodesLoaded;
+    private volatile boolean tokensLoaded;
+    // 请求value的压缩算法，同时声明给服务端用于压缩响应
+    private volatile KvMessage.Compression compression = KvMessage.Compression.LZ4;
+    // 每个节点一条长连接，多个请求在同一连接上流水线发送
+    private final Map<String, Channel> connections = new ConcurrentHashMap<>();
+    private final AtomicLong requestIds = new AtomicLong();
+    private volatile EventLoopGroup group;
+    // 请求追踪，默认关闭；采样在客户端决定，上下文随请求传到主节点和副本
+    private volatile Tracer tracer = Tracer.NOOP;
+    // 副本读：GET 可以由 key 的前 readReplicas 个节点（主节点和副本）服务，可能读到稍旧的数据；1 表示只读主节点
+    private volatile int readReplicas = 1;
+    private volatile boolean hedgedReads = true;
+    private final NodeLatencyTracker latency = new NodeLatencyTracker();
+    private final AtomicLong replicaReads = new AtomicLong();
+    private final AtomicLong hedges = new AtomicLong();
+    // 失败处理：重试策略、读请求故障转移的副本数、按节点的熔断和离群摘除
+    private volatile RetryPolicy retryPolicy = new RetryPolicy();
+    private volatile int replicationFactor = 1;
+    private final NodeHealth health = new NodeHealth();
+    // 故障转移、对冲、回退主节点和退避重试都在上一次请求的回调里发起，回调可能跑在 I/O 线程上，
+    // 而发请求可能要同步建连；这些后续请求交给这个线程池发出，不阻塞 I/O 线程
+    // close 时不关闭它：退避中的重试要能跑完并以失败结束，否则调用方会一直等待；空闲线程 60 秒后自行退出
+    private final ExecutorService followUps = Executors.newCachedThreadPool(r -> {
+        Thread t = new Thread(r, "dkv-client-followup");
+        t.setDaemon(true);
+        return t;
+    });
 
     public DkvClient(String zkAddress) {
         this.zkAddress = zkAddress;
@@ -35,118 +115,916 @@ public class DkvClient {
         }
     }
 
-    /** 连接 ZooKeeper 并初始化路由表 */
+    /** 使用固定的节点列表（"ip:port"），不连接 ZooKeeper，用于本地集群和压测 */
+    public DkvClient(List<String> staticNodes) {
+        this.zkAddress = null;
+        this.ring = new HashRing(staticNodes);
+    }
+
+    public KvMessage.Compression getCompression() { return compression; }
+    public void setCompression(KvMessage.Compression compression) { this.compression = compression; }
+
+    public Tracer getTracer() { return tracer; }
+    public void setTracer(Tracer tracer) { this.tracer = tracer; }
+
+    public int getReadReplicas() { return readReplicas; }
+    /**
+     * 允许 GET 由 key 的前 replicas 个节点服务（主节点和它的副本），按观测到的延迟挑选最快的节点
+     * 副本复制有延迟，只适合能容忍读到旧数据的场景；1（默认）表示只读主节点
+     */
+    public void setReadReplicas(int readReplicas) { this.readReplicas = Math.max(1, readReplicas); }
+
+    public boolean isHedgedReads() { return hedgedReads; }
+    /** 副本读超过近期 p95 延迟仍未返回时，向次快的节点再发一份，先到的胜出 */
+    public void setHedgedReads(boolean hedgedReads) { this.hedgedReads = hedgedReads; }
+
+    /** 各节点的延迟 EWMA（毫秒），按客户端实际观测 */
+    public Map<String, Double> getNodeLatencies() { return latency.snapshot(); }
+
+    /** 已发出的对冲请求数 */
+    public long getHedgedRequestCount() { return hedges.get(); }
+
+    public RetryPolicy getRetryPolicy() { return retryPolicy; }
+    public void setRetryPolicy(RetryPolicy retryPolicy) { this.retryPolicy = retryPolicy; }
+
+    public int getReplicationFactor() { return replicationFactor; }
+    /**
+     * key 的副本数（含主节点）；大于 1 时读请求在主节点失败后按环上顺序改读下一个副本（可能读到旧数据）
+     * 写请求只发给主节点：其他节点不会把写入复制出去，改写副本会造成数据分叉
+     */
+    public void setReplicationFactor(int replicationFactor) { this.replicationFactor = Math.max(1, replicationFactor); }
+
+    /** 各节点的熔断/摘除状态，只包含出过错的节点 */
+    public Map<String, String> getNodeHealth() { return health.snapshot(); }
+
+    /**
+     * 连接 ZooKeeper 并持续监听节点列表和 master 改归的 token，两者首次加载完成后返回
+     * CuratorCache 自动重新注册 watcher，节点上下线、节点数据（权重、健康状态）和 token 变化都会触发重建路由
+     */
     public void connect() throws Exception {
         zkClient = CuratorFrameworkFactory.newClient(
                 zkAddress, new ExponentialBackoffRetry(1000, 3));
         zkClient.start();
 
-        updateNodes();
-
-        // 注册 Watcher，节点变化自动更新
-        zkClient.getChildren().usingWatcher((Watcher) event -> {
-                    try {
-                        updateNodes();
-                    } catch (Exception e) {
-                        throw new RuntimeException(e);
+        CountDownLatch loaded = new CountDownLatch(2);
+        nodesCache = CuratorCache.build(zkClient, DkvConstants.ZK_NODES_PATH);
+        nodesCache.listenable().addListener(CuratorCacheListener.builder()
+                .forAll((type, oldData, data) -> {
+                    // 初始加载期间每个节点都会触发一次，等加载完统一构建
+                    if (nodesLoaded && tokensLoaded) {
+                        rebuildRing();
+                    }
+                })
+                .forInitialized(() -> {
+                    nodesLoaded = true;
+                    if (tokensLoaded) {
+                        rebuildRing();
+                    }
+                    loaded.countDown();
+                })
+                .build());
+        tokensCache = CuratorCache.build(zkClient, DkvConstants.ZK_TOKENS_PATH);
+        tokensCache.listenable().addListener(CuratorCacheListener.builder()
+                .forAll((type, oldData, data) -> {
+                    if (nodesLoaded && tokensLoaded) {
+                        rebuildRing();
                     }
                 })
-                .forPath("/dkv/nodes");
+                .forInitialized(() -> {
+                    tokensLoaded = true;
+                    if (nodesLoaded) {
+                        rebuildRing();
+                    }
+                    loaded.countDown();
+                })
+                .build());
+        tokensCache.start();
+        nodesCache.start();
+        if (!loaded.await(ZK_INIT_TIMEOUT_SECONDS, TimeUnit.SECONDS)) {
+            logger.warn("Timed out loading nodes from ZooKeeper, routing stays empty until loaded");
+        }
     }
 
-    /** 拉取 /dkv/nodes 下节点列表 */
-    private void updateNodes() throws Exception {
-        List<String> children = zkClient.getChildren().forPath("/dkv/nodes");
-        synchronized (nodes) {
-            nodes.clear();
-            nodes.addAll(children);
+    /**
+     * 由缓存的节点和改归的 token 重新构建哈希环并替换，在 Curator 的事件线程上执行
+     * 节点数据里报告不健康的节点不参与路由；已下线节点的连接随之关闭，请求不会再发过去
+     * 节点每个上报周期都会改写自己的数据，权重、健康状态和改归表都没变时不重建
+     */
+    private synchronized void rebuildRing() {
+        String prefix = DkvConstants.ZK_NODES_PATH + "/";
+        Map<String, Integer> weights = new TreeMap<>();  // 按节点名排序，构建结果与事件顺序无关
+        nodesCache.stream()
+                .filter(child -> child.getPath().startsWith(prefix)
+                        && child.getPath().indexOf('/', prefix.length()) < 0)
+                .forEach(child -> {
+                    int weight = routingWeight(child.getData());
+                    if (weight > 0) {
+                        weights.put(child.getPath().substring(prefix.length()), weight);
+                    }
+                });
+        Map<Integer, String> moved = movedTokens();
+        if (weights.equals(routedWeights) && moved.equals(routedTokens)) {
+            return;
         }
-        System.out.println("[DkvClient] Current nodes: " + nodes);
+        ring = new HashRing(weights, moved);
+        routedWeights = weights;
+        routedTokens = moved;
+        connections.entrySet().removeIf(entry -> {
+            if (weights.containsKey(entry.getKey())) {
+                return false;
+            }
+            entry.getValue().close();
+            return true;
+        });
+        logger.info("Routing updated, nodes: {}, moved tokens: {}", weights, moved.size());
     }
 
-    /** 简单一致性哈希计算目标节点 */
-    private String getTargetIp(String key) {
-        synchronized (nodes) {
-            if (nodes.isEmpty()) {
-                throw new RuntimeException("No available nodes in ZooKeeper!");
+    /**
+     * master 发布的 token 改归表，没有或无法解析时为空（按默认位置路由）
+     */
+    private Map<Integer, String> movedTokens() {
+        Map<Integer, String> moved = new TreeMap<>();
+        tokensCache.get(DkvConstants.ZK_TOKENS_PATH).ifPresent(node -> {
+            byte[] payload = node.getData();
+            if (payload == null || payload.length == 0) {
+                return;
+            }
+            try {
+                for (Map.Entry<String, JsonNode> token : JSON.readTree(payload).properties()) {
+                    moved.put(Integer.valueOf(token.getKey()), token.getValue().asText());
+                }
+            } catch (IOException | NumberFormatException e) {
+                logger.warn("Ignoring malformed token table: {}", e.getMessage());
             }
-            int hash = Math.abs(key.hashCode());
-            int idx = hash % nodes.size();
-            return nodes.get(idx);
+        });
+        return moved;
+    }
+
+    /**
+     * 节点数据中的路由权重（虚拟节点倍数），节点报告自己不健康时为 0；数据为空或不是 JSON 时按 1
+     */
+    private static int routingWeight(byte[] payload) {
+        if (payload == null || payload.length == 0) {
+            return 1;
+        }
+        try {
+            JsonNode json = JSON.readTree(payload);
+            if (!json.path("healthy").asBoolean(true)) {
+                return 0;
+            }
+            return Math.max(1, json.path("weight").asInt(1));
+        } catch (IOException e) {
+            return 1;
+        }
+    }
+
+    /** 当前参与路由的节点 */
+    public List<String> getNodes() {
+        return ring.getNodes();
+    }
+
+    /** 按key字节的 murmur3 哈希在一致性哈希环上选择主节点 */
+    private String getTargetIp(byte[] key) {
+        String target = ring.route(key);
+        if (target == null) {
+            throw new RuntimeException("No available nodes in ZooKeeper!");
         }
+        return target;
     }
 
-    /** PUT 操作 */
+    private static byte[] utf8(String key) {
+        return key == null ? null : key.getBytes(StandardCharsets.UTF_8);
+    }
+
+    /**
+     * ByteBuffer 形式的key取 position 到 limit 之间的字节，不移动 position
+     * 帧里的key是一段连续字节，这里复制一次（key通常只有几十字节），之后与 byte[] key 走同一条路径
+     */
+    private static byte[] bytes(ByteBuffer key) {
+        if (key == null) {
+            return null;
+        }
+        byte[] bytes = new byte[key.remaining()];
+        key.duplicate().get(bytes);
+        return bytes;
+    }
+
+    private static KvMessage request(KvMessage.Type type, byte[] key, byte[] value) {
+        KvMessage message = new KvMessage(type, null, value);
+        message.setKeyBytes(key);
+        return message;
+    }
+
+    /** PUT 操作；重试用尽或服务端返回错误状态时抛出 DkvRequestException，以下同步操作相同 */
     public void put(String key, byte[] value) throws InterruptedException {
-        KvMessage message = new KvMessage(KvMessage.Type.PUT, key, value);
+        put(null, utf8(key), value);
+    }
+
+    /** PUT 操作（二进制key） */
+    public void put(byte[] key, byte[] value) throws InterruptedException {
+        put(null, key, value);
+    }
+
+    /** PUT 操作（ByteBuffer key） */
+    public void put(ByteBuffer key, byte[] value) throws InterruptedException {
+        put(null, bytes(key), value);
+    }
+
+    /** PUT 操作（指定命名空间，为空表示 default） */
+    public void put(String namespace, String key, byte[] value) throws InterruptedException {
+        put(namespace, utf8(key), value);
+    }
+
+    /** PUT 操作（指定命名空间，二进制key） */
+    public void put(String namespace, byte[] key, byte[] value) throws InterruptedException {
+        if (value != null && value.length > DkvConstants.LARGE_VALUE_THRESHOLD) {
+            try {
+                putStream(namespace, key, new ByteArrayInputStream(value));
+            } catch (IOException e) {
+                throw new RuntimeException(e);
+            }
+            return;
+        }
+        KvMessage message = request(KvMessage.Type.PUT, key, value);
+        message.setNamespace(namespace);
         sendRequest(getTargetIp(key), message);
     }
 
-    /** GET 操作 */
+    /** PUT 操作（指定命名空间，ByteBuffer key） */
+    public void put(String namespace, ByteBuffer key, byte[] value) throws InterruptedException {
+        put(namespace, bytes(key), value);
+    }
+
+    /** GET 操作，key 不存在时返回 null；读取失败抛出 DkvRequestException，不会当成不存在 */
     public byte[] get(String key) throws InterruptedException {
-        KvMessage request = new KvMessage(KvMessage.Type.GET, key, null);
-        KvMessage response = sendRequest(getTargetIp(key), request);
-        return response != null ? response.getValue() : null;
+        return get(null, utf8(key));
+    }
+
+    /** GET 操作（二进制key） */
+    public byte[] get(byte[] key) throws InterruptedException {
+        return get(null, key);
+    }
+
+    /** GET 操作（ByteBuffer key） */
+    public byte[] get(ByteBuffer key) throws InterruptedException {
+        return get(null, bytes(key));
+    }
+
+    /** GET 操作（指定命名空间） */
+    public byte[] get(String namespace, String key) throws InterruptedException {
+        return get(namespace, utf8(key));
+    }
+
+    /** GET 操作（指定命名空间，二进制key） */
+    public byte[] get(String namespace, byte[] key) throws InterruptedException {
+        Supplier<Object> description = () -> "GET " + (key == null ? null : new String(key, StandardCharsets.UTF_8));
+        KvMessage response = await(readAsync(namespace, key), description);
+        if (response.getStatusCode() == 413) {
+            // 大value按分块存放，改走流式读取
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            try {
+                return getStream(namespace, key, out) ? out.toByteArray() : null;
+            } catch (IOException e) {
+                throw new RuntimeException(e);
+            }
+        }
+        return checked(response, description).getValue();
+    }
+
+    /** GET 操作（指定命名空间，ByteBuffer key） */
+    public byte[] get(String namespace, ByteBuffer key) throws InterruptedException {
+        return get(namespace, bytes(key));
     }
 
     /** DELETE 操作 */
     public void delete(String key) throws InterruptedException {
-        KvMessage message = new KvMessage(KvMessage.Type.DELETE, key, null);
+        delete(null, utf8(key));
+    }
+
+    /** DELETE 操作（二进制key） */
+    public void delete(byte[] key) throws InterruptedException {
+        delete(null, key);
+    }
+
+    /** DELETE 操作（ByteBuffer key） */
+    public void delete(ByteBuffer key) throws InterruptedException {
+        delete(null, bytes(key));
+    }
+
+    /** DELETE 操作（指定命名空间） */
+    public void delete(String namespace, String key) throws InterruptedException {
+        delete(namespace, utf8(key));
+    }
+
+    /** DELETE 操作（指定命名空间，二进制key） */
+    public void delete(String namespace, byte[] key) throws InterruptedException {
+        KvMessage message = request(KvMessage.Type.DELETE, key, null);
+        message.setNamespace(namespace);
         sendRequest(getTargetIp(key), message);
     }
 
-    /** 使用 Netty 发送请求并返回响应 */
-    private KvMessage sendRequest(String nodeIp, KvMessage request) throws InterruptedException {
+    /** DELETE 操作（指定命名空间，ByteBuffer key） */
+    public void delete(String namespace, ByteBuffer key) throws InterruptedException {
+        delete(namespace, bytes(key));
+    }
+
+    /** APPEND 操作：合并写，追加到原值末尾，无需先读 */
+    public void append(String key, byte[] operand) throws InterruptedException {
+        append(null, key, operand);
+    }
+
+    /** APPEND 操作（指定命名空间，命名空间的合并算子必须是追加） */
+    public void append(String namespace, String key, byte[] operand) throws InterruptedException {
+        byte[] keyBytes = utf8(key);
+        KvMessage message = request(KvMessage.Type.MERGE, keyBytes, operand);
+        message.setNamespace(namespace);
+        message.setMergeOperator(KvMessage.MergeOperator.STRING_APPEND);
+        sendRequest(getTargetIp(keyBytes), message);
+    }
+
+    /** INCREMENT 操作：计数器盲写累加（delta 为负数即递减） */
+    public void increment(String key, long delta) throws InterruptedException {
+        increment(null, key, delta);
+    }
+
+    /** INCREMENT 操作（指定命名空间，为空表示 counters；命名空间的合并算子必须是计数器） */
+    public void increment(String namespace, String key, long delta) throws InterruptedException {
+        byte[] keyBytes = utf8(key);
+        KvMessage message = request(KvMessage.Type.MERGE, keyBytes, CounterUtil.encode(delta));
+        message.setNamespace(namespace);
+        message.setMergeOperator(KvMessage.MergeOperator.UINT64_ADD);
+        sendRequest(getTargetIp(keyBytes), message);
+    }
+
+    /** 读取计数器，不存在时返回 0 */
+    public long getCounter(String key) throws InterruptedException {
+        return getCounter(null, key);
+    }
+
+    /** 读取计数器（指定命名空间，为空表示 counters） */
+    public long getCounter(String namespace, String key) throws InterruptedException {
+        byte[] keyBytes = utf8(key);
+        KvMessage request = request(KvMessage.Type.GET, keyBytes, null);
+        request.setNamespace(namespace);
+        request.setMergeOperator(KvMessage.MergeOperator.UINT64_ADD);
+        KvMessage response = sendRequest(getTargetIp(keyBytes), request);
+        if (response.getValue() == null) {
+            return 0L;
+        }
+        return CounterUtil.decode(response.getValue());
+    }
+
+    /**
+     * 异步 PUT：不等待响应即可继续发送，同一节点的请求在一条连接上流水线执行
+     * 失败时 future 以 DkvRequestException（或连接层异常）结束；
+     * 超过 LARGE_VALUE_THRESHOLD 的value与同步 put 一样改走流式写入，不在共享连接上发超长帧
+     */
+    public CompletableFuture<Void> putAsync(String key, byte[] value) {
+        return putAsync(null, utf8(key), value);
+    }
+
+    /** 异步 PUT（二进制key） */
+    public CompletableFuture<Void> putAsync(byte[] key, byte[] value) {
+        return putAsync(null, key, value);
+    }
+
+    /** 异步 PUT（ByteBuffer key） */
+    public CompletableFuture<Void> putAsync(ByteBuffer key, byte[] value) {
+        return putAsync(null, bytes(key), value);
+    }
+
+    /** 异步 PUT（指定命名空间，为空表示 default） */
+    public CompletableFuture<Void> putAsync(String namespace, String key, byte[] value) {
+        return putAsync(namespace, utf8(key), value);
+    }
+
+    /** 异步 PUT（指定命名空间，二进制key） */
+    public CompletableFuture<Void> putAsync(String namespace, byte[] key, byte[] value) {
+        if (value != null && value.length > DkvConstants.LARGE_VALUE_THRESHOLD) {
+            // 流式写入会阻塞等待分块确认，放到后续处理线程上
+            return CompletableFuture.runAsync(() -> {
+                try {
+                    putStream(namespace, key, new ByteArrayInputStream(value));
+                } catch (IOException e) {
+                    throw new DkvRequestException(0, "PUT_STREAM " + new String(key, StandardCharsets.UTF_8)
+                            + " failed: " + e.getMessage(), e);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new DkvRequestException(0, "PUT_STREAM interrupted", e);
+                }
+            }, followUps);
+        }
+        KvMessage message = request(KvMessage.Type.PUT, key, value);
+        message.setNamespace(namespace);
+        return sendAsync(getTargetIp(key), message).thenApply(response -> {
+            checked(response, () -> message);
+            return null;
+        });
+    }
+
+    /** 异步 PUT（指定命名空间，ByteBuffer key） */
+    public CompletableFuture<Void> putAsync(String namespace, ByteBuffer key, byte[] value) {
+        return putAsync(namespace, bytes(key), value);
+    }
+
+    /** 异步 GET，key 不存在时结果为 null */
+    public CompletableFuture<byte[]> getAsync(String key) {
+        return getAsync(null, utf8(key));
+    }
+
+    /** 异步 GET（二进制key） */
+    public CompletableFuture<byte[]> getAsync(byte[] key) {
+        return getAsync(null, key);
+    }
+
+    /** 异步 GET（ByteBuffer key） */
+    public CompletableFuture<byte[]> getAsync(ByteBuffer key) {
+        return getAsync(null, bytes(key));
+    }
+
+    /** 异步 GET（指定命名空间，为空表示 default） */
+    public CompletableFuture<byte[]> getAsync(String namespace, String key) {
+        return getAsync(namespace, utf8(key));
+    }
+
+    /** 异步 GET（指定命名空间，二进制key） */
+    public CompletableFuture<byte[]> getAsync(String namespace, byte[] key) {
+        Supplier<Object> description = () -> "GET " + (key == null ? null : new String(key, StandardCharsets.UTF_8));
+        return readAsync(namespace, key).thenCompose(response -> {
+            if (response.getStatusCode() == 413) {
+                // 大value按分块存放，直接改走流式读取；流式读取会阻塞，不能占用事件循环
+                return CompletableFuture.supplyAsync(() -> {
+                    ByteArrayOutputStream out = new ByteArrayOutputStream();
+                    try {
+                        return getStream(namespace, key, out) ? out.toByteArray() : null;
+                    } catch (IOException e) {
+                        throw new DkvRequestException(0, description.get() + " stream failed: " + e.getMessage(), e);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        throw new DkvRequestException(0, description.get() + " interrupted", e);
+                    }
+                }, followUps);
+            }
+            return CompletableFuture.completedFuture(checked(response, description).getValue());
+        });
+    }
+
+    /** 异步 GET（指定命名空间，ByteBuffer key） */
+    public CompletableFuture<byte[]> getAsync(String namespace, ByteBuffer key) {
+        return getAsync(namespace, bytes(key));
+    }
+
+    /** 异步 DELETE */
+    public CompletableFuture<Void> deleteAsync(String key) {
+        return deleteAsync(null, utf8(key));
+    }
+
+    /** 异步 DELETE（二进制key） */
+    public CompletableFuture<Void> deleteAsync(byte[] key) {
+        return deleteAsync(null, key);
+    }
+
+    /** 异步 DELETE（ByteBuffer key） */
+    public CompletableFuture<Void> deleteAsync(ByteBuffer key) {
+        return deleteAsync(null, bytes(key));
+    }
+
+    /** 异步 DELETE（指定命名空间，为空表示 default） */
+    public CompletableFuture<Void> deleteAsync(String namespace, String key) {
+        return deleteAsync(namespace, utf8(key));
+    }
+
+    /** 异步 DELETE（指定命名空间，二进制key） */
+    public CompletableFuture<Void> deleteAsync(String namespace, byte[] key) {
+        KvMessage message = request(KvMessage.Type.DELETE, key, null);
+        message.setNamespace(namespace);
+        return sendAsync(getTargetIp(key), message).thenApply(response -> {
+            checked(response, () -> message);
+            return null;
+        });
+    }
+
+    /** 异步 DELETE（指定命名空间，ByteBuffer key） */
+    public CompletableFuture<Void> deleteAsync(String namespace, ByteBuffer key) {
+        return deleteAsync(namespace, bytes(key));
+    }
+
+    /**
+     * 大value分块流式写入
+     * 最多 STREAM_WINDOW 个分块未确认，窗口满时等待服务端确认，客户端内存只占窗口大小
+     */
+    public void putStream(String namespace, String key, InputStream in) throws IOException, InterruptedException {
+        putStream(namespace, utf8(key), in);
+    }
+
+    /** 大value分块流式写入（二进制key） */
+    public void putStream(String namespace, byte[] key, InputStream in) throws IOException, InterruptedException {
+        String requestId = UUID.randomUUID().toString();
+        StreamClientHandler handler = new StreamClientHandler();
+        Channel channel = openStreamChannel(getTargetIp(key), handler);
+        try {
+            int index = 0;
+            int inFlight = 0;
+            byte[] current = readChunk(in);
+            while (true) {
+                // 预读下一块，用来判断当前块是否为最后一块
+                byte[] next = current.length == DkvConstants.STREAM_CHUNK_SIZE ? readChunk(in) : new byte[0];
+                boolean last = next.length == 0;
+
+                KvMessage chunk = request(KvMessage.Type.PUT_CHUNK, key, current);
+                chunk.setNamespace(namespace);
+                chunk.setRequestId(requestId);
+                chunk.setChunkIndex(index);
+                chunk.setLastChunk(last);
+                channel.writeAndFlush(chunk).sync();
+                inFlight++;
+
+                // 窗口满或者已发完，等待确认
+                while (inFlight >= STREAM_WINDOW || (last && inFlight > 0)) {
+                    KvMessage ack = handler.next(STREAM_TIMEOUT_SECONDS, TimeUnit.SECONDS);
+                    if (ack.getStatusCode() != 200 && ack.getStatusCode() != 202) {
+                        throw new IOException("Chunk " + ack.getChunkIndex() + " rejected: " + ack.getMessage());
+                    }
+                    inFlight--;
+                }
+
+                if (last) {
+                    break;
+                }
+                current = next;
+                index++;
+            }
+        } finally {
+            channel.close().sync();
+        }
+    }
+
+    /**
+     * 大value流式读取，逐块写入 out
+     * @return false 表示 key 不存在
+     */
+    public boolean getStream(String namespace, String key, OutputStream out) throws IOException, InterruptedException {
+        return getStream(namespace, utf8(key), out);
+    }
+
+    /** 大value流式读取（二进制key） */
+    public boolean getStream(String namespace, byte[] key, OutputStream out) throws IOException, InterruptedException {
+        KvMessage request = request(KvMessage.Type.GET_STREAM, key, null);
+        request.setNamespace(namespace);
+        request.setRequestId(UUID.randomUUID().toString());
+
+        StreamClientHandler handler = new StreamClientHandler();
+        Channel channel = openStreamChannel(getTargetIp(key), handler);
+        try {
+            channel.writeAndFlush(request).sync();
+            while (true) {
+                KvMessage chunk = handler.next(STREAM_TIMEOUT_SECONDS, TimeUnit.SECONDS);
+                if (chunk.getStatusCode() == 404) {
+                    return false;
+                }
+                if (chunk.getStatusCode() != 200) {
+                    throw new IOException("Stream get failed: " + chunk.getMessage());
+                }
+                if (chunk.getValue() != null) {
+                    out.write(chunk.getValue());
+                }
+                if (chunk.isLastChunk()) {
+                    return true;
+                }
+            }
+        } finally {
+            channel.close().sync();
+        }
+    }
+
+    /** 建立流式传输连接（关闭 autoRead，由 StreamClientHandler 按需读取） */
+    private Channel openStreamChannel(String nodeIp, StreamClientHandler handler)
+            throws InterruptedException {
         String[] parts = nodeIp.split(":");
-        String host = parts[0];
-        int port = Integer.parseInt(parts[1]);
+        Bootstrap b = new Bootstrap();
+        NettyTransport.get().apply(b.group(ioGroup()))
+                .option(ChannelOption.AUTO_READ, false)
+                .handler(new ChannelInitializer<>() {
+                    @Override
+                    protected void initChannel(Channel ch) {
+                        ch.pipeline().addLast(
+                                new KvMessageEncoder(),
+                                new KvMessageDecoder(),
+                                new KvCompressionHandler(compression),
+                                handler
+                        );
+                    }
+                });
+        return b.connect(parts[0], Integer.parseInt(parts[1])).sync().channel();
+    }
 
-        EventLoopGroup group = new NioEventLoopGroup();
+    /** 读满一个分块或读到流结束 */
+    private static byte[] readChunk(InputStream in) throws IOException {
+        return in.readNBytes(DkvConstants.STREAM_CHUNK_SIZE);
+    }
+
+    /** 发送请求并等待成功的响应（2xx 或 404），最终失败时抛出 DkvRequestException */
+    private KvMessage sendRequest(String nodeIp, KvMessage request) throws InterruptedException {
+        return checked(await(sendAsync(nodeIp, request), () -> request), () -> request);
+    }
+
+    /**
+     * 等待响应；重试用尽后仍超时或连不上时抛出 DkvRequestException（状态码 0），请求描述只在失败时生成
+     */
+    private static KvMessage await(CompletableFuture<KvMessage> future, Supplier<Object> request)
+            throws InterruptedException {
         try {
-            Bootstrap b = new Bootstrap();
-            ClientHandler handler = new ClientHandler();
-            b.group(group)
-                    .channel(NioSocketChannel.class)
-                    .handler(new ChannelInitializer<>() {
-                        @Override
-                        protected void initChannel(Channel ch) {
-                            ch.pipeline().addLast(
-                                    new ObjectEncoder(),
-                                    new ObjectDecoder(ClassResolvers.cacheDisabled(null)),
-                                    handler
-                            );
-                        }
-                    });
-            ChannelFuture future = b.connect(host, port).sync();
-            CompletableFuture<KvMessage> responseFuture = new CompletableFuture<>();
-
-// 添加 handler 时，把 responseFuture 传入 handler
-            future.channel().pipeline().addLast(new KvClientHandler(responseFuture));
-
-// 发送请求
-            future.channel().writeAndFlush(request).sync();
-            System.out.println("Request sent, waiting for response...");
+            return future.get();
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof DkvRequestException) {
+                throw (DkvRequestException) cause;
+            }
+            String reason = cause instanceof TimeoutException ? "timed out" : "failed: " + cause;
+            throw new DkvRequestException(0, request.get() + " " + reason, cause);
+        }
+    }
 
-            try {
-                // 等待响应，最多 5 秒
-                KvMessage response = responseFuture.get(1, TimeUnit.SECONDS);
-                System.out.println("Got response: " + response);
-            } catch (TimeoutException e) {
-                System.out.println("Response timed out, closing channel...");
-            } catch (Exception e) {
-                e.printStackTrace();
-            } finally {
-                // 超时或正常都要安全关闭 channel
-                future.channel().close().sync();
-                future.channel().closeFuture().sync();
+    /**
+     * 2xx 和 404 是正常结果，其余状态（重试后仍 BUSY、5xx、4xx）抛出 DkvRequestException，
+     * 否则写入失败会被当成成功，GET 的 500 会被当成 key 不存在
+     */
+    private static KvMessage checked(KvMessage response, Supplier<Object> request) {
+        int status = response.getStatusCode();
+        if ((status >= 200 && status < 300) || status == 404) {
+            return response;
+        }
+        throw new DkvRequestException(status,
+                request.get() + " failed with status " + status + ": " + response.getMessage(), null);
+    }
+
+    /**
+     * 读请求：未开启副本读时只发给主节点；
+     * 开启后在主节点和副本中挑延迟最低的节点，超过近期 p95 仍未返回就向次快的节点发对冲请求；
+     * 非主节点的 404 不可信，会回到主节点确认
+     */
+    private CompletableFuture<KvMessage> readAsync(String namespace, byte[] key) {
+        int replicas = readReplicas;
+        String primary = getTargetIp(key);
+        List<String> candidates = replicas > 1 ? health.available(ring.routeWithReplicas(key, replicas)) : List.of();
+        if (candidates.size() <= 1) {
+            KvMessage request = request(KvMessage.Type.GET, key, null);
+            request.setNamespace(namespace);
+            return sendAsync(primary, request);
+        }
+
+        String fastest = latency.fastest(candidates, null);
+        String backup = hedgedReads ? latency.fastest(candidates, fastest) : null;
+        Span span = tracer.startTrace(SPAN_NAMES[KvMessage.Type.GET.ordinal()]);
+        replicaReads.incrementAndGet();
+        HedgedRead read = new HedgedRead((node, request) -> sendOnce(node, request, span), () -> {
+            KvMessage request = request(KvMessage.Type.GET, key, null);
+            request.setNamespace(namespace);
+            span.inject(request);
+            return request;
+        }, primary, backup, this::tryHedge, followUps);
+        CompletableFuture<KvMessage> result = read.start(fastest,
+                latency.hedgeDelayNanos(TimeUnit.MILLISECONDS.toNanos(DEFAULT_HEDGE_DELAY_MILLIS)));
+        if (!span.isSampled()) {
+            return result;
+        }
+        span.tag("key", key == null ? null : new String(key, StandardCharsets.UTF_8)).tag("node", fastest);
+        return result.whenComplete((response, e) -> {
+            span.tag("hedged", read.isHedged()).tag("winner", read.getWinner());
+            if (e != null) {
+                span.error(e.toString());
+            } else {
+                span.tag("status", response.getStatusCode());
             }
+            span.finish();
+        });
+    }
 
+    /** 对冲预算：对冲请求数不超过副本读的 MAX_HEDGE_RATIO */
+    private boolean tryHedge() {
+        if (hedges.get() >= replicaReads.get() * MAX_HEDGE_RATIO + 1) {
+            return false;
+        }
+        hedges.incrementAndGet();
+        return true;
+    }
+
+    /**
+     * 异步发送请求，失败时按重试策略重试；读请求可以故障转移到副本
+     */
+    private CompletableFuture<KvMessage> sendAsync(String nodeIp, KvMessage request) {
+        List<String> targets = targetsFor(nodeIp, request);
+        Span span = tracer.startTrace(request.getType() == null ? "client.request"
+                : SPAN_NAMES[request.getType().ordinal()]);
+        if (!span.isSampled()) {
+            return sendAsync(targets, nodeIp, 0, request, 0, span);
+        }
+        span.tag("node", nodeIp).tag("key", request.getKey());
+        span.inject(request);
+        return sendAsync(targets, nodeIp, 0, request, 0, span).whenComplete((response, e) -> {
+            if (e != null) {
+                span.error(e.toString());
+            } else {
+                span.tag("status", response.getStatusCode());
+            }
+            span.finish();
+        });
+    }
+
+    /**
+     * 可以处理该请求的节点，按尝试顺序排列：读请求是主节点和它在环上的副本（去掉不健康的），其他请求只有主节点
+     */
+    private List<String> targetsFor(String nodeIp, KvMessage request) {
+        int replicas = Math.max(replicationFactor, readReplicas);
+        if (request.getType() != KvMessage.Type.GET || replicas <= 1) {
+            return List.of(nodeIp);
+        }
+        List<String> targets = health.available(ring.routeWithReplicas(request.getKeyBytes(), replicas));
+        return targets.isEmpty() ? List.of(nodeIp) : targets;
+    }
+
+    /**
+     * 向 targets[index] 发送一次，按重试策略处理失败：
+     * 还有下一个副本时立即改发下一个，否则退避后回到第一个节点重试
+     * 故障转移到的副本返回 404 时不作数（副本可能落后，也不一定是主节点的复制目标），再问一次主节点，
+     * 主节点仍不可用才返回这个 404
+     */
+    private CompletableFuture<KvMessage> sendAsync(List<String> targets, String primary, int index, KvMessage request,
+                                                   int attempt, Span span) {
+        String node = targets.get(index);
+        return sendOnce(node, request, span).handle((response, e) -> {
+            Throwable cause = e instanceof CompletionException && e.getCause() != null ? e.getCause() : e;
+            if (cause == null && response.getStatusCode() == 404 && !node.equals(primary)) {
+                request.setRequestId(null);
+                span.tag("fallback", primary);
+                return CompletableFuture.supplyAsync(() -> sendOnce(primary, request, span), followUps)
+                        .thenCompose(future -> future)
+                        .handle((authoritative, error) ->
+                        error == null && authoritative.getStatusCode() != DkvConstants.STATUS_BUSY
+                                ? authoritative : response);
+            }
+            boolean retry = attempt + 1 < retryPolicy.getMaxAttempts()
+                    && (cause != null ? isRetryable(cause, request) : response.getStatusCode() == DkvConstants.STATUS_BUSY);
+            if (!retry) {
+                return cause == null ? CompletableFuture.completedFuture(response)
+                        : CompletableFuture.<KvMessage>failedFuture(cause);
+            }
+            // 换一个 requestId，旧请求迟到的响应不会被当成新请求的
+            request.setRequestId(null);
+            span.tag("retries", attempt + 1);
+            if (index + 1 < targets.size()) {
+                span.tag("failover", targets.get(index + 1));
+                return CompletableFuture.supplyAsync(
+                        () -> sendAsync(targets, primary, index + 1, request, attempt + 1, span), followUps)
+                        .thenCompose(future -> future);
+            }
+            Executor delayed = CompletableFuture.delayedExecutor(
+                    retryPolicy.backoffMillis(attempt), TimeUnit.MILLISECONDS, followUps);
+            return CompletableFuture.supplyAsync(() -> null, delayed)
+                    .thenCompose(ignored -> sendAsync(targets, primary, 0, request, attempt + 1, span));
+        }).thenCompose(future -> future);
+    }
+
+    /**
+     * 没发出去的请求总能重试；超时或连接中断时请求可能已经执行，只重试幂等操作（合并写不是幂等的）
+     */
+    private static boolean isRetryable(Throwable cause, KvMessage request) {
+        if (cause instanceof NodeUnavailableException) {
+            return true;
+        }
+        if (request.getType() == KvMessage.Type.MERGE) {
+            return false;
+        }
+        return cause instanceof TimeoutException || cause instanceof IOException;
+    }
 
-            return handler.getResponse();
+    /**
+     * 在节点长连接上异步发送一次请求，响应按 requestId 匹配
+     * 超过 REQUEST_TIMEOUT_SECONDS 未响应时以 TimeoutException 结束；取消返回的 future 即放弃这次请求
+     * 每次请求的延迟计入该节点的 EWMA，失败按超时计，让副本选择避开它
+     */
+    private CompletableFuture<KvMessage> sendOnce(String nodeIp, KvMessage request, Span span) {
+        if (request.getRequestId() == null) {
+            request.setRequestId(Long.toString(requestIds.incrementAndGet()));
+        }
+        if (!health.tryAcquire(nodeIp)) {
+            return CompletableFuture.failedFuture(new NodeUnavailableException(nodeIp, "circuit open", null));
+        }
+        long start = System.nanoTime();
+        latency.begin(nodeIp);
+        Channel channel;
+        try {
+            channel = channelFor(nodeIp, span);
         } catch (Exception e) {
-            throw new RuntimeException(e);
-        } finally {
+            latency.end(nodeIp, TimeUnit.SECONDS.toNanos(REQUEST_TIMEOUT_SECONDS));
+            health.onFailure(nodeIp);
+            if (e instanceof InterruptedException) {
+                Thread.currentThread().interrupt();
+            }
+            return CompletableFuture.failedFuture(new NodeUnavailableException(nodeIp, "connect failed", e));
+        }
+        ClientHandler handler = channel.pipeline().get(ClientHandler.class);
+        String requestId = request.getRequestId();
+        boolean read = request.getType() == KvMessage.Type.GET;
+        // orTimeout 返回的是同一个 future，调用方取消它时下面的回调也会执行
+        CompletableFuture<KvMessage> future = handler.send(channel, request)
+                .orTimeout(REQUEST_TIMEOUT_SECONDS, TimeUnit.SECONDS);
+        future.whenComplete((response, e) -> {
+            long elapsed = System.nanoTime() - start;
+            if (e == null) {
+                latency.end(nodeIp, elapsed);
+                if (read) {
+                    latency.recordRead(elapsed);
+                }
+                // BUSY 说明节点还活着，只是过载，不计入熔断
+                int status = response.getStatusCode();
+                if (status >= 500 && status != DkvConstants.STATUS_BUSY) {
+                    health.onFailure(nodeIp);
+                } else {
+                    health.onSuccess(nodeIp);
+                }
+            } else if (e instanceof CancellationException) {
+                handler.cancel(requestId);
+                // 被取消时只知道延迟至少有这么长
+                latency.end(nodeIp, elapsed);
+                health.onCancel(nodeIp);
+            } else {
+                handler.cancel(requestId);
+                latency.end(nodeIp, TimeUnit.SECONDS.toNanos(REQUEST_TIMEOUT_SECONDS));
+                health.onFailure(nodeIp);
+            }
+        });
+        return future;
+    }
+
+    /** 取得节点的长连接，断开后重新建立，建连耗时记为 client.connect */
+    private Channel channelFor(String nodeIp, Span span) throws InterruptedException {
+        Channel channel = connections.get(nodeIp);
+        if (channel != null && channel.isActive()) {
+            return channel;
+        }
+        synchronized (connections) {
+            channel = connections.get(nodeIp);
+            if (channel == null || !channel.isActive()) {
+                Span connecting = span.child("client.connect");
+                channel = connect(nodeIp);
+                connecting.finish();
+                connections.put(nodeIp, channel);
+            }
+            return channel;
+        }
+    }
+
+    private Channel connect(String nodeIp) throws InterruptedException {
+        String[] parts = nodeIp.split(":");
+        Bootstrap b = new Bootstrap();
+        NettyTransport.get().apply(b.group(ioGroup()))
+                .handler(new ChannelInitializer<>() {
+                    @Override
+                    protected void initChannel(Channel ch) {
+                        ch.pipeline().addLast(
+                                // 多个调用线程并发发送时合并flush，减少系统调用
+                                new FlushConsolidationHandler(FLUSH_CONSOLIDATION_LIMIT, true),
+                                new KvMessageEncoder(),
+                                new KvMessageDecoder(),
+                                new KvCompressionHandler(compression),
+                                new ClientHandler()
+                        );
+                    }
+                });
+        return b.connect(parts[0], Integer.parseInt(parts[1])).sync().channel();
+    }
+
+    private EventLoopGroup ioGroup() {
+        EventLoopGroup current = group;
+        if (current == null) {
+            synchronized (this) {
+                if (group == null) {
+                    group = NettyTransport.get().newEventLoopGroup(Runtime.getRuntime().availableProcessors());
+                }
+                current = group;
+            }
+        }
+        return current;
+    }
+
+    /** 关闭所有连接和 ZooKeeper 会话 */
+    public void close() {
+        for (Channel channel : connections.values()) {
+            channel.close();
+        }
+        connections.clear();
+        if (group != null) {
             group.shutdownGracefully();
         }
+        if (nodesCache != null) {
+            nodesCache.close();
+        }
+        if (tokensCache != null) {
+            tokensCache.close();
+        }
+        if (zkClient != null) {
+            zkClient.close();
+        }
     }
 }
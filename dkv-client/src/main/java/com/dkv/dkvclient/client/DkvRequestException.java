@@ -0,0 +1,26 @@
+package com.dkv.dkvclient.client;
+
+import com.dkv.dkvcommon.costants.DkvConstants;
+
+/**
+ * 请求最终失败：重试用尽后仍超时、连不上，或服务端返回了错误状态（BUSY、5xx、4xx）
+ * statusCode 为服务端的状态码，没有拿到响应时为 0；404（key 不存在）不是错误，不会抛出
+ */
+public class DkvRequestException extends RuntimeException {
+
+    private final int statusCode;
+
+    public DkvRequestException(int statusCode, String message, Throwable cause) {
+        super(message, cause);
+        this.statusCode = statusCode;
+    }
+
+    public int getStatusCode() {
+        return statusCode;
+    }
+
+    /** 是否因节点过载被拒绝，稍后重试可能成功 */
+    public boolean isBusy() {
+        return statusCode == DkvConstants.STATUS_BUSY;
+    }
+}
@@ -0,0 +1,164 @@
+package com.dkv.dkvclient.client;
+
+import com.dkv.dkvcommon.costants.DkvConstants;
+import com.dkv.dkvcommon.model.KvMessage;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BiFunction;
+import java.util.function.BooleanSupplier;
+import java.util.function.Supplier;
+
+/**
+ * 一次对冲读：先向最快的节点发请求，等待 hedgeDelay 仍未返回时再向次快的节点发一份，
+ * 先到的可用响应胜出，另一路被取消（客户端丢弃它迟到的响应）
+ * 第一路在等待期间就失败或返回 BUSY 时，立即改发第二路，不受对冲预算限制
+ * 只有主节点的 404 算数：副本复制有延迟，而且环上的后继节点不一定是主节点真正的复制目标，
+ * 非主节点返回 404 时改问主节点，主节点也不可用时才返回这个 404
+ * 第一路由调用线程发出；之后的各路在响应回调（I/O 线程）或定时器里触发，交给 executor 发出，建连不阻塞 I/O 线程
+ */
+final class HedgedRead {
+
+    private final CompletableFuture<KvMessage> result = new CompletableFuture<>();
+    private final BiFunction<String, KvMessage, CompletableFuture<KvMessage>> sender;
+    private final Supplier<KvMessage> requests;   // 每一路用独立的请求对象（requestId 不同）
+    private final String primary;
+    private final String backup;
+    private final BooleanSupplier hedgeBudget;
+    private final Executor executor;
+
+    private final List<CompletableFuture<KvMessage>> legs = new ArrayList<>(3);
+    private final Set<String> launched = new HashSet<>(4);
+    private boolean hedged;
+    private String winner;
+    private int pending;
+    private KvMessage lastResponse;
+    private Throwable lastError;
+
+    /**
+     * @param primary key 的主节点，只有它的 404 是确定的未命中
+     * @param backup  对冲或故障转移时发往的节点，null 表示不对冲
+     * @param executor 发出第一路之后的各路请求
+     */
+    HedgedRead(BiFunction<String, KvMessage, CompletableFuture<KvMessage>> sender, Supplier<KvMessage> requests,
+               String primary, String backup, BooleanSupplier hedgeBudget, Executor executor) {
+        this.sender = sender;
+        this.requests = requests;
+        this.primary = primary;
+        this.backup = backup;
+        this.hedgeBudget = hedgeBudget;
+        this.executor = executor;
+    }
+
+    CompletableFuture<KvMessage> start(String first, long hedgeDelayNanos) {
+        synchronized (this) {
+            launch(first, Runnable::run);
+        }
+        if (!result.isDone()) {
+            CompletableFuture.delayedExecutor(hedgeDelayNanos, TimeUnit.NANOSECONDS, executor).execute(() -> hedge(false));
+        }
+        return result;
+    }
+
+    synchronized boolean isHedged() {
+        return hedged;
+    }
+
+    /**
+     * 给出响应的节点，用于追踪标注；结果未完成或两路都失败时为 null
+     */
+    synchronized String getWinner() {
+        return winner;
+    }
+
+    /**
+     * 向 backup 发第二路，返回是否发出（backup 已经作为主节点回退发过时不再发）
+     */
+    private synchronized boolean hedge(boolean failover) {
+        if (hedged || result.isDone() || backup == null || launched.contains(backup)) {
+            return false;
+        }
+        if (!failover && !hedgeBudget.getAsBoolean()) {
+            return false;
+        }
+        hedged = true;
+        return launch(backup, executor);
+    }
+
+    /**
+     * 在 via 上发出一路，调用时持有锁；via 拒绝（客户端已关闭）时记为失败并返回 false
+     */
+    private boolean launch(String node, Executor via) {
+        pending++;
+        launched.add(node);
+        KvMessage request = requests.get();
+        try {
+            via.execute(() -> send(node, request));
+            return true;
+        } catch (RejectedExecutionException e) {
+            pending--;
+            lastError = e;
+            return false;
+        }
+    }
+
+    private void send(String node, KvMessage request) {
+        CompletableFuture<KvMessage> leg = sender.apply(node, request);
+        synchronized (this) {
+            if (result.isDone()) {
+                leg.cancel(false);
+            } else {
+                legs.add(leg);
+            }
+        }
+        leg.whenComplete((response, e) -> onLeg(node, leg, response, e));
+    }
+
+    private synchronized void onLeg(String node, CompletableFuture<KvMessage> leg, KvMessage response, Throwable e) {
+        pending--;
+        if (result.isDone()) {
+            return;
+        }
+        if (e == null && isAuthoritative(node, response)) {
+            winner = node;
+            result.complete(response);
+            for (CompletableFuture<KvMessage> other : legs) {
+                if (other != leg) {
+                    other.cancel(false);
+                }
+            }
+            return;
+        }
+        if (response != null) {
+            lastResponse = response;
+        } else {
+            lastError = e;
+        }
+        if (response != null && response.getStatusCode() == 404 && primary != null && !launched.contains(primary)
+                && launch(primary, executor)) {
+            return;
+        }
+        if (hedge(true)) {
+            return;
+        }
+        if (pending == 0) {
+            // 都不可用：有响应（BUSY 或副本的 404）就返回它，否则返回最后一个异常
+            if (lastResponse != null) {
+                result.complete(lastResponse);
+            } else {
+                result.completeExceptionally(lastError);
+            }
+        }
+    }
+
+    private boolean isAuthoritative(String node, KvMessage response) {
+        int status = response.getStatusCode();
+        return status != DkvConstants.STATUS_BUSY && (status != 404 || node.equals(primary));
+    }
+}
@@ -0,0 +1,222 @@
+package com.dkv.dkvclient.client;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.LongSupplier;
+
+/**
+ * 客户端对各节点健康状况的判断
+ * 熔断：最近 WINDOW_SECONDS 秒内请求数达到 MIN_REQUESTS 且错误率不低于 FAILURE_RATE 时熔断 OPEN_MILLIS，
+ * 期间发往该节点的请求直接失败；到期后放行一个探测请求（半开），成功则恢复，失败则重新熔断
+ * 离群摘除：连续失败 CONSECUTIVE_FAILURES 次的节点在挑选副本时被跳过，摘除时间随摘除次数成倍增加；
+ * 一组候选全部不可用时忽略这些判断，总要有节点可试
+ */
+class NodeHealth {
+    private static final Logger logger = LoggerFactory.getLogger(NodeHealth.class);
+
+    enum Circuit { CLOSED, OPEN, HALF_OPEN }
+
+    private static final int WINDOW_SECONDS = 10;
+    private static final int MIN_REQUESTS = 20;
+    private static final double FAILURE_RATE = 0.5;
+    private static final long OPEN_MILLIS = 5_000;
+    private static final int CONSECUTIVE_FAILURES = 5;
+    private static final long BASE_EJECTION_MILLIS = 5_000;
+    private static final long MAX_EJECTION_MILLIS = 60_000;
+
+    private static final class State {
+        // 按秒分桶的滚动窗口，bucketSeconds 记录每个桶当前对应的秒
+        private final long[] bucketSeconds = new long[WINDOW_SECONDS];
+        private final int[] successes = new int[WINDOW_SECONDS];
+        private final int[] failures = new int[WINDOW_SECONDS];
+        private Circuit circuit = Circuit.CLOSED;
+        private long openUntil;
+        private boolean probing;
+        private int consecutiveFailures;
+        private int ejections;
+        private long ejectedUntil;
+
+        private int bucket(long nowMillis) {
+            long second = nowMillis / 1000;
+            int index = (int) (second % WINDOW_SECONDS);
+            if (bucketSeconds[index] != second) {
+                bucketSeconds[index] = second;
+                successes[index] = 0;
+                failures[index] = 0;
+            }
+            return index;
+        }
+
+        private void resetWindow() {
+            Arrays.fill(bucketSeconds, 0);
+            Arrays.fill(successes, 0);
+            Arrays.fill(failures, 0);
+        }
+
+        private boolean failureRateExceeded(long nowMillis) {
+            long oldest = nowMillis / 1000 - WINDOW_SECONDS + 1;
+            int total = 0;
+            int failed = 0;
+            for (int i = 0; i < WINDOW_SECONDS; i++) {
+                if (bucketSeconds[i] >= oldest) {
+                    total += successes[i] + failures[i];
+                    failed += failures[i];
+                }
+            }
+            return total >= MIN_REQUESTS && failed >= total * FAILURE_RATE;
+        }
+    }
+
+    private final Map<String, State> states = new ConcurrentHashMap<>();
+    private final LongSupplier clock;
+
+    NodeHealth() {
+        this(System::currentTimeMillis);
+    }
+
+    /**
+     * @param clock 当前时间（毫秒），测试用它跳过熔断和摘除的等待
+     */
+    NodeHealth(LongSupplier clock) {
+        this.clock = clock;
+    }
+
+    /**
+     * 是否允许向节点发请求；熔断到期时放行一个探测请求
+     */
+    boolean tryAcquire(String node) {
+        State state = states.get(node);
+        if (state == null) {
+            return true;
+        }
+        synchronized (state) {
+            switch (state.circuit) {
+                case OPEN:
+                    if (now() < state.openUntil) {
+                        return false;
+                    }
+                    state.circuit = Circuit.HALF_OPEN;
+                    state.probing = true;
+                    return true;
+                case HALF_OPEN:
+                    if (state.probing) {
+                        return false;
+                    }
+                    state.probing = true;
+                    return true;
+                default:
+                    return true;
+            }
+        }
+    }
+
+    void onSuccess(String node) {
+        State state = states.get(node);
+        if (state == null) {
+            return;  // 没失败过的节点不必建状态
+        }
+        synchronized (state) {
+            state.successes[state.bucket(now())]++;
+            state.consecutiveFailures = 0;
+            if (state.circuit == Circuit.HALF_OPEN) {
+                state.circuit = Circuit.CLOSED;
+                state.probing = false;
+                state.resetWindow();
+            }
+            if (state.ejectedUntil != 0 && now() >= state.ejectedUntil) {
+                state.ejectedUntil = 0;
+                state.ejections = 0;
+            }
+        }
+    }
+
+    void onFailure(String node) {
+        State state = states.computeIfAbsent(node, n -> new State());
+        synchronized (state) {
+            long now = now();
+            state.failures[state.bucket(now)]++;
+            state.consecutiveFailures++;
+            if (state.circuit == Circuit.HALF_OPEN
+                    || (state.circuit == Circuit.CLOSED && state.failureRateExceeded(now))) {
+                state.circuit = Circuit.OPEN;
+                state.openUntil = now + OPEN_MILLIS;
+                state.probing = false;
+                logger.warn("Circuit opened for node {}", node);
+            }
+            if (state.consecutiveFailures >= CONSECUTIVE_FAILURES && now >= state.ejectedUntil) {
+                long ejection = Math.min(MAX_EJECTION_MILLIS, BASE_EJECTION_MILLIS << Math.min(state.ejections, 10));
+                state.ejections++;
+                state.ejectedUntil = now + ejection;
+                state.consecutiveFailures = 0;
+                logger.warn("Ejected node {} for {}ms", node, ejection);
+            }
+        }
+    }
+
+    /**
+     * 请求被放弃（如对冲落败），不算成功也不算失败，只释放探测名额
+     */
+    void onCancel(String node) {
+        State state = states.get(node);
+        if (state == null) {
+            return;
+        }
+        synchronized (state) {
+            state.probing = false;
+        }
+    }
+
+    /**
+     * 可用于读的节点：去掉熔断中和被摘除的节点，保持原顺序；全部不可用时原样返回
+     */
+    List<String> available(List<String> candidates) {
+        if (states.isEmpty()) {
+            return candidates;
+        }
+        List<String> healthy = new ArrayList<>(candidates.size());
+        long now = now();
+        for (String node : candidates) {
+            if (isAvailable(node, now)) {
+                healthy.add(node);
+            }
+        }
+        return healthy.isEmpty() ? candidates : healthy;
+    }
+
+    private boolean isAvailable(String node, long now) {
+        State state = states.get(node);
+        if (state == null) {
+            return true;
+        }
+        synchronized (state) {
+            return now >= state.ejectedUntil && (state.circuit != Circuit.OPEN || now >= state.openUntil);
+        }
+    }
+
+    /**
+     * 各节点的熔断和摘除状态
+     */
+    Map<String, String> snapshot() {
+        Map<String, String> result = new LinkedHashMap<>();
+        long now = now();
+        for (Map.Entry<String, State> entry : states.entrySet()) {
+            State state = entry.getValue();
+            synchronized (state) {
+                result.put(entry.getKey(), state.circuit
+                        + (now < state.ejectedUntil ? ", ejected " + (state.ejectedUntil - now) + "ms" : ""));
+            }
+        }
+        return result;
+    }
+
+    private long now() {
+        return clock.getAsLong();
+    }
+}
@@ -0,0 +1,139 @@
+package com.dkv.dkvclient.client;
+
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 客户端观测到的各节点响应延迟
+ * 每个节点维护延迟的 EWMA 和在途请求数，选副本时取 EWMA × (在途数 + 1) 最小的节点；
+ * 太久没有新样本的节点按未知处理，重新有机会被选中，不会因为一次超时就再也不被选
+ * 另外保留最近一批读请求的延迟，估算 p95 作为对冲请求的等待时间
+ */
+class NodeLatencyTracker {
+
+    private static final double ALPHA = 0.3;                                  // EWMA 新样本权重
+    private static final long STALE_NANOS = TimeUnit.SECONDS.toNanos(10);     // 样本过期时间
+    private static final int WINDOW = 1024;                                   // p95 样本窗口
+    private static final int REFRESH_EVERY = 64;                              // 每这么多样本重算一次 p95
+    private static final int MIN_SAMPLES = 100;                               // 样本不足时用默认等待时间
+    private static final long MIN_HEDGE_DELAY_NANOS = TimeUnit.MICROSECONDS.toNanos(500);
+    private static final double UNKNOWN_BUSY_SCORE = TimeUnit.SECONDS.toNanos(1);
+
+    private static final class NodeStats {
+        private double ewmaNanos;
+        private long updatedAt;
+        private final AtomicInteger inFlight = new AtomicInteger();
+    }
+
+    private final Map<String, NodeStats> stats = new ConcurrentHashMap<>();
+    private final long[] readWindow = new long[WINDOW];
+    private long readSamples;
+    private volatile long p95Nanos = -1;
+
+    void begin(String node) {
+        statsOf(node).inFlight.incrementAndGet();
+    }
+
+    /**
+     * 请求结束，nanos 为本次请求的延迟；被取消的请求传入已等待的时间，作为延迟的下界
+     */
+    void end(String node, long nanos) {
+        NodeStats nodeStats = statsOf(node);
+        nodeStats.inFlight.decrementAndGet();
+        long now = System.nanoTime();
+        synchronized (nodeStats) {
+            if (nodeStats.updatedAt == 0 || now - nodeStats.updatedAt > STALE_NANOS) {
+                nodeStats.ewmaNanos = nanos;
+            } else {
+                nodeStats.ewmaNanos += ALPHA * (nanos - nodeStats.ewmaNanos);
+            }
+            nodeStats.updatedAt = now;
+        }
+    }
+
+    /**
+     * 记录一个成功读请求的延迟，用于估算 p95
+     */
+    void recordRead(long nanos) {
+        long[] snapshot = null;
+        synchronized (readWindow) {
+            readWindow[(int) (readSamples % WINDOW)] = nanos;
+            readSamples++;
+            if (readSamples >= MIN_SAMPLES && readSamples % REFRESH_EVERY == 0) {
+                snapshot = Arrays.copyOf(readWindow, (int) Math.min(readSamples, WINDOW));
+            }
+        }
+        if (snapshot != null) {
+            // 排序放在锁外，其他线程照常记录
+            Arrays.sort(snapshot);
+            p95Nanos = snapshot[(int) (snapshot.length * 0.95)];
+        }
+    }
+
+    /**
+     * 对冲请求的等待时间：最近读延迟的 p95，样本不足时用 defaultNanos
+     */
+    long hedgeDelayNanos(long defaultNanos) {
+        long p95 = p95Nanos;
+        return Math.max(MIN_HEDGE_DELAY_NANOS, p95 < 0 ? defaultNanos : p95);
+    }
+
+    /**
+     * 候选节点中得分最低的一个，不选 exclude；得分相同时取排在前面的（主节点优先）
+     */
+    String fastest(List<String> candidates, String exclude) {
+        long now = System.nanoTime();
+        String best = null;
+        double bestScore = Double.MAX_VALUE;
+        for (String node : candidates) {
+            if (node.equals(exclude)) {
+                continue;
+            }
+            double score = score(node, now);
+            if (score < bestScore) {
+                best = node;
+                bestScore = score;
+            }
+        }
+        return best;
+    }
+
+    private double score(String node, long now) {
+        NodeStats nodeStats = stats.get(node);
+        if (nodeStats == null) {
+            return 0;
+        }
+        int inFlight = nodeStats.inFlight.get();
+        double ewma;
+        synchronized (nodeStats) {
+            if (nodeStats.updatedAt == 0 || now - nodeStats.updatedAt > STALE_NANOS) {
+                // 延迟未知：没有在途请求时优先试探一次，已经有请求在等时不再往上压
+                return inFlight == 0 ? 0 : UNKNOWN_BUSY_SCORE;
+            }
+            ewma = nodeStats.ewmaNanos;
+        }
+        return ewma * (inFlight + 1);
+    }
+
+    /**
+     * 各节点当前的延迟 EWMA（毫秒）
+     */
+    Map<String, Double> snapshot() {
+        Map<String, Double> result = new LinkedHashMap<>();
+        for (Map.Entry<String, NodeStats> entry : stats.entrySet()) {
+            synchronized (entry.getValue()) {
+                result.put(entry.getKey(), entry.getValue().ewmaNanos / 1_000_000.0);
+            }
+        }
+        return result;
+    }
+
+    private NodeStats statsOf(String node) {
+        return stats.computeIfAbsent(node, n -> new NodeStats());
+    }
+}
@@ -0,0 +1,20 @@
+package com.dkv.dkvclient.client;
+
+import java.io.IOException;
+
+/**
+ * 请求没有发出去：节点连不上或处于熔断中，服务端肯定没执行过，任何操作都可以安全重试
+ */
+public class NodeUnavailableException extends IOException {
+
+    private final String node;
+
+    public NodeUnavailableException(String node, String message, Throwable cause) {
+        super("Node " + node + " unavailable: " + message, cause);
+        this.node = node;
+    }
+
+    public String getNode() {
+        return node;
+    }
+}
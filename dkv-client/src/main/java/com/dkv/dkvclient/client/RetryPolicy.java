@@ -0,0 +1,53 @@
+package com.dkv.dkvclient.client;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * 客户端重试策略：带随机抖动的指数退避
+ * 节点拒绝（BUSY）、没送达（未连上或熔断中）的请求总会重试；超时和连接中断只对幂等操作重试，
+ * 合并写（追加、计数器）可能已经执行过，不重试
+ */
+public class RetryPolicy {
+
+    private int maxAttempts = 4;               // 含第一次发送
+    private long initialBackoffMillis = 20;    // 第一次重试前的退避，之后逐次翻倍
+    private long maxBackoffMillis = 1000;
+
+    public static RetryPolicy none() {
+        return new RetryPolicy().setMaxAttempts(1);
+    }
+
+    public int getMaxAttempts() { return maxAttempts; }
+    public RetryPolicy setMaxAttempts(int maxAttempts) {
+        this.maxAttempts = Math.max(1, maxAttempts);
+        return this;
+    }
+
+    public long getInitialBackoffMillis() { return initialBackoffMillis; }
+    public RetryPolicy setInitialBackoffMillis(long initialBackoffMillis) {
+        this.initialBackoffMillis = initialBackoffMillis;
+        return this;
+    }
+
+    public long getMaxBackoffMillis() { return maxBackoffMillis; }
+    public RetryPolicy setMaxBackoffMillis(long maxBackoffMillis) {
+        this.maxBackoffMillis = maxBackoffMillis;
+        return this;
+    }
+
+    /**
+     * 第 attempt 次重试前的等待时间（从 0 开始）：上限的一半加上随机的另一半，避免被拒绝的客户端同时重试
+     */
+    public long backoffMillis(int attempt) {
+        long cap = Math.min(maxBackoffMillis, initialBackoffMillis << Math.min(attempt, 20));
+        return cap / 2 + ThreadLocalRandom.current().nextLong(cap / 2 + 1);
+    }
+
+    @Override
+    public String toString() {
+        return "RetryPolicy{" +
+                "maxAttempts=" + maxAttempts +
+                ", backoff=" + initialBackoffMillis + ".." + maxBackoffMillis + "ms" +
+                '}';
+    }
+}
@@ -0,0 +1,55 @@
+package com.dkv.dkvclient.client;
+
+import com.dkv.dkvcommon.model.KvMessage;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.SimpleChannelInboundHandler;
+
+import java.io.IOException;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 分块传输的响应处理器：一个连接上会收到多帧响应，按到达顺序排队
+ * 连接关闭了 autoRead，只有调用方取走响应后才继续从 socket 读取，慢消费者不会堆积分块
+ */
+public class StreamClientHandler extends SimpleChannelInboundHandler<KvMessage> {
+
+    private final BlockingQueue<KvMessage> responses = new LinkedBlockingQueue<>();
+    private volatile ChannelHandlerContext ctx;
+    private volatile Throwable failure;
+
+    @Override
+    public void channelActive(ChannelHandlerContext ctx) {
+        this.ctx = ctx;
+        ctx.fireChannelActive();
+    }
+
+    @Override
+    protected void channelRead0(ChannelHandlerContext ctx, KvMessage msg) {
+        responses.offer(msg);
+    }
+
+    @Override
+    public void exceptionCaught(ChannelHandlerContext ctx, Throwable cause) {
+        failure = cause;
+        ctx.close();
+    }
+
+    /**
+     * 等待下一帧响应，超时或连接异常时抛出 IOException
+     */
+    public KvMessage next(long timeout, TimeUnit unit) throws IOException, InterruptedException {
+        if (responses.isEmpty() && ctx != null) {
+            ctx.read();
+        }
+        KvMessage response = responses.poll(timeout, unit);
+        if (response == null) {
+            if (failure != null) {
+                throw new IOException("Stream failed", failure);
+            }
+            throw new IOException("Stream response timed out");
+        }
+        return response;
+    }
+}
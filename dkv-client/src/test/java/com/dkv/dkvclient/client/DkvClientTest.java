@@ -0,0 +1,143 @@
+package com.dkv.dkvclient.client;
+
+import com.dkv.dkvcommon.costants.DkvConstants;
+import com.dkv.dkvcommon.model.KvMessage;
+import com.dkv.dkvstorage.codec.KvMessageDecoder;
+import com.dkv.dkvstorage.codec.KvMessageEncoder;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import io.netty.channel.embedded.EmbeddedChannel;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketTimeoutException;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class DkvClientTest {
+
+    @Test
+    @DisplayName("测试节点不可达时同步和异步操作都以 DkvRequestException 失败，不返回 null")
+    void testUnreachableNodeFails() throws Exception {
+        int port;
+        try (ServerSocket socket = new ServerSocket(0)) {
+            port = socket.getLocalPort();
+        }
+        DkvClient client = new DkvClient(List.of("127.0.0.1:" + port));
+        client.setRetryPolicy(RetryPolicy.none());
+        try {
+            DkvRequestException e = assertThrows(DkvRequestException.class, () -> client.get("key"));
+            assertEquals(0, e.getStatusCode());
+            assertInstanceOf(NodeUnavailableException.class, e.getCause());
+            assertThrows(DkvRequestException.class, () -> client.put("key", "value".getBytes()));
+            assertThrows(DkvRequestException.class, () -> client.delete("key"));
+            assertThrows(DkvRequestException.class, () -> client.increment("counter", 1));
+
+            ExecutionException async = assertThrows(ExecutionException.class,
+                    () -> client.putAsync("key", "value".getBytes()).get());
+            assertInstanceOf(NodeUnavailableException.class, async.getCause());
+        } finally {
+            client.close();
+        }
+    }
+
+    @Test
+    @DisplayName("测试异步PUT大value时改走分块流式写入")
+    void testLargeAsyncPutStreams() throws Exception {
+        try (ServerSocket server = new ServerSocket(0)) {
+            DkvClient client = new DkvClient(List.of("127.0.0.1:" + server.getLocalPort()));
+            client.setRetryPolicy(RetryPolicy.none());
+            try {
+                CompletableFuture<Void> put = client.putAsync("key",
+                        new byte[DkvConstants.LARGE_VALUE_THRESHOLD + 1]);
+                server.setSoTimeout(5000);
+                try (Socket socket = server.accept()) {
+                    DataInputStream in = new DataInputStream(socket.getInputStream());
+                    int frameLength = in.readInt();
+                    assertEquals(KvMessage.Type.PUT_CHUNK.getValue(), in.readByte());
+                    assertTrue(frameLength <= DkvConstants.STREAM_CHUNK_SIZE + 1024, Integer.toString(frameLength));
+                }
+                // 服务端断开后等不到确认，future 以异常结束
+                ExecutionException e = assertThrows(ExecutionException.class, () -> put.get(60, TimeUnit.SECONDS));
+                assertInstanceOf(DkvRequestException.class, e.getCause());
+            } finally {
+                client.close();
+            }
+        }
+    }
+
+    /** 从socket读一个完整的帧并解码 */
+    private static KvMessage readMessage(Socket socket) throws IOException {
+        DataInputStream in = new DataInputStream(socket.getInputStream());
+        byte[] body = new byte[in.readInt()];
+        in.readFully(body);
+        ByteBuf frame = Unpooled.buffer();
+        frame.writeInt(body.length);
+        frame.writeBytes(body);
+        EmbeddedChannel channel = new EmbeddedChannel(new KvMessageDecoder());
+        channel.writeInbound(frame);
+        KvMessage message = channel.readInbound();
+        channel.finishAndReleaseAll();
+        return message;
+    }
+
+    private static void writeMessage(Socket socket, KvMessage message) throws IOException {
+        EmbeddedChannel channel = new EmbeddedChannel(new KvMessageEncoder());
+        channel.writeOutbound(message);
+        ByteBuf encoded = channel.readOutbound();
+        byte[] bytes = new byte[encoded.readableBytes()];
+        encoded.readBytes(bytes);
+        encoded.release();
+        OutputStream out = socket.getOutputStream();
+        out.write(bytes);
+        out.flush();
+    }
+
+    @Test
+    @DisplayName("测试异步GET收到413后直接按原命名空间流式读取，不重发GET")
+    void testAsyncGetStreamsAfter413() throws Exception {
+        try (ServerSocket server = new ServerSocket(0)) {
+            server.setSoTimeout(5000);
+            DkvClient client = new DkvClient(List.of("127.0.0.1:" + server.getLocalPort()));
+            client.setRetryPolicy(RetryPolicy.none());
+            try {
+                CompletableFuture<byte[]> get = client.getAsync("blobs", "big");
+                try (Socket pipelined = server.accept()) {
+                    KvMessage request = readMessage(pipelined);
+                    assertEquals(KvMessage.Type.GET, request.getType());
+                    assertEquals("blobs", request.getNamespace());
+                    KvMessage tooLarge = new KvMessage(KvMessage.Type.RESPONSE, "big", null);
+                    tooLarge.setRequestId(request.getRequestId());
+                    tooLarge.setStatusCode(413);
+                    writeMessage(pipelined, tooLarge);
+
+                    try (Socket stream = server.accept()) {
+                        KvMessage streamRequest = readMessage(stream);
+                        assertEquals(KvMessage.Type.GET_STREAM, streamRequest.getType());
+                        assertEquals("blobs", streamRequest.getNamespace());
+                        KvMessage chunk = new KvMessage(KvMessage.Type.RESPONSE, "big", "abc".getBytes());
+                        chunk.setRequestId(streamRequest.getRequestId());
+                        chunk.setStatusCode(200);
+                        chunk.setLastChunk(true);
+                        writeMessage(stream, chunk);
+                        assertArrayEquals("abc".getBytes(), get.get(5, TimeUnit.SECONDS));
+                    }
+                    // 共享连接上只收到过一次GET
+                    pipelined.setSoTimeout(200);
+                    assertThrows(SocketTimeoutException.class, () -> readMessage(pipelined));
+                }
+            } finally {
+                client.close();
+            }
+        }
+    }
+}
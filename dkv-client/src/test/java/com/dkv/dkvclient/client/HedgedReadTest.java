@@ -0,0 +1,114 @@
+package com.dkv.dkvclient.client;
+
+import com.dkv.dkvcommon.costants.DkvConstants;
+import com.dkv.dkvcommon.model.KvMessage;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class HedgedReadTest {
+
+    private static final long NO_HEDGE = TimeUnit.SECONDS.toNanos(10);
+
+    /** 按节点返回预先准备好的 future，记录发送顺序 */
+    private final Map<String, CompletableFuture<KvMessage>> legs = new HashMap<>();
+    private final List<String> sent = new ArrayList<>();
+
+    private HedgedRead read(String primary, String backup, boolean budget) {
+        return new HedgedRead((node, request) -> {
+            synchronized (sent) {
+                sent.add(node);
+            }
+            return legs.computeIfAbsent(node, n -> new CompletableFuture<>());
+        }, () -> new KvMessage(KvMessage.Type.GET, "key", null), primary, backup, () -> budget, Runnable::run);
+    }
+
+    private static KvMessage response(int statusCode) {
+        KvMessage response = new KvMessage(KvMessage.Type.RESPONSE, "key", null);
+        response.setStatusCode(statusCode);
+        return response;
+    }
+
+    @Test
+    @DisplayName("测试对冲：第一路超过等待时间未返回时发第二路，先到的胜出，另一路被取消")
+    void testHedgeWinnerCancelsLoser() throws Exception {
+        legs.put("b", CompletableFuture.completedFuture(response(200)));
+        HedgedRead read = read("a", "b", true);
+
+        KvMessage result = read.start("a", TimeUnit.MILLISECONDS.toNanos(1)).get(5, TimeUnit.SECONDS);
+        assertEquals(200, result.getStatusCode());
+        assertTrue(read.isHedged());
+        assertEquals("b", read.getWinner());
+        assertTrue(legs.get("a").isCancelled());
+    }
+
+    @Test
+    @DisplayName("测试对冲：预算用完时不发第二路")
+    void testHedgeBudget() throws Exception {
+        HedgedRead read = read("a", "b", false);
+        CompletableFuture<KvMessage> result = read.start("a", TimeUnit.MILLISECONDS.toNanos(1));
+        Thread.sleep(50);
+        assertFalse(read.isHedged());
+        assertEquals(List.of("a"), sent);
+
+        legs.get("a").complete(response(200));
+        assertEquals("a", read.getWinner());
+        assertEquals(200, result.get().getStatusCode());
+    }
+
+    @Test
+    @DisplayName("测试对冲：第一路失败或BUSY时立即改发第二路，不占对冲预算")
+    void testFailover() throws Exception {
+        legs.put("a", CompletableFuture.completedFuture(response(DkvConstants.STATUS_BUSY)));
+        legs.put("b", CompletableFuture.completedFuture(response(200)));
+        HedgedRead read = read("a", "b", false);
+
+        assertEquals(200, read.start("a", NO_HEDGE).get().getStatusCode());
+        assertEquals("b", read.getWinner());
+
+        // 两路都不可用：没有响应时返回最后一个异常
+        legs.clear();
+        sent.clear();
+        legs.put("a", CompletableFuture.failedFuture(new TimeoutException()));
+        legs.put("b", CompletableFuture.failedFuture(new TimeoutException()));
+        CompletableFuture<KvMessage> failed = read("a", "b", false).start("a", NO_HEDGE);
+        ExecutionException e = assertThrows(ExecutionException.class, failed::get);
+        assertInstanceOf(TimeoutException.class, e.getCause());
+        assertEquals(List.of("a", "b"), sent);
+    }
+
+    @Test
+    @DisplayName("测试副本返回404时回到主节点确认")
+    void testReplicaMissFallsBackToPrimary() throws Exception {
+        legs.put("r1", CompletableFuture.completedFuture(response(404)));
+        legs.put("r2", CompletableFuture.completedFuture(response(404)));
+        legs.put("p", CompletableFuture.completedFuture(response(200)));
+        HedgedRead read = read("p", "r2", true);
+
+        assertEquals(200, read.start("r1", NO_HEDGE).get().getStatusCode());
+        assertEquals("p", read.getWinner());
+        assertEquals(List.of("r1", "p"), sent);
+
+        // 主节点也不可用时才返回副本的404
+        legs.put("p", CompletableFuture.failedFuture(new TimeoutException()));
+        sent.clear();
+        assertEquals(404, read("p", "r2", true).start("r1", NO_HEDGE).get().getStatusCode());
+        assertEquals(List.of("r1", "p", "r2"), sent);
+
+        // 主节点的404是确定的未命中
+        legs.put("p", CompletableFuture.completedFuture(response(404)));
+        sent.clear();
+        assertEquals(404, read("p", "r2", true).start("p", NO_HEDGE).get().getStatusCode());
+        assertEquals(List.of("p"), sent);
+    }
+}
@@ -0,0 +1,77 @@
+package com.dkv.dkvclient.client;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class NodeHealthTest {
+
+    private final AtomicLong now = new AtomicLong(1_000_000);
+    private final NodeHealth health = new NodeHealth(now::get);
+
+    private void fail(String node, int times) {
+        for (int i = 0; i < times; i++) {
+            health.onFailure(node);
+        }
+    }
+
+    @Test
+    @DisplayName("测试熔断：错误率超限后打开，到期放行一个探测请求，探测成功后关闭")
+    void testCircuitOpenHalfOpenClose() {
+        assertTrue(health.tryAcquire("a"));
+        fail("a", 19);
+        assertTrue(health.tryAcquire("a"), "请求数不足时不熔断");
+        fail("a", 1);
+        assertFalse(health.tryAcquire("a"));
+        assertTrue(health.snapshot().get("a").startsWith("OPEN"));
+
+        now.addAndGet(5_000);
+        assertTrue(health.tryAcquire("a"), "到期后放行探测请求");
+        assertFalse(health.tryAcquire("a"), "半开时只放行一个");
+        health.onSuccess("a");
+        assertTrue(health.snapshot().get("a").startsWith("CLOSED"));
+        assertTrue(health.tryAcquire("a"));
+        assertTrue(health.tryAcquire("a"));
+    }
+
+    @Test
+    @DisplayName("测试熔断：探测失败重新打开，探测被取消时释放名额")
+    void testProbeFailureAndCancel() {
+        fail("a", 20);
+        now.addAndGet(5_000);
+        assertTrue(health.tryAcquire("a"));
+        health.onFailure("a");
+        assertFalse(health.tryAcquire("a"));
+
+        now.addAndGet(5_000);
+        assertTrue(health.tryAcquire("a"));
+        health.onCancel("a");
+        assertTrue(health.tryAcquire("a"), "被取消的探测不占名额");
+    }
+
+    @Test
+    @DisplayName("测试离群摘除：连续失败的节点被跳过，再次摘除时间加倍，全部不可用时原样返回")
+    void testEjection() {
+        List<String> candidates = List.of("a", "b");
+        fail("a", 4);
+        assertEquals(candidates, health.available(candidates));
+        health.onFailure("a");
+        assertEquals(List.of("b"), health.available(candidates));
+
+        now.addAndGet(5_000);
+        assertEquals(candidates, health.available(candidates));
+        fail("a", 5);
+        now.addAndGet(9_999);
+        assertEquals(List.of("b"), health.available(candidates));
+        now.addAndGet(1);
+        assertEquals(candidates, health.available(candidates));
+
+        fail("b", 5);
+        fail("a", 5);
+        assertEquals(candidates, health.available(candidates), "全部不可用时不过滤");
+    }
+}
@@ -0,0 +1,69 @@
+package com.dkv.dkvclient.client;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class NodeLatencyTrackerTest {
+
+    private static final long MILLIS = TimeUnit.MILLISECONDS.toNanos(1);
+
+    private static void sample(NodeLatencyTracker tracker, String node, long nanos) {
+        tracker.begin(node);
+        tracker.end(node, nanos);
+    }
+
+    @Test
+    @DisplayName("测试按延迟EWMA挑选最快的节点，可排除指定节点")
+    void testFastest() {
+        NodeLatencyTracker tracker = new NodeLatencyTracker();
+        sample(tracker, "a", 10 * MILLIS);
+        sample(tracker, "b", 2 * MILLIS);
+        sample(tracker, "c", 5 * MILLIS);
+
+        List<String> candidates = List.of("a", "b", "c");
+        assertEquals("b", tracker.fastest(candidates, null));
+        assertEquals("c", tracker.fastest(candidates, "b"));
+        // 没有样本的节点得分为0，先试探一次
+        assertEquals("d", tracker.fastest(List.of("a", "b", "d"), null));
+        assertNull(tracker.fastest(List.of("a"), "a"));
+    }
+
+    @Test
+    @DisplayName("测试EWMA平滑和在途请求数对得分的影响")
+    void testEwmaAndInFlight() {
+        NodeLatencyTracker tracker = new NodeLatencyTracker();
+        sample(tracker, "a", 10 * MILLIS);
+        sample(tracker, "a", 20 * MILLIS);
+        // 10 + 0.3 × (20 - 10)
+        assertEquals(13.0, tracker.snapshot().get("a"), 1e-6);
+
+        sample(tracker, "b", 4 * MILLIS);
+        assertEquals("b", tracker.fastest(List.of("a", "b"), null));
+        // b 上压着 4 个在途请求：4 × (4 + 1) = 20ms > 13ms
+        for (int i = 0; i < 4; i++) {
+            tracker.begin("b");
+        }
+        assertEquals("a", tracker.fastest(List.of("a", "b"), null));
+    }
+
+    @Test
+    @DisplayName("测试对冲等待时间：样本不足用默认值，之后取读延迟的p95")
+    void testHedgeDelay() {
+        NodeLatencyTracker tracker = new NodeLatencyTracker();
+        long defaultDelay = 10 * MILLIS;
+        assertEquals(defaultDelay, tracker.hedgeDelayNanos(defaultDelay));
+        // 默认值太小时不低于下限
+        assertEquals(TimeUnit.MICROSECONDS.toNanos(500), tracker.hedgeDelayNanos(1));
+
+        for (int i = 1; i <= 128; i++) {
+            tracker.recordRead(i * MILLIS);
+        }
+        long p95 = tracker.hedgeDelayNanos(defaultDelay);
+        assertTrue(p95 >= 120 * MILLIS && p95 <= 124 * MILLIS, Long.toString(p95));
+    }
+}
@@ -0,0 +1,31 @@
+package com.dkv.dkvclient.client;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RetryPolicyTest {
+
+    @Test
+    @DisplayName("测试指数退避：每次翻倍，带抖动，不超过上限")
+    void testBackoff() {
+        RetryPolicy policy = new RetryPolicy().setInitialBackoffMillis(20).setMaxBackoffMillis(1000);
+        for (int i = 0; i < 100; i++) {
+            long first = policy.backoffMillis(0);
+            assertTrue(first >= 10 && first <= 20, Long.toString(first));
+            long third = policy.backoffMillis(2);
+            assertTrue(third >= 40 && third <= 80, Long.toString(third));
+            long capped = policy.backoffMillis(30);
+            assertTrue(capped >= 500 && capped <= 1000, Long.toString(capped));
+        }
+    }
+
+    @Test
+    @DisplayName("测试重试次数：至少发送一次")
+    void testMaxAttempts() {
+        assertEquals(4, new RetryPolicy().getMaxAttempts());
+        assertEquals(1, RetryPolicy.none().getMaxAttempts());
+        assertEquals(1, new RetryPolicy().setMaxAttempts(0).getMaxAttempts());
+    }
+}
@@ -2,12 +2,30 @@ package com.dkv.dkvcommon.costants;
 
 public class DkvConstants {
     // ZooKeeper 根路径
-    public static final String ZK_ROOT_PATH = "/mini-dkv";
+    public static final String ZK_ROOT_PATH = "/dkv";
 
     // 节点注册路径 (DataNode 启动时在这里创建临时节点)
-    // 结构: /mini-dkv/nodes/192.168.1.5:8080
-    public static final String ZK_NODES_PATH = "/mini-dkv/nodes";
+    // 结构: /dkv/nodes/192.168.1.5:8080，节点数据是可选的 JSON（权重、健康状态等）
+    public static final String ZK_NODES_PATH = ZK_ROOT_PATH + "/nodes";
+
+    // master 均衡后改归的 token (持久节点)，数据为 JSON 对象 {"token哈希": "ip:port"}，客户端构建哈希环时应用
+    public static final String ZK_TOKENS_PATH = ZK_ROOT_PATH + "/tokens";
 
     // 默认 DataNode 服务端口
     public static final int DEFAULT_SERVER_PORT = 8080;
+
+    // 单帧上限（帧头 + value），超过的value必须分块传输
+    public static final int MAX_FRAME_SIZE = 1024 * 1024;
+
+    // 大value分块大小，需小于单帧上限
+    public static final int STREAM_CHUNK_SIZE = 256 * 1024;
+
+    // 超过该大小的value走分块流式传输
+    public static final int LARGE_VALUE_THRESHOLD = STREAM_CHUNK_SIZE;
+
+    // 超过该大小的value在网络传输时压缩
+    public static final int COMPRESSION_THRESHOLD = 1024;
+
+    // 节点过载（在途请求超限或RocksDB写停顿），客户端应退避重试
+    public static final int STATUS_BUSY = 503;
 }
\ No newline at end of file
@@ -1,6 +1,7 @@
 // KvMessage.java
 package com.dkv.dkvcommon.model;
 import java.io.Serializable;
+import java.nio.charset.StandardCharsets;
 
 public class KvMessage implements Serializable {
     private static final long serialVersionUID = 1L;
@@ -10,7 +11,10 @@ public class KvMessage implements Serializable {
         GET(2),
         DELETE(3),
         REPLICATION_PUT(4),  // 复制专用
-        RESPONSE(5);
+        RESPONSE(5),
+        MERGE(6),            // 合并写（追加/计数），无需先读后写
+        PUT_CHUNK(7),        // 大value分块写入，一个分块一帧
+        GET_STREAM(8);       // 大value分块读取，响应为多帧
 
         private final int value;
 
@@ -32,14 +36,42 @@ public class KvMessage implements Serializable {
         }
     }
 
+    /**
+     * 合并算子，对应 RocksDB 内置的 merge operator
+     */
+    public enum MergeOperator {
+        STRING_APPEND,  // 追加到原值末尾
+        UINT64_ADD      // 64位无符号整数累加（小端8字节）
+    }
+
+    /**
+     * value的压缩算法
+     */
+    public enum Compression {
+        NONE,
+        LZ4,   // 速度优先
+        ZSTD   // 压缩率优先
+    }
+
     private Type type;
+    // key以字节为准，String只是便捷形式：两者按需互相转换（UTF-8）并缓存，任一setter会清掉另一种形式
     private String key;
+    private byte[] keyBytes;
     private byte[] value;
     private int statusCode;
     private String message;
     private String requestId;
     private long timestamp;
     private boolean isReplication;
+    private MergeOperator mergeOperator;
+    private String namespace;  // 命名空间，为空表示 default
+    private int chunkIndex;    // 分块序号（从0开始）
+    private boolean lastChunk; // 是否为最后一个分块
+    private Compression compression = Compression.NONE;  // value当前的压缩算法
+    private int uncompressedLength;                      // 压缩前长度
+    private Compression acceptCompression;               // 发送方能解压的算法，对端据此压缩响应
+    private long traceId;      // 追踪链路ID，0 表示请求未被采样
+    private long spanId;       // 发送方的 span，接收方的 span 以它为父
 
     // 构造方法
     public KvMessage(Type type, String key, byte[] value) {
@@ -53,8 +85,30 @@ public class KvMessage implements Serializable {
     public Type getType() { return type; }
     public void setType(Type type) { this.type = type; }
 
-    public String getKey() { return key; }
-    public void setKey(String key) { this.key = key; }
+    /**
+     * key的字符串形式，二进制key按UTF-8解码（仅用于展示）
+     */
+    public String getKey() {
+        if (key == null && keyBytes != null) {
+            key = new String(keyBytes, StandardCharsets.UTF_8);
+        }
+        return key;
+    }
+    public void setKey(String key) {
+        this.key = key;
+        this.keyBytes = null;
+    }
+
+    public byte[] getKeyBytes() {
+        if (keyBytes == null && key != null) {
+            keyBytes = key.getBytes(StandardCharsets.UTF_8);
+        }
+        return keyBytes;
+    }
+    public void setKeyBytes(byte[] keyBytes) {
+        this.keyBytes = keyBytes;
+        this.key = null;
+    }
 
     public byte[] getValue() { return value; }
     public void setValue(byte[] value) { this.value = value; }
@@ -74,14 +128,69 @@ public class KvMessage implements Serializable {
     public boolean isReplication() { return isReplication; }
     public void setReplication(boolean replication) { isReplication = replication; }
 
+    public MergeOperator getMergeOperator() { return mergeOperator; }
+    public void setMergeOperator(MergeOperator mergeOperator) { this.mergeOperator = mergeOperator; }
+
+    public String getNamespace() { return namespace; }
+    public void setNamespace(String namespace) { this.namespace = namespace; }
+
+    public int getChunkIndex() { return chunkIndex; }
+    public void setChunkIndex(int chunkIndex) { this.chunkIndex = chunkIndex; }
+
+    public boolean isLastChunk() { return lastChunk; }
+    public void setLastChunk(boolean lastChunk) { this.lastChunk = lastChunk; }
+
+    public Compression getCompression() { return compression; }
+    public void setCompression(Compression compression) { this.compression = compression; }
+
+    public int getUncompressedLength() { return uncompressedLength; }
+    public void setUncompressedLength(int uncompressedLength) { this.uncompressedLength = uncompressedLength; }
+
+    public Compression getAcceptCompression() { return acceptCompression; }
+    public void setAcceptCompression(Compression acceptCompression) { this.acceptCompression = acceptCompression; }
+
+    public long getTraceId() { return traceId; }
+    public void setTraceId(long traceId) { this.traceId = traceId; }
+
+    public long getSpanId() { return spanId; }
+    public void setSpanId(long spanId) { this.spanId = spanId; }
+
+    /**
+     * 浅拷贝，value 等数组与原消息共用；用于只改写个别字段而不影响原消息（原消息可能同时发往多个连接）
+     */
+    public KvMessage copy() {
+        KvMessage copy = new KvMessage(type, key, value);
+        copy.keyBytes = keyBytes;
+        copy.statusCode = statusCode;
+        copy.message = message;
+        copy.requestId = requestId;
+        copy.timestamp = timestamp;
+        copy.isReplication = isReplication;
+        copy.mergeOperator = mergeOperator;
+        copy.namespace = namespace;
+        copy.chunkIndex = chunkIndex;
+        copy.lastChunk = lastChunk;
+        copy.compression = compression;
+        copy.uncompressedLength = uncompressedLength;
+        copy.acceptCompression = acceptCompression;
+        copy.traceId = traceId;
+        copy.spanId = spanId;
+        return copy;
+    }
+
     @Override
     public String toString() {
         return "KvMessage{" +
                 "type=" + type +
-                ", key='" + key + '\'' +
+                (namespace != null ? ", namespace=" + namespace : "") +
+                ", key='" + getKey() + '\'' +
                 ", valueSize=" + (value != null ? value.length : 0) +
                 ", statusCode=" + statusCode +
                 ", isReplication=" + isReplication +
+                (mergeOperator != null ? ", mergeOperator=" + mergeOperator : "") +
+                (type == Type.PUT_CHUNK || lastChunk ? ", chunkIndex=" + chunkIndex + ", lastChunk=" + lastChunk : "") +
+                (compression != null && compression != Compression.NONE ? ", compression=" + compression : "") +
+                (traceId != 0 ? ", traceId=" + Long.toHexString(traceId) : "") +
                 '}';
     }
 }
\ No newline at end of file
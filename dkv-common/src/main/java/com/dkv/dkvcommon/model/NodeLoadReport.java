@@ -0,0 +1,131 @@
+package com.dkv.dkvcommon.model;
+
+/**
+ * DataNode 定期写到自己注册节点（/dkv/nodes/ip:port）上的负载报告，以 JSON 保存
+ * 客户端只读 weight 和 healthy 决定路由，master 用其余字段判断冷热做均衡
+ * 容量和占用：磁盘引擎为数据目录所在磁盘和数据文件大小，内存引擎为内存上限和占用内存；未知时为 -1
+ */
+public class NodeLoadReport {
+
+    private String nodeId;
+    private String address;          // ip:port，与注册路径一致
+    private int weight = 1;          // 路由权重（虚拟节点倍数）
+    private boolean healthy = true;  // 为 false 时客户端不再把请求路由过来
+    private long capacityBytes = -1;
+    private long usedBytes = -1;
+    private long keyCount = -1;
+    private double requestRate;      // 上一个上报周期内的客户端请求数/秒（读 + 写）
+    private double readRate;
+    private double writeRate;
+    private int inFlight;
+    private long reportedAt;         // 上报时间（毫秒），master 据此判断报告是否过期
+
+    public String getNodeId() {
+        return nodeId;
+    }
+
+    public void setNodeId(String nodeId) {
+        this.nodeId = nodeId;
+    }
+
+    public String getAddress() {
+        return address;
+    }
+
+    public void setAddress(String address) {
+        this.address = address;
+    }
+
+    public int getWeight() {
+        return weight;
+    }
+
+    public void setWeight(int weight) {
+        this.weight = weight;
+    }
+
+    public boolean isHealthy() {
+        return healthy;
+    }
+
+    public void setHealthy(boolean healthy) {
+        this.healthy = healthy;
+    }
+
+    public long getCapacityBytes() {
+        return capacityBytes;
+    }
+
+    public void setCapacityBytes(long capacityBytes) {
+        this.capacityBytes = capacityBytes;
+    }
+
+    public long getUsedBytes() {
+        return usedBytes;
+    }
+
+    public void setUsedBytes(long usedBytes) {
+        this.usedBytes = usedBytes;
+    }
+
+    public long getKeyCount() {
+        return keyCount;
+    }
+
+    public void setKeyCount(long keyCount) {
+        this.keyCount = keyCount;
+    }
+
+    public double getRequestRate() {
+        return requestRate;
+    }
+
+    public void setRequestRate(double requestRate) {
+        this.requestRate = requestRate;
+    }
+
+    public double getReadRate() {
+        return readRate;
+    }
+
+    public void setReadRate(double readRate) {
+        this.readRate = readRate;
+    }
+
+    public double getWriteRate() {
+        return writeRate;
+    }
+
+    public void setWriteRate(double writeRate) {
+        this.writeRate = writeRate;
+    }
+
+    public int getInFlight() {
+        return inFlight;
+    }
+
+    public void setInFlight(int inFlight) {
+        this.inFlight = inFlight;
+    }
+
+    public long getReportedAt() {
+        return reportedAt;
+    }
+
+    public void setReportedAt(long reportedAt) {
+        this.reportedAt = reportedAt;
+    }
+
+    @Override
+    public String toString() {
+        return "NodeLoadReport{" +
+                "address=" + address +
+                ", weight=" + weight +
+                ", healthy=" + healthy +
+                ", usedBytes=" + usedBytes + "/" + capacityBytes +
+                ", keyCount=" + keyCount +
+                ", requestRate=" + String.format("%.1f", requestRate) +
+                ", inFlight=" + inFlight +
+                '}';
+    }
+}
@@ -0,0 +1,108 @@
+package com.dkv.dkvcommon.trace;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 把 span 按每行一个 JSON 追加到本地文件
+ * 请求线程只入队，由后台线程批量写盘；队列满时丢弃并计数，不阻塞请求
+ */
+public class FileSpanExporter implements SpanExporter {
+    private static final Logger logger = LoggerFactory.getLogger(FileSpanExporter.class);
+
+    private static final int DEFAULT_QUEUE_CAPACITY = 65_536;
+    private static final int BATCH_SIZE = 512;
+
+    private final Path path;
+    private final BlockingQueue<Span> queue;
+    private final BufferedWriter writer;
+    private final Thread worker;
+    private final AtomicLong dropped = new AtomicLong();
+    private volatile boolean running = true;
+
+    public FileSpanExporter(Path file) throws IOException {
+        this(file, DEFAULT_QUEUE_CAPACITY);
+    }
+
+    public FileSpanExporter(Path file, int queueCapacity) throws IOException {
+        if (file.getParent() != null) {
+            Files.createDirectories(file.getParent());
+        }
+        this.path = file;
+        this.queue = new ArrayBlockingQueue<>(queueCapacity);
+        this.writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8,
+                StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+        this.worker = new Thread(this::drain, "span-exporter");
+        worker.setDaemon(true);
+        worker.start();
+    }
+
+    @Override
+    public void export(Span span) {
+        if (!running || !queue.offer(span)) {
+            dropped.incrementAndGet();
+        }
+    }
+
+    private void drain() {
+        List<Span> batch = new ArrayList<>(BATCH_SIZE);
+        while (running || !queue.isEmpty()) {
+            try {
+                Span first = queue.poll(100, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+                queue.drainTo(batch, BATCH_SIZE - 1);
+                for (Span span : batch) {
+                    writer.write(span.toJson());
+                    writer.newLine();
+                }
+                writer.flush();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (IOException e) {
+                dropped.addAndGet(batch.size());
+                logger.warn("Failed to write {} spans to {}", batch.size(), path, e);
+            } finally {
+                batch.clear();
+            }
+        }
+    }
+
+    public long getDropped() {
+        return dropped.get();
+    }
+
+    /**
+     * 写完队列里剩余的 span 后关闭文件
+     */
+    @Override
+    public void close() {
+        running = false;
+        try {
+            worker.join(TimeUnit.SECONDS.toMillis(5));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        try {
+            writer.close();
+        } catch (IOException e) {
+            logger.warn("Failed to close span file {}", path, e);
+        }
+    }
+}
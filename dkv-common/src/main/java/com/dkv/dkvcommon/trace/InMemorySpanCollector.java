@@ -0,0 +1,54 @@
+package com.dkv.dkvcommon.trace;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 进程内收集器：保留最近 capacity 个 span，满了丢弃最旧的，用于测试和按 traceId 现场查询（Agent 的 traces 操作）
+ */
+public class InMemorySpanCollector implements SpanExporter {
+
+    public static final int DEFAULT_CAPACITY = 10_000;
+
+    private final int capacity;
+    private final ArrayDeque<Span> spans;
+
+    public InMemorySpanCollector() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    public InMemorySpanCollector(int capacity) {
+        this.capacity = capacity;
+        this.spans = new ArrayDeque<>(Math.min(capacity, 1024));
+    }
+
+    @Override
+    public synchronized void export(Span span) {
+        if (spans.size() >= capacity) {
+            spans.pollFirst();
+        }
+        spans.addLast(span);
+    }
+
+    public synchronized List<Span> getSpans() {
+        return new ArrayList<>(spans);
+    }
+
+    /**
+     * 某条链路在本进程内结束的所有 span，按结束顺序排列
+     */
+    public synchronized List<Span> getTrace(long traceId) {
+        List<Span> trace = new ArrayList<>();
+        for (Span span : spans) {
+            if (span.getTraceId() == traceId) {
+                trace.add(span);
+            }
+        }
+        return trace;
+    }
+
+    public synchronized void clear() {
+        spans.clear();
+    }
+}
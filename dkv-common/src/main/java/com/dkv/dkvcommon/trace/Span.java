@@ -0,0 +1,193 @@
+package com.dkv.dkvcommon.trace;
+
+import com.dkv.dkvcommon.model.KvMessage;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * 一次操作的耗时区间，同一请求在客户端、主节点和副本上的 span 共用 traceId
+ * 未采样的请求使用 NOOP，所有方法都是空操作，调用方不需要判空
+ */
+public class Span {
+
+    public static final Span NOOP = new Span(null, 0, 0, 0, "noop", 0);
+
+    private final Tracer tracer;
+    private final long traceId;
+    private final long spanId;
+    private final long parentId;
+    private final String name;
+    private final long startNanos;
+    private final long startEpochMicros;
+    private Map<String, String> tags;
+    private String error;
+    private volatile long durationNanos = -1;
+
+    Span(Tracer tracer, long traceId, long spanId, long parentId, String name, long startNanos) {
+        this.tracer = tracer;
+        this.traceId = traceId;
+        this.spanId = spanId;
+        this.parentId = parentId;
+        this.name = name;
+        this.startNanos = startNanos;
+        // 起始的墙上时间由 nanoTime 差值换算，允许传入过去的起点（如请求到达时刻）
+        this.startEpochMicros = tracer == null ? 0
+                : System.currentTimeMillis() * 1000 - (System.nanoTime() - startNanos) / 1000;
+    }
+
+    public boolean isSampled() {
+        return tracer != null;
+    }
+
+    public Span child(String name) {
+        return child(name, System.nanoTime());
+    }
+
+    /**
+     * 从指定时刻（System.nanoTime）开始的子 span
+     */
+    public Span child(String name, long startNanos) {
+        if (tracer == null) {
+            return NOOP;
+        }
+        return tracer.newSpan(traceId, spanId, name, startNanos);
+    }
+
+    public synchronized Span tag(String key, Object value) {
+        if (tracer != null) {
+            if (tags == null) {
+                tags = new LinkedHashMap<>();
+            }
+            tags.put(key, String.valueOf(value));
+        }
+        return this;
+    }
+
+    public synchronized Span error(String error) {
+        if (tracer != null) {
+            this.error = error;
+        }
+        return this;
+    }
+
+    /**
+     * 把当前 span 作为父 span 写入请求，接收方的 span 挂在它下面
+     */
+    public void inject(KvMessage msg) {
+        if (tracer != null) {
+            msg.setTraceId(traceId);
+            msg.setSpanId(spanId);
+        }
+    }
+
+    public void finish() {
+        finish(System.nanoTime());
+    }
+
+    public void finish(long endNanos) {
+        if (tracer == null || durationNanos >= 0) {
+            return;
+        }
+        durationNanos = Math.max(0, endNanos - startNanos);
+        tracer.export(this);
+    }
+
+    public long getTraceId() { return traceId; }
+    public long getSpanId() { return spanId; }
+    public long getParentId() { return parentId; }
+    public String getName() { return name; }
+    public long getStartEpochMicros() { return startEpochMicros; }
+    public long getDurationNanos() { return durationNanos; }
+    public String getService() { return tracer == null ? null : tracer.getService(); }
+
+    public synchronized Map<String, String> getTags() {
+        return tags == null ? Map.of() : new LinkedHashMap<>(tags);
+    }
+
+    public synchronized String getError() { return error; }
+
+    /**
+     * 字段与 toJson 相同，供管理接口序列化
+     */
+    public synchronized Map<String, Object> toMap() {
+        Map<String, Object> map = new LinkedHashMap<>();
+        map.put("traceId", Long.toHexString(traceId));
+        map.put("spanId", Long.toHexString(spanId));
+        if (parentId != 0) {
+            map.put("parentId", Long.toHexString(parentId));
+        }
+        map.put("service", getService());
+        map.put("name", name);
+        map.put("startMicros", startEpochMicros);
+        map.put("durationMicros", durationNanos / 1000);
+        if (tags != null) {
+            map.put("tags", new LinkedHashMap<>(tags));
+        }
+        if (error != null) {
+            map.put("error", error);
+        }
+        return map;
+    }
+
+    /**
+     * 单行 JSON，id 用16进制
+     */
+    public synchronized String toJson() {
+        StringBuilder out = new StringBuilder(160);
+        out.append("{\"traceId\":\"").append(Long.toHexString(traceId))
+                .append("\",\"spanId\":\"").append(Long.toHexString(spanId)).append('"');
+        if (parentId != 0) {
+            out.append(",\"parentId\":\"").append(Long.toHexString(parentId)).append('"');
+        }
+        out.append(",\"service\":");
+        appendString(out, getService());
+        out.append(",\"name\":");
+        appendString(out, name);
+        out.append(",\"startMicros\":").append(startEpochMicros)
+                .append(",\"durationMicros\":").append(durationNanos / 1000);
+        if (tags != null) {
+            out.append(",\"tags\":{");
+            boolean first = true;
+            for (Map.Entry<String, String> tag : tags.entrySet()) {
+                if (!first) {
+                    out.append(',');
+                }
+                first = false;
+                appendString(out, tag.getKey());
+                out.append(':');
+                appendString(out, tag.getValue());
+            }
+            out.append('}');
+        }
+        if (error != null) {
+            out.append(",\"error\":");
+            appendString(out, error);
+        }
+        return out.append('}').toString();
+    }
+
+    private static void appendString(StringBuilder out, String value) {
+        if (value == null) {
+            out.append("null");
+            return;
+        }
+        out.append('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '"' || c == '\\') {
+                out.append('\\').append(c);
+            } else if (c < 0x20) {
+                out.append(String.format("\\u%04x", (int) c));
+            } else {
+                out.append(c);
+            }
+        }
+        out.append('"');
+    }
+
+    @Override
+    public String toString() {
+        return toJson();
+    }
+}
@@ -0,0 +1,14 @@
+package com.dkv.dkvcommon.trace;
+
+/**
+ * span 结束后的去向，export 在请求线程上调用，实现不能阻塞
+ */
+public interface SpanExporter {
+
+    SpanExporter NONE = span -> { };
+
+    void export(Span span);
+
+    default void close() {
+    }
+}
@@ -0,0 +1,95 @@
+package com.dkv.dkvcommon.trace;
+
+import com.dkv.dkvcommon.model.KvMessage;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * 请求追踪入口：按采样率决定是否追踪，追踪上下文（traceId + 父 spanId）随 KvMessage 传播
+ * 采样在链路起点决定一次，下游只要收到上下文就继续追踪；未采样的请求不带上下文，也不产生任何对象
+ */
+public class Tracer {
+    private static final Logger logger = LoggerFactory.getLogger(Tracer.class);
+
+    public static final Tracer NOOP = new Tracer("noop", 0, SpanExporter.NONE);
+
+    private final String service;
+    private final double sampleRate;
+    private final SpanExporter exporter;
+
+    /**
+     * @param service    span 所属的服务（客户端名或节点ID）
+     * @param sampleRate 本服务发起新链路时的采样率，0 表示只继续上游传来的链路
+     */
+    public Tracer(String service, double sampleRate, SpanExporter exporter) {
+        if (sampleRate < 0 || sampleRate > 1) {
+            throw new IllegalArgumentException("Sample rate must be within [0, 1]: " + sampleRate);
+        }
+        this.service = service;
+        this.sampleRate = sampleRate;
+        this.exporter = exporter;
+    }
+
+    /**
+     * 发起一条新链路，未被采样时返回 Span.NOOP
+     */
+    public Span startTrace(String name) {
+        return startTrace(name, System.nanoTime());
+    }
+
+    public Span startTrace(String name, long startNanos) {
+        if (sampleRate <= 0 || (sampleRate < 1 && ThreadLocalRandom.current().nextDouble() >= sampleRate)) {
+            return Span.NOOP;
+        }
+        return newSpan(nextId(), 0, name, startNanos);
+    }
+
+    /**
+     * 继续请求里带来的链路；请求不带上下文时按本服务的采样率决定是否发起新链路
+     */
+    public Span continueTrace(String name, KvMessage msg, long startNanos) {
+        if (msg.getTraceId() == 0 || exporter == SpanExporter.NONE) {
+            return startTrace(name, startNanos);
+        }
+        return newSpan(msg.getTraceId(), msg.getSpanId(), name, startNanos);
+    }
+
+    Span newSpan(long traceId, long parentId, String name, long startNanos) {
+        return new Span(this, traceId, nextId(), parentId, name, startNanos);
+    }
+
+    private static long nextId() {
+        long id;
+        do {
+            id = ThreadLocalRandom.current().nextLong();
+        } while (id == 0);  // 0 表示没有追踪上下文
+        return id;
+    }
+
+    void export(Span span) {
+        try {
+            exporter.export(span);
+        } catch (RuntimeException e) {
+            // 追踪不能影响请求本身
+            logger.warn("Failed to export span {}", span.getName(), e);
+        }
+    }
+
+    public String getService() {
+        return service;
+    }
+
+    public double getSampleRate() {
+        return sampleRate;
+    }
+
+    public SpanExporter getExporter() {
+        return exporter;
+    }
+
+    public void close() {
+        exporter.close();
+    }
+}
@@ -0,0 +1,93 @@
+package com.dkv.dkvcommon.utils;
+
+import com.dkv.dkvcommon.model.KvMessage;
+import com.github.luben.zstd.Zstd;
+import net.jpountz.lz4.LZ4Compressor;
+import net.jpountz.lz4.LZ4Factory;
+import net.jpountz.lz4.LZ4SafeDecompressor;
+
+import java.nio.ByteBuffer;
+
+/**
+ * value压缩工具（LZ4 / Zstd 块格式，不带长度头，解压时需要原始长度）
+ */
+public class CompressionUtil {
+    private static final LZ4Compressor LZ4_COMPRESSOR = LZ4Factory.fastestInstance().fastCompressor();
+    // 长度来自对端，用 safe 解压器：按输入长度解压，输出不会超过给定上限，损坏的输入抛异常而不是越界读写
+    private static final LZ4SafeDecompressor LZ4_DECOMPRESSOR = LZ4Factory.fastestInstance().safeDecompressor();
+    // 网络传输偏向速度，用较低的压缩级别
+    private static final int ZSTD_LEVEL = 3;
+
+    public static byte[] compress(byte[] data, KvMessage.Compression compression) {
+        switch (compression) {
+            case LZ4:
+                return LZ4_COMPRESSOR.compress(data);
+            case ZSTD:
+                return Zstd.compress(data, ZSTD_LEVEL);
+            default:
+                return data;
+        }
+    }
+
+    /**
+     * 解压到声明的原始长度，调用方负责先限制 uncompressedLength 的上限
+     * 数据损坏或解压结果与声明长度不符时抛出 IllegalArgumentException
+     */
+    public static byte[] decompress(byte[] data, KvMessage.Compression compression, int uncompressedLength) {
+        byte[] result;
+        try {
+            switch (compression) {
+                case LZ4:
+                    result = LZ4_DECOMPRESSOR.decompress(data, uncompressedLength);
+                    break;
+                case ZSTD:
+                    result = Zstd.decompress(data, uncompressedLength);
+                    break;
+                default:
+                    return data;
+            }
+        } catch (RuntimeException e) {
+            throw new IllegalArgumentException(compression + " data is corrupted", e);
+        }
+        if (result.length != uncompressedLength) {
+            throw new IllegalArgumentException(compression + " data decompressed to " + result.length
+                    + " bytes, expected " + uncompressedLength);
+        }
+        return result;
+    }
+
+    /**
+     * 压缩后的最大长度，用于预先分配目标缓冲区
+     */
+    public static int maxCompressedLength(int length, KvMessage.Compression compression) {
+        switch (compression) {
+            case LZ4:
+                return LZ4_COMPRESSOR.maxCompressedLength(length);
+            case ZSTD:
+                return (int) Zstd.compressBound(length);
+            default:
+                return length;
+        }
+    }
+
+    /**
+     * 在两个 direct ByteBuffer 之间压缩（不经过堆内存），压缩 src 的 position 到 limit，
+     * 写入 dst 的 position 处，返回压缩后的长度；两个缓冲区的 position 不变
+     */
+    public static int compress(ByteBuffer src, ByteBuffer dst, KvMessage.Compression compression) {
+        switch (compression) {
+            case LZ4:
+                return LZ4_COMPRESSOR.compress(src, src.position(), src.remaining(),
+                        dst, dst.position(), dst.remaining());
+            case ZSTD:
+                long size = Zstd.compressDirectByteBuffer(dst, dst.position(), dst.remaining(),
+                        src, src.position(), src.remaining(), ZSTD_LEVEL);
+                if (Zstd.isError(size)) {
+                    throw new IllegalStateException("Zstd compression failed: " + Zstd.getErrorName(size));
+                }
+                return (int) size;
+            default:
+                throw new IllegalArgumentException("No compression to apply");
+        }
+    }
+}
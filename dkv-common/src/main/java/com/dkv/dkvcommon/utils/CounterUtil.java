@@ -0,0 +1,34 @@
+package com.dkv.dkvcommon.utils;
+
+/**
+ * 计数器编解码工具
+ * RocksDB 的 uint64add 合并算子要求操作数为 8 字节小端整数
+ */
+public class CounterUtil {
+    public static final int COUNTER_SIZE = 8;
+
+    /**
+     * long -> 8字节小端（负数按补码累加，相当于递减）
+     */
+    public static byte[] encode(long value) {
+        byte[] bytes = new byte[COUNTER_SIZE];
+        for (int i = 0; i < COUNTER_SIZE; i++) {
+            bytes[i] = (byte) (value >>> (8 * i));
+        }
+        return bytes;
+    }
+
+    /**
+     * 8字节小端 -> long
+     */
+    public static long decode(byte[] bytes) {
+        if (bytes == null || bytes.length != COUNTER_SIZE) {
+            throw new IllegalArgumentException("Counter value must be " + COUNTER_SIZE + " bytes");
+        }
+        long value = 0;
+        for (int i = COUNTER_SIZE - 1; i >= 0; i--) {
+            value = (value << 8) | (bytes[i] & 0xFF);
+        }
+        return value;
+    }
+}
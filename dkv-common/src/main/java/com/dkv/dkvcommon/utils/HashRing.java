@@ -0,0 +1,149 @@
+package com.dkv.dkvcommon.utils;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+/**
+ * 不可变的一致性哈希环，节点为 "ip:port"
+ * 虚拟节点命名和哈希与 master 的 ConsistentHashRouter 一致（"ip:port#i"），客户端算出的主节点和副本与 master 相同
+ * 环构建后只读，查找是对有序数组的二分，不加锁；节点变化时整体构建新环再替换引用
+ * master 均衡时会把某些虚拟节点（token）改归其他节点，改动发布在 ZooKeeper 上，双方构建时同样应用
+ */
+public final class HashRing {
+
+    public static final int DEFAULT_VIRTUAL_NODES = 10;
+    public static final HashRing EMPTY = new HashRing(Collections.emptyList());
+
+    private final int[] hashes;     // 升序
+    private final String[] owners;  // 与 hashes 一一对应
+    private final List<String> nodes;
+
+    public HashRing(Collection<String> nodes) {
+        this(nodes, DEFAULT_VIRTUAL_NODES);
+    }
+
+    public HashRing(Collection<String> nodes, int virtualNodes) {
+        this(withWeight(nodes), virtualNodes);
+    }
+
+    /**
+     * 带权重的环：节点的虚拟节点数为 virtualNodes × 权重，权重为 1 的节点位置与不带权重时相同
+     */
+    public HashRing(Map<String, Integer> nodeWeights) {
+        this(nodeWeights, DEFAULT_VIRTUAL_NODES);
+    }
+
+    public HashRing(Map<String, Integer> nodeWeights, int virtualNodes) {
+        this(nodeWeights, Collections.emptyMap(), virtualNodes);
+    }
+
+    /**
+     * @param movedTokens 被改归的 token（虚拟节点的哈希）及其新的所属节点；
+     *                    token 已不在环上（原节点下线）或新节点不在线时忽略该条，token 回到原节点
+     */
+    public HashRing(Map<String, Integer> nodeWeights, Map<Integer, String> movedTokens) {
+        this(nodeWeights, movedTokens, DEFAULT_VIRTUAL_NODES);
+    }
+
+    public HashRing(Map<String, Integer> nodeWeights, Map<Integer, String> movedTokens, int virtualNodes) {
+        // 先放进 TreeMap：哈希冲突时后加入的节点覆盖前者，与 ConsistentHashRouter 的行为相同
+        TreeMap<Integer, String> ring = new TreeMap<>();
+        for (Map.Entry<String, Integer> node : nodeWeights.entrySet()) {
+            int count = virtualNodes * Math.max(1, node.getValue());
+            for (int i = 0; i < count; i++) {
+                ring.put(HashUtil.getHash(node.getKey() + "#" + i), node.getKey());
+            }
+        }
+        for (Map.Entry<Integer, String> moved : movedTokens.entrySet()) {
+            if (ring.containsKey(moved.getKey()) && nodeWeights.containsKey(moved.getValue())) {
+                ring.put(moved.getKey(), moved.getValue());
+            }
+        }
+        this.hashes = new int[ring.size()];
+        this.owners = new String[ring.size()];
+        int i = 0;
+        for (Map.Entry<Integer, String> entry : ring.entrySet()) {
+            hashes[i] = entry.getKey();
+            owners[i] = entry.getValue();
+            i++;
+        }
+        this.nodes = Collections.unmodifiableList(new ArrayList<>(nodeWeights.keySet()));
+    }
+
+    private static Map<String, Integer> withWeight(Collection<String> nodes) {
+        Map<String, Integer> weights = new LinkedHashMap<>();
+        for (String node : nodes) {
+            weights.put(node, 1);
+        }
+        return weights;
+    }
+
+    public boolean isEmpty() {
+        return hashes.length == 0;
+    }
+
+    public List<String> getNodes() {
+        return nodes;
+    }
+
+    /**
+     * 环上所有 token 及其所属节点，按哈希升序；token 负责 (前一个 token, 自身] 这段哈希区间
+     */
+    public Map<Integer, String> getTokens() {
+        Map<Integer, String> tokens = new LinkedHashMap<>();
+        for (int i = 0; i < hashes.length; i++) {
+            tokens.put(hashes[i], owners[i]);
+        }
+        return tokens;
+    }
+
+    /**
+     * key 的主节点：顺时针方向遇到的第一个虚拟节点，环为空时返回 null
+     */
+    public String route(byte[] key) {
+        return isEmpty() ? null : owners[indexOf(HashUtil.getHash(key))];
+    }
+
+    public String route(String key) {
+        return isEmpty() ? null : owners[indexOf(HashUtil.getHash(key))];
+    }
+
+    /**
+     * key 的主节点和副本：从主节点起顺时针取 replicas 个不同的物理节点，主节点在第一位
+     */
+    public List<String> routeWithReplicas(byte[] key, int replicas) {
+        return isEmpty() ? Collections.emptyList() : walk(indexOf(HashUtil.getHash(key)), replicas);
+    }
+
+    public List<String> routeWithReplicas(String key, int replicas) {
+        return isEmpty() ? Collections.emptyList() : walk(indexOf(HashUtil.getHash(key)), replicas);
+    }
+
+    private List<String> walk(int start, int replicas) {
+        int wanted = Math.min(replicas, nodes.size());
+        Set<String> found = new LinkedHashSet<>();
+        for (int i = 0; i < owners.length && found.size() < wanted; i++) {
+            found.add(owners[(start + i) % owners.length]);
+        }
+        return new ArrayList<>(found);
+    }
+
+    /**
+     * 第一个 >= hash 的位置，超过最大值时回到环首
+     */
+    private int indexOf(int hash) {
+        int index = Arrays.binarySearch(hashes, hash);
+        if (index < 0) {
+            index = -index - 1;
+        }
+        return index == hashes.length ? 0 : index;
+    }
+}
@@ -1,23 +1,133 @@
 package com.dkv.dkvcommon.utils;
 
-import com.google.common.hash.HashFunction;
-import com.google.common.hash.Hashing;
-
-import java.nio.charset.StandardCharsets;
-
 public class HashUtil {
-    // 使用 MurmurHash3，速度快且冲突少，适合分布式哈希
-    private static final HashFunction HASH_FUNCTION = Hashing.murmur3_32_fixed();
+    // 使用 MurmurHash3 (x86_32, seed 0)，速度快且冲突少，适合分布式哈希
+    // 结果与 Guava 的 Hashing.murmur3_32_fixed() 一致，但不创建 HashCode 也不编码出临时 byte[]，
+    // 路由每次请求都会调用，不能产生垃圾
+    private static final int C1 = 0xcc9e2d51;
+    private static final int C2 = 0x1b873593;
 
     /**
      * 计算字符串的哈希值 (非负数)
+     * 边遍历字符边按UTF-8编码喂给哈希，与按UTF-8字节计算的结果相同，String key 和等价的 byte[] key 路由到同一节点
      */
     public static int getHash(String key) {
         if(key == null) {
             return 0;
         }
-        int hash = HASH_FUNCTION.hashString(key, StandardCharsets.UTF_8).asInt();
-        // 保证是正数 (取绝对值)
-        return hash < 0 ? Math.abs(hash) : hash;
+        return nonNegative(murmur3(key));
+    }
+
+    /**
+     * 计算二进制key的哈希值 (非负数)
+     */
+    public static int getHash(byte[] key) {
+        if(key == null) {
+            return 0;
+        }
+        return getHash(key, 0, key.length);
+    }
+
+    /**
+     * 计算 key[offset, offset + length) 的哈希值 (非负数)
+     */
+    public static int getHash(byte[] key, int offset, int length) {
+        return nonNegative(murmur3(key, offset, length));
+    }
+
+    /**
+     * 原始的32位 murmur3，可能为负数
+     */
+    public static int murmur3(byte[] data, int offset, int length) {
+        int h1 = 0;
+        int i = 0;
+        for (; i + 4 <= length; i += 4) {
+            int p = offset + i;
+            int k1 = (data[p] & 0xff) | (data[p + 1] & 0xff) << 8
+                    | (data[p + 2] & 0xff) << 16 | (data[p + 3] & 0xff) << 24;
+            h1 = mixH1(h1, mixK1(k1));
+        }
+        int k1 = 0;
+        for (int shift = 0; i < length; i++, shift += 8) {
+            k1 ^= (data[offset + i] & 0xff) << shift;
+        }
+        h1 ^= mixK1(k1);
+        return fmix(h1, length);
+    }
+
+    /**
+     * 字符串按UTF-8编码后的32位 murmur3，可能为负数
+     * 不成对的代理字符与 String#getBytes 一样按 '?' 编码
+     */
+    public static int murmur3(String key) {
+        int h1 = 0;
+        long buffer = 0;  // 还没凑满4字节的编码结果，低位在前
+        int shift = 0;
+        int length = 0;
+        for (int i = 0; i < key.length(); i++) {
+            char c = key.charAt(i);
+            if (c < 0x80) {
+                buffer |= (long) c << shift;
+                shift += 8;
+                length += 1;
+            } else if (c < 0x800) {
+                buffer |= (long) ((0xc0 | c >>> 6) | (0x80 | c & 0x3f) << 8) << shift;
+                shift += 16;
+                length += 2;
+            } else if (!Character.isSurrogate(c)) {
+                buffer |= (long) ((0xe0 | c >>> 12) | (0x80 | c >>> 6 & 0x3f) << 8 | (0x80 | c & 0x3f) << 16) << shift;
+                shift += 24;
+                length += 3;
+            } else if (Character.isHighSurrogate(c) && i + 1 < key.length()
+                    && Character.isLowSurrogate(key.charAt(i + 1))) {
+                int cp = Character.toCodePoint(c, key.charAt(++i));
+                buffer |= ((0xf0 | cp >>> 18) | (0x80 | cp >>> 12 & 0x3f) << 8
+                        | (0x80 | cp >>> 6 & 0x3f) << 16 | (long) (0x80 | cp & 0x3f) << 24) << shift;
+                shift += 32;
+                length += 4;
+            } else {
+                buffer |= (long) '?' << shift;
+                shift += 8;
+                length += 1;
+            }
+            if (shift >= 32) {
+                h1 = mixH1(h1, mixK1((int) buffer));
+                buffer >>>= 32;
+                shift -= 32;
+            }
+        }
+        h1 ^= mixK1((int) buffer);
+        return fmix(h1, length);
+    }
+
+    /**
+     * 取绝对值；Math.abs(Integer.MIN_VALUE) 仍是负数，单独映射为 0
+     */
+    private static int nonNegative(int hash) {
+        return hash == Integer.MIN_VALUE ? 0 : Math.abs(hash);
+    }
+
+    private static int mixK1(int k1) {
+        k1 *= C1;
+        k1 = Integer.rotateLeft(k1, 15);
+        k1 *= C2;
+        return k1;
+    }
+
+    private static int mixH1(int h1, int k1) {
+        h1 ^= k1;
+        h1 = Integer.rotateLeft(h1, 13);
+        h1 = h1 * 5 + 0xe6546b64;
+        return h1;
+    }
+
+    private static int fmix(int h1, int length) {
+        h1 ^= length;
+        h1 ^= h1 >>> 16;
+        h1 *= 0x85ebca6b;
+        h1 ^= h1 >>> 13;
+        h1 *= 0xc2b2ae35;
+        h1 ^= h1 >>> 16;
+        return h1;
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,101 @@
+package com.dkv.dkvcommon.utils;
+
+import com.google.common.hash.HashFunction;
+import com.google.common.hash.Hashing;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class HashUtilTest {
+
+    private static final HashFunction GUAVA = Hashing.murmur3_32_fixed();
+
+    /** 与 Guava 对 UTF-8 字节的哈希比较；不成对的代理字符两边都按 String#getBytes 的 '?' 编码 */
+    private static void assertSameAsGuava(String key) {
+        byte[] bytes = key.getBytes(StandardCharsets.UTF_8);
+        int expected = GUAVA.hashBytes(bytes).asInt();
+        assertEquals(expected, HashUtil.murmur3(key), key);
+        assertEquals(expected, HashUtil.murmur3(bytes, 0, bytes.length), key);
+        assertEquals(HashUtil.getHash(bytes), HashUtil.getHash(key), key);
+    }
+
+    @Test
+    @DisplayName("测试字符串哈希与 Guava murmur3_32_fixed 一致，覆盖1~4字节的UTF-8字符")
+    void testStringMatchesGuava() {
+        for (String key : new String[]{"", "a", "ab", "abc", "abcd", "abcde", "user:10086",
+                "é", "中文key", "ࠀ￿", "😀", "a😀b😀cd"}) {
+            assertSameAsGuava(key);
+            // 合法字符串时 Guava 的 hashString 与 hashBytes 相同
+            assertEquals(GUAVA.hashString(key, StandardCharsets.UTF_8).asInt(), HashUtil.murmur3(key), key);
+        }
+
+        Random random = new Random(42);
+        int[] ranges = {0x80, 0x800, 0x10000, 0x110000};
+        for (int n = 0; n < 2000; n++) {
+            StringBuilder sb = new StringBuilder();
+            int length = random.nextInt(24);
+            for (int i = 0; i < length; i++) {
+                int cp = random.nextInt(ranges[random.nextInt(ranges.length)]);
+                if (Character.isSurrogate((char) cp) && cp < 0x10000) {
+                    cp = 'x';
+                }
+                sb.appendCodePoint(cp);
+            }
+            assertSameAsGuava(sb.toString());
+        }
+    }
+
+    @Test
+    @DisplayName("测试不成对的代理字符按 '?' 编码，与 String#getBytes 的结果一致")
+    void testLoneSurrogates() {
+        String[][] cases = {
+                {"\ud83d", "?"},
+                {"\ude00", "?"},
+                {"a\ud83db", "a?b"},
+                {"a\ude00\ud83d", "a??"},
+                {"\ud83d😀", "?😀"},
+                {"abc\ud83d", "abc?"},
+                {"\ude00😀x", "?😀x"},
+        };
+        for (String[] c : cases) {
+            assertSameAsGuava(c[0]);
+            assertEquals(HashUtil.murmur3(c[1]), HashUtil.murmur3(c[0]), c[1]);
+        }
+    }
+
+    @Test
+    @DisplayName("测试 byte[] 的 offset/length 区间哈希与拷贝出来单独计算相同")
+    void testByteRange() {
+        Random random = new Random(7);
+        byte[] data = new byte[64];
+        random.nextBytes(data);
+        for (int offset = 0; offset < 8; offset++) {
+            for (int length = 0; offset + length <= data.length; length++) {
+                int expected = GUAVA.hashBytes(data, offset, length).asInt();
+                assertEquals(expected, HashUtil.murmur3(data, offset, length));
+            }
+        }
+    }
+
+    @Test
+    @DisplayName("测试 getHash 非负：原始哈希为 Integer.MIN_VALUE 时映射为 0")
+    void testNonNegative() {
+        // 预先搜出来的一个原始哈希恰好为 Integer.MIN_VALUE 的 key
+        String key = "k-1288756215";
+        assertEquals(Integer.MIN_VALUE, GUAVA.hashString(key, StandardCharsets.UTF_8).asInt());
+        assertEquals(Integer.MIN_VALUE, HashUtil.murmur3(key));
+        assertEquals(0, HashUtil.getHash(key));
+        assertEquals(0, HashUtil.getHash(key.getBytes(StandardCharsets.UTF_8)));
+
+        assertEquals(0, HashUtil.getHash((String) null));
+        assertEquals(0, HashUtil.getHash((byte[]) null));
+        for (int i = 0; i < 1000; i++) {
+            String k = "key" + i;
+            assertEquals(Math.abs(GUAVA.hashString(k, StandardCharsets.UTF_8).asInt()), HashUtil.getHash(k));
+        }
+    }
+}
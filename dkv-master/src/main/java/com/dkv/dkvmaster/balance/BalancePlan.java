@@ -0,0 +1,68 @@
+package com.dkv.dkvmaster.balance;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 一轮均衡的计划：各节点的负载、要改归的 token，以及没有移动的原因
+ * 演练（dry run）只返回计划；执行后 applied 为实际完成的改归
+ * copySupported 为 false 表示当前的 DataMover 不复制数据，计划只能演练
+ */
+public class BalancePlan {
+
+    private final long createdAt;
+    private final double meanLoad;                  // 按权重折算的平均请求速率
+    private final List<Map<String, Object>> nodes;
+    private final boolean copySupported;
+    private final List<TokenMove> moves = new ArrayList<>();
+    private final List<String> notes = new ArrayList<>();
+    private final List<TokenMove> applied = new ArrayList<>();
+
+    BalancePlan(long createdAt, double meanLoad, List<Map<String, Object>> nodes, boolean copySupported) {
+        this.createdAt = createdAt;
+        this.meanLoad = meanLoad;
+        this.nodes = nodes;
+        this.copySupported = copySupported;
+    }
+
+    void addMove(TokenMove move) {
+        moves.add(move);
+    }
+
+    void addNote(String note) {
+        notes.add(note);
+    }
+
+    void addApplied(TokenMove move) {
+        applied.add(move);
+    }
+
+    public long getCreatedAt() {
+        return createdAt;
+    }
+
+    public double getMeanLoad() {
+        return meanLoad;
+    }
+
+    public List<Map<String, Object>> getNodes() {
+        return nodes;
+    }
+
+    public boolean isCopySupported() {
+        return copySupported;
+    }
+
+    public List<TokenMove> getMoves() {
+        return moves;
+    }
+
+    public List<String> getNotes() {
+        return notes;
+    }
+
+    public List<TokenMove> getApplied() {
+        return applied;
+    }
+}
@@ -0,0 +1,25 @@
+package com.dkv.dkvmaster.balance;
+
+/**
+ * 均衡器改归 token 时的数据搬迁，均衡器只负责协调顺序：
+ * 1. copy：把区间内的数据从原节点复制到新节点，此时请求仍路由到原节点
+ * 2. 发布新的 token 归属，客户端切到新节点
+ * 3. finish：补齐复制期间原节点上新写入的数据，清理原节点上的区间
+ * copy 抛出异常时放弃这次改归，路由不变
+ * 新节点接手区间后由它作为主节点复制给自己的副本，副本关系的调整也由实现负责
+ * 目前只有不复制数据的 LoggingDataMover：DataNode 还没有按哈希区间导出数据的接口，
+ * 均衡器实际交付的是计划（/balance/plan）和状态（/balance/status），/balance/apply 只演练、不改路由；
+ * 复制数据的实现需要 DataNode 先提供按区间扫描和流式导出，不在本模块范围内
+ */
+public interface DataMover {
+
+    /**
+     * 是否真正复制数据；不复制时改归等于丢掉该区间的数据，均衡器只演练不执行
+     */
+    boolean supportsCopy();
+
+    void copy(TokenMove move) throws Exception;
+
+    default void finish(TokenMove move) throws Exception {
+    }
+}
@@ -0,0 +1,26 @@
+package com.dkv.dkvmaster.balance;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+
+/**
+ * 默认且目前唯一的搬迁实现：只记录要搬的区间，不复制数据
+ * DataNode 目前没有按哈希区间扫描的接口，用它时均衡器只能演练（supportsCopy 为 false），不会改归 token，
+ * 定时均衡即使开启也不会启动；要自动均衡需要提供真正复制数据的 DataMover Bean 替换它
+ */
+@Component
+public class LoggingDataMover implements DataMover {
+    private static final Logger logger = LoggerFactory.getLogger(LoggingDataMover.class);
+
+    @Override
+    public boolean supportsCopy() {
+        return false;
+    }
+
+    @Override
+    public void copy(TokenMove move) {
+        logger.info("Would move range {}: {} -> {}, about {} keys (no data copied)",
+                move.describeRange(), move.getFrom(), move.getTo(), move.getEstimatedKeys());
+    }
+}
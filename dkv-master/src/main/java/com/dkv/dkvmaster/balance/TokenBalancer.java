@@ -0,0 +1,418 @@
+package com.dkv.dkvmaster.balance;
+
+import com.dkv.dkvcommon.model.NodeLoadReport;
+import com.dkv.dkvmaster.cluster.ClusterManager;
+import com.dkv.dkvmaster.router.ConsistentHashRouter;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 按负载自动改归 token 的均衡器
+ * 根据各节点上报的请求速率（按路由权重折算）找出最热和最冷的节点，把热节点上的一个 token 改归冷节点，
+ * 每次只动一小步：每轮最多 maxMovesPerRound 次改归，每个节点每轮最多参与一次，参与过的节点冷却一段时间，
+ * 等新的负载报告反映出变化后才会再动它；两轮之间至少间隔 intervalSeconds
+ * token 的请求速率、key 数和数据量按其哈希区间占所在节点哈希空间的比例估算；
+ * 只选能让两者中较高的负载下降的 token，避免来回搬；冷节点磁盘使用率超过上限时不再往上搬
+ * 按区间比例估算假设区间内的访问是均匀的：集中在单个热点 key 上的负载无论怎么改归都还在一个节点上，
+ * 计划里会提示用 DataNode 的 hotkeys 动作确认
+ * DataMover 不复制数据时只演练：改归会让新节点上该区间从空开始，等于丢数据
+ * 当前自带的只有不复制数据的 LoggingDataMover，所以默认部署下均衡器只交付计划和状态（status 的 mode 为 plan-only），
+ * 热点仍需按计划手动处理
+ */
+@Component
+public class TokenBalancer {
+    private static final Logger logger = LoggerFactory.getLogger(TokenBalancer.class);
+
+    private static final long HASH_SPACE = Integer.MAX_VALUE + 1L;  // HashUtil 的哈希非负
+    private static final int HISTORY_SIZE = 100;
+
+    private final ConsistentHashRouter router;
+    private final ClusterManager clusterManager;
+    private final DataMover dataMover;
+
+    @Value("${dkv.balancer.enabled:false}")
+    private boolean enabled;                        // 是否定时自动均衡；关闭时仍可手动演练和执行
+    @Value("${dkv.balancer.interval-seconds:60}")
+    private long intervalSeconds;                   // 两轮之间的最小间隔
+    @Value("${dkv.balancer.max-moves-per-round:2}")
+    private int maxMovesPerRound;
+    @Value("${dkv.balancer.node-cooldown-seconds:300}")
+    private long nodeCooldownSeconds;
+    @Value("${dkv.balancer.imbalance-threshold:0.2}")
+    private double imbalanceThreshold;              // 最热节点超过平均负载这个比例才移动
+    @Value("${dkv.balancer.min-request-rate:50}")
+    private double minRequestRate;                  // 集群总请求速率低于此值时不均衡
+    @Value("${dkv.balancer.max-disk-utilization:0.85}")
+    private double maxDiskUtilization;
+    @Value("${dkv.balancer.min-tokens-per-node:2}")
+    private int minTokensPerNode;
+    @Value("${dkv.balancer.report-max-age-seconds:30}")
+    private long reportMaxAgeSeconds;               // 超过这么久没更新的负载报告不参与均衡
+
+    private final Map<String, Long> cooldownUntil = new HashMap<>();
+    private final Deque<Map<String, Object>> history = new ArrayDeque<>();
+    private long lastRoundAt;
+    private ScheduledExecutorService scheduler;
+
+    /** 一个节点在本轮计划中的负载，计划过程中随改归更新 */
+    private static final class NodeState {
+        final String node;
+        final int weight;
+        final NodeLoadReport report;
+        final List<Integer> tokens = new ArrayList<>();
+        double rate;
+        long arc;    // 名下所有 token 的哈希区间长度之和
+
+        NodeState(String node, int weight, NodeLoadReport report) {
+            this.node = node;
+            this.weight = weight;
+            this.report = report;
+            this.rate = report.getRequestRate();
+        }
+
+        double load() {
+            return rate / weight;
+        }
+
+        double share(long tokenArc) {
+            return arc == 0 ? 0 : (double) tokenArc / arc;
+        }
+
+        double diskUtilization(long extraBytes) {
+            if (report.getCapacityBytes() <= 0 || report.getUsedBytes() < 0) {
+                return 0;
+            }
+            return (double) (report.getUsedBytes() + extraBytes) / report.getCapacityBytes();
+        }
+    }
+
+    public TokenBalancer(ConsistentHashRouter router, ClusterManager clusterManager, DataMover dataMover) {
+        this.router = router;
+        this.clusterManager = clusterManager;
+        this.dataMover = dataMover;
+    }
+
+    @PostConstruct
+    public void start() {
+        if (!enabled) {
+            return;
+        }
+        if (!dataMover.supportsCopy()) {
+            logger.warn("Automatic balancing is enabled but {} does not copy data, balancer stays in dry-run mode",
+                    dataMover.getClass().getSimpleName());
+            return;
+        }
+        scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "dkv-token-balancer");
+            t.setDaemon(true);
+            return t;
+        });
+        scheduler.scheduleWithFixedDelay(() -> {
+            try {
+                BalancePlan plan = apply();
+                if (!plan.getApplied().isEmpty()) {
+                    logger.info("Balancing round moved tokens: {}", plan.getApplied());
+                }
+            } catch (Exception e) {
+                logger.error("Balancing round failed", e);
+            }
+        }, intervalSeconds, intervalSeconds, TimeUnit.SECONDS);
+        logger.info("Automatic balancing enabled, interval {}s", intervalSeconds);
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+        }
+    }
+
+    /**
+     * 演练：按当前负载计算本轮会做的改归，不改变路由
+     */
+    public synchronized BalancePlan plan() {
+        return plan(System.currentTimeMillis());
+    }
+
+    /**
+     * 执行一轮均衡：DataMover 不复制数据或两轮间隔未到时只返回计划和提示
+     * 每个改归依次 copy 数据、发布新归属、finish；copy 或发布失败时停止本轮，已完成的改归保留
+     */
+    public synchronized BalancePlan apply() {
+        long now = System.currentTimeMillis();
+        BalancePlan plan = plan(now);
+        if (!plan.isCopySupported()) {
+            return plan;
+        }
+        long wait = lastRoundAt + TimeUnit.SECONDS.toMillis(intervalSeconds) - now;
+        if (wait > 0) {
+            plan.addNote("距上一轮不足 " + intervalSeconds + "s，" + (wait / 1000 + 1) + "s 后才能执行");
+            return plan;
+        }
+        if (plan.getMoves().isEmpty()) {
+            return plan;
+        }
+        lastRoundAt = now;
+        for (TokenMove move : plan.getMoves()) {
+            if (!execute(move, plan)) {
+                break;
+            }
+            plan.addApplied(move);
+        }
+        return plan;
+    }
+
+    private boolean execute(TokenMove move, BalancePlan plan) {
+        try {
+            dataMover.copy(move);
+        } catch (Exception e) {
+            record(move, "copy failed: " + e.getMessage());
+            plan.addNote("搬迁 " + move.describeRange() + " 失败，本轮停止: " + e.getMessage());
+            return false;
+        }
+
+        Map<Integer, String> previous = router.getMovedTokens();
+        router.moveToken(move.getToken(), move.getTo());
+        try {
+            clusterManager.publishMovedTokens(router.getMovedTokens());
+        } catch (Exception e) {
+            // 客户端没有收到新归属，master 也退回原来的环
+            router.setMovedTokens(previous);
+            record(move, "publish failed: " + e.getMessage());
+            plan.addNote("发布 token 归属失败，本轮停止: " + e.getMessage());
+            return false;
+        }
+
+        long until = System.currentTimeMillis() + TimeUnit.SECONDS.toMillis(nodeCooldownSeconds);
+        cooldownUntil.put(move.getFrom(), until);
+        cooldownUntil.put(move.getTo(), until);
+
+        try {
+            dataMover.finish(move);
+            record(move, "applied");
+        } catch (Exception e) {
+            // 路由已经切换，只是清理没完成，不影响本轮后续的改归
+            record(move, "applied, finish failed: " + e.getMessage());
+        }
+        return true;
+    }
+
+    private void record(TokenMove move, String result) {
+        Map<String, Object> entry = new LinkedHashMap<>();
+        entry.put("time", System.currentTimeMillis());
+        entry.put("range", move.describeRange());
+        entry.put("from", move.getFrom());
+        entry.put("to", move.getTo());
+        entry.put("estimatedRate", move.getEstimatedRate());
+        entry.put("result", result);
+        history.addFirst(entry);
+        while (history.size() > HISTORY_SIZE) {
+            history.removeLast();
+        }
+    }
+
+    /**
+     * 均衡器配置、改归的 token 数、冷却中的节点和最近的改归记录
+     */
+    public synchronized Map<String, Object> status() {
+        long now = System.currentTimeMillis();
+        Map<String, Long> cooling = new LinkedHashMap<>();
+        cooldownUntil.forEach((node, until) -> {
+            if (until > now) {
+                cooling.put(node, (until - now) / 1000);
+            }
+        });
+        Map<String, Object> status = new LinkedHashMap<>();
+        status.put("enabled", enabled);
+        status.put("copySupported", dataMover.supportsCopy());
+        // plan-only：只给出计划，apply 和定时均衡都不改路由
+        status.put("mode", dataMover.supportsCopy() ? "automatic" : "plan-only");
+        status.put("dataMover", dataMover.getClass().getSimpleName());
+        status.put("intervalSeconds", intervalSeconds);
+        status.put("maxMovesPerRound", maxMovesPerRound);
+        status.put("lastRoundAt", lastRoundAt);
+        status.put("movedTokens", router.getMovedTokens().size());
+        status.put("coolingDownSeconds", cooling);
+        status.put("history", new ArrayList<>(history));
+        return status;
+    }
+
+    private BalancePlan plan(long now) {
+        Map<String, NodeLoadReport> reports = clusterManager.getNodeLoads();
+        Map<String, NodeState> states = new LinkedHashMap<>();
+        List<String> stale = new ArrayList<>();
+        for (Map.Entry<String, Integer> node : router.getNodes().entrySet()) {
+            NodeLoadReport report = reports.get(node.getKey());
+            if (report == null || now - report.getReportedAt() > TimeUnit.SECONDS.toMillis(reportMaxAgeSeconds)) {
+                stale.add(node.getKey());
+            } else {
+                states.put(node.getKey(), new NodeState(node.getKey(), node.getValue(), report));
+            }
+        }
+
+        // 每个 token 负责 (前一个 token, token]，第一个 token 的区间跨过环首
+        Map<Integer, String> tokens = router.getTokens();
+        Map<Integer, Integer> rangeStarts = new HashMap<>();
+        Map<Integer, Long> arcs = new HashMap<>();
+        int previous = tokens.isEmpty() ? 0 : lastKey(tokens);
+        for (Map.Entry<Integer, String> token : tokens.entrySet()) {
+            long arc = token.getKey() - (long) previous;
+            if (arc <= 0) {
+                arc += HASH_SPACE;
+            }
+            rangeStarts.put(token.getKey(), previous);
+            arcs.put(token.getKey(), arc);
+            previous = token.getKey();
+            NodeState state = states.get(token.getValue());
+            if (state != null) {
+                state.tokens.add(token.getKey());
+                state.arc += arc;
+            }
+        }
+
+        double totalRate = 0;
+        int totalWeight = 0;
+        for (NodeState state : states.values()) {
+            totalRate += state.rate;
+            totalWeight += state.weight;
+        }
+        double mean = totalWeight == 0 ? 0 : totalRate / totalWeight;
+        BalancePlan plan = new BalancePlan(now, mean, summarize(states, stale), dataMover.supportsCopy());
+        if (!plan.isCopySupported()) {
+            plan.addNote(dataMover.getClass().getSimpleName() + " 不复制数据，改归会丢失区间内的数据，只能演练");
+        }
+        if (!stale.isEmpty()) {
+            plan.addNote("没有最近负载报告的节点不参与均衡: " + stale);
+        }
+        if (states.size() < 2) {
+            plan.addNote("有负载报告的节点少于 2 个");
+            return plan;
+        }
+        if (totalRate < minRequestRate) {
+            plan.addNote(String.format("集群请求速率 %.1f/s 低于 %.1f/s，不需要均衡", totalRate, minRequestRate));
+            return plan;
+        }
+
+        List<String> moved = new ArrayList<>();
+        while (plan.getMoves().size() < maxMovesPerRound) {
+            NodeState hot = null;
+            NodeState cold = null;
+            for (NodeState state : states.values()) {
+                if (moved.contains(state.node) || cooldownUntil.getOrDefault(state.node, 0L) > now) {
+                    continue;
+                }
+                if (state.tokens.size() > minTokensPerNode && (hot == null || state.load() > hot.load())) {
+                    hot = state;
+                }
+                if (state.diskUtilization(0) < maxDiskUtilization && (cold == null || state.load() < cold.load())) {
+                    cold = state;
+                }
+            }
+            if (hot == null || cold == null || hot == cold) {
+                if (plan.getMoves().isEmpty()) {
+                    plan.addNote("没有可参与均衡的节点对（冷却中、token 数已到下限或磁盘已满）");
+                }
+                break;
+            }
+            if (hot.load() <= mean * (1 + imbalanceThreshold)) {
+                if (plan.getMoves().isEmpty()) {
+                    plan.addNote(String.format("最热节点 %s 负载 %.1f 未超过平均值 %.1f 的 %.0f%%",
+                            hot.node, hot.load(), mean, imbalanceThreshold * 100));
+                }
+                break;
+            }
+            if (plan.getMoves().isEmpty()) {
+                plan.addNote("token 负载按哈希区间比例估算；" + hot.node
+                        + " 的负载若集中在少数热点 key 上，改归无法分摊，请先用 hotkeys 确认");
+            }
+            TokenMove move = bestMove(hot, cold, rangeStarts, arcs);
+            if (move == null) {
+                plan.addNote("找不到能降低 " + hot.node + " 负载且不超过 " + cold.node + " 磁盘上限的 token");
+                break;
+            }
+            plan.addMove(move);
+            moved.add(hot.node);
+            moved.add(cold.node);
+        }
+        return plan;
+    }
+
+    /**
+     * 在热节点的 token 中选一个改归冷节点后两者较高负载最低的，且必须低于热节点当前的负载
+     */
+    private TokenMove bestMove(NodeState hot, NodeState cold, Map<Integer, Integer> rangeStarts,
+                               Map<Integer, Long> arcs) {
+        Integer best = null;
+        double bestPeak = hot.load();
+        for (int token : hot.tokens) {
+            double share = hot.share(arcs.get(token));
+            long bytes = Math.max(0, (long) (hot.report.getUsedBytes() * share));
+            if (cold.diskUtilization(bytes) > maxDiskUtilization) {
+                continue;
+            }
+            double rate = hot.rate * share;
+            double peak = Math.max((hot.rate - rate) / hot.weight, (cold.rate + rate) / cold.weight);
+            if (peak < bestPeak) {
+                best = token;
+                bestPeak = peak;
+            }
+        }
+        if (best == null) {
+            return null;
+        }
+        long arc = arcs.get(best);
+        double share = hot.share(arc);
+        TokenMove move = new TokenMove(best, rangeStarts.get(best), hot.node, cold.node, hot.rate * share,
+                Math.max(0, (long) (hot.report.getKeyCount() * share)),
+                Math.max(0, (long) (hot.report.getUsedBytes() * share)));
+        hot.rate -= move.getEstimatedRate();
+        hot.tokens.remove(Integer.valueOf(best));
+        hot.arc -= arc;
+        cold.rate += move.getEstimatedRate();
+        cold.tokens.add(best);
+        cold.arc += arc;
+        return move;
+    }
+
+    private static List<Map<String, Object>> summarize(Map<String, NodeState> states, List<String> stale) {
+        List<Map<String, Object>> nodes = new ArrayList<>();
+        for (NodeState state : states.values()) {
+            Map<String, Object> node = new LinkedHashMap<>();
+            node.put("node", state.node);
+            node.put("weight", state.weight);
+            node.put("tokens", state.tokens.size());
+            node.put("ringShare", (double) state.arc / HASH_SPACE);
+            node.put("requestRate", state.rate);
+            node.put("keyCount", state.report.getKeyCount());
+            node.put("diskUtilization", state.diskUtilization(0));
+            nodes.add(node);
+        }
+        for (String node : stale) {
+            nodes.add(Map.of("node", node, "stale", true));
+        }
+        return nodes;
+    }
+
+    private static int lastKey(Map<Integer, String> tokens) {
+        int last = 0;
+        for (int token : tokens.keySet()) {
+            last = token;
+        }
+        return last;
+    }
+}
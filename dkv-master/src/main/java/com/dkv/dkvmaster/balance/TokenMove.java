@@ -0,0 +1,65 @@
+package com.dkv.dkvmaster.balance;
+
+/**
+ * 一次 token 改归：哈希区间 (rangeStart, token] 从 from 改归 to
+ * 估算值按区间占原节点哈希空间的比例折算节点上报的请求速率、key 数和数据量
+ */
+public class TokenMove {
+
+    private final int token;
+    private final int rangeStart;
+    private final String from;
+    private final String to;
+    private final double estimatedRate;
+    private final long estimatedKeys;
+    private final long estimatedBytes;
+
+    public TokenMove(int token, int rangeStart, String from, String to,
+                     double estimatedRate, long estimatedKeys, long estimatedBytes) {
+        this.token = token;
+        this.rangeStart = rangeStart;
+        this.from = from;
+        this.to = to;
+        this.estimatedRate = estimatedRate;
+        this.estimatedKeys = estimatedKeys;
+        this.estimatedBytes = estimatedBytes;
+    }
+
+    public int getToken() {
+        return token;
+    }
+
+    public int getRangeStart() {
+        return rangeStart;
+    }
+
+    public String getFrom() {
+        return from;
+    }
+
+    public String getTo() {
+        return to;
+    }
+
+    public double getEstimatedRate() {
+        return estimatedRate;
+    }
+
+    public long getEstimatedKeys() {
+        return estimatedKeys;
+    }
+
+    public long getEstimatedBytes() {
+        return estimatedBytes;
+    }
+
+    public String describeRange() {
+        return String.format("(0x%08X, 0x%08X]", rangeStart, token);
+    }
+
+    @Override
+    public String toString() {
+        return "TokenMove{" + describeRange() + " " + from + " -> " + to +
+                ", rate=" + String.format("%.1f", estimatedRate) + '}';
+    }
+}
@@ -1,5 +1,6 @@
 package com.dkv.dkvmaster.cluster;
 
+import com.dkv.dkvcommon.model.NodeLoadReport;
 import com.dkv.dkvmaster.router.ConsistentHashRouter;
 import jakarta.annotation.PostConstruct;
 import org.apache.curator.framework.CuratorFramework;
@@ -9,17 +10,32 @@ import org.apache.curator.framework.recipes.cache.PathChildrenCache;
 import org.apache.curator.framework.recipes.cache.PathChildrenCacheEvent;
 import org.apache.curator.retry.ExponentialBackoffRetry;
 import org.apache.zookeeper.CreateMode;
-import org.apache.zookeeper.server.DataNode;
 import org.springframework.stereotype.Component;
+import tools.jackson.core.type.TypeReference;
+import tools.jackson.databind.DeserializationFeature;
+import tools.jackson.databind.ObjectMapper;
+import tools.jackson.databind.json.JsonMapper;
 
 import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.stream.Collectors;
 
 @Component
 public class ClusterManager {
+    // 负载报告由 DataNode 写入，字段可能比这边的版本多
+    private static final ObjectMapper JSON = JsonMapper.builder()
+            .disable(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES)
+            .build();
+    // 均衡器改归的 token 表，持久节点，客户端同样监听（命名空间下即 /dkv/tokens）
+    private static final String TOKENS_PATH = "/tokens";
+
     private CuratorFramework client;
     private PathChildrenCache nodesCache;
     private ConsistentHashRouter router;
+    // 各节点最近一次上报的负载，key 为 ip:port；节点数据为空或解析失败时没有条目
+    private final Map<String, NodeLoadReport> nodeLoads = new ConcurrentHashMap<>();
 
     public ClusterManager(ConsistentHashRouter router) {
         this.router = router;
@@ -34,6 +50,9 @@ public class ClusterManager {
                 .build();
         client.start();
 
+        // 恢复之前均衡过的 token 归属，保证与客户端的环一致
+        loadMovedTokens();
+
         // 2. 注册监听器，监听 /nodes 下的子节点变化
         // /dkv/nodes
         //      |-- 192.168.1.1:8080 (Child)
@@ -43,6 +62,10 @@ public class ClusterManager {
         nodesCache.start();
 
         nodesCache.getListenable().addListener((client, event) -> {
+            // 连接状态类事件不带节点数据
+            if (event.getData() == null) {
+                return;
+            }
             String nodeIPport = getNodeName(event.getData().getPath());
             String nodeIp = nodeIPport.split(":")[0];
             Integer port = Integer.valueOf(nodeIPport.split(":")[1]);
@@ -50,14 +73,16 @@ public class ClusterManager {
             // 情况 1：有新节点上线 (DataNode 启动了)
             if (event.getType() == PathChildrenCacheEvent.Type.CHILD_ADDED) {
                 // ZK 发来通知："/nodes/192.168.1.5:8080" 出现了
-
-                router.addNode(nodeIp,port );
+                applyRouting(nodeIp, port, updateLoad(nodeIPport, event.getData().getData()));
             }
-            // 情况 2：有节点下线 (DataNode 挂了/断网了)
+            // 情况 2：节点更新了负载报告，权重或健康状态可能变了
+            else if (event.getType() == PathChildrenCacheEvent.Type.CHILD_UPDATED) {
+                applyRouting(nodeIp, port, updateLoad(nodeIPport, event.getData().getData()));
+            }
+            // 情况 3：有节点下线 (DataNode 挂了/断网了)
             else if (event.getType() == PathChildrenCacheEvent.Type.CHILD_REMOVED) {
                 // ZK 发来通知："/nodes/192.168.1.5:8080" 消失了
-               nodeIp = getNodeName(event.getData().getPath());
-
+                nodeLoads.remove(nodeIPport);
                 router.removeNode(nodeIp,port);
             }
         });
@@ -65,24 +90,22 @@ public class ClusterManager {
         System.out.println("Master 启动成功，正在监听节点变化...");
     }
 
-    // 在 ClusterManager.java 中添加或修改
+    /**
+     * 替不能自行注册的节点手工注册（DataNode 配置了 zkAddress 时会自己注册并上报负载）
+     * 临时节点属于 master 的会话，master 退出后随之消失；数据是只有地址和默认权重的负载报告
+     */
     public void addNodeToZk(String nodeIp, Integer port) throws Exception {
         String path = "/nodes/" + nodeIp+":"+port;
-        DataNode node = new DataNode(
-                config.id,
-                dataDir,
-                config.port,
-                config.isPrimary,
-                replicaNodes,
-                configs.length // 复制因子即总节点数
-        );
+        NodeLoadReport report = new NodeLoadReport();
+        report.setAddress(nodeIp + ":" + port);
+        report.setReportedAt(System.currentTimeMillis());
 
         // 检查节点是否存在，不存在则创建
         if (client.checkExists().forPath(path) == null) {
             client.create()
                     .creatingParentsIfNeeded()
                     .withMode(CreateMode.EPHEMERAL) // 临时节点，断开就消失
-                    .forPath(path);
+                    .forPath(path, JSON.writeValueAsBytes(report));
         }
     }
     public void offlineNode(String nodeIp, Integer port ) throws Exception {
@@ -114,6 +137,60 @@ public class ClusterManager {
                 // 转换为 List 返回
                 .collect(Collectors.toList());
     }
+    /**
+     * 各在线节点最近一次上报的负载，按地址排序
+     */
+    public Map<String, NodeLoadReport> getNodeLoads() {
+        return new TreeMap<>(nodeLoads);
+    }
+
+    /**
+     * 发布均衡器改归的 token 表，客户端监听到后按新的归属路由
+     */
+    public void publishMovedTokens(Map<Integer, String> movedTokens) throws Exception {
+        client.create()
+                .orSetData()
+                .creatingParentsIfNeeded()
+                .forPath(TOKENS_PATH, JSON.writeValueAsBytes(movedTokens));
+    }
+
+    private void loadMovedTokens() throws Exception {
+        if (client.checkExists().forPath(TOKENS_PATH) == null) {
+            return;
+        }
+        byte[] payload = client.getData().forPath(TOKENS_PATH);
+        if (payload != null && payload.length > 0) {
+            router.setMovedTokens(JSON.readValue(payload, new TypeReference<TreeMap<Integer, String>>() { }));
+        }
+    }
+
+    /**
+     * 与客户端的判断一致：报告不健康的节点不参与路由，其余按报告的权重，没有报告时权重为 1
+     */
+    private void applyRouting(String nodeIp, Integer port, NodeLoadReport report) {
+        if (report != null && !report.isHealthy()) {
+            router.removeNode(nodeIp, port);
+        } else {
+            router.addNode(nodeIp, port, report == null ? 1 : report.getWeight());
+        }
+    }
+
+    private NodeLoadReport updateLoad(String node, byte[] payload) {
+        if (payload == null || payload.length == 0) {
+            nodeLoads.remove(node);
+            return null;
+        }
+        try {
+            NodeLoadReport report = JSON.readValue(payload, NodeLoadReport.class);
+            nodeLoads.put(node, report);
+            return report;
+        } catch (Exception e) {
+            // 旧版本节点可能写入非 JSON 数据，忽略即可
+            nodeLoads.remove(node);
+            return null;
+        }
+    }
+
     private String getNodeName(String fullPath) {
         // fullPath 可能是 /nodes/192.168.1.1:8080
         return fullPath.substring(fullPath.lastIndexOf("/") + 1);
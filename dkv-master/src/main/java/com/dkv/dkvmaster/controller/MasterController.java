@@ -1,5 +1,8 @@
 package com.dkv.dkvmaster.controller;
 
+import com.dkv.dkvcommon.model.NodeLoadReport;
+import com.dkv.dkvmaster.balance.BalancePlan;
+import com.dkv.dkvmaster.balance.TokenBalancer;
 import com.dkv.dkvmaster.cluster.ClusterManager;
 import com.dkv.dkvmaster.router.ConsistentHashRouter;
 import org.springframework.web.bind.annotation.*;
@@ -16,10 +19,12 @@ public class MasterController {
 
     private final ConsistentHashRouter router;
     private final ClusterManager clusterManager;
+    private final TokenBalancer balancer;
 
-    public MasterController(ConsistentHashRouter router, ClusterManager clusterManager) {
+    public MasterController(ConsistentHashRouter router, ClusterManager clusterManager, TokenBalancer balancer) {
         this.router = router;
         this.clusterManager = clusterManager;
+        this.balancer = balancer;
     }
 
     // 查看当前所有在线节点
@@ -31,6 +36,11 @@ public class MasterController {
     public List<String> getOnlineNodes() {
         return clusterManager.getOnlineNodes();
     }
+    // 各节点最近一次上报的负载（容量、key 数、磁盘占用、请求速率）
+    @GetMapping("/nodes/load")
+    public Map<String, NodeLoadReport> getNodeLoads() {
+        return clusterManager.getNodeLoads();
+    }
     @GetMapping("/add")
     public void addNodes(@RequestParam("nodeip") String nodeIp,@RequestParam("port")Integer port){
          router.addNode(nodeIp,port);
@@ -45,6 +55,22 @@ public class MasterController {
 
         clusterManager.offlineNode(nodeIp, port);
     }
+    // 均衡演练：按当前负载计算会改归哪些 token，不改变路由
+    @GetMapping("/balance/plan")
+    public BalancePlan planBalance() {
+        return balancer.plan();
+    }
+    // 立即执行一轮均衡（仍受两轮间隔、每轮改归数和节点冷却的限制）；
+    // DataMover 不复制数据时（默认的 LoggingDataMover）只返回计划，不改路由
+    @PostMapping("/balance/apply")
+    public BalancePlan applyBalance() {
+        return balancer.apply();
+    }
+    // 均衡器状态，mode 为 plan-only 表示只交付计划
+    @GetMapping("/balance/status")
+    public Map<String, Object> balanceStatus() {
+        return balancer.status();
+    }
     // 查询 Key 的路由信息
     @GetMapping("/route")
         public Map<String, Object> getRoute(@RequestParam String key, @RequestParam(defaultValue = "3") int replicas) {
@@ -1,7 +1,6 @@
 package com.dkv.dkvmaster.router;
 
-import com.dkv.dkvcommon.utils.HashUtil;
-import org.springframework.context.annotation.Bean;
+import com.dkv.dkvcommon.utils.HashRing;
 import org.springframework.stereotype.Component;
 
 import java.util.*;
@@ -10,101 +9,97 @@ import java.util.*;
  * （一致性哈希）：
  * 当增加一个节点时，受影响的仅仅是环上该节点逆时针方向的那一小部分数据
  * 相比于取模哈希，显著减少了数据的移动
+ *
+ * 环由 dkv-common 的 HashRing 构建，与客户端完全一致：每个节点 10 × 权重 个虚拟节点（"ip:port#i"），
+ * 再应用均衡器改归的 token；节点或 token 变化时整体重建，查询不加锁
  */
 @Component
 public class ConsistentHashRouter {
-    // 哈希环：Key是哈希值，Value是节点IP:Port
-    private final SortedMap<Integer, String> ring = new TreeMap<>();
-
     // 虚拟节点数：每个物理节点在环上变成 10 个虚拟节点，解决数据倾斜问题
-    private static final int VIRTUAL_NODES = 10;
+    private static final int VIRTUAL_NODES = HashRing.DEFAULT_VIRTUAL_NODES;
+
+    // 在线节点 "ip:port" -> 路由权重
+    private final Map<String, Integer> nodes = new TreeMap<>();
+    // 均衡器改归的 token -> 新的所属节点
+    private final Map<Integer, String> movedTokens = new TreeMap<>();
+    private volatile HashRing ring = HashRing.EMPTY;
 
     /**
      * 添加物理节点
-     * @param nodeIp 例如 "192.168.1.5:8080"
+     * @param nodeIp 例如 "192.168.1.5"，与 port 组成节点名 "192.168.1.5:8080"
      */
-    public synchronized void addNode(String nodeIp,Integer port ) {
-        for (int i = 0; i < VIRTUAL_NODES; i++) {
-            // 构造虚拟节点名称，例如 "192.168.1.5:8080#1"
-            //作用：让数据分布更加均匀，避免数据倾斜
-            String virtualNodeName = nodeIp +":"+port+ "#" + i;
-            int hash = HashUtil.getHash(virtualNodeName);
-            ring.put(hash, nodeIp);
-        }
-//        System.out.println("节点上线: " + nodeIp + "，当前环大小: " + ring.size());
+    public void addNode(String nodeIp, Integer port) {
+        addNode(nodeIp, port, 1);
     }
 
     /**
-     * 移除物理节点
+     * 添加物理节点或更新其权重，权重为 n 的节点占 n 倍的虚拟节点
+     * 节点每个上报周期都会调用一次，已在环上且权重没变时不重建
      */
-    public synchronized void removeNode(String nodeIp, Integer port ) {
-        for (int i = 0; i < VIRTUAL_NODES; i++) {
-            String virtualNodeName = nodeIp +":"+port+ "#" + i;
-            int hash = HashUtil.getHash(virtualNodeName);
-            ring.remove(hash);
+    public synchronized void addNode(String nodeIp, Integer port, int weight) {
+        Integer normalized = Math.max(1, weight);
+        if (!normalized.equals(nodes.put(nodeIp + ":" + port, normalized))) {
+            rebuild();
         }
-//        System.out.println("节点下线: " + nodeIp + "，当前环大小: " + ring.size());
     }
 
     /**
-     * 路由算法：给一个数据Key，返回它该去哪个节点
+     * 移除物理节点
      */
-    public synchronized String routeNode(String key) {
-        // 1. 算出数据 Key 的哈希值 (比如 hash = 1000)
-        int hash = HashUtil.getHash(key);
-
-        // 2. 核心：tailMap(hash) 方法
-        // 它的含义是：从 TreeMap 中截取 "Key >= 1000" 的所有部分
-        // 也就是在圆环上，从 1000 这个点开始，往顺时针方向找所有的节点
-        SortedMap<Integer, String> tailMap = ring.tailMap(hash);
-
-        // 3. 判断是否到了环的尽头
-        Integer targetHash;
-        if (tailMap.isEmpty()) {
-            // 情况 A：tailMap 为空。
-            // 说明 hash 值比环上所有节点的 hash 都大（比如 hash=9999，环上最大节点是 8000）。
-            // 既然是圆环，走到尽头就要回到原点。
-            // 所以我们取 ring.firstKey() —— 环上最小的那个节点。
-            targetHash = ring.firstKey();
-        } else {
-            // 情况 B：tailMap 不为空。
-            // 取 tailMap.firstKey()，也就是顺时针遇到的第一个节点。
-            targetHash = tailMap.firstKey();
+    public synchronized void removeNode(String nodeIp, Integer port) {
+        if (nodes.remove(nodeIp + ":" + port) != null) {
+            rebuild();
         }
+    }
 
-        // 4. 返回那个节点的真实 IP
-        return ring.get(targetHash);
+    /**
+     * 把一个 token 改归 node，此后 (前一个 token, token] 区间的 key 路由到 node
+     */
+    public synchronized void moveToken(int token, String node) {
+        movedTokens.put(token, node);
+        rebuild();
     }
-    public synchronized List<String> routeNodeWithReplicas(String key, int replicas) {
-        if (ring.isEmpty()) {
-            return new ArrayList<>();
-        }
 
-        // 使用 LinkedHashSet 保证顺序且去重（防止多个虚拟节点指向同一物理节点）
-        Set<String> nodes = new LinkedHashSet<>();
+    /**
+     * 用持久化的改归表替换当前的（master 启动时从 ZooKeeper 恢复）
+     */
+    public synchronized void setMovedTokens(Map<Integer, String> tokens) {
+        movedTokens.clear();
+        movedTokens.putAll(tokens);
+        rebuild();
+    }
 
-        // 1. 算出数据 Key 的哈希值
-        int hash = HashUtil.getHash(key);
+    public synchronized Map<Integer, String> getMovedTokens() {
+        return new TreeMap<>(movedTokens);
+    }
 
-        // 2. 获取顺时针方向的所有节点视图
-        // tailMap 包含所有 hash >= keyHash 的节点
-        SortedMap<Integer, String> tailMap = ring.tailMap(hash);
+    public synchronized Map<String, Integer> getNodes() {
+        return new TreeMap<>(nodes);
+    }
 
-        // 3. 循环寻找足够的物理节点
-        // 我们需要遍历两次环（或者使用一个迭代器循环），以防需要回滚到环首
-        Iterator<String> tailIterator = tailMap.values().iterator();
-        Iterator<String> headIterator = ring.values().iterator();
+    /**
+     * 当前环上的所有 token 及其所属节点，按哈希升序
+     */
+    public Map<Integer, String> getTokens() {
+        return ring.getTokens();
+    }
 
-        // 先从当前位置往后找
-        while (tailIterator.hasNext() && nodes.size() < replicas) {
-            nodes.add(tailIterator.next());
-        }
+    private void rebuild() {
+        ring = new HashRing(nodes, movedTokens, VIRTUAL_NODES);
+    }
 
-        // 如果还没找够，从环头（最小 hash）开始继续找（实现圆环逻辑）
-        while (headIterator.hasNext() && nodes.size() < replicas) {
-            nodes.add(headIterator.next());
-        }
+    /**
+     * 路由算法：给一个数据Key，返回它该去哪个节点
+     * 顺时针方向遇到的第一个虚拟节点所属的物理节点，超过环上最大的哈希时回到环首；环为空时返回 null
+     */
+    public String routeNode(String key) {
+        return ring.route(key);
+    }
 
-        return new ArrayList<>(nodes);
+    /**
+     * 主节点和副本：从主节点起顺时针取 replicas 个不同的物理节点，主节点在第一位
+     */
+    public List<String> routeNodeWithReplicas(String key, int replicas) {
+        return new ArrayList<>(ring.routeWithReplicas(key, replicas));
     }
-}
\ No newline at end of file
+}
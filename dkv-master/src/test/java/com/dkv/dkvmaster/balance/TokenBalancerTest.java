@@ -0,0 +1,178 @@
+package com.dkv.dkvmaster.balance;
+
+import com.dkv.dkvcommon.model.NodeLoadReport;
+import com.dkv.dkvmaster.cluster.ClusterManager;
+import com.dkv.dkvmaster.router.ConsistentHashRouter;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TokenBalancerTest {
+
+    private static final double[] RATES = {900, 100, 100, 100};
+
+    private final ConsistentHashRouter router = new ConsistentHashRouter();
+    private final Map<String, NodeLoadReport> loads = new TreeMap<>();
+    private final List<Map<Integer, String>> published = new ArrayList<>();
+    private boolean publishFails;
+
+    /** 不连 ZooKeeper：负载报告和发布的改归表都在内存里 */
+    private final ClusterManager clusterManager = new ClusterManager(router) {
+        @Override
+        public Map<String, NodeLoadReport> getNodeLoads() {
+            return new TreeMap<>(loads);
+        }
+
+        @Override
+        public void publishMovedTokens(Map<Integer, String> movedTokens) throws Exception {
+            if (publishFails) {
+                throw new Exception("connection loss");
+            }
+            published.add(movedTokens);
+        }
+    };
+
+    /** 记录搬迁调用的 DataMover，copyFails 时模拟复制失败 */
+    private static final class CopyingDataMover implements DataMover {
+        final List<TokenMove> copied = new ArrayList<>();
+        final List<TokenMove> finished = new ArrayList<>();
+        boolean copyFails;
+
+        @Override
+        public boolean supportsCopy() {
+            return true;
+        }
+
+        @Override
+        public void copy(TokenMove move) throws Exception {
+            if (copyFails) {
+                throw new Exception("target unreachable");
+            }
+            copied.add(move);
+        }
+
+        @Override
+        public void finish(TokenMove move) {
+            finished.add(move);
+        }
+    }
+
+    @BeforeEach
+    void setUp() {
+        for (int i = 0; i < RATES.length; i++) {
+            router.addNode("127.0.0.1", 9500 + i);
+            loads.put("127.0.0.1:" + (9500 + i), report(RATES[i]));
+        }
+    }
+
+    private static NodeLoadReport report(double rate) {
+        NodeLoadReport report = new NodeLoadReport();
+        report.setWeight(1);
+        report.setHealthy(true);
+        report.setCapacityBytes(1_000_000);
+        report.setUsedBytes(1000);
+        report.setKeyCount(100);
+        report.setRequestRate(rate);
+        report.setReportedAt(System.currentTimeMillis());
+        return report;
+    }
+
+    private TokenBalancer balancer(DataMover dataMover) {
+        TokenBalancer balancer = new TokenBalancer(router, clusterManager, dataMover);
+        // @Value 的默认值，间隔设为 0 以便连续执行
+        ReflectionTestUtils.setField(balancer, "intervalSeconds", 0L);
+        ReflectionTestUtils.setField(balancer, "maxMovesPerRound", 2);
+        ReflectionTestUtils.setField(balancer, "nodeCooldownSeconds", 300L);
+        ReflectionTestUtils.setField(balancer, "imbalanceThreshold", 0.2);
+        ReflectionTestUtils.setField(balancer, "minRequestRate", 50.0);
+        ReflectionTestUtils.setField(balancer, "maxDiskUtilization", 0.85);
+        ReflectionTestUtils.setField(balancer, "minTokensPerNode", 2);
+        ReflectionTestUtils.setField(balancer, "reportMaxAgeSeconds", 30L);
+        return balancer;
+    }
+
+    @Test
+    @DisplayName("测试把最热节点的token改归最冷节点，复制、发布、收尾依次执行")
+    void testApplyMovesHotToken() {
+        CopyingDataMover mover = new CopyingDataMover();
+        TokenBalancer balancer = balancer(mover);
+
+        BalancePlan plan = balancer.apply();
+        assertTrue(plan.isCopySupported());
+        assertEquals("automatic", balancer.status().get("mode"));
+        assertFalse(plan.getApplied().isEmpty());
+        assertEquals(plan.getApplied(), mover.copied);
+        assertEquals(plan.getApplied(), mover.finished);
+
+        TokenMove first = plan.getApplied().get(0);
+        assertEquals("127.0.0.1:9500", first.getFrom());
+        assertEquals(first.getTo(), router.getTokens().get(first.getToken()));
+        assertEquals(router.getMovedTokens(), published.get(published.size() - 1));
+        assertTrue(first.getEstimatedRate() > 0 && first.getEstimatedRate() < RATES[0]);
+
+        // 参与过改归的节点进入冷却，下一轮不再移动它们
+        BalancePlan next = balancer.apply();
+        for (TokenMove move : next.getApplied()) {
+            assertNotEquals("127.0.0.1:9500", move.getFrom());
+            assertNotEquals(first.getTo(), move.getTo());
+        }
+    }
+
+    @Test
+    @DisplayName("测试不复制数据的DataMover只能演练，路由不变")
+    void testDryRunWithoutCopy() {
+        TokenBalancer balancer = balancer(new LoggingDataMover());
+        Map<Integer, String> tokens = router.getTokens();
+
+        BalancePlan plan = balancer.apply();
+        assertFalse(plan.isCopySupported());
+        assertFalse(plan.getMoves().isEmpty(), "演练仍然给出计划");
+        assertTrue(plan.getApplied().isEmpty());
+        assertEquals(tokens, router.getTokens());
+        assertTrue(published.isEmpty());
+        assertEquals(false, balancer.status().get("copySupported"));
+        assertEquals("plan-only", balancer.status().get("mode"));
+    }
+
+    @Test
+    @DisplayName("测试复制或发布失败时放弃改归，路由回到原来的样子")
+    void testFailuresKeepRouting() {
+        Map<Integer, String> tokens = router.getTokens();
+        CopyingDataMover mover = new CopyingDataMover();
+        mover.copyFails = true;
+        BalancePlan plan = balancer(mover).apply();
+        assertTrue(plan.getApplied().isEmpty());
+        assertEquals(tokens, router.getTokens());
+
+        publishFails = true;
+        plan = balancer(new CopyingDataMover()).apply();
+        assertTrue(plan.getApplied().isEmpty());
+        assertEquals(tokens, router.getTokens());
+        assertTrue(router.getMovedTokens().isEmpty());
+    }
+
+    @Test
+    @DisplayName("测试负载均衡或报告过期时不移动")
+    void testNoMoveWhenBalancedOrStale() {
+        for (NodeLoadReport report : loads.values()) {
+            report.setRequestRate(100);
+        }
+        assertTrue(balancer(new CopyingDataMover()).plan().getMoves().isEmpty());
+
+        loads.get("127.0.0.1:9500").setRequestRate(900);
+        for (NodeLoadReport report : loads.values()) {
+            report.setReportedAt(System.currentTimeMillis() - 60_000);
+        }
+        BalancePlan plan = balancer(new CopyingDataMover()).plan();
+        assertTrue(plan.getMoves().isEmpty());
+        assertEquals(RATES.length, plan.getNodes().size());
+    }
+}
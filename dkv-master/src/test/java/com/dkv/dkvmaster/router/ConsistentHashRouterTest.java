@@ -0,0 +1,61 @@
+package com.dkv.dkvmaster.router;
+
+import com.dkv.dkvcommon.utils.HashRing;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ConsistentHashRouterTest {
+
+    @Test
+    @DisplayName("测试master路由与客户端的HashRing一致（含权重和改归的token）")
+    void testParityWithClientRing() {
+        ConsistentHashRouter router = new ConsistentHashRouter();
+        router.addNode("10.0.0.1", 9000, 1);
+        router.addNode("10.0.0.2", 9000, 2);
+        router.addNode("10.0.0.3", 9000, 3);
+        int token = router.getTokens().keySet().iterator().next();
+        router.moveToken(token, "10.0.0.3:9000");
+
+        // 客户端从 ZooKeeper 读到同样的权重和改归表后自己建环
+        HashRing clientRing = new HashRing(
+                Map.of("10.0.0.1:9000", 1, "10.0.0.2:9000", 2, "10.0.0.3:9000", 3),
+                Map.of(token, "10.0.0.3:9000"));
+        assertEquals(clientRing.getTokens(), router.getTokens());
+        for (int i = 0; i < 10000; i++) {
+            String key = "key" + i;
+            assertEquals(clientRing.route(key), router.routeNode(key), key);
+            assertEquals(clientRing.routeWithReplicas(key, 2), router.routeNodeWithReplicas(key, 2), key);
+        }
+        assertEquals("10.0.0.3:9000", router.getTokens().get(token));
+    }
+
+    @Test
+    @DisplayName("测试虚拟节点数随权重变化，重复上报同一权重时环不变")
+    void testWeights() {
+        ConsistentHashRouter router = new ConsistentHashRouter();
+        assertNull(router.routeNode("key"));
+
+        router.addNode("10.0.0.1", 9000);
+        router.addNode("10.0.0.2", 9000);
+        Map<Integer, String> tokens = router.getTokens();
+        assertEquals(2 * HashRing.DEFAULT_VIRTUAL_NODES, tokens.size());
+        assertEquals(new HashRing(List.of("10.0.0.1:9000", "10.0.0.2:9000")).getTokens(), tokens);
+
+        // 每个上报周期都会重复 addNode，权重没变时环不变
+        router.addNode("10.0.0.1", 9000, 1);
+        assertEquals(tokens, router.getTokens());
+
+        router.addNode("10.0.0.1", 9000, 3);
+        long owned = router.getTokens().values().stream().filter("10.0.0.1:9000"::equals).count();
+        assertEquals(3 * HashRing.DEFAULT_VIRTUAL_NODES, owned);
+
+        router.removeNode("10.0.0.1", 9000);
+        assertEquals(Map.of("10.0.0.2:9000", 1), router.getNodes());
+        assertEquals("10.0.0.2:9000", router.routeNode("key"));
+    }
+}
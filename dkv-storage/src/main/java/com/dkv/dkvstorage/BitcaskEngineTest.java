@@ -0,0 +1,145 @@
+package com.dkv.dkvstorage;
+import org.junit.jupiter.api.*;
+import org.junit.jupiter.api.io.TempDir;
+import com.dkv.dkvcommon.utils.CounterUtil;
+import com.dkv.dkvstorage.bitcask.BitcaskEngine;
+import com.dkv.dkvstorage.rocksdb.NamespaceOptions;
+import com.dkv.dkvstorage.rocksdb.StorageEngine;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BitcaskEngineTest {
+
+    private static final int SEGMENT_BYTES = 64 * 1024;
+
+    private BitcaskEngine storageEngine;
+
+    @TempDir
+    Path tempDir;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        storageEngine = open();
+    }
+
+    @AfterEach
+    void tearDown() {
+        if (storageEngine != null) {
+            storageEngine.close();
+        }
+    }
+
+    private BitcaskEngine open() throws Exception {
+        BitcaskEngine engine = new BitcaskEngine(NamespaceOptions.defaults(), SEGMENT_BYTES);
+        engine.init(tempDir.toString());
+        return engine;
+    }
+
+    @Test
+    @DisplayName("测试PUT/GET/DELETE与合并算子")
+    void testBasicOperations() throws Exception {
+        storageEngine.put("user:001", "alice".getBytes());
+        storageEngine.put("user:001", "bob".getBytes());
+        assertArrayEquals("bob".getBytes(), storageEngine.get("user:001"));
+
+        storageEngine.delete("user:001");
+        assertNull(storageEngine.get("user:001"));
+
+        storageEngine.merge(StorageEngine.COUNTER_NAMESPACE, "hits", CounterUtil.encode(5));
+        storageEngine.merge(StorageEngine.COUNTER_NAMESPACE, "hits", CounterUtil.encode(2));
+        assertEquals(7, CounterUtil.decode(storageEngine.get(StorageEngine.COUNTER_NAMESPACE, "hits")));
+        storageEngine.merge(StorageEngine.DEFAULT_NAMESPACE, "log", "a".getBytes());
+        storageEngine.merge(StorageEngine.DEFAULT_NAMESPACE, "log", "b".getBytes());
+        assertArrayEquals("ab".getBytes(), storageEngine.get("log"));
+    }
+
+    @Test
+    @DisplayName("测试重启后通过hint文件和活跃段恢复数据")
+    void testRecovery() throws Exception {
+        // 写满多个段：前面的段封存并带hint，最后一段需要扫描恢复
+        for (int i = 0; i < 2000; i++) {
+            storageEngine.put("key" + i, ("value-" + i + "-0123456789").getBytes());
+        }
+        for (int i = 0; i < 2000; i += 2) {
+            storageEngine.delete("key" + i);
+        }
+        assertTrue(storageEngine.getSegmentCount() > 1);
+
+        storageEngine.close();
+        storageEngine = open();
+
+        assertEquals(1000, storageEngine.getKeyCount());
+        assertNull(storageEngine.get("key0"));
+        assertArrayEquals("value-1999-0123456789".getBytes(), storageEngine.get("key1999"));
+    }
+
+    @Test
+    @DisplayName("测试合并失效段后数据和删除都保持不变")
+    void testMergeSegments() throws Exception {
+        // 反复覆盖同一批key，旧段几乎全部失效
+        for (int round = 0; round < 100; round++) {
+            for (int i = 0; i < 100; i++) {
+                storageEngine.put("key" + i, ("round" + round + "-" + i).getBytes());
+            }
+        }
+        storageEngine.put("gone", "x".getBytes());
+        storageEngine.delete("gone");
+        int before = storageEngine.getSegmentCount();
+
+        storageEngine.mergeSegments();
+
+        assertTrue(storageEngine.getMergedSegments() > 0);
+        assertTrue(storageEngine.getSegmentCount() < before);
+        assertArrayEquals("round99-42".getBytes(), storageEngine.get("key42"));
+
+        storageEngine.close();
+        storageEngine = open();
+        assertArrayEquals("round99-99".getBytes(), storageEngine.get("key99"));
+        assertNull(storageEngine.get("gone"));
+        assertEquals(100, storageEngine.getKeyCount());
+    }
+
+    @Test
+    @DisplayName("测试合并保留的墓碑不会被反复合并")
+    void testTombstonesNotRemerged() throws Exception {
+        // 第一个段全是有效数据，之后的段里墓碑要一直保留
+        int keep = 0;
+        while (storageEngine.getSegmentCount() < 2) {
+            storageEngine.put("keep" + keep, ("value-" + keep + "-0123456789").getBytes());
+            keep++;
+        }
+        for (int i = 0; i < 2000; i++) {
+            storageEngine.put("gone" + i, ("value-" + i + "-0123456789").getBytes());
+        }
+        for (int i = 0; i < 2000; i++) {
+            storageEngine.delete("gone" + i);
+        }
+        int fill = fillActiveSegment(0);
+        storageEngine.mergeSegments();
+        long merged = storageEngine.getMergedSegments();
+        assertTrue(merged > 0);
+
+        // 让装着搬过来的墓碑的段封存，再合并一轮：墓碑算有效数据，不会再次被选中
+        fillActiveSegment(fill);
+        storageEngine.mergeSegments();
+        assertEquals(merged, storageEngine.getMergedSegments());
+
+        storageEngine.close();
+        storageEngine = open();
+        assertNull(storageEngine.get("gone1999"));
+        assertArrayEquals(("value-" + (keep - 1) + "-0123456789").getBytes(), storageEngine.get("keep" + (keep - 1)));
+    }
+
+    /**
+     * 写入小记录直到活跃段写满切换，返回下一个可用的序号
+     */
+    private int fillActiveSegment(int from) throws Exception {
+        int segments = storageEngine.getSegmentCount();
+        int i = from;
+        while (storageEngine.getSegmentCount() == segments) {
+            storageEngine.put("fill" + i++, "x".getBytes());
+        }
+        return i;
+    }
+}
@@ -0,0 +1,122 @@
+package com.dkv.dkvstorage;
+import org.junit.jupiter.api.*;
+import org.junit.jupiter.api.io.TempDir;
+import com.dkv.dkvstorage.memory.OffHeapEngine;
+import com.dkv.dkvstorage.rocksdb.ChunkedValueStore;
+import com.dkv.dkvstorage.rocksdb.NamespaceOptions;
+import com.dkv.dkvstorage.rocksdb.RocksDbEngine;
+import com.dkv.dkvstorage.rocksdb.StorageEngine;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ChunkedValueStoreTest {
+
+    private static final String NS = StorageEngine.DEFAULT_NAMESPACE;
+    private static final byte[] KEY = "big".getBytes();
+
+    private OffHeapEngine storageEngine;
+    private ChunkedValueStore store;
+
+    @BeforeEach
+    void setUp() {
+        storageEngine = new OffHeapEngine(NamespaceOptions.defaults(), 1024 * 1024);
+        storageEngine.init(null);
+        store = new ChunkedValueStore(storageEngine);
+    }
+
+    @AfterEach
+    void tearDown() {
+        if (storageEngine != null) {
+            storageEngine.close();
+        }
+    }
+
+    private void upload(String uploadId, String... chunks) throws Exception {
+        for (int i = 0; i < chunks.length; i++) {
+            store.putChunk(NS, KEY, uploadId, i, chunks[i].getBytes(), i == chunks.length - 1);
+        }
+    }
+
+    private String read() throws Exception {
+        ChunkedValueStore.Manifest manifest = store.getManifest(NS, KEY);
+        StringBuilder value = new StringBuilder();
+        for (int i = 0; i < manifest.getChunkCount(); i++) {
+            value.append(new String(store.getChunk(NS, KEY, manifest, i)));
+        }
+        return value.toString();
+    }
+
+    @Test
+    @DisplayName("测试放弃的上传不影响已提交的value")
+    void testAbortedUploadKeepsCommittedValue() throws Exception {
+        upload("u1", "aa", "bb", "cc");
+        assertEquals("aabbcc", read());
+
+        // 新上传只写了两块就放弃：清单仍指向上一代
+        store.putChunk(NS, KEY, "u2", 0, "XX".getBytes(), false);
+        store.putChunk(NS, KEY, "u2", 1, "YY".getBytes(), false);
+        assertEquals("aabbcc", read());
+    }
+
+    @Test
+    @DisplayName("测试新一代提交后读者不会读到新旧混合的分块")
+    void testReplaceGeneration() throws Exception {
+        upload("u1", "aa", "bb", "cc");
+        ChunkedValueStore.Manifest before = store.getManifest(NS, KEY);
+        long keysBefore = storageEngine.estimateKeyCount();
+
+        upload("u2", "dd", "ee");
+        assertEquals("ddee", read());
+        // 上一代分块已删除：持有旧清单的读者拿到 null（流式读取返回409），而不是新值的分块
+        assertNull(store.getChunk(NS, KEY, before, 0));
+        assertEquals(keysBefore - 1, storageEngine.estimateKeyCount());
+
+        store.delete(NS, KEY);
+        assertNull(store.getManifest(NS, KEY));
+        assertEquals(0, storageEngine.estimateKeyCount());
+    }
+
+    @Test
+    @DisplayName("测试内部记录不占用用户keyspace")
+    void testReservedKeyspace() throws Exception {
+        upload("u1", "aa");
+        assertNull(storageEngine.get(NS, "big\0c\00".getBytes()));
+        assertFalse(ChunkedValueStore.isReserved("big".getBytes()));
+        assertFalse(ChunkedValueStore.isReserved(new byte[]{0, 'd'}));
+        assertTrue(ChunkedValueStore.isReserved(new byte[]{0, 'd', 'k', 'v', 0, 'm'}));
+        assertThrows(IllegalArgumentException.class, () -> store.putChunk(NS, KEY, null, 0, new byte[1], true));
+    }
+
+    @Test
+    @DisplayName("测试启动时回收放弃的上传，已提交的一代保留（重启后布隆过滤器为空也不误删）")
+    void testSweepAbandoned(@TempDir Path dir) throws Exception {
+        RocksDbEngine rocksDb = new RocksDbEngine();
+        rocksDb.init(dir.toString());
+        try {
+            ChunkedValueStore rocksStore = new ChunkedValueStore(rocksDb);
+            rocksStore.putChunk(NS, KEY, "u1", 0, "aa".getBytes(), false);
+            rocksStore.putChunk(NS, KEY, "u1", 1, "bb".getBytes(), true);
+            rocksStore.putChunk(NS, KEY, "u2", 0, "XX".getBytes(), false);
+            rocksStore.putChunk(NS, "other".getBytes(), "u3", 0, "YY".getBytes(), false);
+        } finally {
+            rocksDb.close();
+        }
+
+        rocksDb = new RocksDbEngine();
+        rocksDb.init(dir.toString());
+        try {
+            ChunkedValueStore rocksStore = new ChunkedValueStore(rocksDb);
+            assertEquals(2, rocksStore.sweepAbandoned(NS));
+            assertEquals(0, rocksStore.sweepAbandoned(NS));
+            int[] remaining = {0};
+            rocksDb.scan(NS, new byte[]{0, 'd', 'k', 'v', 0, 'c'}, (key, value) -> ++remaining[0] > 0);
+            assertEquals(2, remaining[0]);
+        } finally {
+            rocksDb.close();
+        }
+
+        // 不支持遍历的引擎直接报告
+        assertThrows(UnsupportedOperationException.class, () -> store.sweepAbandoned(NS));
+    }
+}
@@ -0,0 +1,265 @@
+package com.dkv.dkvstorage;
+import org.junit.jupiter.api.*;
+import org.junit.jupiter.api.io.TempDir;
+import com.dkv.dkvcommon.costants.DkvConstants;
+import com.dkv.dkvcommon.model.KvMessage;
+import com.dkv.dkvstorage.codec.DirectValueMessage;
+import com.dkv.dkvstorage.rocksdb.AdmissionController;
+import com.dkv.dkvstorage.rocksdb.DkvServerHandler;
+import com.dkv.dkvstorage.rocksdb.NamespaceOptions;
+import com.dkv.dkvstorage.rocksdb.RocksDbEngine;
+import com.dkv.dkvstorage.rocksdb.StorageExecutor;
+import io.netty.bootstrap.Bootstrap;
+import io.netty.bootstrap.ServerBootstrap;
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelInboundHandlerAdapter;
+import io.netty.channel.ChannelInitializer;
+import io.netty.channel.ChannelOutboundHandlerAdapter;
+import io.netty.channel.ChannelPromise;
+import io.netty.channel.DefaultEventLoopGroup;
+import io.netty.channel.EventLoopGroup;
+import io.netty.channel.embedded.EmbeddedChannel;
+import io.netty.channel.local.LocalAddress;
+import io.netty.channel.local.LocalChannel;
+import io.netty.channel.local.LocalServerChannel;
+import java.nio.ByteBuffer;
+import java.nio.file.Path;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class DkvServerHandlerTest {
+
+    /** 统计直接读的次数，记录执行写入的线程；写入可以被挡住，写停顿可以手动打开 */
+    private static class CountingEngine extends RocksDbEngine {
+        final AtomicInteger directReads = new AtomicInteger();
+        final Set<String> putThreads = Collections.synchronizedSet(new HashSet<>());
+        volatile CountDownLatch putGate;
+        volatile boolean writeStalled;
+
+        @Override
+        public void put(String namespace, byte[] key, byte[] value) throws Exception {
+            putThreads.add(Thread.currentThread().getName());
+            CountDownLatch gate = putGate;
+            if (gate != null) {
+                gate.await();
+            }
+            super.put(namespace, key, value);
+        }
+
+        @Override
+        public boolean isWriteStalled() {
+            return writeStalled;
+        }
+
+        @Override
+        public int get(String namespace, byte[] key, ByteBuffer target) throws Exception {
+            directReads.incrementAndGet();
+            return super.get(namespace, key, target);
+        }
+    }
+
+    private CountingEngine engine;
+
+    @TempDir
+    Path tempDir;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        engine = new CountingEngine();
+        engine.init(tempDir.toString());
+    }
+
+    @AfterEach
+    void tearDown() {
+        engine.close();
+    }
+
+    private EmbeddedChannel channel() {
+        return new EmbeddedChannel(new DkvServerHandler(engine, null,
+                new StorageExecutor(StorageExecutor.ExecutionMode.EVENT_LOOP, 0, 0),
+                null, Integer.MAX_VALUE, true, false));
+    }
+
+    @Test
+    @DisplayName("测试零拷贝GET按blob阈值分配首个缓冲，阈值以下的value只读一次")
+    void testDirectReadSizedFromBlobThreshold() throws Exception {
+        assertEquals((int) NamespaceOptions.DEFAULT_BLOB_THRESHOLD,
+                engine.getValueSizeHint(RocksDbEngine.DEFAULT_NAMESPACE));
+        assertEquals(-1, engine.getValueSizeHint(RocksDbEngine.COUNTER_NAMESPACE));
+
+        EmbeddedChannel channel = channel();
+        for (int size : new int[]{100, 32 * 1024, (int) NamespaceOptions.DEFAULT_BLOB_THRESHOLD - 1}) {
+            byte[] value = new byte[size];
+            value[size - 1] = 7;
+            engine.put("key" + size, value);
+            engine.directReads.set(0);
+
+            channel.writeInbound(new KvMessage(KvMessage.Type.GET, "key" + size, null));
+            DirectValueMessage response = channel.readOutbound();
+            try {
+                assertEquals(200, response.getHeader().getStatusCode());
+                assertEquals(size, response.getValueLength());
+                assertEquals(7, response.getValueBuffer().getByte(size - 1));
+                assertEquals(1, engine.directReads.get(), Integer.toString(size));
+            } finally {
+                response.release();
+            }
+        }
+        channel.finishAndReleaseAll();
+    }
+
+    @Test
+    @DisplayName("测试存储在存储通道上执行，响应回到连接自己的事件循环写出")
+    void testResponsesWrittenOnEventLoop() throws Exception {
+        StorageExecutor executor = new StorageExecutor(StorageExecutor.ExecutionMode.STRIPED_POOL, 2, 1, 64);
+        EventLoopGroup group = new DefaultEventLoopGroup(2);
+        LocalAddress address = new LocalAddress("dkv-server-handler-test");
+        AtomicInteger offLoopWrites = new AtomicInteger();
+        BlockingQueue<KvMessage> responses = new LinkedBlockingQueue<>();
+        try {
+            Channel server = new ServerBootstrap()
+                    .group(group)
+                    .channel(LocalServerChannel.class)
+                    .childHandler(new ChannelInitializer<LocalChannel>() {
+                        @Override
+                        protected void initChannel(LocalChannel ch) {
+                            ch.pipeline().addLast(new ChannelOutboundHandlerAdapter() {
+                                @Override
+                                public void write(ChannelHandlerContext ctx, Object msg, ChannelPromise promise) {
+                                    if (!ctx.channel().eventLoop().inEventLoop()) {
+                                        offLoopWrites.incrementAndGet();
+                                    }
+                                    ctx.write(msg, promise);
+                                }
+                            });
+                            ch.pipeline().addLast(new DkvServerHandler(engine, null, executor,
+                                    null, Integer.MAX_VALUE, false, false));
+                        }
+                    })
+                    .bind(address).sync().channel();
+            Channel client = new Bootstrap()
+                    .group(group)
+                    .channel(LocalChannel.class)
+                    .handler(new ChannelInboundHandlerAdapter() {
+                        @Override
+                        public void channelRead(ChannelHandlerContext ctx, Object msg) {
+                            responses.add((KvMessage) msg);
+                        }
+                    })
+                    .connect(address).sync().channel();
+
+            int requests = 20;
+            for (int i = 0; i < requests; i++) {
+                client.writeAndFlush(new KvMessage(KvMessage.Type.PUT, "key" + i, "value".getBytes()));
+            }
+            for (int i = 0; i < requests; i++) {
+                KvMessage response = responses.poll(5, TimeUnit.SECONDS);
+                assertNotNull(response);
+                assertEquals(200, response.getStatusCode());
+            }
+            assertEquals(0, offLoopWrites.get());
+            assertFalse(engine.putThreads.isEmpty());
+            for (String thread : engine.putThreads) {
+                assertTrue(thread.startsWith("storage-lane-"), thread);
+            }
+
+            client.close().sync();
+            server.close().sync();
+        } finally {
+            group.shutdownGracefully(0, 1, TimeUnit.SECONDS).sync();
+            executor.shutdown();
+        }
+    }
+
+    private static KvMessage put(String key) {
+        return new KvMessage(KvMessage.Type.PUT, key, "value".getBytes());
+    }
+
+    @Test
+    @DisplayName("测试准入控制：在途请求已满时返回BUSY，写停顿时只拒绝写请求")
+    void testAdmissionBusy() throws Exception {
+        AdmissionController admission = new AdmissionController(engine, 1);
+        EmbeddedChannel channel = new EmbeddedChannel(new DkvServerHandler(engine, null,
+                new StorageExecutor(StorageExecutor.ExecutionMode.EVENT_LOOP, 0, 0),
+                admission, Integer.MAX_VALUE, false, false));
+
+        channel.writeInbound(put("key"));
+        assertEquals(200, ((KvMessage) channel.readOutbound()).getStatusCode());
+        assertEquals(0, admission.getInFlight());
+
+        // 占住唯一的名额
+        assertEquals(AdmissionController.Decision.ADMITTED, admission.tryAdmit(put("other")));
+        channel.writeInbound(new KvMessage(KvMessage.Type.GET, "key", null));
+        KvMessage busy = channel.readOutbound();
+        assertEquals(DkvConstants.STATUS_BUSY, busy.getStatusCode());
+        assertEquals("Server busy, too many in-flight requests", busy.getMessage());
+        admission.release();
+
+        engine.writeStalled = true;
+        channel.writeInbound(put("key"));
+        busy = channel.readOutbound();
+        assertEquals(DkvConstants.STATUS_BUSY, busy.getStatusCode());
+        assertEquals("Server busy, writes are stalled", busy.getMessage());
+        channel.writeInbound(new KvMessage(KvMessage.Type.GET, "key", null));
+        assertEquals(200, ((KvMessage) channel.readOutbound()).getStatusCode());
+        assertEquals(2, admission.getRejected());
+        assertEquals(0, admission.getInFlight());
+        channel.finishAndReleaseAll();
+    }
+
+    @Test
+    @DisplayName("测试未知请求类型返回400，不占准入名额也不断开连接")
+    void testUnknownType() {
+        AdmissionController admission = new AdmissionController(engine, 1);
+        EmbeddedChannel channel = new EmbeddedChannel(new DkvServerHandler(engine, null,
+                new StorageExecutor(StorageExecutor.ExecutionMode.EVENT_LOOP, 0, 0),
+                admission, Integer.MAX_VALUE, false, false));
+
+        channel.writeInbound(new KvMessage(null, "key", null));
+        KvMessage response = channel.readOutbound();
+        assertEquals(400, response.getStatusCode());
+        assertEquals(0, admission.getInFlight());
+        assertEquals(0, admission.getRejected());
+        assertTrue(channel.isActive());
+
+        channel.writeInbound(put("key"));
+        assertEquals(200, ((KvMessage) channel.readOutbound()).getStatusCode());
+        channel.finishAndReleaseAll();
+    }
+
+    @Test
+    @DisplayName("测试单连接在途请求达到上限时暂停读取，降下来后恢复")
+    void testPerConnectionAutoRead() throws Exception {
+        StorageExecutor executor = new StorageExecutor(StorageExecutor.ExecutionMode.STRIPED_POOL, 2, 1, 64);
+        engine.putGate = new CountDownLatch(1);
+        EmbeddedChannel channel = new EmbeddedChannel(new DkvServerHandler(engine, null, executor,
+                null, 2, false, false));
+        try {
+            channel.writeInbound(put("a"));
+            assertTrue(channel.config().isAutoRead());
+            channel.writeInbound(put("b"));
+            assertFalse(channel.config().isAutoRead());
+
+            engine.putGate.countDown();
+            long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+            while (!channel.config().isAutoRead() && System.nanoTime() < deadline) {
+                channel.runPendingTasks();
+                Thread.sleep(10);
+            }
+            assertTrue(channel.config().isAutoRead());
+        } finally {
+            engine.putGate.countDown();
+            executor.shutdown();
+            channel.finishAndReleaseAll();
+        }
+    }
+}
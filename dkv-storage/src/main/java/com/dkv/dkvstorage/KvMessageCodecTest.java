@@ -0,0 +1,107 @@
+package com.dkv.dkvstorage;
+import org.junit.jupiter.api.*;
+import com.dkv.dkvcommon.model.KvMessage;
+import com.dkv.dkvcommon.utils.CompressionUtil;
+import com.dkv.dkvstorage.codec.KvCompressionHandler;
+import com.dkv.dkvstorage.codec.KvMessageDecoder;
+import com.dkv.dkvstorage.codec.KvMessageEncoder;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import io.netty.channel.embedded.EmbeddedChannel;
+import io.netty.handler.codec.CorruptedFrameException;
+import io.netty.handler.codec.DecoderException;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class KvMessageCodecTest {
+
+    @Test
+    @DisplayName("测试编码后解码得到相同的消息")
+    void testRoundTrip() {
+        EmbeddedChannel channel = new EmbeddedChannel(new KvMessageEncoder(), new KvMessageDecoder());
+        KvMessage msg = new KvMessage(KvMessage.Type.MERGE, "key", "value".getBytes());
+        msg.setMergeOperator(KvMessage.MergeOperator.UINT64_ADD);
+        msg.setNamespace("counters");
+        msg.setRequestId("42");
+        msg.setAcceptCompression(KvMessage.Compression.LZ4);
+
+        assertTrue(channel.writeOutbound(msg));
+        ByteBuf encoded = channel.readOutbound();
+        assertTrue(channel.writeInbound(encoded));
+        KvMessage decoded = channel.readInbound();
+        assertEquals(KvMessage.Type.MERGE, decoded.getType());
+        assertArrayEquals("key".getBytes(), decoded.getKeyBytes());
+        assertArrayEquals("value".getBytes(), decoded.getValue());
+        assertEquals(KvMessage.MergeOperator.UINT64_ADD, decoded.getMergeOperator());
+        assertEquals(KvMessage.Compression.LZ4, decoded.getAcceptCompression());
+        assertEquals("counters", decoded.getNamespace());
+        assertEquals("42", decoded.getRequestId());
+        assertNull(decoded.getMessage());
+    }
+
+    /** 手工拼一个帧：固定头部之后只有 key 长度字段和 trailing 字节 */
+    private static ByteBuf frame(int mergeOperator, int compression, int keyLength, int trailing) {
+        ByteBuf body = Unpooled.buffer();
+        body.writeByte(KvMessage.Type.GET.getValue());
+        body.writeInt(0);
+        body.writeLong(0);
+        body.writeByte(0);
+        body.writeByte(mergeOperator);
+        body.writeByte(compression);
+        body.writeByte(0);
+        body.writeInt(0);
+        body.writeInt(0);
+        body.writeInt(keyLength);
+        body.writeZero(trailing);
+        ByteBuf frame = Unpooled.buffer();
+        frame.writeInt(body.readableBytes());
+        frame.writeBytes(body);
+        body.release();
+        return frame;
+    }
+
+    private static void assertCorrupted(ByteBuf frame) {
+        EmbeddedChannel channel = new EmbeddedChannel(new KvMessageDecoder());
+        DecoderException e = assertThrows(DecoderException.class, () -> channel.writeInbound(frame));
+        assertInstanceOf(CorruptedFrameException.class, e);
+        channel.finishAndReleaseAll();
+    }
+
+    @Test
+    @DisplayName("测试对端声明的长度和枚举序号越界时按损坏帧拒绝，不按声明分配内存")
+    void testMalformedFrames() {
+        // 小帧声明接近 2GB 的 key
+        assertCorrupted(frame(0, 0, Integer.MAX_VALUE - 8, 16));
+        assertCorrupted(frame(0, 0, -5, 16));
+        assertCorrupted(frame(0, 0, 17, 16));
+        assertCorrupted(frame(0, -1, 0, 16));
+        assertCorrupted(frame(0, KvMessage.Compression.values().length, 0, 16));
+        assertCorrupted(frame(KvMessage.MergeOperator.values().length + 1, 0, 0, 16));
+        assertCorrupted(frame(-3, 0, 0, 16));
+    }
+
+    @Test
+    @DisplayName("测试压缩value的声明长度与实际不符或数据损坏时按损坏帧拒绝")
+    void testCorruptedCompressedValue() {
+        byte[] value = "value value value value value value".getBytes();
+        for (KvMessage.Compression compression : new KvMessage.Compression[]{
+                KvMessage.Compression.LZ4, KvMessage.Compression.ZSTD}) {
+            byte[] compressed = CompressionUtil.compress(value, compression);
+            assertArrayEquals(value, CompressionUtil.decompress(compressed, compression, value.length));
+
+            assertCorruptedValue(compressed, compression, value.length + 100);
+            assertCorruptedValue(compressed, compression, value.length - 1);
+            assertCorruptedValue(new byte[]{1, 2, 3, 4, 5, 6, 7, 8}, compression, value.length);
+        }
+    }
+
+    private static void assertCorruptedValue(byte[] data, KvMessage.Compression compression, int uncompressedLength) {
+        EmbeddedChannel channel = new EmbeddedChannel(new KvCompressionHandler(KvMessage.Compression.NONE));
+        KvMessage msg = new KvMessage(KvMessage.Type.PUT, "key", data);
+        msg.setCompression(compression);
+        msg.setUncompressedLength(uncompressedLength);
+        DecoderException e = assertThrows(DecoderException.class, () -> channel.writeInbound(msg));
+        assertInstanceOf(CorruptedFrameException.class, e);
+        channel.finishAndReleaseAll();
+    }
+}
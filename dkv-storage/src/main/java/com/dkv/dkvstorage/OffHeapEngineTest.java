@@ -0,0 +1,117 @@
+package com.dkv.dkvstorage;
+import org.junit.jupiter.api.*;
+import com.dkv.dkvcommon.utils.CounterUtil;
+import com.dkv.dkvstorage.memory.OffHeapEngine;
+import com.dkv.dkvstorage.rocksdb.NamespaceOptions;
+import com.dkv.dkvstorage.rocksdb.StorageEngine;
+import java.nio.ByteBuffer;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class OffHeapEngineTest {
+
+    private static final long CAPACITY = 1024 * 1024;
+
+    private OffHeapEngine storageEngine;
+
+    @BeforeEach
+    void setUp() {
+        storageEngine = new OffHeapEngine(NamespaceOptions.defaults(), CAPACITY);
+        storageEngine.init(null);
+    }
+
+    @AfterEach
+    void tearDown() {
+        if (storageEngine != null) {
+            storageEngine.close();
+        }
+    }
+
+    @Test
+    @DisplayName("测试PUT/GET/DELETE与覆盖写")
+    void testPutGetDelete() throws Exception {
+        for (int i = 0; i < 5000; i++) {
+            storageEngine.put("key" + i, ("value" + i).getBytes());
+        }
+        for (int i = 0; i < 5000; i += 7) {
+            assertArrayEquals(("value" + i).getBytes(), storageEngine.get("key" + i));
+        }
+
+        storageEngine.put("key1", "updated".getBytes());
+        assertArrayEquals("updated".getBytes(), storageEngine.get("key1"));
+
+        storageEngine.delete("key2");
+        assertNull(storageEngine.get("key2"));
+        assertNull(storageEngine.get("missing"));
+        assertEquals(4999, storageEngine.size());
+
+        // 读入调用方缓冲区：空间不够时只返回长度
+        ByteBuffer small = ByteBuffer.allocateDirect(2);
+        assertEquals(7, storageEngine.get(StorageEngine.DEFAULT_NAMESPACE, "key1", small));
+        ByteBuffer target = ByteBuffer.allocateDirect(16);
+        assertEquals(7, storageEngine.get(StorageEngine.DEFAULT_NAMESPACE, "key1", target));
+        byte[] copy = new byte[7];
+        target.get(copy);
+        assertArrayEquals("updated".getBytes(), copy);
+    }
+
+    @Test
+    @DisplayName("测试命名空间隔离与合并算子")
+    void testNamespacesAndMerge() throws Exception {
+        storageEngine.merge(StorageEngine.COUNTER_NAMESPACE, "hits", CounterUtil.encode(5));
+        storageEngine.merge(StorageEngine.COUNTER_NAMESPACE, "hits", CounterUtil.encode(-2));
+        assertEquals(3, CounterUtil.decode(storageEngine.get(StorageEngine.COUNTER_NAMESPACE, "hits")));
+        assertNull(storageEngine.get("hits"));
+
+        storageEngine.merge(StorageEngine.DEFAULT_NAMESPACE, "log", "a".getBytes());
+        storageEngine.merge(StorageEngine.DEFAULT_NAMESPACE, "log", "b".getBytes());
+        assertArrayEquals("ab".getBytes(), storageEngine.get("log"));
+
+        assertThrows(IllegalArgumentException.class,
+                () -> storageEngine.put("no-such-namespace", "k", "v".getBytes()));
+    }
+
+    @Test
+    @DisplayName("测试写满后按写入顺序淘汰，内存不超过上限")
+    void testEviction() throws Exception {
+        byte[] value = new byte[4096];
+        new Random(1).nextBytes(value);
+        int count = (int) (CAPACITY * 4 / value.length);
+        for (int i = 0; i < count; i++) {
+            storageEngine.put("big" + i, value);
+        }
+
+        assertTrue(storageEngine.getLiveBytes() + storageEngine.getIndexBytes() <= CAPACITY);
+        assertTrue(storageEngine.getEvictions() > 0);
+        assertEquals(count - storageEngine.getEvictions(), storageEngine.size());
+        // 最早写入的被淘汰，最近写入的仍在
+        assertNull(storageEngine.get("big0"));
+        assertArrayEquals(value, storageEngine.get("big" + (count - 1)));
+
+        assertThrows(IllegalArgumentException.class,
+                () -> storageEngine.put("huge", new byte[(int) CAPACITY]));
+    }
+
+    @Test
+    @DisplayName("测试索引计入容量：小记录写满索引预留后淘汰而不是继续扩容，删除后索引缩小")
+    void testIndexWithinCapacity() throws Exception {
+        int count = 200_000;
+        for (int i = 0; i < count; i++) {
+            storageEngine.put("k" + i, new byte[1]);
+        }
+        long indexBytes = storageEngine.getIndexBytes();
+        // 每段索引最多占段预算的 1/8
+        assertTrue(indexBytes <= CAPACITY / 8, Long.toString(indexBytes));
+        assertTrue(storageEngine.getLiveBytes() + indexBytes <= CAPACITY);
+        assertTrue(storageEngine.getEvictions() > 0);
+        assertEquals(count - storageEngine.getEvictions(), storageEngine.size());
+        assertArrayEquals(new byte[1], storageEngine.get("k" + (count - 1)));
+
+        for (int i = 0; i < count; i++) {
+            storageEngine.delete("k" + i);
+        }
+        assertEquals(0, storageEngine.size());
+        assertTrue(storageEngine.getIndexBytes() < indexBytes);
+    }
+}
@@ -0,0 +1,121 @@
+package com.dkv.dkvstorage;
+import org.junit.jupiter.api.*;
+import com.dkv.dkvcommon.costants.DkvConstants;
+import com.dkv.dkvcommon.model.KvMessage;
+import com.dkv.dkvstorage.metrics.HotKeyTracker;
+import com.dkv.dkvstorage.metrics.RequestMetrics;
+import com.dkv.dkvstorage.metrics.SlowOpLog;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RequestMetricsTest {
+
+    @Test
+    @DisplayName("测试热点key：高频key被找出，计数误差在 error 范围内")
+    void testHotKeysWithinErrorBound() {
+        HotKeyTracker tracker = new HotKeyTracker(64);
+        Map<String, Long> actual = new HashMap<>();
+        Random random = new Random(42);
+        for (int i = 0; i < 20000; i++) {
+            // 三个热点key各占约 1/8 的访问，其余是大量只出现几次的冷key
+            int pick = random.nextInt(8);
+            String key = pick < 3 ? "hot" + pick : "cold" + random.nextInt(5000);
+            tracker.record(key.getBytes(), 0);
+            actual.merge(key, 1L, Long::sum);
+        }
+
+        List<HotKeyTracker.HotKey> top = tracker.topByCount(3);
+        assertEquals(3, top.size());
+        for (HotKeyTracker.HotKey hotKey : top) {
+            assertTrue(hotKey.getKey().startsWith("hot"), hotKey.getKey());
+        }
+        // Space-Saving 只会多算：count - error <= 真实次数 <= count
+        for (HotKeyTracker.HotKey hotKey : tracker.topByCount(64)) {
+            long count = actual.get(hotKey.getKey());
+            assertTrue(hotKey.getCount() >= count, hotKey.getKey());
+            assertTrue(hotKey.getCount() - hotKey.getError() <= count, hotKey.getKey());
+        }
+    }
+
+    @Test
+    @DisplayName("测试热点key：按流量排序，容量为0时关闭")
+    void testHotKeysByBytes() {
+        HotKeyTracker tracker = new HotKeyTracker(16);
+        for (int i = 0; i < 100; i++) {
+            tracker.record("small".getBytes(), 10);
+        }
+        tracker.record("large".getBytes(), 4096);
+        tracker.record("large".getBytes(), 1024);
+
+        HotKeyTracker.HotKey largest = tracker.topByBytes(1).get(0);
+        assertEquals("large", largest.getKey());
+        assertEquals(5120, largest.getCount());
+        assertEquals(4096, largest.getMaxBytes());
+        assertEquals("small", tracker.topByCount(1).get(0).getKey());
+
+        tracker.clear();
+        assertTrue(tracker.topByCount(10).isEmpty());
+
+        HotKeyTracker disabled = new HotKeyTracker(0);
+        disabled.record("key".getBytes(), 1);
+        assertTrue(disabled.topByCount(10).isEmpty());
+    }
+
+    @Test
+    @DisplayName("测试慢操作日志：阈值判断，保留最近的条目并按新到旧返回")
+    void testSlowOpLog() {
+        SlowOpLog log = new SlowOpLog(10, 2);
+        assertFalse(log.isSlow(TimeUnit.MILLISECONDS.toNanos(9)));
+        assertTrue(log.isSlow(TimeUnit.MILLISECONDS.toNanos(10)));
+        assertFalse(new SlowOpLog(0, 2).isSlow(Long.MAX_VALUE));
+
+        long total = TimeUnit.MILLISECONDS.toNanos(20);
+        for (int i = 0; i < 3; i++) {
+            log.record(new KvMessage(KvMessage.Type.GET, "key" + i, null), 200, 0, total,
+                    TimeUnit.MILLISECONDS.toNanos(5), TimeUnit.MILLISECONDS.toNanos(10), 0);
+        }
+        KvMessage replicated = new KvMessage(KvMessage.Type.PUT, "key3", null);
+        replicated.setReplication(true);
+        log.record(replicated, 200, 0, total, 0, 0, 0);
+
+        List<SlowOpLog.Entry> entries = log.getEntries();
+        assertEquals(2, entries.size());
+        assertEquals("key3", entries.get(0).getKey());
+        assertEquals("replication", entries.get(0).getOp());
+        assertEquals("key2", entries.get(1).getKey());
+        assertEquals(5000, entries.get(1).getQueueMicros());
+        assertEquals(5000L, entries.get(1).toMap().get("otherMicros"));
+        // 每一条都计数，WARN 日志限速不影响记录
+        assertEquals(4, log.getSlowOpCount());
+
+        log.clear();
+        assertTrue(log.getEntries().isEmpty());
+    }
+
+    @Test
+    @DisplayName("测试请求指标：复制流量单独统计，拒绝的请求计为BUSY")
+    void testRequestOutcomes() {
+        RequestMetrics metrics = new RequestMetrics();
+        metrics.record(new KvMessage(KvMessage.Type.GET, "key", null), 200, 1000);
+        metrics.record(new KvMessage(KvMessage.Type.GET, "key", null), 404, 1000);
+        metrics.record(new KvMessage(KvMessage.Type.PUT, "key", null), 500, 1000);
+        metrics.rejected(new KvMessage(KvMessage.Type.PUT, "key", null));
+
+        KvMessage replicated = new KvMessage(KvMessage.Type.PUT, "key", null);
+        replicated.setReplication(true);
+        metrics.record(replicated, 200, 1000);
+        metrics.record(new KvMessage(KvMessage.Type.REPLICATION_PUT, "key", null), DkvConstants.STATUS_BUSY, 1000);
+
+        assertEquals(2, metrics.getCount(KvMessage.Type.GET, RequestMetrics.Outcome.OK));
+        assertEquals(1, metrics.getCount(KvMessage.Type.PUT, RequestMetrics.Outcome.SERVER_ERROR));
+        assertEquals(1, metrics.getCount(KvMessage.Type.PUT, RequestMetrics.Outcome.BUSY));
+        assertEquals(0, metrics.getCount(KvMessage.Type.PUT, RequestMetrics.Outcome.OK));
+        assertEquals(1, metrics.getCount(KvMessage.Type.REPLICATION_PUT, RequestMetrics.Outcome.OK));
+        assertEquals(1, metrics.getCount(KvMessage.Type.REPLICATION_PUT, RequestMetrics.Outcome.BUSY));
+    }
+}
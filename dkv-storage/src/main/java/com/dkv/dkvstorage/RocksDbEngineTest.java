@@ -1,8 +1,16 @@
 package com.dkv.dkvstorage;
 import org.junit.jupiter.api.*;
 import org.junit.jupiter.api.io.TempDir;
+import com.dkv.dkvcommon.model.KvMessage;
+import com.dkv.dkvcommon.utils.CounterUtil;
+import com.dkv.dkvstorage.rocksdb.NamespaceOptions;
 import com.dkv.dkvstorage.rocksdb.RocksDbEngine;
+import com.dkv.dkvstorage.rocksdb.StorageEngine;
+import org.rocksdb.CompactionStyle;
+import org.rocksdb.CompressionType;
 import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
 import java.util.Random;
 
 import static org.junit.jupiter.api.Assertions.*;
@@ -148,6 +156,21 @@ class RocksDbEngineTest {
         }
     }
 
+    @Test
+    @DisplayName("测试二进制key")
+    void testBinaryKey() throws Exception {
+        // 不是合法UTF-8的key，按字符串处理会被替换字符破坏
+        byte[] key = {(byte) 0xff, 0x00, (byte) 0xc3, 0x28};
+        byte[] other = {(byte) 0xfe, 0x00, (byte) 0xc3, 0x28};
+        storageEngine.put(StorageEngine.DEFAULT_NAMESPACE, key, "binary".getBytes());
+
+        assertArrayEquals("binary".getBytes(), storageEngine.get(StorageEngine.DEFAULT_NAMESPACE, key));
+        assertNull(storageEngine.get(StorageEngine.DEFAULT_NAMESPACE, other));
+
+        storageEngine.delete(StorageEngine.DEFAULT_NAMESPACE, key);
+        assertNull(storageEngine.get(StorageEngine.DEFAULT_NAMESPACE, key));
+    }
+
     @Test
     @DisplayName("测试空value")
     void testEmptyValue() throws Exception {
@@ -178,4 +201,174 @@ class RocksDbEngineTest {
         assertNotNull(result);
         assertEquals(longValue.toString(), new String(result));
     }
-}
\ No newline at end of file
+
+    @Test
+    @DisplayName("测试MERGE追加")
+    void testMergeAppend() throws Exception {
+        String key = "events";
+
+        storageEngine.merge(StorageEngine.DEFAULT_NAMESPACE, key, "a".getBytes());
+        storageEngine.merge(StorageEngine.DEFAULT_NAMESPACE, key, "b".getBytes());
+        storageEngine.merge(StorageEngine.DEFAULT_NAMESPACE, key, "c".getBytes());
+
+        assertEquals("abc", new String(storageEngine.get(key)));
+    }
+
+    @Test
+    @DisplayName("测试MERGE计数器")
+    void testMergeCounter() throws Exception {
+        String key = "counter";
+
+        storageEngine.merge(StorageEngine.COUNTER_NAMESPACE, key, CounterUtil.encode(5));
+        storageEngine.merge(StorageEngine.COUNTER_NAMESPACE, key, CounterUtil.encode(10));
+        storageEngine.merge(StorageEngine.COUNTER_NAMESPACE, key, CounterUtil.encode(-3));
+
+        assertEquals(12, CounterUtil.decode(storageEngine.get(StorageEngine.COUNTER_NAMESPACE, key)));
+        // 计数器与普通值分开存放
+        assertNull(storageEngine.get(key));
+
+        storageEngine.delete(StorageEngine.COUNTER_NAMESPACE, key);
+        assertNull(storageEngine.get(StorageEngine.COUNTER_NAMESPACE, key));
+    }
+
+    @Test
+    @DisplayName("测试命名空间隔离")
+    void testNamespaceIsolation() throws Exception {
+        storageEngine.close();
+        storageEngine = new RocksDbEngine(List.of(
+                new NamespaceOptions(StorageEngine.DEFAULT_NAMESPACE),
+                new NamespaceOptions("meta").setBlockCacheShare(0.2).setBloomBitsPerKey(16),
+                new NamespaceOptions("blobs").setCompactionStyle(CompactionStyle.UNIVERSAL).setBloomBitsPerKey(0)
+        ), 8 * 1024 * 1024);
+        storageEngine.init(tempDir.toString());
+
+        storageEngine.put("meta", "k", "meta-value".getBytes());
+        storageEngine.put("blobs", "k", "blob-value".getBytes());
+
+        assertEquals("meta-value", new String(storageEngine.get("meta", "k")));
+        assertEquals("blob-value", new String(storageEngine.get("blobs", "k")));
+        assertNull(storageEngine.get("k"));
+
+        // 未知命名空间
+        assertThrows(IllegalArgumentException.class, () -> storageEngine.get("missing", "k"));
+
+        // 重新打开时，磁盘上已有的Column Family会自动注册（此前打开的counters也在）
+        storageEngine.close();
+        storageEngine = new RocksDbEngine();
+        storageEngine.init(tempDir.toString());
+        assertEquals("meta-value", new String(storageEngine.get("meta", "k")));
+        assertTrue(storageEngine.getNamespaces().contains("blobs"));
+    }
+
+    @Test
+    @DisplayName("测试命名空间配置与合并算子")
+    void testNamespaceConfig() throws Exception {
+        List<NamespaceOptions> namespaces = NamespaceOptions.withDefaults(List.of(
+                NamespaceOptions.fromConfig(Map.of("name", "hits", "mergeOperator", "uint64_add", "ttlSeconds", 60))));
+        assertEquals(3, namespaces.size());
+        assertThrows(IllegalArgumentException.class, () -> NamespaceOptions.fromConfig(Map.of("ttlSeconds", 60)));
+        assertThrows(IllegalArgumentException.class,
+                () -> NamespaceOptions.fromConfig(Map.of("name", "x", "mergeOperator", "concat")));
+
+        // hits 启用了TTL，数据格式与 setUp 打开的非TTL目录不同，用新目录
+        storageEngine.close();
+        storageEngine = new RocksDbEngine(namespaces);
+        storageEngine.init(tempDir.resolve("ttl").toString());
+
+        assertEquals(KvMessage.MergeOperator.STRING_APPEND, storageEngine.getMergeOperator(StorageEngine.DEFAULT_NAMESPACE));
+        assertEquals(KvMessage.MergeOperator.UINT64_ADD, storageEngine.getMergeOperator("hits"));
+        assertNull(storageEngine.getMergeOperator("missing"));
+
+        storageEngine.merge("hits", "k".getBytes(), CounterUtil.encode(2));
+        storageEngine.merge("hits", "k".getBytes(), CounterUtil.encode(3));
+        assertEquals(5L, CounterUtil.decode(storageEngine.get("hits", "k")));
+    }
+
+    @Test
+    @DisplayName("测试TTL与非TTL格式的数据目录不能混用")
+    void testValueFormatMarker() throws Exception {
+        storageEngine.put(StorageEngine.COUNTER_NAMESPACE, "key", "value".getBytes());
+        storageEngine.close();
+        List<NamespaceOptions> withTtl = NamespaceOptions.withDefaults(List.of(
+                NamespaceOptions.fromConfig(Map.of("name", "sessions", "ttlSeconds", 60))));
+
+        RocksDbEngine ttlEngine = new RocksDbEngine(withTtl);
+        IllegalStateException e = assertThrows(IllegalStateException.class,
+                () -> ttlEngine.init(tempDir.toString()));
+        assertTrue(e.getMessage().contains("plain"), e.getMessage());
+
+        // 格式一致时正常打开，数据完好
+        storageEngine = new RocksDbEngine();
+        storageEngine.init(tempDir.toString());
+        assertArrayEquals("value".getBytes(), storageEngine.get(StorageEngine.COUNTER_NAMESPACE, "key"));
+        storageEngine.close();
+
+        Path ttlDir = tempDir.resolve("ttl");
+        storageEngine = new RocksDbEngine(withTtl);
+        storageEngine.init(ttlDir.toString());
+        storageEngine.close();
+        storageEngine = null;
+        assertThrows(IllegalStateException.class, () -> new RocksDbEngine().init(ttlDir.toString()));
+    }
+
+    @Test
+    @DisplayName("测试Zstd字典压缩命名空间")
+    void testZstdDictionaryCompression() throws Exception {
+        storageEngine.close();
+        storageEngine = new RocksDbEngine(List.of(
+                new NamespaceOptions(StorageEngine.DEFAULT_NAMESPACE),
+                new NamespaceOptions("json")
+                        .setCompressionType(CompressionType.ZSTD_COMPRESSION)
+                        .setZstdDictBytes(NamespaceOptions.DEFAULT_ZSTD_DICT_BYTES)
+        ), 8 * 1024 * 1024);
+        storageEngine.init(tempDir.toString());
+
+        for (int i = 0; i < 1000; i++) {
+            String json = "{\"id\":" + i + ",\"name\":\"user-" + i + "\",\"status\":\"active\"}";
+            storageEngine.put("json", "user:" + i, json.getBytes());
+        }
+
+        // 重新打开，数据经过刷盘后仍可正确解压
+        storageEngine.close();
+        storageEngine = new RocksDbEngine();
+        storageEngine.init(tempDir.toString());
+        assertEquals("{\"id\":42,\"name\":\"user-42\",\"status\":\"active\"}",
+                new String(storageEngine.get("json", "user:42")));
+    }
+
+    @Test
+    @DisplayName("测试引擎指标")
+    void testMetrics() throws Exception {
+        storageEngine.put("user:001", "v".getBytes());
+        storageEngine.get("user:001");
+        storageEngine.get("non_existent_key");
+
+        Map<String, Number> metrics = storageEngine.getMetrics();
+        assertEquals(1L, metrics.get("writes_total").longValue());
+        assertEquals(2L, metrics.get("bloom_filter_checks_total").longValue());
+        assertEquals(1L, metrics.get("bloom_filter_negatives_total").longValue());
+        assertEquals(1L, metrics.get("memtable_hits_total").longValue());
+        assertTrue(metrics.containsKey("block_cache_hits_total"));
+        assertTrue(metrics.containsKey("pending_compaction_bytes"));
+        assertEquals(0, metrics.get("write_stalled").intValue());
+    }
+
+    @Test
+    @DisplayName("测试详细统计")
+    @SuppressWarnings("unchecked")
+    void testStats() throws Exception {
+        storageEngine.put("user:001", "v".getBytes());
+        storageEngine.get("user:001");
+
+        Map<String, Object> stats = storageEngine.getStats();
+        Map<String, Long> tickers = (Map<String, Long>) stats.get("tickers");
+        assertEquals(1L, tickers.get("MEMTABLE_HIT"));
+        assertTrue(((Map<String, Object>) stats.get("histograms")).containsKey("DB_GET"));
+
+        Map<String, Object> namespaces = (Map<String, Object>) stats.get("namespaces");
+        Map<String, Object> cf = (Map<String, Object>) namespaces.get(StorageEngine.DEFAULT_NAMESPACE);
+        assertEquals(7, ((List<?>) cf.get("levels")).size());
+        assertTrue(((Map<String, Long>) cf.get("writeStalls")).containsKey("total_stop"));
+        assertEquals(false, ((Map<String, Object>) stats.get("writeStall")).get("stalled"));
+    }
+}
@@ -2,6 +2,8 @@ package com.dkv.dkvstorage;
 
 
 import com.dkv.dkvcommon.model.KvMessage;
+import com.dkv.dkvstorage.codec.KvMessageDecoder;
+import com.dkv.dkvstorage.codec.KvMessageEncoder;
 import io.netty.bootstrap.Bootstrap;
 import io.netty.channel.Channel;
 import io.netty.channel.ChannelInitializer;
@@ -10,9 +12,6 @@ import io.netty.channel.EventLoopGroup;
 import io.netty.channel.nio.NioEventLoopGroup;
 import io.netty.channel.socket.SocketChannel;
 import io.netty.channel.socket.nio.NioSocketChannel;
-import io.netty.handler.codec.serialization.ClassResolvers;
-import io.netty.handler.codec.serialization.ObjectDecoder;
-import io.netty.handler.codec.serialization.ObjectEncoder;
 
 
 import java.util.concurrent.CompletableFuture;
@@ -39,9 +38,8 @@ public class SimpleKvClient {
                         @Override
                         protected void initChannel(SocketChannel ch) {
                             ChannelPipeline p = ch.pipeline();
-                            p.addLast(new ObjectEncoder());
-                            p.addLast(new ObjectDecoder(
-                                    ClassResolvers.cacheDisabled(null)));
+                            p.addLast(new KvMessageEncoder());
+                            p.addLast(new KvMessageDecoder());
                             p.addLast(new KvClientHandler(future));
                         }
                     });
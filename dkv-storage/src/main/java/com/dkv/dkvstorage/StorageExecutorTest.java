@@ -0,0 +1,140 @@
+package com.dkv.dkvstorage;
+import org.junit.jupiter.api.*;
+import com.dkv.dkvstorage.rocksdb.StorageExecutor;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class StorageExecutorTest {
+
+    @Test
+    @DisplayName("测试同一个key的任务在同一个通道上按提交顺序执行")
+    void testPerKeyOrdering() throws Exception {
+        StorageExecutor executor = new StorageExecutor(StorageExecutor.ExecutionMode.STRIPED_POOL, 4, 1, 1024);
+        int keys = 8;
+        int tasksPerKey = 100;
+        List<List<Integer>> executed = new ArrayList<>();
+        List<Set<String>> threads = new ArrayList<>();
+        for (int k = 0; k < keys; k++) {
+            executed.add(Collections.synchronizedList(new ArrayList<>()));
+            threads.add(Collections.synchronizedSet(new HashSet<>()));
+        }
+        CountDownLatch done = new CountDownLatch(keys * tasksPerKey);
+        try {
+            // 各个key的任务交错提交
+            for (int i = 0; i < tasksPerKey; i++) {
+                for (int k = 0; k < keys; k++) {
+                    int key = k;
+                    int seq = i;
+                    assertTrue(executor.execute(("key" + k).getBytes(), () -> {
+                        executed.get(key).add(seq);
+                        threads.get(key).add(Thread.currentThread().getName());
+                        done.countDown();
+                    }));
+                }
+            }
+            assertTrue(done.await(5, TimeUnit.SECONDS));
+            for (int k = 0; k < keys; k++) {
+                List<Integer> expected = new ArrayList<>();
+                for (int i = 0; i < tasksPerKey; i++) {
+                    expected.add(i);
+                }
+                assertEquals(expected, executed.get(k));
+                assertEquals(1, threads.get(k).size());
+                assertTrue(threads.get(k).iterator().next().startsWith("storage-lane-"));
+            }
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    @DisplayName("测试通道队列满时拒绝任务，不阻塞提交方")
+    void testQueueFull() throws Exception {
+        StorageExecutor executor = new StorageExecutor(StorageExecutor.ExecutionMode.STRIPED_POOL, 1, 1, 2);
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        try {
+            assertTrue(executor.execute("key".getBytes(), () -> {
+                started.countDown();
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }));
+            assertTrue(started.await(5, TimeUnit.SECONDS));
+            assertTrue(executor.execute("key".getBytes(), () -> { }));
+            assertTrue(executor.execute("key".getBytes(), () -> { }));
+            assertEquals(2, executor.getQueuedTasks());
+            assertFalse(executor.execute("key".getBytes(), () -> { }));
+        } finally {
+            release.countDown();
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    @DisplayName("测试普通通道全部阻塞时，复制写入仍能在副本通道上执行")
+    void testReplicationLanesIndependent() throws Exception {
+        StorageExecutor executor = new StorageExecutor(StorageExecutor.ExecutionMode.STRIPED_POOL, 2, 1, 16);
+        CountDownLatch release = new CountDownLatch(1);
+        CountDownLatch applied = new CountDownLatch(1);
+        try {
+            // 模拟两个主节点通道都在等副本确认
+            for (int i = 0; i < 2; i++) {
+                assertTrue(executor.execute(("key" + i).getBytes(), () -> {
+                    try {
+                        release.await();
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                }));
+            }
+            assertTrue(executor.execute("key0".getBytes(), true, applied::countDown));
+            assertTrue(applied.await(5, TimeUnit.SECONDS));
+        } finally {
+            release.countDown();
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    @DisplayName("测试节点视图共用通道，只统计和等待自己提交的任务")
+    void testNodeView() throws Exception {
+        StorageExecutor shared = new StorageExecutor(StorageExecutor.ExecutionMode.STRIPED_POOL, 2, 1, 16);
+        StorageExecutor node1 = shared.view();
+        StorageExecutor node2 = shared.view();
+        CountDownLatch release = new CountDownLatch(1);
+        try {
+            assertTrue(node1.execute("key".getBytes(), () -> {
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }));
+            assertTrue(node1.execute("key".getBytes(), () -> { }));
+            assertEquals(2, node1.getQueuedTasks());
+            assertEquals(0, node2.getQueuedTasks());
+
+            // 停止另一个节点不影响共用的通道
+            node2.shutdown();
+            release.countDown();
+            node1.shutdown();
+            assertEquals(0, node1.getQueuedTasks());
+            CountDownLatch ran = new CountDownLatch(1);
+            assertTrue(shared.execute("key".getBytes(), ran::countDown));
+            assertTrue(ran.await(5, TimeUnit.SECONDS));
+        } finally {
+            release.countDown();
+            shared.shutdown();
+        }
+    }
+}
@@ -0,0 +1,101 @@
+package com.dkv.dkvstorage;
+import org.junit.jupiter.api.*;
+import com.dkv.dkvcommon.model.KvMessage;
+import com.dkv.dkvcommon.trace.InMemorySpanCollector;
+import com.dkv.dkvcommon.trace.Span;
+import com.dkv.dkvcommon.trace.SpanExporter;
+import com.dkv.dkvcommon.trace.Tracer;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TracerTest {
+
+    @Test
+    @DisplayName("测试追踪上下文随请求传播：下游采样率为0也继续上游的链路，span 挂在上游 span 下")
+    void testContextPropagation() {
+        InMemorySpanCollector clientSpans = new InMemorySpanCollector();
+        InMemorySpanCollector nodeSpans = new InMemorySpanCollector();
+        Tracer client = new Tracer("client", 1, clientSpans);
+        Tracer node = new Tracer("node-1", 0, nodeSpans);
+
+        Span root = client.startTrace("put");
+        KvMessage request = new KvMessage(KvMessage.Type.PUT, "key", "value".getBytes());
+        root.inject(request);
+        assertEquals(root.getTraceId(), request.getTraceId());
+        assertEquals(root.getSpanId(), request.getSpanId());
+
+        Span server = node.continueTrace("server.put", request, System.nanoTime());
+        assertTrue(server.isSampled());
+        assertEquals(root.getTraceId(), server.getTraceId());
+        assertEquals(root.getSpanId(), server.getParentId());
+        Span storage = server.child("storage").tag("bytes", 5);
+        storage.finish();
+        server.error("boom").finish();
+        root.finish();
+        // 重复 finish 不会重复导出
+        root.finish();
+
+        List<Span> trace = nodeSpans.getTrace(root.getTraceId());
+        assertEquals(2, trace.size());
+        assertEquals("storage", trace.get(0).getName());
+        assertEquals(server.getSpanId(), trace.get(0).getParentId());
+        assertEquals(1, clientSpans.getSpans().size());
+
+        Map<String, Object> map = trace.get(1).toMap();
+        assertEquals(Long.toHexString(root.getTraceId()), map.get("traceId"));
+        assertEquals(Long.toHexString(root.getSpanId()), map.get("parentId"));
+        assertEquals("node-1", map.get("service"));
+        assertEquals("boom", map.get("error"));
+        assertEquals(Map.of("bytes", "5"), trace.get(0).toMap().get("tags"));
+    }
+
+    @Test
+    @DisplayName("测试采样：采样率0不发起链路，未采样的请求不带上下文；不导出时不跟随上游")
+    void testSampling() {
+        Tracer never = new Tracer("node", 0, new InMemorySpanCollector());
+        assertSame(Span.NOOP, never.startTrace("get"));
+        KvMessage request = new KvMessage(KvMessage.Type.GET, "key", null);
+        never.startTrace("get").inject(request);
+        assertEquals(0, request.getTraceId());
+        assertSame(Span.NOOP, never.continueTrace("get", request, System.nanoTime()));
+
+        Tracer always = new Tracer("node", 1, new InMemorySpanCollector());
+        assertTrue(always.startTrace("get").isSampled());
+        assertTrue(always.continueTrace("get", request, System.nanoTime()).isSampled());
+
+        // 部分采样：次数大致符合采样率
+        Tracer tenth = new Tracer("node", 0.1, SpanExporter.NONE);
+        int sampled = 0;
+        for (int i = 0; i < 10000; i++) {
+            if (tenth.startTrace("get").isSampled()) {
+                sampled++;
+            }
+        }
+        assertTrue(sampled > 700 && sampled < 1300, Integer.toString(sampled));
+
+        // 不导出的节点不因为上游的上下文产生 span
+        always.startTrace("put").inject(request);
+        Tracer silent = new Tracer("node", 0, SpanExporter.NONE);
+        assertSame(Span.NOOP, silent.continueTrace("put", request, System.nanoTime()));
+
+        assertThrows(IllegalArgumentException.class, () -> new Tracer("node", 1.5, SpanExporter.NONE));
+    }
+
+    @Test
+    @DisplayName("测试内存收集器保留最近的 span，满了丢弃最旧的")
+    void testCollectorCapacity() {
+        InMemorySpanCollector collector = new InMemorySpanCollector(2);
+        Tracer tracer = new Tracer("node", 1, collector);
+        for (String name : new String[]{"a", "b", "c"}) {
+            tracer.startTrace(name).finish();
+        }
+        List<Span> spans = collector.getSpans();
+        assertEquals(2, spans.size());
+        assertEquals("b", spans.get(0).getName());
+        assertEquals("c", spans.get(1).getName());
+        collector.clear();
+        assertTrue(collector.getSpans().isEmpty());
+    }
+}
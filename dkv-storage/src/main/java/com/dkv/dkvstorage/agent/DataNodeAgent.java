@@ -1,16 +1,29 @@
 package com.dkv.dkvstorage.agent;
+import com.dkv.dkvcommon.trace.InMemorySpanCollector;
 import com.dkv.dkvstorage.rocksdb.DataNode;
+import com.dkv.dkvstorage.metrics.PrometheusWriter;
+import com.dkv.dkvstorage.metrics.SlowOpLog;
+import com.dkv.dkvstorage.rocksdb.DataNodeOptions;
+import com.dkv.dkvstorage.rocksdb.NamespaceOptions;
+import com.dkv.dkvstorage.rocksdb.StorageEngineType;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.type.TypeReference;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import com.dkv.dkvstorage.transport.NettyTransport;
 import io.netty.bootstrap.ServerBootstrap;
 import io.netty.channel.*;
-import io.netty.channel.nio.NioEventLoopGroup;
 import io.netty.channel.socket.SocketChannel;
-import io.netty.channel.socket.nio.NioServerSocketChannel;
+import io.netty.handler.codec.LineBasedFrameDecoder;
 import io.netty.handler.codec.string.StringDecoder;
 import io.netty.handler.codec.string.StringEncoder;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
 import java.nio.charset.StandardCharsets;
 import java.util.*;
 import java.util.concurrent.*;
@@ -22,6 +35,10 @@ public class DataNodeAgent {
     private static final Logger logger = LoggerFactory.getLogger(DataNodeAgent.class);
     private static final ObjectMapper objectMapper = new ObjectMapper();
     private static final int AGENT_PORT = 8081;
+    // Prometheus 抓取端口，-Ddkv.metrics.port=0 表示不开启
+    private static final int METRICS_PORT = Integer.getInteger("dkv.metrics.port", 9100);
+    // 协议按行分帧：每条请求/响应是一行JSON；上限要容得下 metrics、hotkeys 等较大的响应
+    static final int MAX_LINE_LENGTH = 16 * 1024 * 1024;
 
     private static final Map<String, DataNode> runningNodes = new ConcurrentHashMap<>();
     private static final ExecutorService executor = Executors.newCachedThreadPool();
@@ -29,17 +46,17 @@ public class DataNodeAgent {
     public static void main(String[] args) throws Exception {
         logger.info("Starting DataNode Agent on port {}", AGENT_PORT);
 
-        EventLoopGroup bossGroup = new NioEventLoopGroup(1);
-        EventLoopGroup workerGroup = new NioEventLoopGroup(4);
+        EventLoopGroup bossGroup = NettyTransport.get().newEventLoopGroup(1);
+        EventLoopGroup workerGroup = NettyTransport.get().newEventLoopGroup(4);
 
         try {
             ServerBootstrap b = new ServerBootstrap();
-            b.group(bossGroup, workerGroup)
-                    .channel(NioServerSocketChannel.class)
+            NettyTransport.get().apply(b.group(bossGroup, workerGroup))
                     .childHandler(new ChannelInitializer<SocketChannel>() {
                         @Override
                         protected void initChannel(SocketChannel ch) {
                             ch.pipeline()
+                                    .addLast(new LineBasedFrameDecoder(MAX_LINE_LENGTH))
                                     .addLast(new StringDecoder(StandardCharsets.UTF_8))
                                     .addLast(new StringEncoder(StandardCharsets.UTF_8))
                                     .addLast(new AgentCommandHandler());
@@ -51,8 +68,13 @@ public class DataNodeAgent {
             ChannelFuture f = b.bind(AGENT_PORT).sync();
             logger.info("DataNode Agent started on port {}", AGENT_PORT);
 
+            HttpServer metricsServer = METRICS_PORT > 0 ? startMetricsServer(METRICS_PORT) : null;
+
             // 添加关闭钩子
             Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+                if (metricsServer != null) {
+                    metricsServer.stop(0);
+                }
                 shutdown();
                 bossGroup.shutdownGracefully();
                 workerGroup.shutdownGracefully();
@@ -66,14 +88,69 @@ public class DataNodeAgent {
         }
     }
 
+    /**
+     * 用JDK自带的 HttpServer 暴露 /metrics，覆盖本Agent上运行的所有节点
+     */
+    private static HttpServer startMetricsServer(int port) throws IOException {
+        HttpServer server = HttpServer.create(new InetSocketAddress(port), 0);
+        server.createContext("/metrics", DataNodeAgent::handleMetricsRequest);
+        server.setExecutor(executor);
+        server.start();
+        logger.info("Metrics endpoint started on port {}", port);
+        return server;
+    }
+
+    private static void handleMetricsRequest(HttpExchange exchange) throws IOException {
+        try {
+            if (!"GET".equals(exchange.getRequestMethod())) {
+                exchange.sendResponseHeaders(405, -1);
+                return;
+            }
+            byte[] body = renderMetrics(null).getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().set("Content-Type", PrometheusWriter.CONTENT_TYPE);
+            exchange.sendResponseHeaders(200, body.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(body);
+            }
+        } finally {
+            exchange.close();
+        }
+    }
+
+    /**
+     * nodeId 为null时输出所有运行中的节点
+     */
+    static String renderMetrics(String nodeId) {
+        PrometheusWriter writer = new PrometheusWriter();
+        writer.gauge("dkv_agent_running_nodes", "Data nodes running under this agent", runningNodes.size());
+        for (Map.Entry<String, DataNode> entry : runningNodes.entrySet()) {
+            if (nodeId == null || nodeId.equals(entry.getKey())) {
+                entry.getValue().writeMetrics(writer);
+            }
+        }
+        return writer.toString();
+    }
+
     static class AgentCommandHandler extends SimpleChannelInboundHandler<String> {
         @Override
         protected void channelRead0(ChannelHandlerContext ctx, String jsonRequest) throws Exception {
             logger.debug("Received request: {}", jsonRequest);
+            if (jsonRequest.isBlank()) {
+                return;
+            }
 
-            Map<String, Object> request = objectMapper.readValue(jsonRequest, Map.class);
-            String action = (String) request.get("action");
             Map<String, Object> response = new HashMap<>();
+            Map<String, Object> request;
+            try {
+                request = objectMapper.readValue(jsonRequest, new TypeReference<Map<String, Object>>() { });
+            } catch (JsonProcessingException e) {
+                // 坏请求只回错误，不断开连接
+                response.put("error", "Invalid request: " + e.getOriginalMessage());
+                response.put("success", false);
+                ctx.writeAndFlush(objectMapper.writeValueAsString(response) + "\n");
+                return;
+            }
+            String action = (String) request.get("action");
 
             try {
                 switch (action) {
@@ -89,6 +166,21 @@ public class DataNodeAgent {
                     case "health":
                         response = handleHealth();
                         break;
+                    case "stats":
+                        response = handleStats(request);
+                        break;
+                    case "metrics":
+                        response = handleMetrics(request);
+                        break;
+                    case "slowops":
+                        response = handleSlowOps(request);
+                        break;
+                    case "hotkeys":
+                        response = handleHotKeys(request);
+                        break;
+                    case "traces":
+                        response = handleTraces(request);
+                        break;
                     default:
                         response.put("error", "Unknown action: " + action);
                         response.put("success", false);
@@ -111,6 +203,47 @@ public class DataNodeAgent {
             int port = ((Number) request.get("port")).intValue();
             boolean isPrimary = (boolean) request.get("isPrimary");
             String replicasStr = (String) request.get("replicas");
+            // 可选：engine=OFF_HEAP 启动缓存层节点，memoryCapacityBytes 为其内存上限
+            DataNodeOptions options = new DataNodeOptions();
+            String engine = (String) request.get("engine");
+            if (engine != null) {
+                try {
+                    options.setEngineType(StorageEngineType.valueOf(engine.toUpperCase()));
+                } catch (IllegalArgumentException e) {
+                    return Map.of(
+                            "success", false,
+                            "error", "Unknown storage engine: " + engine
+                    );
+                }
+            }
+            // 可选：namespaces 为命名空间配置列表，叠加在默认的 default/counters 之上
+            if (request.get("namespaces") != null) {
+                try {
+                    List<NamespaceOptions> namespaces = new ArrayList<>();
+                    for (Object config : (List<?>) request.get("namespaces")) {
+                        namespaces.add(NamespaceOptions.fromConfig(namespaceConfig(config)));
+                    }
+                    options.setNamespaces(NamespaceOptions.withDefaults(namespaces));
+                } catch (IllegalArgumentException | ClassCastException e) {
+                    return Map.of(
+                            "success", false,
+                            "error", "Invalid namespaces: " + e.getMessage()
+                    );
+                }
+            }
+            if (request.get("memoryCapacityBytes") != null) {
+                options.setMemoryCapacityBytes(((Number) request.get("memoryCapacityBytes")).longValue());
+            }
+            // 可选：zkAddress 让节点注册到 ZooKeeper 并上报负载，host 为注册的地址，weight 为路由权重
+            if (request.get("zkAddress") != null) {
+                options.setZkAddress((String) request.get("zkAddress"));
+            }
+            if (request.get("host") != null) {
+                options.setAdvertisedHost((String) request.get("host"));
+            }
+            if (request.get("weight") != null) {
+                options.setRoutingWeight(((Number) request.get("weight")).intValue());
+            }
 
             if (runningNodes.containsKey(nodeId)) {
                 return Map.of(
@@ -138,7 +271,8 @@ public class DataNodeAgent {
                             port,
                             isPrimary,
                             replicaNodes,
-                            replicationFactor
+                            replicationFactor,
+                            options
                     );
 
                     node.start();
@@ -236,6 +370,165 @@ public class DataNodeAgent {
             }
         }
 
+        /**
+         * 存储引擎的详细统计（RocksDB 为 Statistics、按层的SST大小、待compaction字节数和写停顿），
+         * 不指定 nodeId 时返回所有节点
+         */
+        private Map<String, Object> handleStats(Map<String, Object> request) {
+            String nodeId = (String) request.get("nodeId");
+
+            if (nodeId == null) {
+                Map<String, Object> nodesStats = new LinkedHashMap<>();
+                for (Map.Entry<String, DataNode> entry : runningNodes.entrySet()) {
+                    nodesStats.put(entry.getKey(), entry.getValue().getStats());
+                }
+                return Map.of(
+                        "success", true,
+                        "count", nodesStats.size(),
+                        "nodes", nodesStats
+                );
+            }
+
+            DataNode node = runningNodes.get(nodeId);
+            if (node == null) {
+                return Map.of(
+                        "success", false,
+                        "error", "Node " + nodeId + " not found"
+                );
+            }
+            return Map.of(
+                    "success", true,
+                    "nodeId", nodeId,
+                    "stats", node.getStats()
+            );
+        }
+
+        private Map<String, Object> handleMetrics(Map<String, Object> request) {
+            String nodeId = (String) request.get("nodeId");
+            if (nodeId != null && !runningNodes.containsKey(nodeId)) {
+                return Map.of(
+                        "success", false,
+                        "error", "Node " + nodeId + " not found"
+                );
+            }
+            return Map.of(
+                    "success", true,
+                    "format", "prometheus",
+                    "metrics", renderMetrics(nodeId)
+            );
+        }
+
+        /**
+         * 最近的慢操作，limit 默认 50；reset=true 时返回后清空
+         */
+        private Map<String, Object> handleSlowOps(Map<String, Object> request) {
+            String nodeId = (String) request.get("nodeId");
+            DataNode node = nodeId == null ? null : runningNodes.get(nodeId);
+            if (node == null) {
+                return Map.of(
+                        "success", false,
+                        "error", "Node " + nodeId + " not found"
+                );
+            }
+            SlowOpLog slowOps = node.getRequestMetrics().getSlowOps();
+            Map<String, Object> response = new LinkedHashMap<>();
+            response.put("success", true);
+            response.put("nodeId", nodeId);
+            response.put("thresholdMillis", slowOps.getThresholdMillis());
+            response.put("total", slowOps.getSlowOpCount());
+            response.put("slowOps", node.getSlowOps(limitOf(request)));
+            if (Boolean.TRUE.equals(request.get("reset"))) {
+                slowOps.clear();
+            }
+            return response;
+        }
+
+        /**
+         * 热点key，limit 默认 50；reset=true 时返回后清空重新统计
+         */
+        private Map<String, Object> handleHotKeys(Map<String, Object> request) {
+            String nodeId = (String) request.get("nodeId");
+            DataNode node = nodeId == null ? null : runningNodes.get(nodeId);
+            if (node == null) {
+                return Map.of(
+                        "success", false,
+                        "error", "Node " + nodeId + " not found"
+                );
+            }
+            Map<String, Object> hotKeys = node.getHotKeys(limitOf(request));
+            if (Boolean.TRUE.equals(request.get("reset"))) {
+                node.getRequestMetrics().getHotKeys().clear();
+            }
+            return Map.of(
+                    "success", true,
+                    "nodeId", nodeId,
+                    "hotKeys", hotKeys
+            );
+        }
+
+        /**
+         * 内存中的追踪 span：带 traceId（16进制）时返回整条链路，否则返回最近的 span，limit 默认 50；
+         * reset=true 时返回后清空
+         */
+        private Map<String, Object> handleTraces(Map<String, Object> request) {
+            String nodeId = (String) request.get("nodeId");
+            DataNode node = nodeId == null ? null : runningNodes.get(nodeId);
+            if (node == null) {
+                return Map.of(
+                        "success", false,
+                        "error", "Node " + nodeId + " not found"
+                );
+            }
+            long traceId = 0;
+            Object traceIdValue = request.get("traceId");
+            if (traceIdValue != null) {
+                try {
+                    traceId = Long.parseUnsignedLong(String.valueOf(traceIdValue), 16);
+                } catch (NumberFormatException e) {
+                    return Map.of(
+                            "success", false,
+                            "error", "Invalid traceId: " + traceIdValue
+                    );
+                }
+            }
+            List<Map<String, Object>> spans = node.getTraces(traceId, limitOf(request));
+            if (spans == null) {
+                return Map.of(
+                        "success", false,
+                        "error", "Node " + nodeId + " exports spans to a trace file"
+                );
+            }
+            if (Boolean.TRUE.equals(request.get("reset"))
+                    && node.getTracer().getExporter() instanceof InMemorySpanCollector) {
+                ((InMemorySpanCollector) node.getTracer().getExporter()).clear();
+            }
+            return Map.of(
+                    "success", true,
+                    "nodeId", nodeId,
+                    "sampleRate", node.getTracer().getSampleRate(),
+                    "spans", spans
+            );
+        }
+
+        /**
+         * JSON 里的一项命名空间配置，复制成键为字符串的Map，不是对象时按配置错误处理
+         */
+        private static Map<String, Object> namespaceConfig(Object config) {
+            if (!(config instanceof Map<?, ?>)) {
+                throw new IllegalArgumentException("Namespace config must be an object: " + config);
+            }
+            Map<String, Object> typed = new LinkedHashMap<>();
+            for (Map.Entry<?, ?> entry : ((Map<?, ?>) config).entrySet()) {
+                typed.put(String.valueOf(entry.getKey()), entry.getValue());
+            }
+            return typed;
+        }
+
+        private static int limitOf(Map<String, Object> request) {
+            Object limit = request.get("limit");
+            return limit instanceof Number ? Math.max(1, ((Number) limit).intValue()) : 50;
+        }
+
         private Map<String, Object> handleHealth() {
             return Map.of(
                     "status", "healthy",
@@ -1,11 +1,11 @@
 package com.dkv.dkvstorage.agent;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.dkv.dkvstorage.transport.NettyTransport;
 import io.netty.bootstrap.Bootstrap;
 import io.netty.channel.*;
-import io.netty.channel.nio.NioEventLoopGroup;
 import io.netty.channel.socket.SocketChannel;
-import io.netty.channel.socket.nio.NioSocketChannel;
+import io.netty.handler.codec.LineBasedFrameDecoder;
 import io.netty.handler.codec.string.StringDecoder;
 import io.netty.handler.codec.string.StringEncoder;
 import io.netty.handler.timeout.ReadTimeoutHandler;
@@ -46,7 +46,7 @@ public class NettyAgentClient {
     /**
      * 连接到Agent服务器
      */
-    public void connect() throws Exception {
+    public synchronized void connect() throws Exception {
         if (channel != null && channel.isActive()) {
             logger.debug("Already connected to {}:{}", host, port);
             return;
@@ -54,12 +54,11 @@ public class NettyAgentClient {
 
         logger.info("Connecting to Agent at {}:{}", host, port);
 
-        group = new NioEventLoopGroup(1);
+        group = NettyTransport.get().newEventLoopGroup(1);
 
         try {
             bootstrap = new Bootstrap();
-            bootstrap.group(group)
-                    .channel(NioSocketChannel.class)
+            NettyTransport.get().apply(bootstrap.group(group))
                     .option(ChannelOption.CONNECT_TIMEOUT_MILLIS, connectTimeout)
                     .option(ChannelOption.TCP_NODELAY, true)
                     .option(ChannelOption.SO_KEEPALIVE, true)
@@ -72,7 +71,8 @@ public class NettyAgentClient {
                             pipeline.addLast(new ReadTimeoutHandler(requestTimeout / 1000));
                             pipeline.addLast(new WriteTimeoutHandler(requestTimeout / 1000));
 
-                            // 字符串编解码器
+                            // 按行分帧的字符串编解码器：一行一条JSON响应
+                            pipeline.addLast(new LineBasedFrameDecoder(DataNodeAgent.MAX_LINE_LENGTH));
                             pipeline.addLast(new StringDecoder(StandardCharsets.UTF_8));
                             pipeline.addLast(new StringEncoder(StandardCharsets.UTF_8));
 
@@ -98,10 +98,12 @@ public class NettyAgentClient {
     /**
      * 发送请求到Agent
      */
-    public Map<String, Object> sendRequest(Map<String, Object> request) throws Exception {
+    public synchronized Map<String, Object> sendRequest(Map<String, Object> request) throws Exception {
         if (channel == null || !channel.isActive()) {
             connect();
         }
+        // 上一个请求超时后迟到的响应不能被当成这次的
+        responseHandler.clear();
 
         try {
             // 将请求转换为JSON字符串
@@ -140,7 +142,7 @@ public class NettyAgentClient {
     /**
      * 断开连接
      */
-    public void disconnect() {
+    public synchronized void disconnect() {
         logger.info("Disconnecting from Agent at {}:{}", host, port);
 
         if (channel != null) {
@@ -165,7 +167,9 @@ public class NettyAgentClient {
 
     /**
      * 响应处理器
+     * 同一个实例会在重连后加入新连接的 pipeline，所以是 @Sharable
      */
+    @ChannelHandler.Sharable
     private static class ResponseHandler extends SimpleChannelInboundHandler<String> {
         private final BlockingQueue<String> responseQueue = new LinkedBlockingQueue<>();
 
@@ -179,6 +183,10 @@ public class NettyAgentClient {
             return responseQueue.poll(timeout, unit);
         }
 
+        void clear() {
+            responseQueue.clear();
+        }
+
         @Override
         public void exceptionCaught(ChannelHandlerContext ctx, Throwable cause) {
             logger.error("Error in ResponseHandler", cause);
@@ -0,0 +1,492 @@
+package com.dkv.dkvstorage.bitcask;
+
+import com.dkv.dkvcommon.model.KvMessage;
+import com.dkv.dkvstorage.rocksdb.NamespaceOptions;
+import com.dkv.dkvstorage.rocksdb.NamespacePrefixes;
+import com.dkv.dkvstorage.rocksdb.StorageEngine;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.stream.Stream;
+
+/**
+ * Bitcask 风格的存储引擎：所有写入（含删除墓碑）追加到内存映射的段文件，
+ * 内存中的 keydir 记录每个key最新记录的位置，读取只需一次查表加一次映射内拷贝
+ * 适合写多、keyspace不大的场景：没有 compaction 的写放大，代价是keydir常驻内存
+ * <p>
+ * 段写满后在写锁内只切换到新段，封存（刷盘、截断、写hint）交给后台线程，不阻塞写入；
+ * 重启时用hint重建keydir，不必读取value
+ * 后台定期合并失效数据占比高的封存段：仍有效的记录搬到活跃段，搬到的段刷盘后再删除旧段
+ * 封存和合并都在后台线程上、以引擎为锁互斥执行；关闭时等它们结束后才解除映射
+ */
+public class BitcaskEngine implements StorageEngine {
+    private static final Logger logger = LoggerFactory.getLogger(BitcaskEngine.class);
+
+    public static final int DEFAULT_SEGMENT_BYTES = 64 * 1024 * 1024;
+    // 封存段里有效数据低于该比例时合并
+    private static final double MERGE_LIVE_RATIO = 0.5;
+    private static final long MERGE_INTERVAL_SECONDS = 30;
+    // 映射的写入由操作系统异步落盘，这里定期强制刷一次，限制掉电时丢失的窗口
+    private static final long FLUSH_INTERVAL_MILLIS = 1000;
+
+    private final NamespacePrefixes namespaces;
+    private final int segmentBytes;
+    // 写入、合并搬运、段切换持写锁；读取持读锁，保证读到一半的段不会被删除
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private final TreeMap<Integer, LogSegment> segments = new TreeMap<>();
+    private final AtomicLong mergedSegments = new AtomicLong();
+    private Path dir;
+    private LogSegment active;
+    private KeyDir keyDir;
+    private ScheduledExecutorService background;
+    private volatile boolean closing;
+
+    public BitcaskEngine() {
+        this(NamespaceOptions.defaults(), DEFAULT_SEGMENT_BYTES);
+    }
+
+    public BitcaskEngine(List<NamespaceOptions> namespaces, int segmentBytes) {
+        this.namespaces = new NamespacePrefixes(namespaces);
+        this.segmentBytes = segmentBytes;
+    }
+
+    @Override
+    public void init(String dbPath) throws Exception {
+        dir = Paths.get(dbPath);
+        Files.createDirectories(dir);
+        keyDir = new KeyDir((segmentId, offset, key) -> segments.get(segmentId).keyEquals(offset, key));
+
+        // 按段号从旧到新重放，后写的记录覆盖先写的
+        List<Integer> ids = listSegmentIds();
+        for (int i = 0; i < ids.size() - 1; i++) {
+            int id = ids.get(i);
+            LogSegment segment = LogSegment.openSealed(dir, id);
+            // 先登记段再建索引，keydir比较key时要从段里读
+            segments.put(id, segment);
+            segment.replay((type, key, offset, valueLength) -> index(segment, type, key, offset, valueLength));
+        }
+        int activeId = ids.isEmpty() ? 0 : ids.get(ids.size() - 1);
+        active = LogSegment.openActive(dir, activeId, segmentBytes);
+        segments.put(activeId, active);
+        active.forEachRecord((type, key, offset, valueLength) -> index(active, type, key, offset, valueLength));
+
+        background = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "bitcask-" + dir.getFileName());
+            thread.setDaemon(true);
+            return thread;
+        });
+        background.scheduleWithFixedDelay(this::flush, FLUSH_INTERVAL_MILLIS, FLUSH_INTERVAL_MILLIS, TimeUnit.MILLISECONDS);
+        background.scheduleWithFixedDelay(this::mergeQuietly, MERGE_INTERVAL_SECONDS, MERGE_INTERVAL_SECONDS, TimeUnit.SECONDS);
+
+        logger.info("Bitcask engine opened at {}: {} segments, {} keys, namespaces={}",
+                dir, segments.size(), keyDir.size(), namespaces.names());
+    }
+
+    @Override
+    public void put(String namespace, byte[] key, byte[] value) throws Exception {
+        if (key == null || value == null) {
+            throw new IllegalArgumentException("Key and value cannot be null");
+        }
+        byte[] keyBytes = namespaces.keyOf(namespace, key);
+        lock.writeLock().lock();
+        try {
+            appendRecord(LogSegment.TYPE_PUT, keyBytes, value);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public byte[] get(String namespace, byte[] key) {
+        if (key == null) {
+            throw new IllegalArgumentException("Key cannot be null");
+        }
+        byte[] keyBytes = namespaces.keyOf(namespace, key);
+        lock.readLock().lock();
+        try {
+            return read(keyBytes);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public int get(String namespace, byte[] key, ByteBuffer target) {
+        if (key == null) {
+            throw new IllegalArgumentException("Key cannot be null");
+        }
+        byte[] keyBytes = namespaces.keyOf(namespace, key);
+        lock.readLock().lock();
+        try {
+            int slot = keyDir.find(keyBytes, KeyDir.hash(keyBytes));
+            if (slot < 0) {
+                return -1;
+            }
+            return segments.get(keyDir.segmentAt(slot)).readValue(keyDir.offsetAt(slot), target);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public void delete(String namespace, byte[] key) throws Exception {
+        if (key == null) {
+            throw new IllegalArgumentException("Key cannot be null");
+        }
+        byte[] keyBytes = namespaces.keyOf(namespace, key);
+        lock.writeLock().lock();
+        try {
+            // key不存在时不必写墓碑
+            if (keyDir.find(keyBytes, KeyDir.hash(keyBytes)) >= 0) {
+                appendRecord(LogSegment.TYPE_TOMBSTONE, keyBytes, null);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public void merge(String namespace, byte[] key, byte[] operand) throws Exception {
+        if (key == null || operand == null) {
+            throw new IllegalArgumentException("Key and operand cannot be null");
+        }
+        namespaces.checkOperand(namespace, operand);
+        KvMessage.MergeOperator operator = namespaces.mergeOperatorOf(namespace);
+        byte[] keyBytes = namespaces.keyOf(namespace, key);
+        // 没有合并算子的日志格式，读-改-写后追加完整的新值
+        lock.writeLock().lock();
+        try {
+            appendRecord(LogSegment.TYPE_PUT, keyBytes, NamespacePrefixes.merge(operator, read(keyBytes), operand));
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * 合并失效数据占比高的封存段，由后台线程定期调用，同一时间只有一个合并在进行
+     * 已冻结但后台还没来得及封存的段先在这里封存
+     */
+    public synchronized void mergeSegments() throws IOException {
+        List<LogSegment> frozen = new ArrayList<>();
+        lock.readLock().lock();
+        try {
+            for (LogSegment segment : segments.values()) {
+                if (segment.isSealed() && !segment.hasHint()) {
+                    frozen.add(segment);
+                }
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        for (LogSegment segment : frozen) {
+            sealQuietly(segment);
+        }
+
+        List<LogSegment> candidates = new ArrayList<>();
+        lock.readLock().lock();
+        try {
+            for (LogSegment segment : segments.values()) {
+                if (segment.hasHint() && segment.liveBytes < segment.getWritePosition() * MERGE_LIVE_RATIO) {
+                    candidates.add(segment);
+                }
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        for (LogSegment segment : candidates) {
+            if (closing || !mergeSegment(segment)) {
+                return;
+            }
+        }
+    }
+
+    /**
+     * 关闭：进行中的合并在下一条记录处放弃（旧段保留，重启时新段的记录覆盖它），
+     * 等后台线程做完已提交的封存并退出后，才刷盘并解除映射
+     */
+    @Override
+    public void close() {
+        closing = true;
+        if (background != null) {
+            background.shutdown();
+            try {
+                while (!background.awaitTermination(5, TimeUnit.SECONDS)) {
+                    logger.warn("Waiting for bitcask background work to finish before closing {}", dir);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        // 后台线程之外调用的合并也要等它结束
+        synchronized (this) {
+            closeSegments();
+        }
+    }
+
+    private void closeSegments() {
+        lock.writeLock().lock();
+        try {
+            if (active != null) {
+                active.force();
+            }
+            for (LogSegment segment : segments.values()) {
+                segment.close();
+            }
+            segments.clear();
+            if (keyDir != null) {
+                keyDir.close();
+            }
+            logger.info("Bitcask engine closed");
+        } catch (IOException e) {
+            logger.error("Error closing bitcask segments", e);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public int getSegmentCount() {
+        lock.readLock().lock();
+        try {
+            return segments.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public long getKeyCount() {
+        lock.readLock().lock();
+        try {
+            return keyDir.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public KvMessage.MergeOperator getMergeOperator(String namespace) {
+        return namespaces.contains(namespace) ? namespaces.mergeOperatorOf(namespace) : null;
+    }
+
+    @Override
+    public long estimateKeyCount() {
+        return getKeyCount();
+    }
+
+    /**
+     * 各段已写入的字节数之和，包含尚未被合并掉的旧记录
+     */
+    @Override
+    public long estimateDataBytes() {
+        lock.readLock().lock();
+        try {
+            long bytes = 0;
+            for (LogSegment segment : segments.values()) {
+                bytes += segment.getWritePosition();
+            }
+            return bytes;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public long getMergedSegments() {
+        return mergedSegments.get();
+    }
+
+    @Override
+    public Collection<String> getNamespaces() {
+        return new ArrayList<>(namespaces.names());
+    }
+
+    @Override
+    public Map<String, Number> getMetrics() {
+        Map<String, Number> metrics = new LinkedHashMap<>();
+        metrics.put("keys", getKeyCount());
+        metrics.put("segments", getSegmentCount());
+        metrics.put("merged_segments_total", getMergedSegments());
+        return metrics;
+    }
+
+    private byte[] read(byte[] keyBytes) {
+        int slot = keyDir.find(keyBytes, KeyDir.hash(keyBytes));
+        if (slot < 0) {
+            return null;
+        }
+        return segments.get(keyDir.segmentAt(slot)).readValue(keyDir.offsetAt(slot));
+    }
+
+    private void appendRecord(byte type, byte[] key, byte[] value) throws IOException {
+        int valueLength = value == null ? 0 : value.length;
+        ensureRoom(LogSegment.recordSize(key.length, valueLength));
+        int offset = active.append(type, key, value);
+        index(active, type, key, offset, valueLength);
+    }
+
+    private void ensureRoom(int recordSize) throws IOException {
+        if (recordSize > segmentBytes) {
+            throw new IllegalArgumentException("Record too large for bitcask segment: " + recordSize + " bytes");
+        }
+        if (!active.hasRoom(recordSize)) {
+            LogSegment full = active;
+            full.freeze();
+            int nextId = full.getId() + 1;
+            active = LogSegment.openActive(dir, nextId, segmentBytes);
+            segments.put(nextId, active);
+            try {
+                background.execute(() -> sealQuietly(full));
+            } catch (RejectedExecutionException e) {
+                // 正在关闭，后台线程不再接任务
+                full.seal();
+            }
+        }
+    }
+
+    private synchronized void sealQuietly(LogSegment segment) {
+        try {
+            segment.seal();
+        } catch (IOException e) {
+            // 没有hint的段不会被合并，重启时扫描数据重建
+            logger.error("Failed to seal bitcask segment {}", segment.getId(), e);
+        }
+    }
+
+    /**
+     * 把一条记录应用到keydir，并维护各段的有效字节数
+     */
+    private void index(LogSegment segment, byte type, byte[] key, int offset, int valueLength) {
+        int hash = KeyDir.hash(key);
+        int slot = keyDir.find(key, hash);
+        if (slot >= 0) {
+            segments.get(keyDir.segmentAt(slot)).liveBytes -= LogSegment.recordSize(key.length, keyDir.valueLengthAt(slot));
+        }
+        if (type == LogSegment.TYPE_PUT) {
+            if (slot >= 0) {
+                keyDir.set(slot, segment.getId(), offset, valueLength);
+            } else {
+                keyDir.insert(hash, segment.getId(), offset, valueLength);
+            }
+            segment.liveBytes += LogSegment.recordSize(key.length, valueLength);
+        } else if (slot >= 0) {
+            keyDir.remove(slot);
+        }
+    }
+
+    /**
+     * 搬运一个封存段里仍有效的记录，返回 false 表示引擎正在关闭、放弃了这次合并
+     */
+    private boolean mergeSegment(LogSegment segment) throws IOException {
+        Set<LogSegment> destinations = new LinkedHashSet<>();
+        boolean hasOlder;
+        lock.readLock().lock();
+        try {
+            hasOlder = segments.firstKey() < segment.getId();
+        } finally {
+            lock.readLock().unlock();
+        }
+
+        // 封存段只读，遍历不需要锁；每条记录搬运时短暂持写锁，不长时间阻塞写入
+        try {
+            segment.forEachRecord((type, key, offset, valueLength) -> {
+                if (closing) {
+                    throw new InterruptedIOException("Bitcask engine is closing");
+                }
+                int size = LogSegment.recordSize(key.length, valueLength);
+                lock.writeLock().lock();
+                try {
+                    int slot = keyDir.find(key, KeyDir.hash(key));
+                    if (type == LogSegment.TYPE_PUT) {
+                        if (slot >= 0 && keyDir.segmentAt(slot) == segment.getId() && keyDir.offsetAt(slot) == offset) {
+                            ensureRoom(size);
+                            int newOffset = active.appendCopy(segment, offset, size);
+                            keyDir.set(slot, active.getId(), newOffset, valueLength);
+                            active.liveBytes += size;
+                            destinations.add(active);
+                        }
+                    } else if (slot < 0 && hasOlder) {
+                        // 更早的段里可能还有这个key的旧值，墓碑要保留到那些段也被合并；
+                        // 保留的墓碑算作有效数据，否则全是墓碑的段每一轮都会被重新合并
+                        ensureRoom(size);
+                        active.appendCopy(segment, offset, size);
+                        active.liveBytes += size;
+                        destinations.add(active);
+                    }
+                } finally {
+                    lock.writeLock().unlock();
+                }
+            });
+        } catch (InterruptedIOException e) {
+            logger.info("Merge of bitcask segment {} abandoned, engine is closing", segment.getId());
+            return false;
+        }
+
+        // 搬过去的记录落盘之后才能删除旧段，否则掉电会同时丢掉两份
+        lock.readLock().lock();
+        try {
+            for (LogSegment destination : destinations) {
+                destination.force();
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+
+        lock.writeLock().lock();
+        try {
+            segments.remove(segment.getId());
+        } finally {
+            lock.writeLock().unlock();
+        }
+        segment.delete();
+        mergedSegments.incrementAndGet();
+        logger.info("Merged bitcask segment {} ({} bytes)", segment.getId(), segment.getWritePosition());
+        return true;
+    }
+
+    private void flush() {
+        lock.readLock().lock();
+        try {
+            active.force();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private void mergeQuietly() {
+        try {
+            mergeSegments();
+        } catch (Exception e) {
+            logger.error("Bitcask merge failed", e);
+        }
+    }
+
+    private List<Integer> listSegmentIds() throws IOException {
+        List<Integer> ids = new ArrayList<>();
+        try (Stream<Path> files = Files.list(dir)) {
+            files.map(path -> path.getFileName().toString())
+                    .filter(name -> name.endsWith(LogSegment.DATA_SUFFIX))
+                    .forEach(name -> ids.add(Integer.parseInt(
+                            name.substring(0, name.length() - LogSegment.DATA_SUFFIX.length()))));
+        }
+        ids.sort(null);
+        return ids;
+    }
+}
@@ -0,0 +1,150 @@
+package com.dkv.dkvstorage.bitcask;
+
+import com.dkv.dkvcommon.utils.HashUtil;
+import io.netty.util.internal.PlatformDependent;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Bitcask 的内存索引（keydir）：key -> (段号, 记录偏移, value长度)
+ * 堆外的开放寻址表，槽里只存hash和位置，不存key本身；比较key时回到段文件的映射里读，
+ * 每个key固定占16字节索引，不产生Java对象
+ * 不做同步，由 BitcaskEngine 的读写锁保护
+ */
+final class KeyDir {
+
+    /**
+     * 判断段内某条记录的key是否等于给定key
+     */
+    interface KeyMatcher {
+        boolean matches(int segmentId, int offset, byte[] key);
+    }
+
+    // 槽：hash(int) 段号+1(int，0表示空槽) 偏移(int) value长度(int)
+    private static final int SLOT_SIZE = 16;
+    private static final int INITIAL_SLOTS = 4096;
+    private static final float MAX_LOAD = 0.75f;
+
+    private final KeyMatcher matcher;
+    private ByteBuffer slots;
+    private int slotMask;
+    private int size;
+
+    KeyDir(KeyMatcher matcher) {
+        this.matcher = matcher;
+        this.slots = ByteBuffer.allocateDirect(INITIAL_SLOTS * SLOT_SIZE);
+        this.slotMask = INITIAL_SLOTS - 1;
+    }
+
+    static int hash(byte[] key) {
+        return HashUtil.murmur3(key, 0, key.length);
+    }
+
+    /**
+     * 返回key所在的槽，不存在返回 -1
+     */
+    int find(byte[] key, int hash) {
+        int i = hash & slotMask;
+        while (true) {
+            int segmentRef = slots.getInt(i * SLOT_SIZE + 4);
+            if (segmentRef == 0) {
+                return -1;
+            }
+            if (slots.getInt(i * SLOT_SIZE) == hash
+                    && matcher.matches(segmentRef - 1, slots.getInt(i * SLOT_SIZE + 8), key)) {
+                return i;
+            }
+            i = (i + 1) & slotMask;
+        }
+    }
+
+    int segmentAt(int slot) {
+        return slots.getInt(slot * SLOT_SIZE + 4) - 1;
+    }
+
+    int offsetAt(int slot) {
+        return slots.getInt(slot * SLOT_SIZE + 8);
+    }
+
+    int valueLengthAt(int slot) {
+        return slots.getInt(slot * SLOT_SIZE + 12);
+    }
+
+    void set(int slot, int segmentId, int offset, int valueLength) {
+        slots.putInt(slot * SLOT_SIZE + 4, segmentId + 1);
+        slots.putInt(slot * SLOT_SIZE + 8, offset);
+        slots.putInt(slot * SLOT_SIZE + 12, valueLength);
+    }
+
+    void insert(int hash, int segmentId, int offset, int valueLength) {
+        if (size + 1 > (slotMask + 1) * MAX_LOAD) {
+            resize();
+        }
+        int i = hash & slotMask;
+        while (slots.getInt(i * SLOT_SIZE + 4) != 0) {
+            i = (i + 1) & slotMask;
+        }
+        slots.putInt(i * SLOT_SIZE, hash);
+        set(i, segmentId, offset, valueLength);
+        size++;
+    }
+
+    /**
+     * 线性探测的删除：把后面探测链上的槽往前挪，不留墓碑
+     */
+    void remove(int i) {
+        int j = i;
+        while (true) {
+            j = (j + 1) & slotMask;
+            if (slots.getInt(j * SLOT_SIZE + 4) == 0) {
+                break;
+            }
+            int home = slots.getInt(j * SLOT_SIZE) & slotMask;
+            // j 的起始位置不在 (i, j] 之间时才能挪到 i，否则探测会断开
+            boolean movable = i <= j ? (home <= i || home > j) : (home <= i && home > j);
+            if (movable) {
+                copySlot(slots, j, slots, i);
+                i = j;
+            }
+        }
+        for (int k = 0; k < SLOT_SIZE; k += 4) {
+            slots.putInt(i * SLOT_SIZE + k, 0);
+        }
+        size--;
+    }
+
+    int size() {
+        return size;
+    }
+
+    void close() {
+        if (slots != null) {
+            PlatformDependent.freeDirectBuffer(slots);
+            slots = null;
+        }
+    }
+
+    private void resize() {
+        ByteBuffer old = slots;
+        int oldCount = slotMask + 1;
+        int newCount = oldCount << 1;
+        slots = ByteBuffer.allocateDirect(newCount * SLOT_SIZE);
+        slotMask = newCount - 1;
+        for (int i = 0; i < oldCount; i++) {
+            if (old.getInt(i * SLOT_SIZE + 4) != 0) {
+                int j = old.getInt(i * SLOT_SIZE) & slotMask;
+                while (slots.getInt(j * SLOT_SIZE + 4) != 0) {
+                    j = (j + 1) & slotMask;
+                }
+                copySlot(old, i, slots, j);
+            }
+        }
+        PlatformDependent.freeDirectBuffer(old);
+    }
+
+    private static void copySlot(ByteBuffer from, int fromSlot, ByteBuffer to, int toSlot) {
+        for (int k = 0; k < SLOT_SIZE; k += 4) {
+            to.putInt(toSlot * SLOT_SIZE + k, from.getInt(fromSlot * SLOT_SIZE + k));
+        }
+    }
+}
@@ -0,0 +1,314 @@
+package com.dkv.dkvstorage.bitcask;
+
+import io.netty.util.internal.PlatformDependent;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.zip.CRC32C;
+
+/**
+ * 一个只追加的段文件，整个文件映射到内存，读写都直接操作映射
+ * 记录：crc(int) 类型(byte) key长度(int) value长度(int) key value，crc覆盖crc之后的全部字节
+ * 段写满后先冻结（不再追加），再由后台线程封存（刷盘、截断到实际长度并写hint文件），之后只读
+ */
+final class LogSegment {
+    private static final Logger logger = LoggerFactory.getLogger(LogSegment.class);
+
+    static final byte TYPE_PUT = 1;
+    static final byte TYPE_TOMBSTONE = 2;
+    static final int HEADER_SIZE = 13;
+    private static final int OFF_CRC = 0;
+    private static final int OFF_TYPE = 4;
+    private static final int OFF_KEY_LEN = 5;
+    private static final int OFF_VALUE_LEN = 9;
+
+    static final String DATA_SUFFIX = ".data";
+    private static final String HINT_SUFFIX = ".hint";
+    private static final byte[] EMPTY = new byte[0];
+
+    /**
+     * 遍历记录（段文件或hint文件）的回调
+     */
+    interface RecordVisitor {
+        void visit(byte type, byte[] key, int offset, int valueLength) throws IOException;
+    }
+
+    private final int id;
+    private final Path dataPath;
+    private final Path hintPath;
+    private final FileChannel channel;
+    private MappedByteBuffer mapping;
+    private int writePosition;
+    private boolean sealed;
+    private volatile boolean hintWritten;  // 已封存落盘并写好hint，之后才能被合并
+    long liveBytes;  // 仍被keydir引用的记录字节数，由 BitcaskEngine 在锁内维护
+
+    private LogSegment(int id, Path dir, FileChannel channel, MappedByteBuffer mapping) {
+        this.id = id;
+        this.dataPath = dataPath(dir, id);
+        this.hintPath = dir.resolve(id + HINT_SUFFIX);
+        this.channel = channel;
+        this.mapping = mapping;
+    }
+
+    static Path dataPath(Path dir, int id) {
+        return dir.resolve(id + DATA_SUFFIX);
+    }
+
+    static int recordSize(int keyLength, int valueLength) {
+        return HEADER_SIZE + keyLength + valueLength;
+    }
+
+    /**
+     * 打开可写的段，已有数据时扫描到最后一条完整记录之后继续追加
+     */
+    static LogSegment openActive(Path dir, int id, int capacity) throws IOException {
+        Files.deleteIfExists(dir.resolve(id + HINT_SUFFIX));  // 继续追加后旧的hint不再完整
+        FileChannel channel = FileChannel.open(dataPath(dir, id),
+                StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        int size = (int) Math.max(capacity, channel.size());
+        LogSegment segment = new LogSegment(id, dir, channel, channel.map(FileChannel.MapMode.READ_WRITE, 0, size));
+        segment.writePosition = segment.scan(size, null);
+        return segment;
+    }
+
+    /**
+     * 打开已封存的段（只读映射），之后调用 replay 重建索引
+     */
+    static LogSegment openSealed(Path dir, int id) throws IOException {
+        FileChannel channel = FileChannel.open(dataPath(dir, id), StandardOpenOption.READ);
+        LogSegment segment = new LogSegment(id, dir, channel,
+                channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+        segment.sealed = true;
+        segment.writePosition = (int) channel.size();
+        return segment;
+    }
+
+    /**
+     * 按写入顺序重放封存段的记录：有hint时读hint，否则扫描数据并补写hint
+     */
+    void replay(RecordVisitor visitor) throws IOException {
+        if (Files.exists(hintPath) && loadHint(visitor)) {
+            return;
+        }
+        // 崩溃在截断之前时文件尾部是未写入的空白，扫描会停在最后一条完整记录
+        writePosition = scan(writePosition, visitor);
+        writeHint();
+    }
+
+    int getId() {
+        return id;
+    }
+
+    int getWritePosition() {
+        return writePosition;
+    }
+
+    boolean isSealed() {
+        return sealed;
+    }
+
+    boolean hasHint() {
+        return hintWritten;
+    }
+
+    boolean hasRoom(int recordSize) {
+        return writePosition + recordSize <= mapping.capacity();
+    }
+
+    int append(byte type, byte[] key, byte[] value) {
+        byte[] data = value == null ? EMPTY : value;
+        int offset = writePosition;
+        int size = recordSize(key.length, data.length);
+        mapping.put(offset + OFF_TYPE, type);
+        mapping.putInt(offset + OFF_KEY_LEN, key.length);
+        mapping.putInt(offset + OFF_VALUE_LEN, data.length);
+        mapping.put(offset + HEADER_SIZE, key);
+        mapping.put(offset + HEADER_SIZE + key.length, data);
+        mapping.putInt(offset + OFF_CRC, checksum(offset, size));
+        writePosition += size;
+        return offset;
+    }
+
+    /**
+     * 合并时原样搬运另一个段里的记录（含crc）
+     */
+    int appendCopy(LogSegment source, int sourceOffset, int size) {
+        int offset = writePosition;
+        mapping.put(offset, source.mapping, sourceOffset, size);
+        writePosition += size;
+        return offset;
+    }
+
+    boolean keyEquals(int offset, byte[] key) {
+        if (mapping.getInt(offset + OFF_KEY_LEN) != key.length) {
+            return false;
+        }
+        int base = offset + HEADER_SIZE;
+        for (int i = 0; i < key.length; i++) {
+            if (mapping.get(base + i) != key[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    byte[] readValue(int offset) {
+        int keyLength = mapping.getInt(offset + OFF_KEY_LEN);
+        byte[] value = new byte[mapping.getInt(offset + OFF_VALUE_LEN)];
+        mapping.get(offset + HEADER_SIZE + keyLength, value);
+        return value;
+    }
+
+    /**
+     * 语义同 StorageEngine#get(String, String, ByteBuffer)：放得下才复制，返回value长度
+     */
+    int readValue(int offset, ByteBuffer target) {
+        int keyLength = mapping.getInt(offset + OFF_KEY_LEN);
+        int valueLength = mapping.getInt(offset + OFF_VALUE_LEN);
+        if (valueLength <= target.remaining()) {
+            target.duplicate().put(mapping.slice(offset + HEADER_SIZE + keyLength, valueLength));
+        }
+        return valueLength;
+    }
+
+    /**
+     * 遍历已写入的记录
+     */
+    void forEachRecord(RecordVisitor visitor) throws IOException {
+        scan(writePosition, visitor);
+    }
+
+    /**
+     * 按写入顺序遍历 [0, limit) 内的记录，返回最后一条完整记录的结束位置
+     * 遇到越界、长度非法或crc不符（崩溃时写了一半）即停止
+     */
+    private int scan(int limit, RecordVisitor visitor) throws IOException {
+        int offset = 0;
+        while (offset + HEADER_SIZE <= limit) {
+            byte type = mapping.get(offset + OFF_TYPE);
+            int keyLength = mapping.getInt(offset + OFF_KEY_LEN);
+            int valueLength = mapping.getInt(offset + OFF_VALUE_LEN);
+            if ((type != TYPE_PUT && type != TYPE_TOMBSTONE) || keyLength <= 0 || valueLength < 0
+                    || (long) offset + HEADER_SIZE + keyLength + valueLength > limit) {
+                break;
+            }
+            int size = recordSize(keyLength, valueLength);
+            if (mapping.getInt(offset + OFF_CRC) != checksum(offset, size)) {
+                logger.warn("Segment {} has a corrupted record at offset {}, ignoring the rest", id, offset);
+                break;
+            }
+            if (visitor != null) {
+                byte[] key = new byte[keyLength];
+                mapping.get(offset + HEADER_SIZE, key);
+                visitor.visit(type, key, offset, valueLength);
+            }
+            offset += size;
+        }
+        return offset;
+    }
+
+    /**
+     * 冻结：之后不再追加，由 seal 完成落盘
+     */
+    void freeze() {
+        sealed = true;
+    }
+
+    /**
+     * 封存：刷盘、截断到实际长度、写hint，之后只读；已封存时什么也不做
+     */
+    void seal() throws IOException {
+        if (hintWritten) {
+            return;
+        }
+        sealed = true;
+        mapping.force();
+        channel.truncate(writePosition);
+        writeHint();
+    }
+
+    /**
+     * 把映射里的写入刷到磁盘；已封存的段早已落盘
+     */
+    void force() {
+        if (!hintWritten) {
+            mapping.force();
+        }
+    }
+
+    void close() throws IOException {
+        if (mapping != null) {
+            PlatformDependent.freeDirectBuffer(mapping);
+            mapping = null;
+        }
+        channel.close();
+    }
+
+    void delete() throws IOException {
+        close();
+        Files.deleteIfExists(hintPath);
+        Files.deleteIfExists(dataPath);
+    }
+
+    /**
+     * hint文件只记录key和位置，启动时不用读value即可重建keydir
+     * 每项：类型(byte) key长度(int) 偏移(int) value长度(int) key
+     */
+    private void writeHint() throws IOException {
+        Path tmp = hintPath.resolveSibling(hintPath.getFileName() + ".tmp");
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(tmp)))) {
+            forEachRecord((type, key, offset, valueLength) -> {
+                out.writeByte(type);
+                out.writeInt(key.length);
+                out.writeInt(offset);
+                out.writeInt(valueLength);
+                out.write(key);
+            });
+        }
+        Files.move(tmp, hintPath, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        hintWritten = true;
+    }
+
+    private boolean loadHint(RecordVisitor visitor) throws IOException {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(hintPath)))) {
+            while (true) {
+                int type;
+                try {
+                    type = in.readByte();
+                } catch (EOFException end) {
+                    hintWritten = true;
+                    return true;
+                }
+                int keyLength = in.readInt();
+                int offset = in.readInt();
+                int valueLength = in.readInt();
+                byte[] key = new byte[keyLength];
+                in.readFully(key);
+                visitor.visit((byte) type, key, offset, valueLength);
+            }
+        } catch (EOFException e) {
+            logger.warn("Hint file of segment {} is truncated, rebuilding from data", id);
+            return false;
+        }
+    }
+
+    private int checksum(int offset, int size) {
+        CRC32C crc = new CRC32C();
+        crc.update(mapping.slice(offset + OFF_TYPE, size - OFF_TYPE));
+        return (int) crc.getValue();
+    }
+}
@@ -0,0 +1,85 @@
+package com.dkv.dkvstorage.codec;
+
+import com.dkv.dkvcommon.model.KvMessage;
+import io.netty.buffer.ByteBuf;
+import io.netty.util.ReferenceCounted;
+
+/**
+ * value 放在（池化的 direct）ByteBuf 里的响应，只在服务端出站方向使用：
+ * RocksDB 直接读进 direct 内存，编码器把这块内存原样交给 socket，全程不产生堆上的 value 副本
+ * 除 value 以外的字段都在 header 里（header 的 value 始终为 null），编码时 value 缓冲区接在帧头后面
+ * 引用计数委托给 value 缓冲区，写失败或连接关闭时由 Netty 负责释放
+ */
+public final class DirectValueMessage implements ReferenceCounted {
+
+    private final KvMessage header;
+    private ByteBuf valueBuffer;
+
+    public DirectValueMessage(KvMessage header, ByteBuf valueBuffer) {
+        if (header.getValue() != null) {
+            throw new IllegalArgumentException("Header of a direct value message cannot carry a heap value");
+        }
+        this.header = header;
+        this.valueBuffer = valueBuffer;
+    }
+
+    public KvMessage getHeader() {
+        return header;
+    }
+
+    public ByteBuf getValueBuffer() {
+        return valueBuffer;
+    }
+
+    /**
+     * 替换 value 缓冲区（如压缩后），旧缓冲区被释放
+     */
+    public void replaceValueBuffer(ByteBuf newBuffer) {
+        ByteBuf old = valueBuffer;
+        valueBuffer = newBuffer;
+        old.release();
+    }
+
+    public int getValueLength() {
+        return valueBuffer.readableBytes();
+    }
+
+    @Override
+    public int refCnt() {
+        return valueBuffer.refCnt();
+    }
+
+    @Override
+    public DirectValueMessage retain() {
+        valueBuffer.retain();
+        return this;
+    }
+
+    @Override
+    public DirectValueMessage retain(int increment) {
+        valueBuffer.retain(increment);
+        return this;
+    }
+
+    @Override
+    public DirectValueMessage touch() {
+        valueBuffer.touch();
+        return this;
+    }
+
+    @Override
+    public DirectValueMessage touch(Object hint) {
+        valueBuffer.touch(hint);
+        return this;
+    }
+
+    @Override
+    public boolean release() {
+        return valueBuffer.release();
+    }
+
+    @Override
+    public boolean release(int decrement) {
+        return valueBuffer.release(decrement);
+    }
+}
@@ -0,0 +1,139 @@
+package com.dkv.dkvstorage.codec;
+
+import com.dkv.dkvcommon.costants.DkvConstants;
+import com.dkv.dkvcommon.model.KvMessage;
+import com.dkv.dkvcommon.utils.CompressionUtil;
+import io.netty.buffer.ByteBuf;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.handler.codec.CorruptedFrameException;
+import io.netty.handler.codec.MessageToMessageCodec;
+import io.netty.util.ReferenceCountUtil;
+
+import java.util.List;
+
+/**
+ * 连接级value压缩，放在对象编解码器和业务处理器之间
+ * 每条出站消息都带上本端能接受的压缩算法（acceptCompression），对端之后按它压缩发回来的消息；
+ * 对端未声明前用本端算法，NONE 表示本端只在对端声明后才压缩
+ * 出站消息可能同时发往多个连接（复制扇出），压缩结果写在副本上，不改动原消息
+ * 解压前检查声明的原始长度不超过帧上限，防止对端用一个小帧让本端分配任意大的内存
+ * 有状态，每个连接一个实例
+ */
+public class KvCompressionHandler extends MessageToMessageCodec<KvMessage, Object> {
+
+    private final KvMessage.Compression localCompression;
+    private final int threshold;
+    private final int maxUncompressedLength;
+    private volatile KvMessage.Compression peerCompression;
+
+    public KvCompressionHandler(KvMessage.Compression localCompression) {
+        this(localCompression, DkvConstants.COMPRESSION_THRESHOLD);
+    }
+
+    public KvCompressionHandler(KvMessage.Compression localCompression, int threshold) {
+        this(localCompression, threshold, DkvConstants.MAX_FRAME_SIZE);
+    }
+
+    public KvCompressionHandler(KvMessage.Compression localCompression, int threshold, int maxUncompressedLength) {
+        this.localCompression = localCompression == null ? KvMessage.Compression.NONE : localCompression;
+        this.threshold = threshold;
+        this.maxUncompressedLength = maxUncompressedLength;
+    }
+
+    @Override
+    public boolean acceptOutboundMessage(Object msg) {
+        return msg instanceof KvMessage || msg instanceof DirectValueMessage;
+    }
+
+    @Override
+    protected void encode(ChannelHandlerContext ctx, Object message, List<Object> out) {
+        KvMessage.Compression compression = peerCompression != null ? peerCompression : localCompression;
+        // 编码后消息会被释放一次，原样传给下游的消息要先多持有一次
+        if (message instanceof DirectValueMessage) {
+            // 零拷贝响应只属于这一个连接，可以就地改写
+            DirectValueMessage direct = (DirectValueMessage) message;
+            if (localCompression != KvMessage.Compression.NONE) {
+                direct.getHeader().setAcceptCompression(localCompression);
+            }
+            encodeDirect(ctx, direct, compression);
+            out.add(ReferenceCountUtil.retain(direct));
+            return;
+        }
+
+        KvMessage msg = (KvMessage) message;
+        KvMessage outbound = msg;
+        if (localCompression != KvMessage.Compression.NONE && msg.getAcceptCompression() != localCompression) {
+            outbound = msg.copy();
+            outbound.setAcceptCompression(localCompression);
+        }
+        byte[] value = msg.getValue();
+        // 已压缩过的消息（如重试）原样发送
+        if (compression != KvMessage.Compression.NONE
+                && msg.getCompression() == KvMessage.Compression.NONE
+                && value != null && value.length >= threshold) {
+            byte[] compressed = CompressionUtil.compress(value, compression);
+            // 压不小的数据（已压缩的图片等）不值得让对端再解压一次
+            if (compressed.length < value.length) {
+                if (outbound == msg) {
+                    outbound = msg.copy();
+                }
+                outbound.setValue(compressed);
+                outbound.setCompression(compression);
+                outbound.setUncompressedLength(value.length);
+            }
+        }
+        out.add(outbound);
+    }
+
+    /**
+     * direct value 在 direct 内存之间压缩，同样不经过堆
+     */
+    private void encodeDirect(ChannelHandlerContext ctx, DirectValueMessage msg, KvMessage.Compression compression) {
+        int length = msg.getValueLength();
+        KvMessage header = msg.getHeader();
+        if (compression == KvMessage.Compression.NONE
+                || header.getCompression() != KvMessage.Compression.NONE
+                || length < threshold) {
+            return;
+        }
+        ByteBuf source = msg.getValueBuffer();
+        int maxLength = CompressionUtil.maxCompressedLength(length, compression);
+        ByteBuf compressed = ctx.alloc().directBuffer(maxLength);
+        try {
+            int compressedLength = CompressionUtil.compress(source.nioBuffer(), compressed.nioBuffer(0, maxLength), compression);
+            if (compressedLength < length) {
+                compressed.writerIndex(compressedLength);
+                msg.replaceValueBuffer(compressed);
+                header.setCompression(compression);
+                header.setUncompressedLength(length);
+                compressed = null;
+            }
+        } finally {
+            if (compressed != null) {
+                compressed.release();
+            }
+        }
+    }
+
+    @Override
+    protected void decode(ChannelHandlerContext ctx, KvMessage msg, List<Object> out) {
+        if (msg.getAcceptCompression() != null && msg.getAcceptCompression() != KvMessage.Compression.NONE) {
+            peerCompression = msg.getAcceptCompression();
+        }
+        if (msg.getCompression() != null && msg.getCompression() != KvMessage.Compression.NONE) {
+            int length = msg.getUncompressedLength();
+            if (length < 0 || length > maxUncompressedLength) {
+                throw new CorruptedFrameException("Uncompressed length " + length
+                        + " exceeds the limit of " + maxUncompressedLength + " bytes");
+            }
+            try {
+                msg.setValue(CompressionUtil.decompress(msg.getValue(), msg.getCompression(), length));
+            } catch (IllegalArgumentException e) {
+                throw new CorruptedFrameException(e.getMessage(), e);
+            }
+            msg.setCompression(KvMessage.Compression.NONE);
+            msg.setUncompressedLength(0);
+        }
+        out.add(msg);
+    }
+}
@@ -0,0 +1,126 @@
+package com.dkv.dkvstorage.codec;
+
+import com.dkv.dkvcommon.costants.DkvConstants;
+import com.dkv.dkvcommon.model.KvMessage;
+import io.netty.buffer.ByteBuf;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.handler.codec.CorruptedFrameException;
+import io.netty.handler.codec.LengthFieldBasedFrameDecoder;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * KvMessage 二进制解码，帧格式见 KvMessageEncoder；有状态（半包缓存），每个连接一个实例
+ */
+public class KvMessageDecoder extends LengthFieldBasedFrameDecoder {
+
+    private static final KvMessage.MergeOperator[] MERGE_OPERATORS = KvMessage.MergeOperator.values();
+    private static final KvMessage.Compression[] COMPRESSIONS = KvMessage.Compression.values();
+
+    public KvMessageDecoder() {
+        this(DkvConstants.MAX_FRAME_SIZE);
+    }
+
+    public KvMessageDecoder(int maxFrameLength) {
+        super(maxFrameLength, 0, 4, 0, 4);
+    }
+
+    @Override
+    protected Object decode(ChannelHandlerContext ctx, ByteBuf in) throws Exception {
+        ByteBuf frame = (ByteBuf) super.decode(ctx, in);
+        if (frame == null) {
+            return null;
+        }
+        try {
+            return decodeMessage(frame);
+        } catch (IndexOutOfBoundsException | IllegalArgumentException e) {
+            throw new CorruptedFrameException("Malformed KvMessage frame", e);
+        } finally {
+            frame.release();
+        }
+    }
+
+    private static KvMessage decodeMessage(ByteBuf frame) {
+        int typeValue = frame.readByte();
+        int statusCode = frame.readInt();
+        long timestamp = frame.readLong();
+        int flags = frame.readByte();
+        int mergeOperator = frame.readByte();
+        int compression = frame.readByte();
+        int acceptCompression = frame.readByte();
+        int chunkIndex = frame.readInt();
+        int uncompressedLength = frame.readInt();
+        boolean traced = (flags & KvMessageEncoder.FLAG_TRACED) != 0;
+        long traceId = traced ? frame.readLong() : 0;
+        long spanId = traced ? frame.readLong() : 0;
+        byte[] key = readBytes(frame);
+        String message = readString(frame);
+        String requestId = readString(frame);
+        String namespace = readString(frame);
+        byte[] value = readBytes(frame);
+
+        // key保持字节形式，服务端全程不做UTF-8解码
+        KvMessage msg = new KvMessage(KvMessage.Type.fromValue(typeValue), null, value);
+        msg.setKeyBytes(key);
+        msg.setStatusCode(statusCode);
+        msg.setTimestamp(timestamp);
+        msg.setReplication((flags & KvMessageEncoder.FLAG_REPLICATION) != 0);
+        msg.setLastChunk((flags & KvMessageEncoder.FLAG_LAST_CHUNK) != 0);
+        msg.setMergeOperator(mergeOperator == 0 ? null
+                : MERGE_OPERATORS[ordinal(mergeOperator - 1, MERGE_OPERATORS.length, "merge operator")]);
+        msg.setCompression(COMPRESSIONS[ordinal(compression, COMPRESSIONS.length, "compression")]);
+        msg.setAcceptCompression(acceptCompression == 0 ? null
+                : COMPRESSIONS[ordinal(acceptCompression - 1, COMPRESSIONS.length, "accepted compression")]);
+        msg.setChunkIndex(chunkIndex);
+        msg.setUncompressedLength(uncompressedLength);
+        msg.setMessage(message);
+        msg.setRequestId(requestId);
+        msg.setNamespace(namespace);
+        msg.setTraceId(traceId);
+        msg.setSpanId(spanId);
+        return msg;
+    }
+
+    /**
+     * 枚举序号来自对端，越界说明帧已损坏
+     */
+    private static int ordinal(int value, int size, String field) {
+        if (value < 0 || value >= size) {
+            throw new CorruptedFrameException("Unknown " + field + " " + value);
+        }
+        return value;
+    }
+
+    /**
+     * 长度字段：-1 表示 null，其他值必须落在帧内剩余字节之内，先校验再分配，
+     * 不能让一个很小的帧声明 2GB 长度把堆撑爆
+     */
+    private static int readLength(ByteBuf buf) {
+        int length = buf.readInt();
+        if (length < -1 || length > buf.readableBytes()) {
+            throw new CorruptedFrameException("Field length " + length + " exceeds remaining "
+                    + buf.readableBytes() + " bytes");
+        }
+        return length;
+    }
+
+    private static String readString(ByteBuf buf) {
+        int length = readLength(buf);
+        if (length < 0) {
+            return null;
+        }
+        String value = buf.toString(buf.readerIndex(), length, StandardCharsets.UTF_8);
+        buf.skipBytes(length);
+        return value;
+    }
+
+    private static byte[] readBytes(ByteBuf buf) {
+        int length = readLength(buf);
+        if (length < 0) {
+            return null;
+        }
+        byte[] bytes = new byte[length];
+        buf.readBytes(bytes);
+        return bytes;
+    }
+}
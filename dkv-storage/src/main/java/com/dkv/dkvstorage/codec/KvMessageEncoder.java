@@ -0,0 +1,106 @@
+package com.dkv.dkvstorage.codec;
+
+import com.dkv.dkvcommon.model.KvMessage;
+import io.netty.buffer.ByteBuf;
+import io.netty.channel.ChannelHandler;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.handler.codec.MessageToMessageEncoder;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+/**
+ * KvMessage 二进制编码（替代 Java 序列化），帧格式：
+ * <pre>
+ * int    帧长度（不含自身）
+ * byte   type            int  statusCode      long timestamp
+ * byte   flags（bit0 复制请求，bit1 最后一个分块，bit2 带追踪上下文）
+ * byte   mergeOperator   byte compression     byte acceptCompression
+ * int    chunkIndex      int  uncompressedLength
+ * long   traceId         long spanId          仅在 bit2 置位时出现，未采样的请求不多占字节
+ * bytes  key（int 长度 + 原始字节，-1 表示 null）
+ * string message / requestId / namespace（int 长度 + UTF-8，-1 表示 null）
+ * bytes  value（int 长度 + 内容，-1 表示 null），放在最后
+ * </pre>
+ * value 在帧尾，DirectValueMessage 的 value 缓冲区可以作为单独的 ByteBuf 跟在帧头后面写出，不做复制
+ * 出站消息为 KvMessage 或 DirectValueMessage
+ */
+@ChannelHandler.Sharable
+public class KvMessageEncoder extends MessageToMessageEncoder<Object> {
+
+    static final int FLAG_REPLICATION = 1;
+    static final int FLAG_LAST_CHUNK = 1 << 1;
+    static final int FLAG_TRACED = 1 << 2;
+
+    @Override
+    public boolean acceptOutboundMessage(Object msg) {
+        return msg instanceof KvMessage || msg instanceof DirectValueMessage;
+    }
+
+    @Override
+    protected void encode(ChannelHandlerContext ctx, Object outbound, List<Object> out) {
+        if (outbound instanceof DirectValueMessage) {
+            DirectValueMessage direct = (DirectValueMessage) outbound;
+            encode(ctx, direct.getHeader(), direct.getValueBuffer(), out);
+        } else {
+            encode(ctx, (KvMessage) outbound, null, out);
+        }
+    }
+
+    private void encode(ChannelHandlerContext ctx, KvMessage msg, ByteBuf directValue, List<Object> out) {
+        byte[] heapValue = directValue == null ? msg.getValue() : null;
+        int valueLength = directValue != null ? directValue.readableBytes() : (heapValue != null ? heapValue.length : 0);
+
+        ByteBuf header = ctx.alloc().ioBuffer(64 + (directValue == null ? valueLength : 0));
+        header.writeInt(0);  // 帧长度占位
+        header.writeByte(msg.getType() == null ? 0 : msg.getType().getValue());
+        header.writeInt(msg.getStatusCode());
+        header.writeLong(msg.getTimestamp());
+        boolean traced = msg.getTraceId() != 0;
+        header.writeByte((msg.isReplication() ? FLAG_REPLICATION : 0) | (msg.isLastChunk() ? FLAG_LAST_CHUNK : 0)
+                | (traced ? FLAG_TRACED : 0));
+        header.writeByte(msg.getMergeOperator() == null ? 0 : msg.getMergeOperator().ordinal() + 1);
+        header.writeByte(msg.getCompression() == null ? 0 : msg.getCompression().ordinal());
+        header.writeByte(msg.getAcceptCompression() == null ? 0 : msg.getAcceptCompression().ordinal() + 1);
+        header.writeInt(msg.getChunkIndex());
+        header.writeInt(msg.getUncompressedLength());
+        if (traced) {
+            header.writeLong(msg.getTraceId());
+            header.writeLong(msg.getSpanId());
+        }
+        writeBytes(header, msg.getKeyBytes());
+        writeString(header, msg.getMessage());
+        writeString(header, msg.getRequestId());
+        writeString(header, msg.getNamespace());
+
+        if (directValue != null) {
+            header.writeInt(valueLength);
+            header.setInt(0, header.readableBytes() - 4 + valueLength);
+            out.add(header);
+            // 消息在编码后会被释放一次，value 缓冲区要多持有一次交给下游
+            out.add(directValue.retain());
+        } else {
+            if (heapValue == null) {
+                header.writeInt(-1);
+            } else {
+                header.writeInt(heapValue.length);
+                header.writeBytes(heapValue);
+            }
+            header.setInt(0, header.readableBytes() - 4);
+            out.add(header);
+        }
+    }
+
+    private static void writeString(ByteBuf buf, String value) {
+        writeBytes(buf, value == null ? null : value.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static void writeBytes(ByteBuf buf, byte[] bytes) {
+        if (bytes == null) {
+            buf.writeInt(-1);
+            return;
+        }
+        buf.writeInt(bytes.length);
+        buf.writeBytes(bytes);
+    }
+}
@@ -1,8 +1,8 @@
 package com.dkv.dkvstorage.config;
 
+import com.dkv.dkvstorage.transport.NettyTransport;
 import io.netty.channel.ChannelOption;
 import io.netty.channel.EventLoopGroup;
-import io.netty.channel.nio.NioEventLoopGroup;
 import org.springframework.boot.context.properties.ConfigurationProperties;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
@@ -62,12 +62,12 @@ public class DataNodeAgentConfig {
 
     @Bean
     public EventLoopGroup bossGroup() {
-        return new NioEventLoopGroup(bossThreads);
+        return NettyTransport.get().newEventLoopGroup(bossThreads);
     }
 
     @Bean
     public EventLoopGroup workerGroup() {
-        return new NioEventLoopGroup(workerThreads);
+        return NettyTransport.get().newEventLoopGroup(workerThreads);
     }
 
     @Bean
@@ -1,5 +1,6 @@
 package com.dkv.dkvstorage.controller;
 
+import com.dkv.dkvstorage.metrics.PrometheusWriter;
 import com.dkv.dkvstorage.rocksdb.DataNodeManager;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.ResponseEntity;
@@ -120,6 +121,55 @@ public class DataNodeController {
         }
     }
 
+    /**
+     * 获取节点存储引擎的详细统计（RocksDB Statistics、按层SST大小、待compaction字节数、写停顿）
+     * curl "http://localhost:8080/api/datanode/stats?nodeId=node1:9000"
+     */
+    @GetMapping("/stats")
+    public ResponseEntity<Map<String, Object>> getNodeStats(@RequestParam String nodeId) {
+        Map<String, Object> response = new HashMap<>();
+
+        try {
+            Map<String, Object> stats = dataNodeManager.getNodeStats(nodeId);
+
+            if (stats == null) {
+                response.put("success", false);
+                response.put("message", "Node not registered");
+                return ResponseEntity.badRequest().body(response);
+            }
+
+            response.put("success", true);
+            response.put("nodeId", nodeId);
+            response.put("stats", stats);
+            return ResponseEntity.ok(response);
+
+        } catch (Exception e) {
+            e.printStackTrace();
+            response.put("success", false);
+            response.put("message", "Failed to get node stats: " + e.getMessage());
+            return ResponseEntity.internalServerError().body(response);
+        }
+    }
+
+    /**
+     * 获取节点指标（Prometheus 文本格式）
+     * curl "http://localhost:8080/api/datanode/metrics?nodeId=node1:9000"
+     */
+    @GetMapping(value = "/metrics", produces = PrometheusWriter.CONTENT_TYPE)
+    public ResponseEntity<String> getNodeMetrics(@RequestParam String nodeId) {
+        try {
+            String metrics = dataNodeManager.getNodeMetrics(nodeId);
+            if (metrics == null) {
+                return ResponseEntity.notFound().build();
+            }
+            return ResponseEntity.ok(metrics);
+
+        } catch (Exception e) {
+            e.printStackTrace();
+            return ResponseEntity.internalServerError().body("# Failed to get node metrics: " + e.getMessage() + "\n");
+        }
+    }
+
     /**
      * 获取所有节点
      * curl "http://localhost:8080/api/datanode/nodes"
@@ -0,0 +1,155 @@
+package com.dkv.dkvstorage.memory;
+
+import com.dkv.dkvcommon.model.KvMessage;
+import com.dkv.dkvstorage.rocksdb.NamespaceOptions;
+import com.dkv.dkvstorage.rocksdb.NamespacePrefixes;
+import com.dkv.dkvstorage.rocksdb.StorageEngine;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 纯内存存储引擎，用于缓存层节点：数据放在堆外哈希表里，不落盘，持久性依赖副本
+ * 内存用满后按写入顺序淘汰旧数据；命名空间和合并算子的语义与 RocksDbEngine 一致
+ */
+public class OffHeapEngine implements StorageEngine {
+    private static final Logger logger = LoggerFactory.getLogger(OffHeapEngine.class);
+
+    public static final long DEFAULT_CAPACITY_BYTES = 256L * 1024 * 1024;
+
+    // 所有命名空间共用一张表和一份内存预算
+    private final NamespacePrefixes namespaces;
+    private final long capacityBytes;
+    private OffHeapHashTable table;
+
+    public OffHeapEngine() {
+        this(NamespaceOptions.defaults(), DEFAULT_CAPACITY_BYTES);
+    }
+
+    public OffHeapEngine(List<NamespaceOptions> namespaces, long capacityBytes) {
+        this.namespaces = new NamespacePrefixes(namespaces);
+        this.capacityBytes = capacityBytes;
+    }
+
+    @Override
+    public void init(String dbPath) {
+        table = new OffHeapHashTable(capacityBytes);
+        logger.info("Off-heap engine initialized: capacity={} bytes, namespaces={} (data is not persisted to {})",
+                table.getCapacity(), namespaces.names(), dbPath);
+    }
+
+    @Override
+    public void put(String namespace, byte[] key, byte[] value) {
+        if (key == null || value == null) {
+            throw new IllegalArgumentException("Key and value cannot be null");
+        }
+        byte[] keyBytes = keyOf(namespace, key);
+        if (!table.put(keyBytes, value)) {
+            throw new IllegalArgumentException("Value too large for memory engine: " + value.length + " bytes");
+        }
+    }
+
+    @Override
+    public byte[] get(String namespace, byte[] key) {
+        if (key == null) {
+            throw new IllegalArgumentException("Key cannot be null");
+        }
+        return table.get(keyOf(namespace, key));
+    }
+
+    @Override
+    public int get(String namespace, byte[] key, ByteBuffer target) {
+        if (key == null) {
+            throw new IllegalArgumentException("Key cannot be null");
+        }
+        return table.get(keyOf(namespace, key), target);
+    }
+
+    @Override
+    public void delete(String namespace, byte[] key) {
+        if (key == null) {
+            throw new IllegalArgumentException("Key cannot be null");
+        }
+        table.remove(keyOf(namespace, key));
+    }
+
+    @Override
+    public void merge(String namespace, byte[] key, byte[] operand) {
+        if (key == null || operand == null) {
+            throw new IllegalArgumentException("Key and operand cannot be null");
+        }
+        namespaces.checkOperand(namespace, operand);
+        KvMessage.MergeOperator operator = namespaces.mergeOperatorOf(namespace);
+        boolean stored = table.merge(keyOf(namespace, key), operand,
+                (existing, delta) -> NamespacePrefixes.merge(operator, existing, delta));
+        if (!stored) {
+            throw new IllegalArgumentException("Value too large for memory engine after merge");
+        }
+    }
+
+    @Override
+    public void close() {
+        if (table != null) {
+            table.close();
+            logger.info("Off-heap engine closed");
+        }
+    }
+
+    public long size() {
+        return table.size();
+    }
+
+    public long getLiveBytes() {
+        return table.getLiveBytes();
+    }
+
+    public long getEvictions() {
+        return table.getEvictions();
+    }
+
+    // 索引占用的堆外内存，已计入容量
+    public long getIndexBytes() {
+        return table.getIndexBytes();
+    }
+
+    @Override
+    public KvMessage.MergeOperator getMergeOperator(String namespace) {
+        return namespaces.contains(namespace) ? namespaces.mergeOperatorOf(namespace) : null;
+    }
+
+    @Override
+    public long estimateKeyCount() {
+        return size();
+    }
+
+    @Override
+    public long estimateDataBytes() {
+        return getLiveBytes();
+    }
+
+    @Override
+    public Collection<String> getNamespaces() {
+        return new ArrayList<>(namespaces.names());
+    }
+
+    @Override
+    public Map<String, Number> getMetrics() {
+        Map<String, Number> metrics = new LinkedHashMap<>();
+        metrics.put("keys", size());
+        metrics.put("live_bytes", getLiveBytes());
+        metrics.put("index_bytes", getIndexBytes());
+        metrics.put("capacity_bytes", capacityBytes);
+        metrics.put("evictions_total", getEvictions());
+        return metrics;
+    }
+
+    private byte[] keyOf(String namespace, byte[] key) {
+        return namespaces.keyOf(namespace, key);
+    }
+}
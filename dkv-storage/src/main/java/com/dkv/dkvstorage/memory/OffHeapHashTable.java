@@ -0,0 +1,452 @@
+package com.dkv.dkvstorage.memory;
+
+import com.dkv.dkvcommon.utils.HashUtil;
+import io.netty.util.internal.PlatformDependent;
+
+import java.nio.ByteBuffer;
+import java.util.function.BinaryOperator;
+
+/**
+ * 堆外开放寻址哈希表：key和value都存放在 direct 内存里，每条记录不产生Java对象
+ * 按hash分段加锁；每段由一块环形日志区（arena）和一张线性探测的索引组成，
+ * 写入追加到日志头部，空间不够时从尾部按写入顺序（FIFO）淘汰，总内存不超过给定容量
+ * 覆盖写和删除只把旧记录标记为失效，它占用的空间在日志尾部经过时才回收
+ * 索引也算在容量里：每段预留 1/INDEX_FRACTION 给索引，其余给日志区；索引到达预留上限后不再扩容，
+ * 改为从日志尾部淘汰，所以平均记录小于约 SLOT_SIZE × INDEX_FRACTION / MAX_LOAD 字节时会先受索引限制；
+ * 删除后索引过空时缩小
+ */
+public class OffHeapHashTable {
+    private static final int DEFAULT_SEGMENTS = 16;
+    private static final long MAX_SEGMENT_BYTES = 1L << 30;
+
+    // 记录头：总长度(int) hash(int) 状态(byte) key长度(int) value长度(int)，之后紧跟key和value
+    private static final int OFF_SIZE = 0;
+    private static final int OFF_HASH = 4;
+    private static final int OFF_STATE = 8;
+    private static final int OFF_KEY_LEN = 9;
+    private static final int OFF_VALUE_LEN = 13;
+    private static final int HEADER_SIZE = 17;
+    private static final byte STATE_DEAD = 0;
+    private static final byte STATE_LIVE = 1;
+
+    // 索引槽：hash(int) + 记录偏移+1(int)，0 表示空槽
+    private static final int SLOT_SIZE = 8;
+    private static final int INITIAL_SLOTS = 1024;
+    private static final int MIN_SLOTS = 16;
+    private static final float MAX_LOAD = 0.75f;
+    private static final int INDEX_FRACTION = 8;
+    private static final int MIN_SEGMENT_BYTES = MIN_SLOTS * SLOT_SIZE * INDEX_FRACTION;
+
+    private final Segment[] segments;
+    private final int segmentMask;
+    private final long capacity;
+
+    public OffHeapHashTable(long capacityBytes) {
+        if (capacityBytes < DEFAULT_SEGMENTS * (long) MIN_SEGMENT_BYTES) {
+            throw new IllegalArgumentException("Capacity too small: " + capacityBytes);
+        }
+        int count = DEFAULT_SEGMENTS;
+        while (capacityBytes / count > MAX_SEGMENT_BYTES) {
+            count <<= 1;
+        }
+        this.segments = new Segment[count];
+        this.segmentMask = count - 1;
+        int segmentBytes = (int) (capacityBytes / count);
+        for (int i = 0; i < count; i++) {
+            segments[i] = new Segment(segmentBytes);
+        }
+        this.capacity = (long) segmentBytes * count;
+    }
+
+    public byte[] get(byte[] key) {
+        int hash = hash(key);
+        return segmentFor(hash).get(key, hash);
+    }
+
+    /**
+     * 把value直接从堆外区复制到调用方缓冲区，语义同 StorageEngine#get(String, String, ByteBuffer)
+     */
+    public int get(byte[] key, ByteBuffer target) {
+        int hash = hash(key);
+        return segmentFor(hash).get(key, hash, target);
+    }
+
+    /**
+     * 写入，记录大于单段容量时放不下，返回 false
+     */
+    public boolean put(byte[] key, byte[] value) {
+        int hash = hash(key);
+        return segmentFor(hash).put(key, hash, value);
+    }
+
+    public boolean remove(byte[] key) {
+        int hash = hash(key);
+        return segmentFor(hash).remove(key, hash);
+    }
+
+    /**
+     * 读-改-写在段锁内完成，function 的第一个参数是旧值（不存在为 null）
+     */
+    public boolean merge(byte[] key, byte[] operand, BinaryOperator<byte[]> function) {
+        int hash = hash(key);
+        return segmentFor(hash).merge(key, hash, operand, function);
+    }
+
+    public long getCapacity() {
+        return capacity;
+    }
+
+    /**
+     * 单条记录（含记录头）的上限
+     */
+    public int getMaxEntrySize() {
+        return segments[0].capacity;
+    }
+
+    /**
+     * 各段索引当前占用的字节数
+     */
+    public long getIndexBytes() {
+        long total = 0;
+        for (Segment segment : segments) {
+            total += segment.indexBytes();
+        }
+        return total;
+    }
+
+    public long size() {
+        long total = 0;
+        for (Segment segment : segments) {
+            total += segment.size();
+        }
+        return total;
+    }
+
+    public long getLiveBytes() {
+        long total = 0;
+        for (Segment segment : segments) {
+            total += segment.liveBytes();
+        }
+        return total;
+    }
+
+    public long getEvictions() {
+        long total = 0;
+        for (Segment segment : segments) {
+            total += segment.evictions();
+        }
+        return total;
+    }
+
+    /**
+     * 立即归还堆外内存，之后的读写抛出 IllegalStateException
+     */
+    public void close() {
+        for (Segment segment : segments) {
+            segment.release();
+        }
+    }
+
+    private Segment segmentFor(int hash) {
+        return segments[(hash >>> 24) & segmentMask];
+    }
+
+    private static int hash(byte[] key) {
+        return HashUtil.murmur3(key, 0, key.length);
+    }
+
+    private static final class Segment {
+        private final int capacity;     // 日志区大小 = 段预算 - 索引预留
+        private final int maxSlots;
+        private ByteBuffer arena;
+        private ByteBuffer slots;
+        private int slotMask;
+        private int size;
+        // 日志区：未回绕时数据在 [tail, head)，回绕后在 [tail, end) 和 [0, head)
+        private int head;
+        private int tail;
+        private int end = -1;
+        private int records;  // 日志区里的记录数，含已失效的
+        private long liveBytes;
+        private long evictions;
+
+        Segment(int budget) {
+            this.maxSlots = Integer.highestOneBit(budget / INDEX_FRACTION / SLOT_SIZE);
+            this.capacity = budget - maxSlots * SLOT_SIZE;
+            int initialSlots = Math.min(INITIAL_SLOTS, maxSlots);
+            this.arena = ByteBuffer.allocateDirect(capacity);
+            this.slots = ByteBuffer.allocateDirect(initialSlots * SLOT_SIZE);
+            this.slotMask = initialSlots - 1;
+        }
+
+        synchronized byte[] get(byte[] key, int hash) {
+            ensureOpen();
+            int slot = findSlot(key, hash);
+            if (slot < 0) {
+                return null;
+            }
+            int offset = offsetAt(slot);
+            int keyLength = arena.getInt(offset + OFF_KEY_LEN);
+            byte[] value = new byte[arena.getInt(offset + OFF_VALUE_LEN)];
+            arena.get(offset + HEADER_SIZE + keyLength, value);
+            return value;
+        }
+
+        synchronized int get(byte[] key, int hash, ByteBuffer target) {
+            ensureOpen();
+            int slot = findSlot(key, hash);
+            if (slot < 0) {
+                return -1;
+            }
+            int offset = offsetAt(slot);
+            int keyLength = arena.getInt(offset + OFF_KEY_LEN);
+            int valueLength = arena.getInt(offset + OFF_VALUE_LEN);
+            if (valueLength <= target.remaining()) {
+                target.duplicate().put(arena.slice(offset + HEADER_SIZE + keyLength, valueLength));
+            }
+            return valueLength;
+        }
+
+        synchronized boolean put(byte[] key, int hash, byte[] value) {
+            ensureOpen();
+            int recordSize = HEADER_SIZE + key.length + value.length;
+            if (recordSize > capacity) {
+                return false;
+            }
+            // 先摘掉旧记录：分配空间时的淘汰会移动索引槽
+            removeKey(key, hash);
+
+            ensureSlot();
+            int offset = allocate(recordSize);
+            arena.putInt(offset + OFF_SIZE, recordSize);
+            arena.putInt(offset + OFF_HASH, hash);
+            arena.put(offset + OFF_STATE, STATE_LIVE);
+            arena.putInt(offset + OFF_KEY_LEN, key.length);
+            arena.putInt(offset + OFF_VALUE_LEN, value.length);
+            arena.put(offset + HEADER_SIZE, key);
+            arena.put(offset + HEADER_SIZE + key.length, value);
+            insertSlot(hash, offset);
+            liveBytes += recordSize;
+            return true;
+        }
+
+        synchronized boolean remove(byte[] key, int hash) {
+            ensureOpen();
+            if (!removeKey(key, hash)) {
+                return false;
+            }
+            int slotCount = slotMask + 1;
+            if (slotCount > MIN_SLOTS && size < slotCount * MAX_LOAD / 4) {
+                resize(slotCount >> 1);
+            }
+            return true;
+        }
+
+        synchronized boolean merge(byte[] key, int hash, byte[] operand, BinaryOperator<byte[]> function) {
+            return put(key, hash, function.apply(get(key, hash), operand));
+        }
+
+        synchronized long size() {
+            return size;
+        }
+
+        synchronized long liveBytes() {
+            return liveBytes;
+        }
+
+        synchronized long evictions() {
+            return evictions;
+        }
+
+        synchronized long indexBytes() {
+            return slots == null ? 0 : (long) (slotMask + 1) * SLOT_SIZE;
+        }
+
+        synchronized void release() {
+            if (arena != null) {
+                PlatformDependent.freeDirectBuffer(arena);
+                PlatformDependent.freeDirectBuffer(slots);
+                arena = null;
+                slots = null;
+            }
+        }
+
+        private void ensureOpen() {
+            if (arena == null) {
+                throw new IllegalStateException("Off-heap table is closed");
+            }
+        }
+
+        private boolean removeKey(byte[] key, int hash) {
+            int slot = findSlot(key, hash);
+            if (slot < 0) {
+                return false;
+            }
+            int offset = offsetAt(slot);
+            arena.put(offset + OFF_STATE, STATE_DEAD);
+            liveBytes -= arena.getInt(offset + OFF_SIZE);
+            removeSlot(slot);
+            return true;
+        }
+
+        /**
+         * 在日志头部分配一段连续空间，不够时从尾部淘汰，recordSize 不超过容量时一定成功
+         */
+        private int allocate(int recordSize) {
+            while (true) {
+                if (records == 0) {
+                    head = 0;
+                    tail = 0;
+                    end = -1;
+                }
+                if (end < 0) {
+                    if (capacity - head >= recordSize) {
+                        return bump(recordSize);
+                    }
+                    if (tail >= recordSize) {
+                        // 尾部剩余空间不够，回绕到开头
+                        end = head;
+                        head = 0;
+                        return bump(recordSize);
+                    }
+                } else if (tail - head >= recordSize) {
+                    return bump(recordSize);
+                }
+                evictTail();
+            }
+        }
+
+        private int bump(int recordSize) {
+            int offset = head;
+            head += recordSize;
+            records++;
+            return offset;
+        }
+
+        private void evictTail() {
+            int offset = tail;
+            int recordSize = arena.getInt(offset + OFF_SIZE);
+            if (arena.get(offset + OFF_STATE) == STATE_LIVE) {
+                removeSlot(slotOf(offset, arena.getInt(offset + OFF_HASH)));
+                liveBytes -= recordSize;
+                evictions++;
+            }
+            tail += recordSize;
+            records--;
+            if (end >= 0 && tail == end) {
+                tail = 0;
+                end = -1;
+            }
+        }
+
+        private int findSlot(byte[] key, int hash) {
+            int i = hash & slotMask;
+            while (true) {
+                int ref = slots.getInt(i * SLOT_SIZE + 4);
+                if (ref == 0) {
+                    return -1;
+                }
+                if (slots.getInt(i * SLOT_SIZE) == hash && keyEquals(ref - 1, key)) {
+                    return i;
+                }
+                i = (i + 1) & slotMask;
+            }
+        }
+
+        private int slotOf(int offset, int hash) {
+            int i = hash & slotMask;
+            while (slots.getInt(i * SLOT_SIZE + 4) != offset + 1) {
+                i = (i + 1) & slotMask;
+            }
+            return i;
+        }
+
+        private int offsetAt(int slot) {
+            return slots.getInt(slot * SLOT_SIZE + 4) - 1;
+        }
+
+        private boolean keyEquals(int offset, byte[] key) {
+            if (arena.getInt(offset + OFF_KEY_LEN) != key.length) {
+                return false;
+            }
+            int base = offset + HEADER_SIZE;
+            for (int i = 0; i < key.length; i++) {
+                if (arena.get(base + i) != key[i]) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        /**
+         * 为下一次插入腾出索引槽：未到预留上限时扩容，到了上限先从日志尾部淘汰
+         */
+        private void ensureSlot() {
+            if (size + 1 <= (slotMask + 1) * MAX_LOAD) {
+                return;
+            }
+            if (slotMask + 1 < maxSlots) {
+                resize((slotMask + 1) << 1);
+                return;
+            }
+            while (size + 1 > (slotMask + 1) * MAX_LOAD) {
+                evictTail();
+            }
+        }
+
+        private void insertSlot(int hash, int offset) {
+            int i = hash & slotMask;
+            while (slots.getInt(i * SLOT_SIZE + 4) != 0) {
+                i = (i + 1) & slotMask;
+            }
+            slots.putInt(i * SLOT_SIZE, hash);
+            slots.putInt(i * SLOT_SIZE + 4, offset + 1);
+            size++;
+        }
+
+        /**
+         * 线性探测的删除：把后面探测链上的槽往前挪，不留墓碑
+         */
+        private void removeSlot(int i) {
+            int j = i;
+            while (true) {
+                j = (j + 1) & slotMask;
+                int ref = slots.getInt(j * SLOT_SIZE + 4);
+                if (ref == 0) {
+                    break;
+                }
+                int home = slots.getInt(j * SLOT_SIZE) & slotMask;
+                // j 的起始位置不在 (i, j] 之间时才能挪到 i，否则探测会断开
+                boolean movable = i <= j ? (home <= i || home > j) : (home <= i && home > j);
+                if (movable) {
+                    slots.putInt(i * SLOT_SIZE, slots.getInt(j * SLOT_SIZE));
+                    slots.putInt(i * SLOT_SIZE + 4, ref);
+                    i = j;
+                }
+            }
+            slots.putInt(i * SLOT_SIZE, 0);
+            slots.putInt(i * SLOT_SIZE + 4, 0);
+            size--;
+        }
+
+        private void resize(int newCount) {
+            ByteBuffer old = slots;
+            int oldCount = slotMask + 1;
+            slots = ByteBuffer.allocateDirect(newCount * SLOT_SIZE);
+            slotMask = newCount - 1;
+            for (int i = 0; i < oldCount; i++) {
+                int ref = old.getInt(i * SLOT_SIZE + 4);
+                if (ref != 0) {
+                    int hash = old.getInt(i * SLOT_SIZE);
+                    int j = hash & slotMask;
+                    while (slots.getInt(j * SLOT_SIZE + 4) != 0) {
+                        j = (j + 1) & slotMask;
+                    }
+                    slots.putInt(j * SLOT_SIZE, hash);
+                    slots.putInt(j * SLOT_SIZE + 4, ref);
+                }
+            }
+            PlatformDependent.freeDirectBuffer(old);
+        }
+    }
+}
@@ -0,0 +1,174 @@
+package com.dkv.dkvstorage.metrics;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 热点key探测：用 Space-Saving 算法流式维护访问次数最多、流量字节最多的 key
+ * 内存固定为 capacity 个条目；计数可能偏高，偏高的上限是 error，count - error 是真实次数的下界
+ * 按 key 哈希分成若干条带各自加锁，同一个 key 总落在同一条带，合并结果时保证仍然成立
+ */
+public class HotKeyTracker {
+
+    private static final int STRIPES = 8;
+
+    public static final class HotKey {
+        private final String key;
+        private final long count;
+        private final long error;
+        private final long maxBytes;
+
+        HotKey(String key, long count, long error, long maxBytes) {
+            this.key = key;
+            this.count = count;
+            this.error = error;
+            this.maxBytes = maxBytes;
+        }
+
+        public String getKey() { return key; }
+        public long getCount() { return count; }
+        public long getError() { return error; }
+        public long getMaxBytes() { return maxBytes; }
+
+        public Map<String, Object> toMap(String countName) {
+            Map<String, Object> map = new LinkedHashMap<>();
+            map.put("key", key);
+            map.put(countName, count);
+            map.put("error", error);
+            map.put("maxBytes", maxBytes);
+            return map;
+        }
+    }
+
+    /**
+     * 一个条带：固定槽位，线性扫描查找，满了替换计数最小的槽位
+     * 每条带槽位很少，线性扫描比哈希表更快，而且不需要为 byte[] key 包装对象
+     */
+    static final class SpaceSaving {
+        private final byte[][] keys;
+        private final int[] hashes;
+        private final long[] counts;
+        private final long[] errors;
+        private final long[] maxWeights;
+        private int size;
+
+        SpaceSaving(int capacity) {
+            keys = new byte[capacity][];
+            hashes = new int[capacity];
+            counts = new long[capacity];
+            errors = new long[capacity];
+            maxWeights = new long[capacity];
+        }
+
+        synchronized void offer(byte[] key, int hash, long weight, long observed) {
+            int min = 0;
+            for (int i = 0; i < size; i++) {
+                if (hashes[i] == hash && Arrays.equals(keys[i], key)) {
+                    counts[i] += weight;
+                    maxWeights[i] = Math.max(maxWeights[i], observed);
+                    return;
+                }
+                if (counts[i] < counts[min]) {
+                    min = i;
+                }
+            }
+            if (size < keys.length) {
+                min = size++;
+                errors[min] = 0;
+            } else {
+                // 新 key 继承被替换者的计数，这部分就是它可能多算的量
+                errors[min] = counts[min];
+            }
+            keys[min] = key;
+            hashes[min] = hash;
+            counts[min] += weight;
+            maxWeights[min] = observed;
+        }
+
+        synchronized void collect(List<HotKey> out) {
+            for (int i = 0; i < size; i++) {
+                out.add(new HotKey(new String(keys[i], StandardCharsets.UTF_8), counts[i], errors[i], maxWeights[i]));
+            }
+        }
+
+        synchronized void clear() {
+            Arrays.fill(keys, null);
+            Arrays.fill(counts, 0);
+            Arrays.fill(errors, 0);
+            Arrays.fill(maxWeights, 0);
+            size = 0;
+        }
+    }
+
+    private final int capacity;
+    private final SpaceSaving[] byCount;
+    private final SpaceSaving[] byBytes;
+
+    /**
+     * @param capacity 每个维度跟踪的 key 数上限，0 表示关闭
+     */
+    public HotKeyTracker(int capacity) {
+        this.capacity = Math.max(0, capacity);
+        int perStripe = (this.capacity + STRIPES - 1) / STRIPES;
+        this.byCount = new SpaceSaving[this.capacity > 0 ? STRIPES : 0];
+        this.byBytes = new SpaceSaving[byCount.length];
+        for (int i = 0; i < byCount.length; i++) {
+            byCount[i] = new SpaceSaving(perStripe);
+            byBytes[i] = new SpaceSaving(perStripe);
+        }
+    }
+
+    /**
+     * 记录一次访问，bytes 是这次请求和响应携带的 value 字节数
+     */
+    public void record(byte[] key, long bytes) {
+        if (byCount.length == 0 || key == null) {
+            return;
+        }
+        int hash = Arrays.hashCode(key);
+        int stripe = Math.floorMod(hash, STRIPES);
+        byCount[stripe].offer(key, hash, 1, bytes);
+        if (bytes > 0) {
+            byBytes[stripe].offer(key, hash, bytes, bytes);
+        }
+    }
+
+    /**
+     * 访问次数最多的 limit 个 key
+     */
+    public List<HotKey> topByCount(int limit) {
+        return top(byCount, limit);
+    }
+
+    /**
+     * 累计 value 字节数最多的 limit 个 key，maxBytes 是单次访问见过的最大 value
+     */
+    public List<HotKey> topByBytes(int limit) {
+        return top(byBytes, limit);
+    }
+
+    private static List<HotKey> top(SpaceSaving[] stripes, int limit) {
+        List<HotKey> all = new ArrayList<>();
+        for (SpaceSaving stripe : stripes) {
+            stripe.collect(all);
+        }
+        all.sort(Comparator.comparingLong(HotKey::getCount).reversed());
+        return all.size() > limit ? new ArrayList<>(all.subList(0, limit)) : all;
+    }
+
+    public int getCapacity() {
+        return capacity;
+    }
+
+    public void clear() {
+        for (int i = 0; i < byCount.length; i++) {
+            byCount[i].clear();
+            byBytes[i].clear();
+        }
+    }
+}
@@ -0,0 +1,117 @@
+package com.dkv.dkvstorage.metrics;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * 生成 Prometheus 文本格式（version 0.0.4）
+ * 同名指标的样本归到一起，HELP/TYPE 只输出一次，多个节点可以写进同一个 writer
+ * labels 按 name, value, name, value ... 成对传入
+ */
+public class PrometheusWriter {
+
+    public static final String CONTENT_TYPE = "text/plain; version=0.0.4; charset=utf-8";
+
+    private final Map<String, Family> families = new LinkedHashMap<>();
+
+    private static class Family {
+        final String type;
+        final String help;
+        final StringBuilder samples = new StringBuilder();
+
+        Family(String type, String help) {
+            this.type = type;
+            this.help = help;
+        }
+    }
+
+    public PrometheusWriter counter(String name, String help, double value, String... labels) {
+        sample(family(name, "counter", help), name, labels, null, value);
+        return this;
+    }
+
+    public PrometheusWriter gauge(String name, String help, double value, String... labels) {
+        sample(family(name, "gauge", help), name, labels, null, value);
+        return this;
+    }
+
+    public PrometheusWriter histogram(String name, String help, LatencyHistogram histogram, String... labels) {
+        Family family = family(name, "histogram", help);
+        double[] bounds = LatencyHistogram.boundsSeconds();
+        long[] counts = histogram.cumulativeCounts();
+        for (int i = 0; i < bounds.length; i++) {
+            sample(family, name + "_bucket", labels, formatValue(bounds[i]), counts[i]);
+        }
+        long count = counts[counts.length - 1];
+        sample(family, name + "_bucket", labels, "+Inf", count);
+        sample(family, name + "_sum", labels, null, histogram.getSumSeconds());
+        sample(family, name + "_count", labels, null, count);
+        return this;
+    }
+
+    private Family family(String name, String type, String help) {
+        Family family = families.computeIfAbsent(name, n -> new Family(type, help));
+        if (!family.type.equals(type)) {
+            throw new IllegalArgumentException("Metric " + name + " already registered as " + family.type);
+        }
+        return family;
+    }
+
+    private static void sample(Family family, String name, String[] labels, String le, double value) {
+        if (labels.length % 2 != 0) {
+            throw new IllegalArgumentException("Labels must be name/value pairs");
+        }
+        StringBuilder out = family.samples.append(name);
+        if (labels.length > 0 || le != null) {
+            out.append('{');
+            for (int i = 0; i < labels.length; i += 2) {
+                if (i > 0) {
+                    out.append(',');
+                }
+                out.append(labels[i]).append("=\"");
+                escape(out, labels[i + 1]);
+                out.append('"');
+            }
+            if (le != null) {
+                out.append(labels.length > 0 ? "," : "").append("le=\"").append(le).append('"');
+            }
+            out.append('}');
+        }
+        out.append(' ').append(formatValue(value)).append('\n');
+    }
+
+    private static void escape(StringBuilder out, String value) {
+        if (value == null) {
+            return;
+        }
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '\\' || c == '"') {
+                out.append('\\').append(c);
+            } else if (c == '\n') {
+                out.append("\\n");
+            } else {
+                out.append(c);
+            }
+        }
+    }
+
+    private static String formatValue(double value) {
+        if (value == Math.rint(value) && !Double.isInfinite(value) && Math.abs(value) < 1e15) {
+            return Long.toString((long) value);
+        }
+        return Double.toString(value);
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder out = new StringBuilder();
+        for (Map.Entry<String, Family> entry : families.entrySet()) {
+            Family family = entry.getValue();
+            out.append("# HELP ").append(entry.getKey()).append(' ').append(family.help).append('\n');
+            out.append("# TYPE ").append(entry.getKey()).append(' ').append(family.type).append('\n');
+            out.append(family.samples);
+        }
+        return out.toString();
+    }
+}
@@ -0,0 +1,138 @@
+package com.dkv.dkvstorage.metrics;
+
+import com.dkv.dkvcommon.costants.DkvConstants;
+import com.dkv.dkvcommon.model.KvMessage;
+
+import java.util.EnumMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 一个 DataNode 的请求指标：按操作类型统计请求数、结果分布和服务端延迟
+ * 复制流量（REPLICATION_PUT 或带复制标记的请求）单独归为 replication，不混进客户端操作
+ */
+public class RequestMetrics {
+
+    public enum Outcome {
+        OK, CLIENT_ERROR, SERVER_ERROR, BUSY;
+
+        static Outcome of(int statusCode) {
+            if (statusCode == DkvConstants.STATUS_BUSY) {
+                return BUSY;
+            }
+            if (statusCode >= 500) {
+                return SERVER_ERROR;
+            }
+            // 404 是正常的未命中，不算错误
+            if (statusCode >= 400 && statusCode != 404) {
+                return CLIENT_ERROR;
+            }
+            return OK;
+        }
+    }
+
+    static final class OpMetrics {
+        final String label;
+        final LongAdder[] outcomes = new LongAdder[Outcome.values().length];
+        final LatencyHistogram latency = new LatencyHistogram();
+
+        OpMetrics(String label) {
+            this.label = label;
+            for (int i = 0; i < outcomes.length; i++) {
+                outcomes[i] = new LongAdder();
+            }
+        }
+    }
+
+    // 启动时建好全部条目，之后只读，不需要并发Map
+    private final Map<KvMessage.Type, OpMetrics> ops = new EnumMap<>(KvMessage.Type.class);
+    private final OpMetrics replication = new OpMetrics("replication");
+    private final SlowOpLog slowOps;
+    private final HotKeyTracker hotKeys;
+
+    public RequestMetrics() {
+        this(0, 1, 0);
+    }
+
+    /**
+     * @param slowOpThresholdMillis 慢操作阈值，<= 0 关闭慢操作日志
+     * @param slowOpLogSize         保留的慢操作条数
+     * @param hotKeyCapacity        热点key跟踪的条目数，0 关闭热点探测
+     */
+    public RequestMetrics(long slowOpThresholdMillis, int slowOpLogSize, int hotKeyCapacity) {
+        this.slowOps = new SlowOpLog(slowOpThresholdMillis, slowOpLogSize);
+        this.hotKeys = new HotKeyTracker(hotKeyCapacity);
+        for (KvMessage.Type type : KvMessage.Type.values()) {
+            if (type != KvMessage.Type.REPLICATION_PUT) {
+                ops.put(type, new OpMetrics(type.name().toLowerCase(Locale.ROOT)));
+            }
+        }
+    }
+
+    private OpMetrics of(KvMessage msg) {
+        if (isReplicationTraffic(msg)) {
+            return replication;
+        }
+        return ops.get(msg.getType());
+    }
+
+    static boolean isReplicationTraffic(KvMessage msg) {
+        return msg.isReplication() || msg.getType() == KvMessage.Type.REPLICATION_PUT || msg.getType() == null;
+    }
+
+    /**
+     * 记录一个已处理完的请求，nanos 从请求被读入算起，包含排队时间
+     */
+    public void record(KvMessage msg, int statusCode, long nanos) {
+        OpMetrics op = of(msg);
+        op.outcomes[Outcome.of(statusCode).ordinal()].increment();
+        op.latency.record(nanos);
+    }
+
+    /**
+     * 记录一个被准入控制或存储队列拒绝的请求，不计入延迟
+     */
+    public void rejected(KvMessage msg) {
+        of(msg).outcomes[Outcome.BUSY.ordinal()].increment();
+    }
+
+    public SlowOpLog getSlowOps() {
+        return slowOps;
+    }
+
+    public HotKeyTracker getHotKeys() {
+        return hotKeys;
+    }
+
+    public long getCount(KvMessage.Type type, Outcome outcome) {
+        OpMetrics op = type == KvMessage.Type.REPLICATION_PUT ? replication : ops.get(type);
+        return op.outcomes[outcome.ordinal()].sum();
+    }
+
+    public void writeTo(PrometheusWriter writer, String... labels) {
+        for (OpMetrics op : ops.values()) {
+            write(writer, op, labels);
+        }
+        write(writer, replication, labels);
+        writer.counter("dkv_slow_ops_total", "Requests slower than the slow-op threshold",
+                slowOps.getSlowOpCount(), labels);
+    }
+
+    private static void write(PrometheusWriter writer, OpMetrics op, String[] labels) {
+        for (Outcome outcome : Outcome.values()) {
+            writer.counter("dkv_requests_total", "Requests handled by the data node, by operation and outcome",
+                    op.outcomes[outcome.ordinal()].sum(),
+                    with(labels, "op", op.label, "outcome", outcome.name().toLowerCase(Locale.ROOT)));
+        }
+        writer.histogram("dkv_request_duration_seconds", "Server-side request latency including queueing",
+                op.latency, with(labels, "op", op.label));
+    }
+
+    static String[] with(String[] labels, String... extra) {
+        String[] all = new String[labels.length + extra.length];
+        System.arraycopy(labels, 0, all, 0, labels.length);
+        System.arraycopy(extra, 0, all, labels.length, extra.length);
+        return all;
+    }
+}
@@ -0,0 +1,164 @@
+package com.dkv.dkvstorage.metrics;
+
+import com.dkv.dkvcommon.model.KvMessage;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 慢操作日志：耗时超过阈值的请求连同各阶段耗时（排队、存储、复制）保留最近 capacity 条，并打一条WARN日志
+ * 存储变慢时每个请求都会超过阈值，WARN 日志每秒最多一条，期间省略的条数记在下一条里；完整记录仍可从 slowops 查询
+ */
+public class SlowOpLog {
+    private static final Logger logger = LoggerFactory.getLogger(SlowOpLog.class);
+    private static final int MAX_KEY_CHARS = 128;  // 超长key截断后再保存
+    private static final long WARN_INTERVAL_NANOS = TimeUnit.SECONDS.toNanos(1);
+
+    public static final class Entry {
+        private final long timestamp;
+        private final String op;
+        private final String key;
+        private final String namespace;
+        private final int statusCode;
+        private final long bytes;
+        private final long totalMicros;
+        private final long queueMicros;
+        private final long storageMicros;
+        private final long replicationMicros;
+        private final long traceId;
+
+        Entry(long timestamp, String op, String key, String namespace, int statusCode, long bytes,
+              long totalMicros, long queueMicros, long storageMicros, long replicationMicros, long traceId) {
+            this.timestamp = timestamp;
+            this.op = op;
+            this.key = key;
+            this.namespace = namespace;
+            this.statusCode = statusCode;
+            this.bytes = bytes;
+            this.totalMicros = totalMicros;
+            this.queueMicros = queueMicros;
+            this.storageMicros = storageMicros;
+            this.replicationMicros = replicationMicros;
+            this.traceId = traceId;
+        }
+
+        public long getTimestamp() { return timestamp; }
+        public String getOp() { return op; }
+        public String getKey() { return key; }
+        public String getNamespace() { return namespace; }
+        public int getStatusCode() { return statusCode; }
+        public long getBytes() { return bytes; }
+        public long getTotalMicros() { return totalMicros; }
+        public long getQueueMicros() { return queueMicros; }
+        public long getStorageMicros() { return storageMicros; }
+        public long getReplicationMicros() { return replicationMicros; }
+        public long getTraceId() { return traceId; }
+
+        public Map<String, Object> toMap() {
+            Map<String, Object> map = new LinkedHashMap<>();
+            map.put("timestamp", timestamp);
+            map.put("op", op);
+            map.put("key", key);
+            map.put("namespace", namespace);
+            map.put("status", statusCode);
+            map.put("bytes", bytes);
+            map.put("totalMicros", totalMicros);
+            map.put("queueMicros", queueMicros);
+            map.put("storageMicros", storageMicros);
+            map.put("replicationMicros", replicationMicros);
+            // 其余时间花在编解码、响应写出等环节
+            map.put("otherMicros", Math.max(0, totalMicros - queueMicros - storageMicros - replicationMicros));
+            if (traceId != 0) {
+                map.put("traceId", Long.toHexString(traceId));
+            }
+            return map;
+        }
+    }
+
+    private final long thresholdNanos;
+    private final Entry[] ring;
+    private int next;
+    private int size;
+    private final LongAdder slowOps = new LongAdder();
+    private final AtomicLong nextWarnAt = new AtomicLong(System.nanoTime());
+    private final AtomicLong suppressedWarnings = new AtomicLong();
+
+    /**
+     * @param thresholdMillis 慢操作阈值，<= 0 表示关闭
+     * @param capacity        保留的条数
+     */
+    public SlowOpLog(long thresholdMillis, int capacity) {
+        this.thresholdNanos = thresholdMillis > 0 ? TimeUnit.MILLISECONDS.toNanos(thresholdMillis) : 0;
+        this.ring = new Entry[Math.max(1, capacity)];
+    }
+
+    public boolean isSlow(long nanos) {
+        return thresholdNanos > 0 && nanos >= thresholdNanos;
+    }
+
+    public void record(KvMessage msg, int statusCode, long bytes,
+                       long totalNanos, long queueNanos, long storageNanos, long replicationNanos) {
+        String key = msg.getKey();
+        if (key != null && key.length() > MAX_KEY_CHARS) {
+            key = key.substring(0, MAX_KEY_CHARS) + "...";
+        }
+        String op = RequestMetrics.isReplicationTraffic(msg)
+                ? "replication" : msg.getType().name().toLowerCase(Locale.ROOT);
+        Entry entry = new Entry(System.currentTimeMillis(), op, key, msg.getNamespace(), statusCode, bytes,
+                totalNanos / 1000, queueNanos / 1000, storageNanos / 1000, replicationNanos / 1000, msg.getTraceId());
+        slowOps.increment();
+        synchronized (this) {
+            ring[next] = entry;
+            next = (next + 1) % ring.length;
+            size = Math.min(size + 1, ring.length);
+        }
+        if (!shouldWarn()) {
+            suppressedWarnings.incrementAndGet();
+            return;
+        }
+        logger.warn("Slow {} key={} status={} bytes={} total={}us queue={}us storage={}us replication={}us"
+                        + " ({} more slow ops since the last warning)",
+                op, key, statusCode, bytes, entry.totalMicros, entry.queueMicros,
+                entry.storageMicros, entry.replicationMicros, suppressedWarnings.getAndSet(0));
+    }
+
+    private boolean shouldWarn() {
+        long now = System.nanoTime();
+        long at = nextWarnAt.get();
+        return now - at >= 0 && nextWarnAt.compareAndSet(at, now + WARN_INTERVAL_NANOS);
+    }
+
+    /**
+     * 最近的慢操作，最新的在前
+     */
+    public synchronized List<Entry> getEntries() {
+        List<Entry> entries = new ArrayList<>(size);
+        for (int i = 1; i <= size; i++) {
+            entries.add(ring[Math.floorMod(next - i, ring.length)]);
+        }
+        return entries;
+    }
+
+    public long getSlowOpCount() {
+        return slowOps.sum();
+    }
+
+    public long getThresholdMillis() {
+        return TimeUnit.NANOSECONDS.toMillis(thresholdNanos);
+    }
+
+    public synchronized void clear() {
+        Arrays.fill(ring, null);
+        next = 0;
+        size = 0;
+    }
+}
@@ -0,0 +1,78 @@
+package com.dkv.dkvstorage.rocksdb;
+
+import com.dkv.dkvcommon.model.KvMessage;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 节点级准入控制
+ * 在途请求超过全局上限、或者RocksDB处于写停顿时写请求直接返回BUSY，
+ * 让过载在入口处快速失败，而不是堆在存储队列和memtable里变成全集群的超时
+ * 单连接的在途上限不在这里处理，由 DkvServerHandler 暂停读取实现（TCP反压）
+ */
+public class AdmissionController {
+
+    public enum Decision {
+        ADMITTED,
+        OVERLOADED,     // 全局在途请求已满
+        WRITE_STALLED   // RocksDB写停顿/限速中，只拒绝写请求
+    }
+
+    private final StorageEngine storageEngine;
+    private final int maxInFlight;
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final AtomicLong rejected = new AtomicLong();
+
+    public AdmissionController(StorageEngine storageEngine, int maxInFlight) {
+        if (maxInFlight <= 0) {
+            throw new IllegalArgumentException("Max in-flight requests must be positive");
+        }
+        this.storageEngine = storageEngine;
+        this.maxInFlight = maxInFlight;
+    }
+
+    /**
+     * 申请一个在途名额，ADMITTED 时调用方必须在请求结束后调用 release
+     */
+    public Decision tryAdmit(KvMessage msg) {
+        if (isWrite(msg) && storageEngine.isWriteStalled()) {
+            rejected.incrementAndGet();
+            return Decision.WRITE_STALLED;
+        }
+        if (inFlight.incrementAndGet() > maxInFlight) {
+            inFlight.decrementAndGet();
+            rejected.incrementAndGet();
+            return Decision.OVERLOADED;
+        }
+        return Decision.ADMITTED;
+    }
+
+    public void release() {
+        inFlight.decrementAndGet();
+    }
+
+    private static boolean isWrite(KvMessage msg) {
+        // 未知类型由 DkvServerHandler 在准入之前按400拒绝
+        if (msg.getType() == null) {
+            return false;
+        }
+        switch (msg.getType()) {
+            case PUT:
+            case DELETE:
+            case MERGE:
+            case PUT_CHUNK:
+                return true;
+            default:
+                return false;
+        }
+    }
+
+    public int getInFlight() {
+        return inFlight.get();
+    }
+
+    public long getRejected() {
+        return rejected.get();
+    }
+}
@@ -0,0 +1,209 @@
+package com.dkv.dkvstorage.rocksdb;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * 大value分块存储
+ * 每次上传是一代分块，分块以上传ID区分（\0dkv\0 c 长度 key 上传ID \0 序号），最后一个分块写完后再写清单
+ * （\0dkv\0 m key，内容为分块数和上传ID）作为提交点；清单切换后才删除上一代分块，读者总是读到完整的某一代，
+ * 中途放弃的上传不会破坏已提交的value
+ * 内部记录都在保留前缀 \0dkv\0 下，与用户key不重叠（用户key不允许以它开头）
+ * 服务端和副本任何时刻只需要持有一个分块，分块本身超过 blob 阈值时进入 blob 文件而不是 LSM
+ * 放弃的上传留下的分块没有清单引用，不会被读到，节点启动时由 sweepAbandoned 回收
+ */
+public class ChunkedValueStore {
+    private static final byte[] RESERVED_PREFIX = {0, 'd', 'k', 'v', 0};
+    private static final byte SEPARATOR = 0;
+    private static final byte CHUNK_TAG = 'c';
+    private static final byte MANIFEST_TAG = 'm';
+
+    private final StorageEngine storageEngine;
+
+    public ChunkedValueStore(StorageEngine storageEngine) {
+        this.storageEngine = storageEngine;
+    }
+
+    /**
+     * 已提交的分块value：分块数和所属的上传
+     */
+    public static class Manifest {
+        private final int chunkCount;
+        private final String uploadId;
+
+        Manifest(int chunkCount, String uploadId) {
+            this.chunkCount = chunkCount;
+            this.uploadId = uploadId;
+        }
+
+        public int getChunkCount() { return chunkCount; }
+        public String getUploadId() { return uploadId; }
+    }
+
+    /**
+     * 用户key不能落在内部记录的保留前缀下
+     */
+    public static boolean isReserved(byte[] key) {
+        if (key == null || key.length < RESERVED_PREFIX.length) {
+            return false;
+        }
+        for (int i = 0; i < RESERVED_PREFIX.length; i++) {
+            if (key[i] != RESERVED_PREFIX[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * 写入一个分块；最后一个分块写入后提交清单，再清理同名的普通value和上一代分块
+     */
+    public void putChunk(String namespace, byte[] key, String uploadId, int index, byte[] data, boolean last)
+            throws Exception {
+        if (index < 0) {
+            throw new IllegalArgumentException("Chunk index cannot be negative");
+        }
+        if (uploadId == null || uploadId.isEmpty()) {
+            throw new IllegalArgumentException("Chunk upload requires a request id");
+        }
+        storageEngine.put(namespace, chunkKey(key, uploadId, index), data);
+
+        if (last) {
+            Manifest old = getManifest(namespace, key);
+            storageEngine.put(namespace, manifestKey(key), encodeManifest(index + 1, uploadId));
+            storageEngine.delete(namespace, key);
+            if (old != null && !old.getUploadId().equals(uploadId)) {
+                deleteChunks(namespace, key, old);
+            }
+        }
+    }
+
+    /**
+     * 已提交的清单，不存在返回 null
+     */
+    public Manifest getManifest(String namespace, byte[] key) throws Exception {
+        byte[] manifest = storageEngine.get(namespace, manifestKey(key));
+        if (manifest == null) {
+            return null;
+        }
+        ByteBuffer buffer = ByteBuffer.wrap(manifest);
+        int chunkCount = buffer.getInt();
+        return new Manifest(chunkCount, StandardCharsets.UTF_8.decode(buffer).toString());
+    }
+
+    /**
+     * 分块数量，不存在返回0
+     */
+    public int getChunkCount(String namespace, byte[] key) throws Exception {
+        Manifest manifest = getManifest(namespace, key);
+        return manifest == null ? 0 : manifest.getChunkCount();
+    }
+
+    /**
+     * 读取某一代的分块，该代已被新值替换或删除时返回 null
+     */
+    public byte[] getChunk(String namespace, byte[] key, Manifest manifest, int index) throws Exception {
+        return storageEngine.get(namespace, chunkKey(key, manifest.getUploadId(), index));
+    }
+
+    /**
+     * 删除分块value（先删清单，读者立即看不到，再删分块）
+     */
+    public void delete(String namespace, byte[] key) throws Exception {
+        Manifest manifest = getManifest(namespace, key);
+        if (manifest == null) {
+            return;
+        }
+        storageEngine.delete(namespace, manifestKey(key));
+        deleteChunks(namespace, key, manifest);
+    }
+
+    /**
+     * 删除没有被清单引用的分块（中途放弃的上传），返回删除的分块数
+     * 只能在节点开始接收请求之前调用：进行中的上传也没有清单，运行时清理会删掉它们
+     * 清单和分块都通过遍历读取，不走单key读（default 命名空间的内存布隆过滤器重启后是空的）
+     */
+    public int sweepAbandoned(String namespace) throws Exception {
+        Map<ByteBuffer, String> committed = new HashMap<>();
+        byte[] manifestPrefix = tagPrefix(MANIFEST_TAG);
+        storageEngine.scan(namespace, manifestPrefix, (manifestKey, value) -> {
+            byte[] key = Arrays.copyOfRange(manifestKey, manifestPrefix.length, manifestKey.length);
+            ByteBuffer manifest = ByteBuffer.wrap(value);
+            manifest.getInt();
+            committed.put(ByteBuffer.wrap(key), StandardCharsets.UTF_8.decode(manifest).toString());
+            return true;
+        });
+
+        int[] deleted = {0};
+        byte[] chunkPrefix = tagPrefix(CHUNK_TAG);
+        storageEngine.scan(namespace, chunkPrefix, (chunkKey, value) -> {
+            ByteBuffer buffer = ByteBuffer.wrap(chunkKey, chunkPrefix.length, chunkKey.length - chunkPrefix.length);
+            int keyLength = buffer.getInt();
+            int keyStart = buffer.position();
+            int separator = lastIndexOf(chunkKey, SEPARATOR);
+            if (keyLength < 0 || separator < keyStart + keyLength) {
+                return true;
+            }
+            ByteBuffer key = ByteBuffer.wrap(Arrays.copyOfRange(chunkKey, keyStart, keyStart + keyLength));
+            String uploadId = new String(chunkKey, keyStart + keyLength, separator - keyStart - keyLength,
+                    StandardCharsets.UTF_8);
+            if (!uploadId.equals(committed.get(key))) {
+                storageEngine.delete(namespace, chunkKey);
+                deleted[0]++;
+            }
+            return true;
+        });
+        return deleted[0];
+    }
+
+    private static byte[] tagPrefix(byte tag) {
+        return ByteBuffer.allocate(RESERVED_PREFIX.length + 1).put(RESERVED_PREFIX).put(tag).array();
+    }
+
+    private static int lastIndexOf(byte[] bytes, byte b) {
+        for (int i = bytes.length - 1; i >= 0; i--) {
+            if (bytes[i] == b) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private void deleteChunks(String namespace, byte[] key, Manifest manifest) throws Exception {
+        for (int i = 0; i < manifest.getChunkCount(); i++) {
+            storageEngine.delete(namespace, chunkKey(key, manifest.getUploadId(), i));
+        }
+    }
+
+    // key 带长度前缀，含 \0 的二进制key也不会与其他key的分块混淆
+    private static byte[] chunkKey(byte[] key, String uploadId, int index) {
+        byte[] upload = uploadId.getBytes(StandardCharsets.UTF_8);
+        byte[] suffix = Integer.toString(index).getBytes(StandardCharsets.US_ASCII);
+        return ByteBuffer.allocate(RESERVED_PREFIX.length + 1 + Integer.BYTES + key.length
+                        + upload.length + 1 + suffix.length)
+                .put(RESERVED_PREFIX)
+                .put(CHUNK_TAG)
+                .putInt(key.length)
+                .put(key)
+                .put(upload)
+                .put(SEPARATOR)
+                .put(suffix)
+                .array();
+    }
+
+    private static byte[] manifestKey(byte[] key) {
+        return ByteBuffer.allocate(RESERVED_PREFIX.length + 1 + key.length)
+                .put(RESERVED_PREFIX)
+                .put(MANIFEST_TAG)
+                .put(key)
+                .array();
+    }
+
+    private static byte[] encodeManifest(int chunkCount, String uploadId) {
+        byte[] upload = uploadId.getBytes(StandardCharsets.UTF_8);
+        return ByteBuffer.allocate(Integer.BYTES + upload.length).putInt(chunkCount).put(upload).array();
+    }
+}
@@ -1,28 +1,48 @@
 package com.dkv.dkvstorage.rocksdb;
 // DataNode.java
+import com.dkv.dkvcommon.model.KvMessage;
+import com.dkv.dkvcommon.model.NodeLoadReport;
+import com.dkv.dkvcommon.trace.FileSpanExporter;
+import com.dkv.dkvcommon.trace.InMemorySpanCollector;
+import com.dkv.dkvcommon.trace.Span;
+import com.dkv.dkvcommon.trace.SpanExporter;
+import com.dkv.dkvcommon.trace.Tracer;
+import com.dkv.dkvstorage.bitcask.BitcaskEngine;
+import com.dkv.dkvstorage.codec.KvCompressionHandler;
+import com.dkv.dkvstorage.codec.KvMessageDecoder;
+import com.dkv.dkvstorage.codec.KvMessageEncoder;
+import com.dkv.dkvstorage.memory.OffHeapEngine;
+import com.dkv.dkvstorage.metrics.HotKeyTracker;
+import com.dkv.dkvstorage.metrics.PrometheusWriter;
+import com.dkv.dkvstorage.metrics.RequestMetrics;
+import com.dkv.dkvstorage.metrics.SlowOpLog;
+import com.dkv.dkvstorage.transport.NettyTransport;
 import io.netty.bootstrap.ServerBootstrap;
 import io.netty.channel.*;
-import io.netty.channel.nio.NioEventLoopGroup;
+import io.netty.channel.group.ChannelGroup;
+import io.netty.channel.group.DefaultChannelGroup;
 import io.netty.channel.socket.SocketChannel;
-import io.netty.channel.socket.nio.NioServerSocketChannel;
-import io.netty.handler.codec.serialization.ClassResolvers;
-import io.netty.handler.codec.serialization.ObjectDecoder;
-import io.netty.handler.codec.serialization.ObjectEncoder;
+import io.netty.handler.flush.FlushConsolidationHandler;
+import io.netty.util.concurrent.GlobalEventExecutor;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.io.File;
+import java.nio.file.Paths;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
 import java.util.List;
-
-
-import org.apache.curator.RetryPolicy;
-import org.apache.curator.framework.CuratorFramework;
-import org.apache.curator.framework.CuratorFrameworkFactory;
-import org.apache.curator.retry.ExponentialBackoffRetry;
-import org.apache.zookeeper.CreateMode;
+import java.util.Locale;
+import java.util.Map;
 
 public class DataNode {
     private static final Logger logger = LoggerFactory.getLogger(DataNode.class);
+    private static final int FLUSH_CONSOLIDATION_LIMIT = 256;  // 最多攒这么多次flush才真正flush一次
+    private static final KvMessage.Type[] READ_TYPES = {KvMessage.Type.GET, KvMessage.Type.GET_STREAM};
+    private static final KvMessage.Type[] WRITE_TYPES = {KvMessage.Type.PUT, KvMessage.Type.DELETE,
+            KvMessage.Type.MERGE, KvMessage.Type.PUT_CHUNK};
 
     private final String nodeId;
     private final String dataDir;
@@ -30,22 +50,57 @@ public class DataNode {
     private final boolean isPrimary;
     private final List<String> replicaNodes;
     private final int replicationFactor;
+    private final DataNodeOptions options;
 
     private StorageEngine storageEngine;
     private ReplicationService replicationService;
+    private StorageExecutor storageExecutor;
+    private AdmissionController admissionController;
     private EventLoopGroup bossGroup;
     private EventLoopGroup workerGroup;
+    private SharedResources sharedResources;  // 为null表示使用节点私有线程
     private Channel serverChannel;
+    // 本节点接入的连接；共享事件循环不会随节点停止而关闭，需要逐个关闭
+    private final ChannelGroup clientChannels = new DefaultChannelGroup(GlobalEventExecutor.INSTANCE);
+    // 所有连接共用，节点重启后从零开始
+    private final RequestMetrics requestMetrics;
+    private Tracer tracer = Tracer.NOOP;
+    private NodeRegistry nodeRegistry;  // 未配置 ZooKeeper 时为null
+    // 负载报告中的请求速率按相邻两次报告之间的计数差计算
+    private long lastReportNanos;
+    private long lastReads;
+    private long lastWrites;
 
 
     public DataNode(String nodeId, String dataDir, int port,
                     boolean isPrimary, List<String> replicaNodes, int replicationFactor) {
+        this(nodeId, dataDir, port, isPrimary, replicaNodes, replicationFactor, new DataNodeOptions());
+    }
+
+    public DataNode(String nodeId, String dataDir, int port,
+                    boolean isPrimary, List<String> replicaNodes, int replicationFactor,
+                    DataNodeOptions options) {
         this.nodeId = nodeId;
         this.dataDir = dataDir;
         this.port = port;
         this.isPrimary = isPrimary;
         this.replicaNodes = replicaNodes;
         this.replicationFactor = replicationFactor;
+        this.options = options;
+        this.requestMetrics = new RequestMetrics(options.getSlowOpThresholdMillis(),
+                options.getSlowOpLogSize(), options.getHotKeyCapacity());
+    }
+
+    private StorageEngine createStorageEngine() {
+        switch (options.getEngineType()) {
+            case OFF_HEAP:
+                return new OffHeapEngine(options.getNamespaces(), options.getMemoryCapacityBytes());
+            case BITCASK:
+                return new BitcaskEngine(options.getNamespaces(), options.getSegmentBytes());
+            case ROCKSDB:
+            default:
+                return new RocksDbEngine(options.getNamespaces());
+        }
     }
 
     public void start() throws Exception {
@@ -53,48 +108,109 @@ public class DataNode {
         logger.info("Data directory: {}", dataDir);
         logger.info("Is primary: {}", isPrimary);
         logger.info("Replica nodes: {}", replicaNodes);
+        logger.info("Options: {}", options);
 
         // 1. 初始化存储引擎
-        storageEngine = new RocksDbEngine();
+        storageEngine = createStorageEngine();
         storageEngine.init(dataDir);
+        sweepAbandonedChunks();
+
+        // 2. 线程资源：默认与同进程的其他节点共享
+        if (options.isShareResources()) {
+            sharedResources = SharedResources.acquire();
+            bossGroup = sharedResources.getBossGroup();
+            workerGroup = sharedResources.getIoGroup();
+        } else {
+            bossGroup = NettyTransport.get().newEventLoopGroup(1);
+            workerGroup = NettyTransport.get().newEventLoopGroup(4);
+        }
 
-        // 2. 初始化复制服务
-        replicationService = new ReplicationService(storageEngine, replicaNodes, isPrimary, replicationFactor);
+        // 3. 请求追踪：未配置文件时留在内存里，通过 Agent 的 traces 操作查询
+        SpanExporter spanExporter = options.getTraceFile() != null
+                ? new FileSpanExporter(Paths.get(options.getTraceFile()))
+                : new InMemorySpanCollector();
+        tracer = new Tracer(nodeId, options.getTraceSampleRate(), spanExporter);
+
+        // 4. 初始化复制服务
+        if (sharedResources != null) {
+            replicationService = new ReplicationService(storageEngine, replicaNodes, isPrimary, replicationFactor,
+                    sharedResources.getIoGroup(), sharedResources.getReplicationExecutor());
+        } else {
+            replicationService = new ReplicationService(storageEngine, replicaNodes, isPrimary, replicationFactor);
+        }
 
-        // 3. 启动Netty服务器
-        startNettyServer();
+        // 5. 初始化存储执行器（阻塞的存储和复制调用不占用事件循环）
+        if (sharedResources != null && options.getExecutionMode() == StorageExecutor.ExecutionMode.STRIPED_POOL) {
+            storageExecutor = sharedResources.getStorageExecutor().view();
+        } else {
+            storageExecutor = new StorageExecutor(options.getExecutionMode(),
+                    options.getStorageLanes(), options.getStorageQueueCapacity());
+        }
+        admissionController = new AdmissionController(storageEngine, options.getMaxInFlight());
 
+        // 6. 启动Netty服务器
         startNettyServer();
-//        registerToZookeeper("127.0.0.1:2181");
+
+        // 7. 注册到 ZooKeeper，之后定期更新负载报告
+        if (options.getZkAddress() != null) {
+            nodeRegistry = NodeRegistry.acquire(options.getZkAddress(), options.getLoadReportIntervalMillis());
+            nodeRegistry.register(getAddress(), this::getLoadReport);
+        }
 
         logger.info("DataNode {} started successfully", nodeId);
     }
 
-    private void startNettyServer() throws Exception {
-        bossGroup = new NioEventLoopGroup(1);
-        workerGroup = new NioEventLoopGroup(4);
+    /**
+     * 回收上次运行中放弃的分块上传，在接收请求之前做，不会误删进行中的上传
+     */
+    private void sweepAbandonedChunks() {
+        ChunkedValueStore chunkedValueStore = new ChunkedValueStore(storageEngine);
+        for (String namespace : storageEngine.getNamespaces()) {
+            try {
+                int deleted = chunkedValueStore.sweepAbandoned(namespace);
+                if (deleted > 0) {
+                    logger.info("Deleted {} abandoned chunks in namespace {}", deleted, namespace);
+                }
+            } catch (UnsupportedOperationException e) {
+                // 不支持遍历的引擎（内存引擎重启后本来就是空的）
+                return;
+            } catch (Exception e) {
+                logger.warn("Failed to sweep abandoned chunks in namespace {}", namespace, e);
+            }
+        }
+    }
 
+    private void startNettyServer() throws Exception {
         try {
             ServerBootstrap b = new ServerBootstrap();
-            b.group(bossGroup, workerGroup)
-                    .channel(NioServerSocketChannel.class)
+            NettyTransport.get().apply(b.group(bossGroup, workerGroup))
                     .childHandler(new ChannelInitializer<SocketChannel>() {
                         @Override
                         protected void initChannel(SocketChannel ch) {
+                            clientChannels.add(ch);
                             ChannelPipeline pipeline = ch.pipeline();
 
-                            // 添加对象编解码器
-                            pipeline.addLast(new ObjectEncoder());
-                            pipeline.addLast(new ObjectDecoder(
-                                    ClassResolvers.cacheDisabled(null)));
+                            // 合并flush：一次读到的多个请求、以及存储线程陆续写回的响应，攒到一起再flush，
+                            // 流水线请求不再是每个响应一次系统调用
+                            pipeline.addLast(new FlushConsolidationHandler(FLUSH_CONSOLIDATION_LIMIT, true));
+
+                            // 长度前缀的二进制编解码，value在帧尾，堆外value直接追加不拷贝
+                            pipeline.addLast(new KvMessageEncoder());
+                            pipeline.addLast(new KvMessageDecoder());
+                            // 服务端不主动压缩，按客户端声明的算法压缩响应
+                            pipeline.addLast(new KvCompressionHandler(KvMessage.Compression.NONE));
 
                             // 添加业务处理器
                             pipeline.addLast(new DkvServerHandler(
-                                    storageEngine, replicationService, isPrimary));
+                                    storageEngine, replicationService, storageExecutor,
+                                    admissionController, options.getMaxInFlightPerConnection(),
+                                    options.isZeroCopyGet(), isPrimary, requestMetrics, tracer));
                         }
                     })
                     .option(ChannelOption.SO_BACKLOG, 128)
-                    .childOption(ChannelOption.SO_KEEPALIVE, true);
+                    .childOption(ChannelOption.SO_KEEPALIVE, true)
+                    .childOption(ChannelOption.WRITE_BUFFER_WATER_MARK, new WriteBufferWaterMark(
+                            options.getWriteBufferLowWaterMark(), options.getWriteBufferHighWaterMark()));
 
             // 绑定端口，开始接收连接
             ChannelFuture f = b.bind(port).sync();
@@ -111,16 +227,36 @@ public class DataNode {
     public void stop() {
         logger.info("Stopping DataNode {}", nodeId);
 
+        // 先注销，客户端不再把新请求路由过来
+        if (nodeRegistry != null) {
+            nodeRegistry.deregister(getAddress());
+            NodeRegistry.release(nodeRegistry);
+            nodeRegistry = null;
+        }
+
         if (serverChannel != null) {
             serverChannel.close();
         }
 
-        if (bossGroup != null) {
-            bossGroup.shutdownGracefully();
+        clientChannels.close().awaitUninterruptibly();
+
+        // 存储任务跑完后才能关闭存储引擎；共享通道只等本节点提交的任务
+        if (storageExecutor != null) {
+            storageExecutor.shutdown();
         }
 
-        if (workerGroup != null) {
-            workerGroup.shutdownGracefully();
+        if (sharedResources != null) {
+            // 共享线程由最后一个停止的节点释放
+            sharedResources = null;
+            SharedResources.release();
+        } else {
+            if (bossGroup != null) {
+                bossGroup.shutdownGracefully();
+            }
+
+            if (workerGroup != null) {
+                workerGroup.shutdownGracefully();
+            }
         }
 
         if (replicationService != null) {
@@ -131,6 +267,8 @@ public class DataNode {
             storageEngine.close();
         }
 
+        tracer.close();
+
         logger.info("DataNode {} stopped", nodeId);
     }
 
@@ -139,21 +277,214 @@ public class DataNode {
         return serverChannel != null && serverChannel.isActive();
     }
 
+    public String getNodeId() {
+        return nodeId;
+    }
+
+    /**
+     * 注册给客户端的地址 host:port
+     */
+    public String getAddress() {
+        return options.getAdvertisedHost() + ":" + port;
+    }
 
-    private void registerToZookeeper(String zkAddress ) throws Exception {
-        // 这里使用 Curator 框架简单实现，或者调用你已经写好的工具类
-        RetryPolicy retryPolicy = new ExponentialBackoffRetry(1000, 3);
-        CuratorFramework client = CuratorFrameworkFactory.newClient(zkAddress, retryPolicy);
-        client.start();
+    public Tracer getTracer() {
+        return tracer;
+    }
 
-        String path = "/dkv/nodes/" + this.nodeId + ":"+this.port;
-        if (client.checkExists().forPath(path) == null) {
-            client.create()
-                    .creatingParentsIfNeeded()
-                    .withMode(CreateMode.EPHEMERAL)
-                    .forPath(path);
-            logger.info("注册成功: {}", path);
+    public RequestMetrics getRequestMetrics() {
+        return requestMetrics;
+    }
+
+    /**
+     * 内存中保留的 span，供 Agent 的 traces 操作返回：traceId 非0时返回该链路的全部 span（按结束顺序），
+     * 否则返回最近结束的 span（最新的在前）；追踪写到文件时返回 null
+     */
+    public List<Map<String, Object>> getTraces(long traceId, int limit) {
+        if (!(tracer.getExporter() instanceof InMemorySpanCollector)) {
+            return null;
+        }
+        InMemorySpanCollector collector = (InMemorySpanCollector) tracer.getExporter();
+        List<Span> spans = traceId != 0 ? collector.getTrace(traceId) : collector.getSpans();
+        if (traceId == 0) {
+            Collections.reverse(spans);
+        }
+        List<Map<String, Object>> result = new ArrayList<>();
+        for (Span span : spans) {
+            if (result.size() >= limit) {
+                break;
+            }
+            result.add(span.toMap());
         }
+        return result;
     }
 
+    /**
+     * 最近的慢操作（最新的在前），供 Agent 的 slowops 操作返回
+     */
+    public List<Map<String, Object>> getSlowOps(int limit) {
+        List<Map<String, Object>> entries = new ArrayList<>();
+        for (SlowOpLog.Entry entry : requestMetrics.getSlowOps().getEntries()) {
+            if (entries.size() >= limit) {
+                break;
+            }
+            entries.add(entry.toMap());
+        }
+        return entries;
+    }
+
+    /**
+     * 访问次数最多和流量字节最多的 key，供 Agent 的 hotkeys 操作返回
+     */
+    public Map<String, Object> getHotKeys(int limit) {
+        HotKeyTracker tracker = requestMetrics.getHotKeys();
+        List<Map<String, Object>> byCount = new ArrayList<>();
+        for (HotKeyTracker.HotKey key : tracker.topByCount(limit)) {
+            byCount.add(key.toMap("count"));
+        }
+        List<Map<String, Object>> byBytes = new ArrayList<>();
+        for (HotKeyTracker.HotKey key : tracker.topByBytes(limit)) {
+            byBytes.add(key.toMap("bytes"));
+        }
+        Map<String, Object> hotKeys = new LinkedHashMap<>();
+        hotKeys.put("capacity", tracker.getCapacity());
+        hotKeys.put("mostAccessed", byCount);
+        hotKeys.put("largest", byBytes);
+        return hotKeys;
+    }
+
+    /**
+     * 当前负载，写到 ZooKeeper 注册节点上供客户端路由和 master 均衡
+     * 请求速率是距上一次生成报告以来的平均值，第一次生成时为 0
+     */
+    public synchronized NodeLoadReport getLoadReport() {
+        NodeLoadReport report = new NodeLoadReport();
+        report.setNodeId(nodeId);
+        report.setAddress(getAddress());
+        report.setWeight(options.getRoutingWeight());
+        report.setHealthy(isHealthy());
+        report.setCapacityBytes(capacityBytes());
+        if (storageEngine != null) {
+            report.setUsedBytes(storageEngine.estimateDataBytes());
+            report.setKeyCount(storageEngine.estimateKeyCount());
+        }
+        if (admissionController != null) {
+            report.setInFlight(admissionController.getInFlight());
+        }
+
+        long now = System.nanoTime();
+        long reads = requestCount(READ_TYPES);
+        long writes = requestCount(WRITE_TYPES);
+        if (lastReportNanos != 0 && now > lastReportNanos) {
+            double seconds = (now - lastReportNanos) / 1e9;
+            report.setReadRate((reads - lastReads) / seconds);
+            report.setWriteRate((writes - lastWrites) / seconds);
+            report.setRequestRate(report.getReadRate() + report.getWriteRate());
+        }
+        lastReportNanos = now;
+        lastReads = reads;
+        lastWrites = writes;
+        report.setReportedAt(System.currentTimeMillis());
+        return report;
+    }
+
+    private long requestCount(KvMessage.Type[] types) {
+        long total = 0;
+        for (KvMessage.Type type : types) {
+            for (RequestMetrics.Outcome outcome : RequestMetrics.Outcome.values()) {
+                total += requestMetrics.getCount(type, outcome);
+            }
+        }
+        return total;
+    }
+
+    /**
+     * 配置的容量；未配置时内存引擎取内存上限，磁盘引擎取数据目录所在磁盘的大小
+     */
+    private long capacityBytes() {
+        if (options.getCapacityBytes() > 0) {
+            return options.getCapacityBytes();
+        }
+        if (options.getEngineType() == StorageEngineType.OFF_HEAP) {
+            return options.getMemoryCapacityBytes();
+        }
+        long total = new File(dataDir).getTotalSpace();
+        return total > 0 ? total : -1;
+    }
+
+    /**
+     * 节点和存储引擎的详细统计，供 Agent 的 stats 操作返回
+     */
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("nodeId", nodeId);
+        stats.put("port", port);
+        stats.put("primary", isPrimary);
+        stats.put("running", isHealthy());
+        stats.put("engineType", options.getEngineType().name());
+        if (admissionController != null) {
+            stats.put("inFlight", admissionController.getInFlight());
+            stats.put("admissionRejected", admissionController.getRejected());
+        }
+        if (storageExecutor != null) {
+            stats.put("queuedTasks", storageExecutor.getQueuedTasks());
+        }
+        if (replicationService != null) {
+            stats.put("pendingReplications", replicationService.getPendingAsyncReplications());
+        }
+        if (storageEngine != null) {
+            stats.put("engine", storageEngine.getStats());
+        }
+        return stats;
+    }
+
+    /**
+     * 按 Prometheus 文本格式写出本节点的指标，所有样本带 node 标签
+     * 存储引擎的指标统一加 dkv_storage_ 前缀，以 _total 结尾的按 counter 导出
+     */
+    public void writeMetrics(PrometheusWriter writer) {
+        String[] node = {"node", nodeId};
+        writer.gauge("dkv_node_up", "Whether the data node is serving requests", isHealthy() ? 1 : 0, node);
+        writer.gauge("dkv_node_primary", "Whether the data node is a primary", isPrimary ? 1 : 0, node);
+        requestMetrics.writeTo(writer, node);
+
+        if (admissionController != null) {
+            writer.gauge("dkv_in_flight_requests", "Requests admitted and not yet answered",
+                    admissionController.getInFlight(), node);
+            writer.counter("dkv_admission_rejected_total", "Requests rejected by admission control",
+                    admissionController.getRejected(), node);
+        }
+        if (storageExecutor != null) {
+            writer.gauge("dkv_storage_queue_depth", "Tasks waiting in the storage lanes",
+                    storageExecutor.getQueuedTasks(), node);
+        }
+        writer.gauge("dkv_client_connections", "Open client connections", clientChannels.size(), node);
+
+        if (replicationService != null) {
+            writer.gauge("dkv_replicas", "Replica nodes this node replicates to",
+                    replicationService.getReplicaCount(), node);
+            writer.histogram("dkv_replication_duration_seconds", "Time a primary waits for synchronous replication",
+                    replicationService.getSyncLatency(), node);
+            writer.counter("dkv_replication_incomplete_total", "Synchronous replications that missed a majority",
+                    replicationService.getIncompleteReplications(), node);
+            writer.counter("dkv_replication_send_failures_total", "Failed sends to individual replicas",
+                    replicationService.getReplicaSendFailures(), node);
+            writer.gauge("dkv_replication_pending", "Asynchronous replication messages not yet delivered",
+                    replicationService.getPendingAsyncReplications(), node);
+        }
+
+        if (storageEngine != null) {
+            String engine = options.getEngineType().name().toLowerCase(Locale.ROOT);
+            for (Map.Entry<String, Number> metric : storageEngine.getMetrics().entrySet()) {
+                String name = "dkv_storage_" + metric.getKey();
+                String help = "Storage engine metric " + metric.getKey();
+                double value = metric.getValue().doubleValue();
+                if (name.endsWith("_total")) {
+                    writer.counter(name, help, value, "node", nodeId, "engine", engine);
+                } else {
+                    writer.gauge(name, help, value, "node", nodeId, "engine", engine);
+                }
+            }
+        }
+    }
 }
\ No newline at end of file
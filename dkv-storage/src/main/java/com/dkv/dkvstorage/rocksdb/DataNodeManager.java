@@ -260,6 +260,16 @@ public class DataNodeManager {
                 result.put("uptime", System.currentTimeMillis() - nodeInfo.getStartTime());
             }
 
+            // 存储引擎统计取不到时不影响状态本身
+            try {
+                Map<String, Object> stats = requestStats(client, nodeId);
+                if (stats != null) {
+                    result.put("stats", stats);
+                }
+            } catch (Exception e) {
+                logger.warn("Failed to get stats of node {}: {}", nodeId, e.getMessage());
+            }
+
             return result;
 
         } catch (Exception e) {
@@ -271,6 +281,56 @@ public class DataNodeManager {
         }
     }
 
+    /**
+     * 从Agent拉取节点存储引擎的详细统计，节点未注册时返回null
+     */
+    public Map<String, Object> getNodeStats(String nodeId) throws Exception {
+        NodeInfo nodeInfo = nodeRegistry.get(nodeId);
+        if (nodeInfo == null) {
+            return null;
+        }
+        Map<String, Object> stats = requestStats(getOrCreateClient(nodeInfo.getHost()), nodeId);
+        if (stats == null) {
+            throw new IllegalStateException("Agent returned no stats for node " + nodeId);
+        }
+        return stats;
+    }
+
+    @SuppressWarnings("unchecked")
+    private Map<String, Object> requestStats(NettyAgentClient client, String nodeId) throws Exception {
+        Map<String, Object> request = new HashMap<>();
+        request.put("nodeId", nodeId);
+        request.put("action", "stats");
+
+        Map<String, Object> agentResponse = client.sendRequest(request);
+        if (agentResponse == null || !Boolean.TRUE.equals(agentResponse.get("success"))) {
+            return null;
+        }
+        return (Map<String, Object>) agentResponse.get("stats");
+    }
+
+    /**
+     * 从Agent拉取节点的 Prometheus 文本指标，节点未注册时返回null
+     */
+    public String getNodeMetrics(String nodeId) throws Exception {
+        NodeInfo nodeInfo = nodeRegistry.get(nodeId);
+        if (nodeInfo == null) {
+            return null;
+        }
+
+        NettyAgentClient client = getOrCreateClient(nodeInfo.getHost());
+        Map<String, Object> request = new HashMap<>();
+        request.put("nodeId", nodeId);
+        request.put("action", "metrics");
+
+        Map<String, Object> agentResponse = client.sendRequest(request);
+        if (agentResponse == null || !Boolean.TRUE.equals(agentResponse.get("success"))) {
+            throw new IllegalStateException(agentResponse == null
+                    ? "No response from agent" : String.valueOf(agentResponse.get("error")));
+        }
+        return (String) agentResponse.get("metrics");
+    }
+
     /**
      * 获取所有节点信息
      */
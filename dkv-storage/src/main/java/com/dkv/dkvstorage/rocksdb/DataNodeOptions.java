@@ -0,0 +1,211 @@
+package com.dkv.dkvstorage.rocksdb;
+
+import com.dkv.dkvstorage.bitcask.BitcaskEngine;
+import com.dkv.dkvstorage.memory.OffHeapEngine;
+
+import java.util.List;
+
+/**
+ * DataNode 运行参数（线程模型等），不传时使用默认值
+ */
+public class DataNodeOptions {
+    private StorageEngineType engineType = StorageEngineType.ROCKSDB;
+    // 命名空间及各自的合并算子、TTL、压缩等配置，三种引擎通用
+    private List<NamespaceOptions> namespaces = NamespaceOptions.defaults();
+    // OFF_HEAP 引擎的内存上限，写满后淘汰最早写入的数据
+    private long memoryCapacityBytes = OffHeapEngine.DEFAULT_CAPACITY_BYTES;
+    // BITCASK 引擎单个段文件的大小，写满后封存并切换到新段
+    private int segmentBytes = BitcaskEngine.DEFAULT_SEGMENT_BYTES;
+    // 与同进程的其他节点共享事件循环和复制线程池（SharedResources）
+    private boolean shareResources = true;
+    private StorageExecutor.ExecutionMode executionMode = StorageExecutor.ExecutionMode.STRIPED_POOL;
+    // 不共享线程时本节点的通道数；共享时用 ResourceBudget 的进程级通道，这两项不生效
+    // 通道里可能阻塞在同步复制上，通道数多于CPU核数
+    private int storageLanes = Math.max(4, Runtime.getRuntime().availableProcessors() * 2);
+    private int storageQueueCapacity = 1024;  // 每个通道的排队上限
+    // 准入控制：全局在途上限超出返回BUSY，单连接在途上限超出暂停读取
+    private int maxInFlight = 8192;
+    private int maxInFlightPerConnection = 256;
+    // 出站缓冲超过高水位暂停读取，降到低水位恢复（慢客户端不会撑爆内存）
+    private int writeBufferLowWaterMark = 512 * 1024;
+    private int writeBufferHighWaterMark = 2 * 1024 * 1024;
+    // GET直接读入池化的堆外缓冲并原样写到socket，不经过堆上byte[]
+    private boolean zeroCopyGet = true;
+    // 请求追踪：客户端带来的链路总是继续；不带上下文的请求按该采样率由本节点发起新链路
+    private double traceSampleRate = 0;
+    // span 输出文件（每行一个JSON），为null时只保存在进程内最近的 span 里
+    private String traceFile;
+    // 慢操作日志：超过阈值的请求记录各阶段耗时，<= 0 关闭
+    private long slowOpThresholdMillis = 100;
+    private int slowOpLogSize = 256;
+    // 热点key探测跟踪的key数（访问次数、流量字节各一份），0 关闭
+    private int hotKeyCapacity = 256;
+    // 服务注册：设置 ZooKeeper 地址后节点在 /dkv/nodes/host:port 下注册临时节点并定期写入负载报告
+    private String zkAddress;
+    private String advertisedHost = "127.0.0.1";   // 注册给客户端的地址
+    private int routingWeight = 1;                  // 路由权重，容量大的节点可以调高
+    private long loadReportIntervalMillis = 5_000;
+    private long capacityBytes;                     // <= 0 时磁盘引擎取数据目录所在磁盘的大小
+
+    public StorageEngineType getEngineType() { return engineType; }
+    public DataNodeOptions setEngineType(StorageEngineType engineType) {
+        this.engineType = engineType;
+        return this;
+    }
+
+    public List<NamespaceOptions> getNamespaces() { return namespaces; }
+    public DataNodeOptions setNamespaces(List<NamespaceOptions> namespaces) {
+        this.namespaces = namespaces;
+        return this;
+    }
+
+    public long getMemoryCapacityBytes() { return memoryCapacityBytes; }
+    public DataNodeOptions setMemoryCapacityBytes(long memoryCapacityBytes) {
+        this.memoryCapacityBytes = memoryCapacityBytes;
+        return this;
+    }
+
+    public int getSegmentBytes() { return segmentBytes; }
+    public DataNodeOptions setSegmentBytes(int segmentBytes) {
+        this.segmentBytes = segmentBytes;
+        return this;
+    }
+
+    public boolean isShareResources() { return shareResources; }
+    public DataNodeOptions setShareResources(boolean shareResources) {
+        this.shareResources = shareResources;
+        return this;
+    }
+
+    public StorageExecutor.ExecutionMode getExecutionMode() { return executionMode; }
+    public DataNodeOptions setExecutionMode(StorageExecutor.ExecutionMode executionMode) {
+        this.executionMode = executionMode;
+        return this;
+    }
+
+    public int getStorageLanes() { return storageLanes; }
+    public DataNodeOptions setStorageLanes(int storageLanes) {
+        this.storageLanes = storageLanes;
+        return this;
+    }
+
+    public int getStorageQueueCapacity() { return storageQueueCapacity; }
+    public DataNodeOptions setStorageQueueCapacity(int storageQueueCapacity) {
+        this.storageQueueCapacity = storageQueueCapacity;
+        return this;
+    }
+
+    public int getMaxInFlight() { return maxInFlight; }
+    public DataNodeOptions setMaxInFlight(int maxInFlight) {
+        this.maxInFlight = maxInFlight;
+        return this;
+    }
+
+    public int getMaxInFlightPerConnection() { return maxInFlightPerConnection; }
+    public DataNodeOptions setMaxInFlightPerConnection(int maxInFlightPerConnection) {
+        this.maxInFlightPerConnection = maxInFlightPerConnection;
+        return this;
+    }
+
+    public int getWriteBufferLowWaterMark() { return writeBufferLowWaterMark; }
+    public DataNodeOptions setWriteBufferLowWaterMark(int writeBufferLowWaterMark) {
+        this.writeBufferLowWaterMark = writeBufferLowWaterMark;
+        return this;
+    }
+
+    public int getWriteBufferHighWaterMark() { return writeBufferHighWaterMark; }
+    public DataNodeOptions setWriteBufferHighWaterMark(int writeBufferHighWaterMark) {
+        this.writeBufferHighWaterMark = writeBufferHighWaterMark;
+        return this;
+    }
+
+    public boolean isZeroCopyGet() { return zeroCopyGet; }
+    public DataNodeOptions setZeroCopyGet(boolean zeroCopyGet) {
+        this.zeroCopyGet = zeroCopyGet;
+        return this;
+    }
+
+    public double getTraceSampleRate() { return traceSampleRate; }
+    public DataNodeOptions setTraceSampleRate(double traceSampleRate) {
+        this.traceSampleRate = traceSampleRate;
+        return this;
+    }
+
+    public String getTraceFile() { return traceFile; }
+    public DataNodeOptions setTraceFile(String traceFile) {
+        this.traceFile = traceFile;
+        return this;
+    }
+
+    public long getSlowOpThresholdMillis() { return slowOpThresholdMillis; }
+    public DataNodeOptions setSlowOpThresholdMillis(long slowOpThresholdMillis) {
+        this.slowOpThresholdMillis = slowOpThresholdMillis;
+        return this;
+    }
+
+    public int getSlowOpLogSize() { return slowOpLogSize; }
+    public DataNodeOptions setSlowOpLogSize(int slowOpLogSize) {
+        this.slowOpLogSize = slowOpLogSize;
+        return this;
+    }
+
+    public int getHotKeyCapacity() { return hotKeyCapacity; }
+    public DataNodeOptions setHotKeyCapacity(int hotKeyCapacity) {
+        this.hotKeyCapacity = hotKeyCapacity;
+        return this;
+    }
+
+    public String getZkAddress() { return zkAddress; }
+    public DataNodeOptions setZkAddress(String zkAddress) {
+        this.zkAddress = zkAddress;
+        return this;
+    }
+
+    public String getAdvertisedHost() { return advertisedHost; }
+    public DataNodeOptions setAdvertisedHost(String advertisedHost) {
+        this.advertisedHost = advertisedHost;
+        return this;
+    }
+
+    public int getRoutingWeight() { return routingWeight; }
+    public DataNodeOptions setRoutingWeight(int routingWeight) {
+        this.routingWeight = routingWeight;
+        return this;
+    }
+
+    public long getLoadReportIntervalMillis() { return loadReportIntervalMillis; }
+    public DataNodeOptions setLoadReportIntervalMillis(long loadReportIntervalMillis) {
+        this.loadReportIntervalMillis = loadReportIntervalMillis;
+        return this;
+    }
+
+    public long getCapacityBytes() { return capacityBytes; }
+    public DataNodeOptions setCapacityBytes(long capacityBytes) {
+        this.capacityBytes = capacityBytes;
+        return this;
+    }
+
+    @Override
+    public String toString() {
+        return "DataNodeOptions{" +
+                "engineType=" + engineType +
+                ", namespaces=" + namespaces.stream().map(NamespaceOptions::getName).toList() +
+                (engineType == StorageEngineType.OFF_HEAP ? ", memoryCapacityBytes=" + memoryCapacityBytes : "") +
+                (engineType == StorageEngineType.BITCASK ? ", segmentBytes=" + segmentBytes : "") +
+                ", shareResources=" + shareResources +
+                ", executionMode=" + executionMode +
+                ", storageLanes=" + storageLanes +
+                ", storageQueueCapacity=" + storageQueueCapacity +
+                ", maxInFlight=" + maxInFlight +
+                ", maxInFlightPerConnection=" + maxInFlightPerConnection +
+                ", writeBufferWaterMark=" + writeBufferLowWaterMark + "/" + writeBufferHighWaterMark +
+                ", zeroCopyGet=" + zeroCopyGet +
+                (traceSampleRate > 0 ? ", traceSampleRate=" + traceSampleRate : "") +
+                (traceFile != null ? ", traceFile=" + traceFile : "") +
+                ", slowOpThresholdMillis=" + slowOpThresholdMillis +
+                ", hotKeyCapacity=" + hotKeyCapacity +
+                (zkAddress != null ? ", zkAddress=" + zkAddress + ", advertisedHost=" + advertisedHost
+                        + ", routingWeight=" + routingWeight : "") +
+                '}';
+    }
+}
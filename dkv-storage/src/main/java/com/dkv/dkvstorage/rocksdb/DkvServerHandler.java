@@ -1,51 +1,242 @@
 package com.dkv.dkvstorage.rocksdb;
 // DkvServerHandler.java
+import com.dkv.dkvcommon.costants.DkvConstants;
 import com.dkv.dkvcommon.model.KvMessage;
+import com.dkv.dkvcommon.trace.Span;
+import com.dkv.dkvcommon.trace.Tracer;
+import com.dkv.dkvstorage.codec.DirectValueMessage;
+import com.dkv.dkvstorage.metrics.RequestMetrics;
+import com.dkv.dkvstorage.metrics.SlowOpLog;
+import io.netty.buffer.ByteBuf;
+import io.netty.channel.ChannelFutureListener;
 import io.netty.channel.ChannelHandlerContext;
 import io.netty.channel.SimpleChannelInboundHandler;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.nio.charset.StandardCharsets;
+import java.util.Locale;
+import java.util.concurrent.atomic.AtomicInteger;
 
 public class DkvServerHandler extends SimpleChannelInboundHandler<KvMessage> {
     private static final Logger logger = LoggerFactory.getLogger(DkvServerHandler.class);
+    // 引擎没有给出大小建议时直接读的初始缓冲大小；更大的value按实际长度再读一次
+    private static final int DIRECT_READ_INITIAL_CAPACITY = 16 * 1024;
+    private static final int DIRECT_READ_MAX_ATTEMPTS = 3;
+    // 按请求类型预先拼好的 span 名，请求路径上不拼字符串
+    private static final String[] SPAN_NAMES = new String[KvMessage.Type.values().length];
+
+    static {
+        for (KvMessage.Type type : KvMessage.Type.values()) {
+            SPAN_NAMES[type.ordinal()] = "server." + type.name().toLowerCase(Locale.ROOT);
+        }
+    }
 
     private final StorageEngine storageEngine;
+    private final ChunkedValueStore chunkedValueStore;
     private final ReplicationService replicationService;
+    private final StorageExecutor storageExecutor;
+    private final AdmissionController admissionController;  // 为null表示不做准入控制
+    private final int maxInFlightPerConnection;
+    private final boolean zeroCopyGet;
     private final boolean isPrimary;
+    private final RequestMetrics metrics;
+    private final Tracer tracer;
+    // 本连接已读入但还没写回响应的请求数
+    private final AtomicInteger connectionInFlight = new AtomicInteger();
 
     public DkvServerHandler(StorageEngine storageEngine,
                             ReplicationService replicationService,
                             boolean isPrimary) {
+        this(storageEngine, replicationService,
+                new StorageExecutor(StorageExecutor.ExecutionMode.EVENT_LOOP, 0, 0), isPrimary);
+    }
+
+    public DkvServerHandler(StorageEngine storageEngine,
+                            ReplicationService replicationService,
+                            StorageExecutor storageExecutor,
+                            boolean isPrimary) {
+        this(storageEngine, replicationService, storageExecutor, null, Integer.MAX_VALUE, false, isPrimary);
+    }
+
+    public DkvServerHandler(StorageEngine storageEngine,
+                            ReplicationService replicationService,
+                            StorageExecutor storageExecutor,
+                            AdmissionController admissionController,
+                            int maxInFlightPerConnection,
+                            boolean zeroCopyGet,
+                            boolean isPrimary) {
+        this(storageEngine, replicationService, storageExecutor, admissionController,
+                maxInFlightPerConnection, zeroCopyGet, isPrimary, new RequestMetrics(), Tracer.NOOP);
+    }
+
+    public DkvServerHandler(StorageEngine storageEngine,
+                            ReplicationService replicationService,
+                            StorageExecutor storageExecutor,
+                            AdmissionController admissionController,
+                            int maxInFlightPerConnection,
+                            boolean zeroCopyGet,
+                            boolean isPrimary,
+                            RequestMetrics metrics,
+                            Tracer tracer) {
         this.storageEngine = storageEngine;
+        this.chunkedValueStore = new ChunkedValueStore(storageEngine);
         this.replicationService = replicationService;
+        this.storageExecutor = storageExecutor;
+        this.admissionController = admissionController;
+        this.maxInFlightPerConnection = maxInFlightPerConnection;
+        this.zeroCopyGet = zeroCopyGet;
         this.isPrimary = isPrimary;
+        this.metrics = metrics;
+        this.tracer = tracer;
     }
 
     @Override
-    protected void channelRead0(ChannelHandlerContext ctx, KvMessage msg) throws Exception {
+    protected void channelRead0(ChannelHandlerContext ctx, KvMessage msg) {
         logger.debug("Received message: {}", msg);
+        long receivedAt = System.nanoTime();
+
+        // 解码器不认识的类型：客户端错误，不占准入名额也不进存储通道
+        if (msg.getType() == null) {
+            KvMessage response = newResponse(msg);
+            response.setStatusCode(400);
+            response.setMessage("Unknown operation type");
+            metrics.record(msg, 400, System.nanoTime() - receivedAt);
+            ctx.writeAndFlush(response);
+            return;
+        }
+
+        // 复制流量已在主节点准入过，副本拒绝只会让副本落后，不做准入控制
+        boolean admitted = false;
+        if (admissionController != null && !isReplicationTraffic(msg)) {
+            AdmissionController.Decision decision = admissionController.tryAdmit(msg);
+            if (decision != AdmissionController.Decision.ADMITTED) {
+                metrics.rejected(msg);
+                ctx.writeAndFlush(busyResponse(msg, decision == AdmissionController.Decision.WRITE_STALLED
+                        ? "Server busy, writes are stalled" : "Server busy, too many in-flight requests"));
+                return;
+            }
+            admitted = true;
+        }
+
+        // 单连接在途请求达到上限时暂停读取，由TCP把压力传回客户端
+        connectionInFlight.incrementAndGet();
+        updateAutoRead(ctx);
+
+        boolean release = admitted;
+        Runnable task = () -> {
+            try {
+                process(ctx, msg, receivedAt);
+            } finally {
+                complete(ctx, release);
+            }
+        };
+        // 同一个key的请求进入同一个存储通道，保证按到达顺序执行；复制写入走副本通道
+        if (!storageExecutor.execute(msg.getKeyBytes(), isReplicationTraffic(msg), task)) {
+            complete(ctx, release);
+            metrics.rejected(msg);
+            ctx.writeAndFlush(busyResponse(msg, "Server busy, storage queue is full"));
+        }
+    }
+
+    private static boolean isReplicationTraffic(KvMessage msg) {
+        return msg.isReplication() || msg.getType() == KvMessage.Type.REPLICATION_PUT;
+    }
+
+    private void complete(ChannelHandlerContext ctx, boolean releaseAdmission) {
+        if (releaseAdmission) {
+            admissionController.release();
+        }
+        // 刚从上限降下来才需要恢复读取
+        if (connectionInFlight.decrementAndGet() == maxInFlightPerConnection - 1) {
+            if (ctx.executor().inEventLoop()) {
+                updateAutoRead(ctx);
+            } else {
+                ctx.executor().execute(() -> updateAutoRead(ctx));
+            }
+        }
+    }
+
+    /**
+     * 出站缓冲未超过高水位、且在途请求未达上限时才继续读取
+     */
+    private void updateAutoRead(ChannelHandlerContext ctx) {
+        boolean autoRead = ctx.channel().isWritable()
+                && connectionInFlight.get() < maxInFlightPerConnection;
+        if (ctx.channel().config().isAutoRead() != autoRead) {
+            ctx.channel().config().setAutoRead(autoRead);
+        }
+    }
+
+    @Override
+    public void channelWritabilityChanged(ChannelHandlerContext ctx) {
+        updateAutoRead(ctx);
+        ctx.fireChannelWritabilityChanged();
+    }
 
-        KvMessage response = new KvMessage(KvMessage.Type.RESPONSE, msg.getKey(), null);
-        response.setRequestId(msg.getRequestId());
+    /**
+     * 执行请求并写回响应
+     * 在存储线程上调用 writeAndFlush 时，Netty 会把写操作投递回该连接的事件循环
+     * 延迟记到响应交给 Netty 为止，流式读取只算到第一块
+     * 被采样的请求记录 server span，下面挂排队、存储读写和复制的子 span
+     * 每个请求都拆分各阶段耗时，超过阈值的写入慢操作日志
+     */
+    private void process(ChannelHandlerContext ctx, KvMessage msg, long receivedAt) {
+        KvMessage response = newResponse(msg);
+        DirectValueMessage direct = null;  // 零拷贝GET的响应，value 不在 response 里
+        long startedAt = System.nanoTime();
+        Span span = tracer.continueTrace(spanName(msg), msg, receivedAt);
+        RequestTiming timing = new RequestTiming(receivedAt, startedAt, span);
+        if (span.isSampled()) {
+            span.child("queue", receivedAt).finish(startedAt);
+            span.tag("key", msg.getKey()).tag("namespace", StorageEngine.resolveNamespace(msg));
+        }
 
         try {
+            if (ChunkedValueStore.isReserved(msg.getKeyBytes())) {
+                throw new IllegalArgumentException("Key prefix is reserved for internal records");
+            }
             switch (msg.getType()) {
                 case PUT:
-                    handlePut(ctx, msg, response);
+                    handlePut(ctx, msg, response, timing);
                     break;
 
                 case GET:
-                    handleGet(ctx, msg, response);
+                    direct = handleGet(ctx, msg, response, timing);
                     break;
 
                 case DELETE:
-                    handleDelete(ctx, msg, response);
+                    handleDelete(ctx, msg, response, timing);
+                    break;
+
+                case MERGE:
+                    handleMerge(ctx, msg, response, timing);
+                    break;
+
+                case PUT_CHUNK:
+                    handlePutChunk(ctx, msg, response, timing);
+                    break;
+
+                case GET_STREAM:
+                    // 分块响应由 handleGetStream 逐帧写出
+                    if (handleGetStream(ctx, msg, response)) {
+                        complete(msg, 200, 0, timing);
+                        span.tag("status", 200).finish();
+                        return;
+                    }
                     break;
 
                 case REPLICATION_PUT:
                     // 处理复制请求
-                    replicationService.handleReplicationRequest(msg);
+                    timing.beginStorage("storage.replicate");
+                    try {
+                        replicationService.handleReplicationRequest(msg);
+                        if (!isPrimary) {
+                            chunkedValueStore.delete(StorageEngine.resolveNamespace(msg), msg.getKeyBytes());
+                        }
+                    } finally {
+                        timing.endStorage();
+                    }
                     response.setStatusCode(200);
                     response.setMessage("Replication OK");
                     break;
@@ -54,17 +245,74 @@ public class DkvServerHandler extends SimpleChannelInboundHandler<KvMessage> {
                     response.setStatusCode(400);
                     response.setMessage("Unknown operation type");
             }
+        } catch (IllegalArgumentException e) {
+            // 参数错误（如未知命名空间）属于客户端错误
+            response.setStatusCode(400);
+            response.setMessage(e.getMessage());
         } catch (Exception e) {
             logger.error("Error handling request", e);
             response.setStatusCode(500);
             response.setMessage("Internal server error: " + e.getMessage());
         }
 
-        ctx.writeAndFlush(response);
+        // 状态码和value长度要在写出前取，零拷贝响应写出后即被释放
+        long responseBytes = direct != null ? direct.getValueLength() : valueBytes(response);
+        complete(msg, response.getStatusCode(), valueBytes(msg) + responseBytes, timing);
+        if (span.isSampled()) {
+            span.tag("status", response.getStatusCode());
+            if (response.getStatusCode() >= 500) {
+                span.error(response.getMessage());
+            }
+            span.finish();
+        }
+        ctx.writeAndFlush(direct != null ? direct : response);
+    }
+
+    /**
+     * 记录请求指标，喂给热点key探测，超过阈值的写入慢操作日志
+     * 复制流量不计入热点：副本上的热点是主节点的写入，会掩盖副本自己的读热点
+     */
+    private void complete(KvMessage msg, int statusCode, long bytes, RequestTiming timing) {
+        long totalNanos = System.nanoTime() - timing.getReceivedAt();
+        metrics.record(msg, statusCode, totalNanos);
+        if (!isReplicationTraffic(msg)) {
+            metrics.getHotKeys().record(msg.getKeyBytes(), bytes);
+        }
+        SlowOpLog slowOps = metrics.getSlowOps();
+        if (slowOps.isSlow(totalNanos)) {
+            slowOps.record(msg, statusCode, bytes, totalNanos, timing.getQueueNanos(),
+                    timing.getStorageNanos(), timing.getReplicationNanos());
+        }
+    }
+
+    private static long valueBytes(KvMessage msg) {
+        return msg.getValue() == null ? 0 : msg.getValue().length;
+    }
+
+    private static String spanName(KvMessage msg) {
+        return msg.getType() == null ? "server.unknown" : SPAN_NAMES[msg.getType().ordinal()];
+    }
+
+    /**
+     * 响应原样带回请求的key字节，不经过字符串转换
+     */
+    private static KvMessage newResponse(KvMessage request) {
+        KvMessage response = new KvMessage(KvMessage.Type.RESPONSE, null, null);
+        response.setKeyBytes(request.getKeyBytes());
+        response.setRequestId(request.getRequestId());
+        return response;
+    }
+
+    private static KvMessage busyResponse(KvMessage msg, String reason) {
+        KvMessage response = newResponse(msg);
+        response.setStatusCode(DkvConstants.STATUS_BUSY);
+        response.setMessage(reason);
+        response.setLastChunk(msg.getType() == KvMessage.Type.GET_STREAM);
+        return response;
     }
 
-    private void handlePut(ChannelHandlerContext ctx, KvMessage msg, KvMessage response) throws Exception {
-        String key = msg.getKey();
+    private void handlePut(ChannelHandlerContext ctx, KvMessage msg, KvMessage response, RequestTiming timing) throws Exception {
+        byte[] key = msg.getKeyBytes();
         byte[] value = msg.getValue();
 
         if (key == null || value == null) {
@@ -73,12 +321,25 @@ public class DkvServerHandler extends SimpleChannelInboundHandler<KvMessage> {
             return;
         }
 
-        // 写入本地存储
-        storageEngine.put(key, value);
+        // 写入本地存储，同名的分块value随之失效
+        String namespace = StorageEngine.resolveNamespace(msg);
+        timing.beginStorage("storage.put");
+        try {
+            storageEngine.put(namespace, key, value);
+            chunkedValueStore.delete(namespace, key);
+        } finally {
+            timing.endStorage();
+        }
 
         // 如果是主节点，需要复制到从节点
         if (isPrimary && !msg.isReplication()) {
-            boolean replicationSuccess = replicationService.syncReplicate(msg, key, value);
+            timing.beginReplication();
+            boolean replicationSuccess;
+            try {
+                replicationSuccess = replicationService.syncReplicate(msg, key, value, timing.getSpan());
+            } finally {
+                timing.endReplication();
+            }
 
             if (replicationSuccess) {
                 response.setStatusCode(200);
@@ -87,7 +348,7 @@ public class DkvServerHandler extends SimpleChannelInboundHandler<KvMessage> {
                 // 复制失败，可能需要回滚或记录警告
                 response.setStatusCode(202);  // Accepted但复制不完全
                 response.setMessage("Put successful but replication incomplete");
-                logger.warn("PUT Replication incomplete for key: {}", key);
+                logger.warn("PUT Replication incomplete for key: {}", msg.getKey());
             }
         } else {
             response.setStatusCode(200);
@@ -95,29 +356,94 @@ public class DkvServerHandler extends SimpleChannelInboundHandler<KvMessage> {
         }
     }
 
-    private void handleGet(ChannelHandlerContext ctx, KvMessage msg, KvMessage response) throws Exception {
-        String key = msg.getKey();
+    /**
+     * 读取value，状态写入传入的 response；开启零拷贝且key存在时返回以 response 为头、持有堆外缓冲的
+     * DirectValueMessage，由它代替 response 写出，否则 value 填在 response 里并返回 null
+     */
+    private DirectValueMessage handleGet(ChannelHandlerContext ctx, KvMessage msg, KvMessage response, RequestTiming timing) throws Exception {
+        byte[] key = msg.getKeyBytes();
 
         if (key == null) {
             response.setStatusCode(400);
             response.setMessage("Key cannot be null");
-            return;
+            return null;
         }
 
-        byte[] value = storageEngine.get(key);
+        String namespace = StorageEngine.resolveNamespace(msg);
+        timing.beginStorage("storage.get");
+        try {
+            if (zeroCopyGet) {
+                DirectValueMessage direct = readDirect(ctx, namespace, key, response);
+                if (direct != null) {
+                    response.setStatusCode(200);
+                    response.setMessage("Get successful");
+                    return direct;
+                }
+            }
 
-        if (value != null) {
-            response.setStatusCode(200);
-            response.setValue(value);
-            response.setMessage("Get successful");
-        } else {
-            response.setStatusCode(404);
-            response.setMessage("Key not found");
+            // 零拷贝读取未命中说明key不存在，不必再读一次
+            byte[] value = zeroCopyGet ? null : storageEngine.get(namespace, key);
+
+            if (value != null) {
+                response.setStatusCode(200);
+                response.setValue(value);
+                response.setMessage("Get successful");
+            } else if (chunkedValueStore.getChunkCount(namespace, key) > 0) {
+                // 大value按分块存放，不在一帧里整体返回
+                response.setStatusCode(413);
+                response.setMessage("Value is chunked, use streaming get");
+            } else {
+                response.setStatusCode(404);
+                response.setMessage("Key not found");
+            }
+            return null;
+        } finally {
+            timing.endStorage();
         }
     }
 
-    private void handleDelete(ChannelHandlerContext ctx, KvMessage msg, KvMessage response) throws Exception {
-        String key = msg.getKey();
+    /**
+     * 把value直接读进池化的堆外缓冲，key不存在时返回null
+     * 缓冲的所有权随响应交给编码器，写出后由 Netty 释放
+     */
+    private DirectValueMessage readDirect(ChannelHandlerContext ctx, String namespace, byte[] key,
+                                          KvMessage response) throws Exception {
+        int capacity = initialReadCapacity(namespace);
+        for (int attempt = 0; attempt < DIRECT_READ_MAX_ATTEMPTS; attempt++) {
+            ByteBuf buffer = ctx.alloc().directBuffer(capacity);
+            boolean handedOff = false;
+            try {
+                int size = storageEngine.get(namespace, key, buffer.nioBuffer(0, capacity));
+                if (size < 0) {
+                    return null;
+                }
+                if (size <= capacity) {
+                    buffer.writerIndex(size);
+                    handedOff = true;
+                    return new DirectValueMessage(response, buffer);
+                }
+                // 缓冲不够大，按实际长度重读（两次读取之间value可能又被改写）
+                capacity = size;
+            } finally {
+                if (!handedOff) {
+                    buffer.release();
+                }
+            }
+        }
+        throw new IllegalStateException("Value for key " + new String(key, StandardCharsets.UTF_8)
+                + " kept growing during read");
+    }
+
+    /**
+     * 首次读取的缓冲按引擎对该命名空间的建议分配，超过单帧上限的value按分块存放，不会走到这里
+     */
+    private int initialReadCapacity(String namespace) {
+        int hint = storageEngine.getValueSizeHint(namespace);
+        return hint > 0 ? Math.min(hint, DkvConstants.LARGE_VALUE_THRESHOLD) : DIRECT_READ_INITIAL_CAPACITY;
+    }
+
+    private void handleDelete(ChannelHandlerContext ctx, KvMessage msg, KvMessage response, RequestTiming timing) throws Exception {
+        byte[] key = msg.getKeyBytes();
 
         if (key == null) {
             response.setStatusCode(400);
@@ -125,12 +451,23 @@ public class DkvServerHandler extends SimpleChannelInboundHandler<KvMessage> {
             return;
         }
 
-        storageEngine.delete(key);
-
+        timing.beginStorage("storage.delete");
+        try {
+            storageEngine.delete(StorageEngine.resolveNamespace(msg), key);
+            chunkedValueStore.delete(StorageEngine.resolveNamespace(msg), key);
+        } finally {
+            timing.endStorage();
+        }
 
         // 如果是主节点，需要复制到从节点
         if (isPrimary && !msg.isReplication()) {
-            boolean replicationSuccess = replicationService.syncReplicate(msg, key, null);
+            timing.beginReplication();
+            boolean replicationSuccess;
+            try {
+                replicationSuccess = replicationService.syncReplicate(msg, key, null, timing.getSpan());
+            } finally {
+                timing.endReplication();
+            }
 
             if (replicationSuccess) {
                 response.setStatusCode(200);
@@ -139,7 +476,7 @@ public class DkvServerHandler extends SimpleChannelInboundHandler<KvMessage> {
                 // 复制失败，可能需要回滚或记录警告
                 response.setStatusCode(202);  // Accepted但复制不完全
                 response.setMessage("Delete successful but replication incomplete");
-                logger.warn("DELETE Replication incomplete for key: {}", key);
+                logger.warn("DELETE Replication incomplete for key: {}", msg.getKey());
             }
         } else {
             response.setStatusCode(200);
@@ -148,6 +485,176 @@ public class DkvServerHandler extends SimpleChannelInboundHandler<KvMessage> {
 
     }
 
+    private void handleMerge(ChannelHandlerContext ctx, KvMessage msg, KvMessage response, RequestTiming timing) throws Exception {
+        byte[] key = msg.getKeyBytes();
+        byte[] operand = msg.getValue();
+
+        if (key == null || operand == null) {
+            response.setStatusCode(400);
+            response.setMessage("Key and operand cannot be null");
+            return;
+        }
+
+        // 合并算子由命名空间决定；请求声明的算子与之不符时拒绝，避免计数器被当成字符串追加
+        String namespace = StorageEngine.resolveNamespace(msg);
+        KvMessage.MergeOperator expected = storageEngine.getMergeOperator(namespace);
+        if (msg.getMergeOperator() != null && expected != null && msg.getMergeOperator() != expected) {
+            response.setStatusCode(400);
+            response.setMessage("Merge operator " + msg.getMergeOperator() + " does not match namespace "
+                    + namespace + " (" + expected + ")");
+            return;
+        }
+
+        // 盲写：直接把操作数交给RocksDB合并算子，不读取旧值
+        timing.beginStorage("storage.merge");
+        try {
+            storageEngine.merge(namespace, key, operand);
+        } finally {
+            timing.endStorage();
+        }
+
+        // 复制的是操作数而不是合并结果，副本各自执行相同的合并
+        if (isPrimary && !msg.isReplication()) {
+            timing.beginReplication();
+            boolean replicationSuccess;
+            try {
+                replicationSuccess = replicationService.syncReplicate(msg, key, operand, timing.getSpan());
+            } finally {
+                timing.endReplication();
+            }
+
+            if (replicationSuccess) {
+                response.setStatusCode(200);
+                response.setMessage("Merge successful with replication");
+            } else {
+                response.setStatusCode(202);  // Accepted但复制不完全
+                response.setMessage("Merge successful but replication incomplete");
+                logger.warn("MERGE Replication incomplete for key: {}", msg.getKey());
+            }
+        } else {
+            response.setStatusCode(200);
+            response.setMessage("Merge successful");
+        }
+    }
+
+    private void handlePutChunk(ChannelHandlerContext ctx, KvMessage msg, KvMessage response, RequestTiming timing) throws Exception {
+        byte[] key = msg.getKeyBytes();
+        byte[] chunk = msg.getValue();
+        response.setChunkIndex(msg.getChunkIndex());
+
+        if (key == null || chunk == null) {
+            response.setStatusCode(400);
+            response.setMessage("Key and chunk cannot be null");
+            return;
+        }
+
+        // 每个分块落盘后即可释放，服务端不拼接完整value
+        timing.beginStorage("storage.putChunk");
+        try {
+            // 请求ID即上传ID，同一次上传的分块共用
+            chunkedValueStore.putChunk(StorageEngine.resolveNamespace(msg), key, msg.getRequestId(),
+                    msg.getChunkIndex(), chunk, msg.isLastChunk());
+        } finally {
+            timing.endStorage();
+        }
+
+        if (isPrimary && !msg.isReplication()) {
+            timing.beginReplication();
+            boolean replicationSuccess;
+            try {
+                replicationSuccess = replicationService.syncReplicate(msg, key, chunk, timing.getSpan());
+            } finally {
+                timing.endReplication();
+            }
+
+            if (replicationSuccess) {
+                response.setStatusCode(200);
+                response.setMessage("Chunk stored with replication");
+            } else {
+                response.setStatusCode(202);  // Accepted但复制不完全
+                response.setMessage("Chunk stored but replication incomplete");
+                logger.warn("PUT_CHUNK Replication incomplete for key: {}, chunk: {}", msg.getKey(), msg.getChunkIndex());
+            }
+        } else {
+            response.setStatusCode(200);
+            response.setMessage("Chunk stored");
+        }
+    }
+
+    /**
+     * 流式读取：普通value作为单个分块返回，分块value逐块写出
+     * 上一块写入socket后才读取下一块，慢客户端不会让服务端堆积内存
+     *
+     * @return true 表示响应已由本方法写出
+     */
+    private boolean handleGetStream(ChannelHandlerContext ctx, KvMessage msg, KvMessage response) throws Exception {
+        byte[] key = msg.getKeyBytes();
+        response.setLastChunk(true);
+
+        if (key == null) {
+            response.setStatusCode(400);
+            response.setMessage("Key cannot be null");
+            return false;
+        }
+
+        String namespace = StorageEngine.resolveNamespace(msg);
+        byte[] value = storageEngine.get(namespace, key);
+        if (value != null) {
+            response.setStatusCode(200);
+            response.setValue(value);
+            response.setMessage("Get successful");
+            return false;
+        }
+
+        // 整个流只读清单里的这一代分块，中途被新值替换时返回 409 而不是拼出新旧混合的value
+        ChunkedValueStore.Manifest manifest = chunkedValueStore.getManifest(namespace, key);
+        if (manifest == null) {
+            response.setStatusCode(404);
+            response.setMessage("Key not found");
+            return false;
+        }
+
+        writeChunk(ctx, msg, namespace, 0, manifest);
+        return true;
+    }
+
+    private void writeChunk(ChannelHandlerContext ctx, KvMessage request, String namespace,
+                            int index, ChunkedValueStore.Manifest manifest) {
+        KvMessage chunk = newResponse(request);
+        chunk.setChunkIndex(index);
+        chunk.setLastChunk(index == manifest.getChunkCount() - 1);
+
+        try {
+            byte[] data = chunkedValueStore.getChunk(namespace, request.getKeyBytes(), manifest, index);
+            if (data == null) {
+                // 读取过程中value被覆盖或删除
+                chunk.setStatusCode(409);
+                chunk.setMessage("Chunk " + index + " missing, value changed during stream");
+                chunk.setLastChunk(true);
+            } else {
+                chunk.setStatusCode(200);
+                chunk.setValue(data);
+            }
+        } catch (Exception e) {
+            logger.error("Error reading chunk {} of key {}", index, request.getKey(), e);
+            chunk.setStatusCode(500);
+            chunk.setMessage("Internal server error: " + e.getMessage());
+            chunk.setLastChunk(true);
+        }
+
+        ctx.writeAndFlush(chunk).addListener((ChannelFutureListener) future -> {
+            if (future.isSuccess() && !chunk.isLastChunk()) {
+                // 监听器在事件循环上回调，下一块的读取仍交给存储通道
+                boolean accepted = storageExecutor.execute(request.getKeyBytes(),
+                        () -> writeChunk(ctx, request, namespace, index + 1, manifest));
+                if (!accepted) {
+                    metrics.rejected(request);
+                    ctx.writeAndFlush(busyResponse(request, "Server busy, storage queue is full"));
+                }
+            }
+        });
+    }
+
     @Override
     public void exceptionCaught(ChannelHandlerContext ctx, Throwable cause) {
         logger.error("Channel error", cause);
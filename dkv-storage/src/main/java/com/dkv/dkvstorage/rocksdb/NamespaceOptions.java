@@ -0,0 +1,183 @@
+package com.dkv.dkvstorage.rocksdb;
+
+import com.dkv.dkvcommon.model.KvMessage;
+import org.rocksdb.CompactionStyle;
+import org.rocksdb.CompressionType;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 命名空间配置，每个命名空间对应 RocksDB 中一个独立的 Column Family
+ * 小而热的元数据和大块数据分开存放，compaction 和 block cache 互不影响
+ */
+public class NamespaceOptions {
+    public static final long DEFAULT_BLOB_THRESHOLD = 64 * 1024;
+    public static final int DEFAULT_ZSTD_DICT_BYTES = 16 * 1024;
+
+    private final String name;
+    private KvMessage.MergeOperator mergeOperator = KvMessage.MergeOperator.STRING_APPEND;
+    private CompactionStyle compactionStyle = CompactionStyle.LEVEL;
+    private double bloomBitsPerKey = 10;   // <= 0 表示不使用 SST 布隆过滤器
+    private double blockCacheShare = 0.1;  // 占整个 block cache 预算的比例
+    private int ttlSeconds = 0;            // <= 0 表示永不过期
+    private long blobThreshold = 0;        // 不小于该大小的value存入blob文件，<= 0 表示关闭
+    // 上层用LZ4保证写入速度，最底层（绝大部分数据所在）用Zstd换压缩率
+    private CompressionType compressionType = CompressionType.LZ4_COMPRESSION;
+    private CompressionType bottommostCompressionType = CompressionType.ZSTD_COMPRESSION;
+    private int zstdDictBytes = 0;         // 最底层Zstd训练字典的大小，<= 0 表示不用字典
+
+    public NamespaceOptions(String name) {
+        if (name == null || name.isEmpty()) {
+            throw new IllegalArgumentException("Namespace name cannot be empty");
+        }
+        this.name = name;
+    }
+
+    /**
+     * 默认命名空间：default（普通KV + 追加）和 counters（计数器）
+     */
+    public static List<NamespaceOptions> defaults() {
+        List<NamespaceOptions> namespaces = new ArrayList<>();
+        namespaces.add(new NamespaceOptions(StorageEngine.DEFAULT_NAMESPACE)
+                .setBlockCacheShare(0.7)
+                .setBlobThreshold(DEFAULT_BLOB_THRESHOLD)
+                .setZstdDictBytes(DEFAULT_ZSTD_DICT_BYTES));
+        namespaces.add(new NamespaceOptions(StorageEngine.COUNTER_NAMESPACE)
+                .setMergeOperator(KvMessage.MergeOperator.UINT64_ADD)
+                .setBlockCacheShare(0.1));
+        return namespaces;
+    }
+
+    /**
+     * 从配置（如 Agent 的 JSON 请求）构建：name 必填，其余字段缺省时取默认值
+     * 例：{"name": "sessions", "mergeOperator": "STRING_APPEND", "ttlSeconds": 3600}
+     */
+    public static NamespaceOptions fromConfig(Map<String, ?> config) {
+        Object name = config.get("name");
+        if (!(name instanceof String)) {
+            throw new IllegalArgumentException("Namespace name is required");
+        }
+        NamespaceOptions options = new NamespaceOptions((String) name);
+        if (config.get("mergeOperator") != null) {
+            options.setMergeOperator(KvMessage.MergeOperator.valueOf(config.get("mergeOperator").toString().toUpperCase()));
+        }
+        if (config.get("compactionStyle") != null) {
+            options.setCompactionStyle(CompactionStyle.valueOf(config.get("compactionStyle").toString().toUpperCase()));
+        }
+        if (config.get("bloomBitsPerKey") != null) {
+            options.setBloomBitsPerKey(((Number) config.get("bloomBitsPerKey")).doubleValue());
+        }
+        if (config.get("blockCacheShare") != null) {
+            options.setBlockCacheShare(((Number) config.get("blockCacheShare")).doubleValue());
+        }
+        if (config.get("ttlSeconds") != null) {
+            options.setTtlSeconds(((Number) config.get("ttlSeconds")).intValue());
+        }
+        if (config.get("blobThreshold") != null) {
+            options.setBlobThreshold(((Number) config.get("blobThreshold")).longValue());
+        }
+        if (config.get("compressionType") != null) {
+            options.setCompressionType(CompressionType.valueOf(config.get("compressionType").toString().toUpperCase()));
+        }
+        if (config.get("bottommostCompressionType") != null) {
+            options.setBottommostCompressionType(
+                    CompressionType.valueOf(config.get("bottommostCompressionType").toString().toUpperCase()));
+        }
+        if (config.get("zstdDictBytes") != null) {
+            options.setZstdDictBytes(((Number) config.get("zstdDictBytes")).intValue());
+        }
+        return options;
+    }
+
+    /**
+     * 在默认命名空间之上叠加配置：同名的替换，新名字的追加
+     */
+    public static List<NamespaceOptions> withDefaults(List<NamespaceOptions> namespaces) {
+        Map<String, NamespaceOptions> merged = new LinkedHashMap<>();
+        for (NamespaceOptions namespace : defaults()) {
+            merged.put(namespace.getName(), namespace);
+        }
+        for (NamespaceOptions namespace : namespaces) {
+            merged.put(namespace.getName(), namespace);
+        }
+        return new ArrayList<>(merged.values());
+    }
+
+    public String getName() { return name; }
+
+    public KvMessage.MergeOperator getMergeOperator() { return mergeOperator; }
+    public NamespaceOptions setMergeOperator(KvMessage.MergeOperator mergeOperator) {
+        this.mergeOperator = mergeOperator;
+        return this;
+    }
+
+    public CompactionStyle getCompactionStyle() { return compactionStyle; }
+    public NamespaceOptions setCompactionStyle(CompactionStyle compactionStyle) {
+        this.compactionStyle = compactionStyle;
+        return this;
+    }
+
+    public double getBloomBitsPerKey() { return bloomBitsPerKey; }
+    public NamespaceOptions setBloomBitsPerKey(double bloomBitsPerKey) {
+        this.bloomBitsPerKey = bloomBitsPerKey;
+        return this;
+    }
+
+    public double getBlockCacheShare() { return blockCacheShare; }
+    public NamespaceOptions setBlockCacheShare(double blockCacheShare) {
+        if (blockCacheShare <= 0 || blockCacheShare > 1) {
+            throw new IllegalArgumentException("Block cache share must be in (0, 1]");
+        }
+        this.blockCacheShare = blockCacheShare;
+        return this;
+    }
+
+    public int getTtlSeconds() { return ttlSeconds; }
+    public NamespaceOptions setTtlSeconds(int ttlSeconds) {
+        this.ttlSeconds = ttlSeconds;
+        return this;
+    }
+
+    public long getBlobThreshold() { return blobThreshold; }
+    public NamespaceOptions setBlobThreshold(long blobThreshold) {
+        this.blobThreshold = blobThreshold;
+        return this;
+    }
+
+    public CompressionType getCompressionType() { return compressionType; }
+    public NamespaceOptions setCompressionType(CompressionType compressionType) {
+        this.compressionType = compressionType;
+        return this;
+    }
+
+    public CompressionType getBottommostCompressionType() { return bottommostCompressionType; }
+    public NamespaceOptions setBottommostCompressionType(CompressionType bottommostCompressionType) {
+        this.bottommostCompressionType = bottommostCompressionType;
+        return this;
+    }
+
+    public int getZstdDictBytes() { return zstdDictBytes; }
+    public NamespaceOptions setZstdDictBytes(int zstdDictBytes) {
+        this.zstdDictBytes = zstdDictBytes;
+        return this;
+    }
+
+    @Override
+    public String toString() {
+        return "NamespaceOptions{" +
+                "name='" + name + '\'' +
+                ", mergeOperator=" + mergeOperator +
+                ", compactionStyle=" + compactionStyle +
+                ", bloomBitsPerKey=" + bloomBitsPerKey +
+                ", blockCacheShare=" + blockCacheShare +
+                ", ttlSeconds=" + ttlSeconds +
+                ", blobThreshold=" + blobThreshold +
+                ", compressionType=" + compressionType +
+                ", bottommostCompressionType=" + bottommostCompressionType +
+                ", zstdDictBytes=" + zstdDictBytes +
+                '}';
+    }
+}
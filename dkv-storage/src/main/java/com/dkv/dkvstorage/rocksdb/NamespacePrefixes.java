@@ -0,0 +1,94 @@
+package com.dkv.dkvstorage.rocksdb;
+
+import com.dkv.dkvcommon.model.KvMessage;
+import com.dkv.dkvcommon.utils.CounterUtil;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * 没有 Column Family 的引擎（内存、Bitcask）用key前缀区分命名空间：
+ * 命名空间编号作为key的第一个字节，所有命名空间共用一个keyspace
+ * 同时提供与 RocksDB 合并算子语义一致的读-改-写实现
+ */
+public class NamespacePrefixes {
+    private static final int MAX_NAMESPACES = 256;
+
+    private final Map<String, NamespaceOptions> namespaceOptions = new LinkedHashMap<>();
+    private final Map<String, Byte> namespaceIds = new LinkedHashMap<>();
+
+    public NamespacePrefixes(List<NamespaceOptions> namespaces) {
+        for (NamespaceOptions namespace : namespaces) {
+            namespaceOptions.put(namespace.getName(), namespace);
+        }
+        namespaceOptions.putIfAbsent(StorageEngine.DEFAULT_NAMESPACE,
+                new NamespaceOptions(StorageEngine.DEFAULT_NAMESPACE));
+        if (namespaceOptions.size() > MAX_NAMESPACES) {
+            throw new IllegalArgumentException("Too many namespaces: " + namespaceOptions.size());
+        }
+        for (String name : namespaceOptions.keySet()) {
+            namespaceIds.put(name, (byte) namespaceIds.size());
+        }
+    }
+
+    public Set<String> names() {
+        return namespaceOptions.keySet();
+    }
+
+    /**
+     * 命名空间编号 + key
+     */
+    public byte[] keyOf(String namespace, byte[] keyBytes) {
+        Byte id = namespaceIds.get(namespace);
+        if (id == null) {
+            throw new IllegalArgumentException("Unknown namespace: " + namespace);
+        }
+        byte[] prefixed = new byte[keyBytes.length + 1];
+        prefixed[0] = id;
+        System.arraycopy(keyBytes, 0, prefixed, 1, keyBytes.length);
+        return prefixed;
+    }
+
+    public boolean contains(String namespace) {
+        return namespaceOptions.containsKey(namespace);
+    }
+
+    public KvMessage.MergeOperator mergeOperatorOf(String namespace) {
+        NamespaceOptions options = namespaceOptions.get(namespace);
+        if (options == null) {
+            throw new IllegalArgumentException("Unknown namespace: " + namespace);
+        }
+        return options.getMergeOperator();
+    }
+
+    /**
+     * 检查操作数是否符合命名空间的合并算子，计数器操作数必须是8字节
+     */
+    public void checkOperand(String namespace, byte[] operand) {
+        if (mergeOperatorOf(namespace) == KvMessage.MergeOperator.UINT64_ADD
+                && operand.length != CounterUtil.COUNTER_SIZE) {
+            throw new IllegalArgumentException("Counter operand must be " + CounterUtil.COUNTER_SIZE + " bytes");
+        }
+    }
+
+    /**
+     * 计算合并后的值，existing 为 null 表示key不存在
+     * 与 RocksDB 一致：uint64add 遇到不是8字节的旧值按0处理，追加不插入分隔符
+     */
+    public static byte[] merge(KvMessage.MergeOperator operator, byte[] existing, byte[] operand) {
+        if (operator == KvMessage.MergeOperator.UINT64_ADD) {
+            long base = existing != null && existing.length == CounterUtil.COUNTER_SIZE
+                    ? CounterUtil.decode(existing) : 0;
+            return CounterUtil.encode(base + CounterUtil.decode(operand));
+        }
+        if (existing == null) {
+            return operand;
+        }
+        byte[] merged = new byte[existing.length + operand.length];
+        System.arraycopy(existing, 0, merged, 0, existing.length);
+        System.arraycopy(operand, 0, merged, existing.length, operand.length);
+        return merged;
+    }
+}
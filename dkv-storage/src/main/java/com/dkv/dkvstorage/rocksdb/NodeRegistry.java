@@ -0,0 +1,194 @@
+package com.dkv.dkvstorage.rocksdb;
+
+import com.dkv.dkvcommon.costants.DkvConstants;
+import com.dkv.dkvcommon.model.NodeLoadReport;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.apache.curator.framework.CuratorFramework;
+import org.apache.curator.framework.CuratorFrameworkFactory;
+import org.apache.curator.framework.api.transaction.CuratorOp;
+import org.apache.curator.retry.ExponentialBackoffRetry;
+import org.apache.zookeeper.CreateMode;
+import org.apache.zookeeper.KeeperException;
+import org.apache.zookeeper.data.Stat;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * DataNode 在 ZooKeeper 上的注册和负载上报
+ * 同一进程里连同一个 ZooKeeper 的节点共用一个会话和一个上报线程，每个周期把所有节点的负载报告放进
+ * 一个事务一次写完，节点再多也只是一次往返；会话过期导致临时节点丢失时，下一轮上报逐个重建
+ * 按 ZooKeeper 地址引用计数，第一个节点注册时创建，最后一个节点注销时关闭
+ * 所有 ZooKeeper 读写都在上报线程上串行执行，ZooKeeper 不可用时不阻塞节点的启动
+ */
+final class NodeRegistry {
+    private static final Logger logger = LoggerFactory.getLogger(NodeRegistry.class);
+    private static final ObjectMapper JSON = new ObjectMapper();
+    // 注销最多等上报线程这么久，超时后临时节点随会话关闭消失
+    private static final long DEREGISTER_TIMEOUT_MILLIS = 5000;
+
+    private static final Map<String, NodeRegistry> registries = new HashMap<>();
+
+    private final String zkAddress;
+    private final CuratorFramework client;
+    private final ScheduledExecutorService reporter;
+    // 注册路径 -> 生成该节点负载报告的回调；按注册顺序写入，由 this 保护
+    private final Map<String, Supplier<NodeLoadReport>> nodes = new LinkedHashMap<>();
+    private int refCount;
+
+    private NodeRegistry(String zkAddress, long reportIntervalMillis) {
+        this.zkAddress = zkAddress;
+        this.client = CuratorFrameworkFactory.newClient(zkAddress, new ExponentialBackoffRetry(1000, 3));
+        this.client.start();
+        this.reporter = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "dkv-node-registry");
+            t.setDaemon(true);
+            return t;
+        });
+        this.reporter.scheduleWithFixedDelay(this::publishAll,
+                reportIntervalMillis, reportIntervalMillis, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * 上报周期由第一个使用该地址的节点决定
+     */
+    static synchronized NodeRegistry acquire(String zkAddress, long reportIntervalMillis) {
+        NodeRegistry registry = registries.get(zkAddress);
+        if (registry == null) {
+            registry = new NodeRegistry(zkAddress, reportIntervalMillis);
+            registries.put(zkAddress, registry);
+            logger.info("Node registry connected to {}, reporting every {}ms", zkAddress, reportIntervalMillis);
+        }
+        registry.refCount++;
+        return registry;
+    }
+
+    static synchronized void release(NodeRegistry registry) {
+        if (--registry.refCount == 0) {
+            registries.remove(registry.zkAddress);
+            registry.reporter.shutdownNow();
+            registry.client.close();
+            logger.info("Node registry for {} closed", registry.zkAddress);
+        }
+    }
+
+    static String pathOf(String address) {
+        return DkvConstants.ZK_NODES_PATH + "/" + address;
+    }
+
+    /**
+     * 注册节点，第一份报告交给上报线程立即写入，调用方不等待 ZooKeeper
+     */
+    void register(String address, Supplier<NodeLoadReport> report) {
+        String path = pathOf(address);
+        synchronized (this) {
+            nodes.put(path, report);
+        }
+        reporter.execute(() -> registerNow(path));
+    }
+
+    /**
+     * 在上报线程上写入第一份报告，执行前节点已注销则跳过
+     * 路径上残留着上一个会话的临时节点（进程崩溃后会话尚未过期）时先删掉重建，保证节点属于当前会话；
+     * ZooKeeper 暂时不可用时下一轮上报会重试
+     */
+    private void registerNow(String path) {
+        Supplier<NodeLoadReport> report;
+        synchronized (this) {
+            report = nodes.get(path);
+        }
+        if (report == null) {
+            return;
+        }
+        try {
+            byte[] payload = JSON.writeValueAsBytes(report.get());
+            Stat stat = client.checkExists().forPath(path);
+            long sessionId = client.getZookeeperClient().getZooKeeper().getSessionId();
+            if (stat != null && stat.getEphemeralOwner() != sessionId) {
+                client.delete().quietly().forPath(path);
+            }
+            write(path, payload);
+            logger.info("Registered {} in ZooKeeper", path);
+        } catch (Exception e) {
+            logger.warn("Failed to register {}, will retry with the next load report", path, e);
+        }
+    }
+
+    /**
+     * 注销节点：删除临时节点，客户端随即把它移出路由
+     * 删除排在上报线程上，不会被还没执行的注册或上报重新创建
+     */
+    void deregister(String address) {
+        String path = pathOf(address);
+        synchronized (this) {
+            nodes.remove(path);
+        }
+        try {
+            reporter.submit(() -> client.delete().quietly().forPath(path))
+                    .get(DEREGISTER_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS);
+            logger.info("Deregistered {} from ZooKeeper", path);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            logger.warn("Interrupted while deregistering {}, it goes away when the session closes", path);
+        } catch (Exception e) {
+            logger.warn("Failed to deregister {}, it goes away when the session closes", path, e);
+        }
+    }
+
+    /**
+     * 一轮上报：所有节点的报告放进一个事务；事务失败（通常是有临时节点丢失）时逐个写入，缺失的重建
+     */
+    private void publishAll() {
+        Map<String, Supplier<NodeLoadReport>> snapshot;
+        synchronized (this) {
+            if (nodes.isEmpty()) {
+                return;
+            }
+            snapshot = new LinkedHashMap<>(nodes);
+        }
+        Map<String, byte[]> payloads = new LinkedHashMap<>();
+        for (Map.Entry<String, Supplier<NodeLoadReport>> node : snapshot.entrySet()) {
+            try {
+                payloads.put(node.getKey(), JSON.writeValueAsBytes(node.getValue().get()));
+            } catch (Exception e) {
+                logger.warn("Failed to build load report for {}", node.getKey(), e);
+            }
+        }
+        try {
+            List<CuratorOp> ops = new ArrayList<>(payloads.size());
+            for (Map.Entry<String, byte[]> payload : payloads.entrySet()) {
+                ops.add(client.transactionOp().setData().forPath(payload.getKey(), payload.getValue()));
+            }
+            client.transaction().forOperations(ops);
+        } catch (Exception batchFailure) {
+            logger.debug("Batched load report failed, writing nodes one by one", batchFailure);
+            for (Map.Entry<String, byte[]> payload : payloads.entrySet()) {
+                try {
+                    write(payload.getKey(), payload.getValue());
+                } catch (Exception e) {
+                    logger.warn("Failed to publish load report for {}", payload.getKey(), e);
+                }
+            }
+        }
+    }
+
+    private void write(String path, byte[] payload) throws Exception {
+        try {
+            client.setData().forPath(path, payload);
+        } catch (KeeperException.NoNodeException e) {
+            client.create()
+                    .creatingParentsIfNeeded()
+                    .withMode(CreateMode.EPHEMERAL)
+                    .forPath(path, payload);
+        }
+    }
+}
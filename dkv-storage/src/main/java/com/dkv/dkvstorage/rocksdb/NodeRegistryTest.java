@@ -0,0 +1,64 @@
+package com.dkv.dkvstorage.rocksdb;
+import org.junit.jupiter.api.*;
+import com.dkv.dkvcommon.costants.DkvConstants;
+import com.dkv.dkvcommon.model.NodeLoadReport;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// NodeRegistry 是包内可见的，测试放在同一个包里
+class NodeRegistryTest {
+
+    // 不需要真的连上：会话在后台建立，这里只验证共享和引用计数
+    private static final String ZK = "127.0.0.1:1";
+
+    @Test
+    @DisplayName("测试同一ZooKeeper地址的节点共用一个注册会话，最后一个释放时关闭")
+    void testSharedRegistry() {
+        NodeRegistry first = NodeRegistry.acquire(ZK, 1000);
+        NodeRegistry second = NodeRegistry.acquire(ZK, 5000);
+        assertSame(first, second);
+
+        NodeRegistry other = NodeRegistry.acquire(ZK + "/other", 1000);
+        assertNotSame(first, other);
+        NodeRegistry.release(other);
+
+        NodeRegistry.release(first);
+        NodeRegistry third = NodeRegistry.acquire(ZK, 1000);
+        assertSame(first, third, "还有节点在用时不关闭");
+
+        NodeRegistry.release(second);
+        NodeRegistry.release(third);
+        NodeRegistry fresh = NodeRegistry.acquire(ZK, 1000);
+        assertNotSame(first, fresh, "全部释放后重新创建");
+        NodeRegistry.release(fresh);
+    }
+
+    @Test
+    @DisplayName("测试ZooKeeper不可用时注册不阻塞调用方，第一份报告在上报线程上生成")
+    void testRegisterDoesNotBlock() throws Exception {
+        NodeRegistry registry = NodeRegistry.acquire(ZK + "/register", 60_000);
+        try {
+            CountDownLatch reported = new CountDownLatch(1);
+            String[] thread = new String[1];
+            long start = System.nanoTime();
+            registry.register("10.0.0.1:9000", () -> {
+                thread[0] = Thread.currentThread().getName();
+                reported.countDown();
+                return new NodeLoadReport();
+            });
+            assertTrue(System.nanoTime() - start < TimeUnit.SECONDS.toNanos(1));
+            assertTrue(reported.await(5, TimeUnit.SECONDS));
+            assertEquals("dkv-node-registry", thread[0]);
+        } finally {
+            NodeRegistry.release(registry);
+        }
+    }
+
+    @Test
+    @DisplayName("测试注册路径")
+    void testPath() {
+        assertEquals(DkvConstants.ZK_NODES_PATH + "/10.0.0.1:9000", NodeRegistry.pathOf("10.0.0.1:9000"));
+    }
+}
@@ -1,20 +1,24 @@
 package com.dkv.dkvstorage.rocksdb;
 import com.dkv.dkvcommon.model.KvMessage;
+import com.dkv.dkvcommon.trace.Span;
+import com.dkv.dkvstorage.codec.KvCompressionHandler;
+import com.dkv.dkvstorage.codec.KvMessageDecoder;
+import com.dkv.dkvstorage.codec.KvMessageEncoder;
+import com.dkv.dkvstorage.metrics.LatencyHistogram;
+import com.dkv.dkvstorage.transport.NettyTransport;
 import io.netty.bootstrap.Bootstrap;
 import io.netty.channel.*;
-import io.netty.channel.nio.NioEventLoopGroup;
 import io.netty.channel.socket.SocketChannel;
-import io.netty.channel.socket.nio.NioSocketChannel;
-import io.netty.handler.codec.serialization.ClassResolvers;
-import io.netty.handler.codec.serialization.ObjectDecoder;
-import io.netty.handler.codec.serialization.ObjectEncoder;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import java.util.List;
 import java.util.concurrent.*;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
 
 import static com.dkv.dkvcommon.model.KvMessage.Type.DELETE;
+import static com.dkv.dkvcommon.model.KvMessage.Type.MERGE;
+import static com.dkv.dkvcommon.model.KvMessage.Type.PUT_CHUNK;
 
 
 public class ReplicationService {
@@ -30,31 +34,74 @@ public class ReplicationService {
     // 线程池用于异步复制
     private final ExecutorService replicationExecutor;
 
+    // 是否独占事件循环和线程池（共享资源由 SharedResources 统一释放）
+    private final boolean ownsResources;
+
+    // 复制指标：同步复制的等待时间、未达多数派的次数、已提交但还没发完的异步复制（复制滞后）
+    private final LatencyHistogram syncLatency = new LatencyHistogram();
+    private final LongAdder incompleteReplications = new LongAdder();
+    private final LongAdder replicaSendFailures = new LongAdder();
+    private final AtomicInteger pendingAsync = new AtomicInteger();
+
     public ReplicationService(StorageEngine storageEngine,
                               List<String> replicaNodes,
                               boolean isPrimary,
                               int replicationFactor) {
+        this(storageEngine, replicaNodes, isPrimary, replicationFactor,
+                NettyTransport.get().newEventLoopGroup(4),
+                Executors.newFixedThreadPool(
+                        Math.max(2, replicaNodes.size()),
+                        new ThreadFactory() {
+                            private final AtomicInteger counter = new AtomicInteger(0);
+                            @Override
+                            public Thread newThread(Runnable r) {
+                                return new Thread(r, "replication-thread-" + counter.incrementAndGet());
+                            }
+                        }
+                ),
+                true);
+    }
+
+    /**
+     * 使用外部提供的事件循环和线程池，关闭时不释放它们
+     */
+    public ReplicationService(StorageEngine storageEngine,
+                              List<String> replicaNodes,
+                              boolean isPrimary,
+                              int replicationFactor,
+                              EventLoopGroup workerGroup,
+                              ExecutorService replicationExecutor) {
+        this(storageEngine, replicaNodes, isPrimary, replicationFactor, workerGroup, replicationExecutor, false);
+    }
+
+    private ReplicationService(StorageEngine storageEngine,
+                               List<String> replicaNodes,
+                               boolean isPrimary,
+                               int replicationFactor,
+                               EventLoopGroup workerGroup,
+                               ExecutorService replicationExecutor,
+                               boolean ownsResources) {
         this.storageEngine = storageEngine;
         this.replicaNodes = replicaNodes;
         this.isPrimary = isPrimary;
         this.replicationFactor = replicationFactor;
-        this.workerGroup = new NioEventLoopGroup(4);
-        this.replicationExecutor = Executors.newFixedThreadPool(
-                Math.max(2, replicaNodes.size()),
-                new ThreadFactory() {
-                    private final AtomicInteger counter = new AtomicInteger(0);
-                    @Override
-                    public Thread newThread(Runnable r) {
-                        return new Thread(r, "replication-thread-" + counter.incrementAndGet());
-                    }
-                }
-        );
+        this.workerGroup = workerGroup;
+        this.replicationExecutor = replicationExecutor;
+        this.ownsResources = ownsResources;
     }
 
     /**
      * 同步复制：等待所有从副本确认（强一致性）
      */
-    public boolean syncReplicate(KvMessage msg, String key, byte[] value) throws Exception {
+    public boolean syncReplicate(KvMessage msg, byte[] key, byte[] value) throws Exception {
+        return syncReplicate(msg, key, value, Span.NOOP);
+    }
+
+    /**
+     * 同步复制，parent 被采样时记录整个扇出和每个副本的发送
+     * 各副本共用一条复制消息，副本上的 span 都挂在扇出 span 下
+     */
+    public boolean syncReplicate(KvMessage msg, byte[] key, byte[] value, Span parent) throws Exception {
         if (!isPrimary) {
             throw new IllegalStateException("Only primary node can initiate replication");
         }
@@ -63,30 +110,49 @@ public class ReplicationService {
             return true;  // 没有从副本，直接返回成功
         }
 
+        long begin = System.nanoTime();
         AtomicInteger successCount = new AtomicInteger(0);
         AtomicInteger failureCount = new AtomicInteger(0);
         CountDownLatch latch = new CountDownLatch(replicaNodes.size());
-        KvMessage replicationMsg = new KvMessage(KvMessage.Type.REPLICATION_PUT, key, value);
+        KvMessage replicationMsg = new KvMessage(KvMessage.Type.REPLICATION_PUT, null, value);
+        replicationMsg.setKeyBytes(key);
 
         if (DELETE.equals(msg.getType())) {
             replicationMsg.setType(DELETE);
+        } else if (MERGE.equals(msg.getType())) {
+            replicationMsg.setType(MERGE);
+        } else if (PUT_CHUNK.equals(msg.getType())) {
+            replicationMsg.setType(PUT_CHUNK);
+            replicationMsg.setRequestId(msg.getRequestId());  // 上传ID，副本按同一代存放分块
+            replicationMsg.setChunkIndex(msg.getChunkIndex());
+            replicationMsg.setLastChunk(msg.isLastChunk());
         }
+        replicationMsg.setMergeOperator(msg.getMergeOperator());
+        replicationMsg.setNamespace(msg.getNamespace());
         replicationMsg.setReplication(true);
+        Span fanout = parent.child("replicate").tag("replicas", replicaNodes.size());
+        fanout.inject(replicationMsg);
         // 并发发送到所有从副本
         for (String replicaAddr : replicaNodes) {
             replicationExecutor.submit(() -> {
+                Span send = fanout.child("replicate.send").tag("replica", replicaAddr);
                 try {
-                    if (sendToReplica(replicaAddr, replicationMsg)) {
+                    if (sendToReplica(replicaAddr, replicationMsg, send)) {
                         successCount.incrementAndGet();
                         logger.info("Replication succeeded to {}", replicaAddr);
                     } else {
                         failureCount.incrementAndGet();
+                        replicaSendFailures.increment();
+                        send.error("Replication failed");
                         logger.warn("Replication failed to {}", replicaAddr);
                     }
                 } catch (Exception e) {
                     failureCount.incrementAndGet();
+                    replicaSendFailures.increment();
+                    send.error(e.getMessage());
                     logger.error("Replication error to {}: {}", replicaAddr, e.getMessage());
                 } finally {
+                    send.finish();
                     latch.countDown();
                 }
             });
@@ -98,32 +164,46 @@ public class ReplicationService {
         if (!completed) {
             logger.warn("Replication timeout, success: {}, failure: {}",
                     successCount.get(), failureCount.get());
+            fanout.error("Replication timeout");
         }
+        fanout.tag("acks", successCount.get()).finish();
 
         // 如果大多数副本成功，则认为复制成功
         int success = successCount.get();
         int total = replicaNodes.size();
-        return success >= (total + 1) / 2;  // 多数派成功
+        syncLatency.record(System.nanoTime() - begin);
+        if (success < (total + 1) / 2) {
+            incompleteReplications.increment();
+            return false;
+        }
+        return true;  // 多数派成功
     }
 
     /**
      * 异步复制：不等待从副本确认（最终一致性）
      */
-    public void asyncReplicate(KvMessage msg,String key, byte[] value) {
+    public void asyncReplicate(KvMessage msg, byte[] key, byte[] value) {
         if (!isPrimary || replicaNodes.isEmpty()) {
             return;
         }
 
-        KvMessage replicationMsg = new KvMessage(KvMessage.Type.REPLICATION_PUT, key, value);
+        KvMessage replicationMsg = new KvMessage(KvMessage.Type.REPLICATION_PUT, null, value);
+        replicationMsg.setKeyBytes(key);
         replicationMsg.setReplication(true);
 
         for (String replicaAddr : replicaNodes) {
+            pendingAsync.incrementAndGet();
             replicationExecutor.submit(() -> {
                 try {
-                    sendToReplica(replicaAddr, replicationMsg);
+                    if (!sendToReplica(replicaAddr, replicationMsg, Span.NOOP)) {
+                        replicaSendFailures.increment();
+                    }
                     logger.debug("Async replication sent to {}", replicaAddr);
                 } catch (Exception e) {
+                    replicaSendFailures.increment();
                     logger.error("Async replication error to {}: {}", replicaAddr, e.getMessage());
+                } finally {
+                    pendingAsync.decrementAndGet();
                 }
             });
         }
@@ -132,7 +212,7 @@ public class ReplicationService {
     /**
      * 发送数据到副本节点
      */
-    private boolean sendToReplica(String replicaAddr, KvMessage message) throws Exception {
+    private boolean sendToReplica(String replicaAddr, KvMessage message, Span span) throws Exception {
         String[] parts = replicaAddr.split(":");
         if (parts.length != 2) {
             throw new IllegalArgumentException("Invalid replica address: " + replicaAddr);
@@ -144,15 +224,16 @@ public class ReplicationService {
         final CompletableFuture<KvMessage> responseFuture = new CompletableFuture<>();
 
         Bootstrap b = new Bootstrap();
-        b.group(workerGroup)
-                .channel(NioSocketChannel.class)
+        NettyTransport.get().apply(b.group(workerGroup))
                 .handler(new ChannelInitializer<SocketChannel>() {
                     @Override
                     protected void initChannel(SocketChannel ch) {
                         ChannelPipeline pipeline = ch.pipeline();
-                        pipeline.addLast(new ObjectEncoder());
-                        pipeline.addLast(new ObjectDecoder(ClassResolvers.cacheDisabled(null)));
-                        pipeline.addLast(new ReplicationClientHandler());
+                        pipeline.addLast(new KvMessageEncoder());
+                        pipeline.addLast(new KvMessageDecoder());
+                        // 跨机架带宽是复制瓶颈，复制流量总是压缩
+                        pipeline.addLast(new KvCompressionHandler(KvMessage.Compression.LZ4));
+                        pipeline.addLast(new ReplicationClientHandler(responseFuture));
                     }
                 })
                 .option(ChannelOption.CONNECT_TIMEOUT_MILLIS, 3000)
@@ -161,10 +242,13 @@ public class ReplicationService {
         Channel channel = null;
         try {
             // 连接到副本节点
+            Span connect = span.child("connect");
             ChannelFuture connectFuture = b.connect(host, port);
 
             // 等待连接建立，设置连接超时
-            if (!connectFuture.await(3000, TimeUnit.MILLISECONDS)) {
+            boolean connected = connectFuture.await(3000, TimeUnit.MILLISECONDS);
+            connect.finish();
+            if (!connected) {
                 logger.warn("Connection timeout to replica: {}", replicaAddr);
                 return false;
             }
@@ -189,8 +273,12 @@ public class ReplicationService {
 
             // 等待响应，设置响应超时
             try {
-                // 只等待响应完成，不关心响应内容
-                responseFuture.get(replicationTimeout, TimeUnit.MILLISECONDS);
+                KvMessage response = responseFuture.get(replicationTimeout, TimeUnit.MILLISECONDS);
+                if (response.getStatusCode() >= 400) {
+                    logger.warn("Replica {} rejected replication for key {}: {}",
+                            replicaAddr, message.getKey(), response.getMessage());
+                    return false;
+                }
                 logger.debug("Received successful response from replica: {}", replicaAddr);
                 return true;
 
@@ -217,19 +305,46 @@ public class ReplicationService {
     public void handleReplicationRequest(KvMessage message) throws Exception {
         if (!isPrimary) {  // 只有从副本才处理复制请求
             if (message.getType() == KvMessage.Type.REPLICATION_PUT) {
-                storageEngine.put(message.getKey(), message.getValue());
-                logger.debug("Received replication PUT for key: {}", message.getKey());
+                storageEngine.put(StorageEngine.resolveNamespace(message), message.getKeyBytes(), message.getValue());
+                logger.debug("Received replication PUT: {}", message);
             }else if(message.getType() == DELETE){
-                storageEngine.delete(message.getKey());
-                logger.debug("Received replication delete for key: {}", message.getKey());
+                storageEngine.delete(StorageEngine.resolveNamespace(message), message.getKeyBytes());
+                logger.debug("Received replication delete: {}", message);
+            }else if(message.getType() == MERGE){
+                storageEngine.merge(StorageEngine.resolveNamespace(message), message.getKeyBytes(), message.getValue());
+                logger.debug("Received replication merge: {}", message);
             }
         }
     }
 
+    public LatencyHistogram getSyncLatency() {
+        return syncLatency;
+    }
+
+    public long getIncompleteReplications() {
+        return incompleteReplications.sum();
+    }
+
+    public long getReplicaSendFailures() {
+        return replicaSendFailures.sum();
+    }
+
+    // 异步复制积压的消息数，反映副本落后主节点的程度
+    public int getPendingAsyncReplications() {
+        return pendingAsync.get();
+    }
+
+    public int getReplicaCount() {
+        return replicaNodes.size();
+    }
+
     /**
      * 关闭服务
      */
     public void shutdown() {
+        if (!ownsResources) {
+            return;
+        }
         workerGroup.shutdownGracefully();
         replicationExecutor.shutdown();
         try {
@@ -244,18 +359,26 @@ public class ReplicationService {
 
     // Netty客户端处理器
     private static class ReplicationClientHandler extends SimpleChannelInboundHandler<Object> {
+        private final CompletableFuture<KvMessage> responseFuture;
+
+        ReplicationClientHandler(CompletableFuture<KvMessage> responseFuture) {
+            this.responseFuture = responseFuture;
+        }
+
         @Override
         protected void channelRead0(ChannelHandlerContext ctx, Object msg) {
             // 处理来自副本的响应
             if (msg instanceof KvMessage) {
                 KvMessage response = (KvMessage) msg;
                 logger.debug("Received replication response: {}", response);
+                responseFuture.complete(response);
             }
         }
 
         @Override
         public void exceptionCaught(ChannelHandlerContext ctx, Throwable cause) {
             logger.error("Replication client error", cause);
+            responseFuture.completeExceptionally(cause);
             ctx.close();
         }
     }
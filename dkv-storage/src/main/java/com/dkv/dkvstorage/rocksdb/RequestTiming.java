@@ -0,0 +1,67 @@
+package com.dkv.dkvstorage.rocksdb;
+
+import com.dkv.dkvcommon.trace.Span;
+
+/**
+ * 一个请求在服务端各阶段的耗时，供慢操作日志拆分排队、存储和复制时间
+ * 同时持有请求的 span，存储阶段的子 span 和计时共用同一对时间戳
+ * 只在处理请求的那个线程上使用，不需要同步
+ */
+final class RequestTiming {
+
+    private final long receivedAt;
+    private final long startedAt;
+    private final Span span;
+    private long storageNanos;
+    private long replicationNanos;
+
+    private long storageBegin;
+    private Span storageSpan = Span.NOOP;
+    private long replicationBegin;
+
+    RequestTiming(long receivedAt, long startedAt, Span span) {
+        this.receivedAt = receivedAt;
+        this.startedAt = startedAt;
+        this.span = span;
+    }
+
+    long getReceivedAt() {
+        return receivedAt;
+    }
+
+    Span getSpan() {
+        return span;
+    }
+
+    void beginStorage(String spanName) {
+        storageBegin = System.nanoTime();
+        storageSpan = span.child(spanName, storageBegin);
+    }
+
+    void endStorage() {
+        long end = System.nanoTime();
+        storageNanos += end - storageBegin;
+        storageSpan.finish(end);
+        storageSpan = Span.NOOP;
+    }
+
+    void beginReplication() {
+        replicationBegin = System.nanoTime();
+    }
+
+    void endReplication() {
+        replicationNanos += System.nanoTime() - replicationBegin;
+    }
+
+    long getQueueNanos() {
+        return startedAt - receivedAt;
+    }
+
+    long getStorageNanos() {
+        return storageNanos;
+    }
+
+    long getReplicationNanos() {
+        return replicationNanos;
+    }
+}
@@ -0,0 +1,69 @@
+package com.dkv.dkvstorage.rocksdb;
+
+/**
+ * 进程内共享线程的预算，默认从系统属性读取：
+ * -Ddkv.ioThreads -Ddkv.replicationThreads -Ddkv.storageLanes -Ddkv.replicaLanes -Ddkv.storageQueueCapacity
+ * 存储通道也在预算内，所有节点共用；副本应用复制写入走单独的副本通道，
+ * 主节点通道阻塞等待副本确认时不会等到自己身后（见 StorageExecutor）
+ */
+public class ResourceBudget {
+    private static final int CORES = Runtime.getRuntime().availableProcessors();
+
+    private int ioThreads = CORES;                          // 所有节点的服务端连接和复制连接共用
+    private int replicationThreads = Math.max(4, CORES * 2); // 同步复制会阻塞等待副本确认
+    private int storageLanes = Math.max(4, CORES * 2);       // 通道里可能阻塞在同步复制上，多于CPU核数
+    private int replicaLanes = Math.max(2, CORES);           // 副本应用不等待其他节点
+    private int storageQueueCapacity = 1024;                 // 每个通道的排队上限
+
+    public static ResourceBudget fromSystemProperties() {
+        ResourceBudget budget = new ResourceBudget();
+        budget.setIoThreads(Integer.getInteger("dkv.ioThreads", budget.getIoThreads()));
+        budget.setReplicationThreads(Integer.getInteger("dkv.replicationThreads", budget.getReplicationThreads()));
+        budget.setStorageLanes(Integer.getInteger("dkv.storageLanes", budget.getStorageLanes()));
+        budget.setReplicaLanes(Integer.getInteger("dkv.replicaLanes", budget.getReplicaLanes()));
+        budget.setStorageQueueCapacity(Integer.getInteger("dkv.storageQueueCapacity",
+                budget.getStorageQueueCapacity()));
+        return budget;
+    }
+
+    public int getIoThreads() { return ioThreads; }
+    public ResourceBudget setIoThreads(int ioThreads) {
+        this.ioThreads = ioThreads;
+        return this;
+    }
+
+    public int getReplicationThreads() { return replicationThreads; }
+    public ResourceBudget setReplicationThreads(int replicationThreads) {
+        this.replicationThreads = replicationThreads;
+        return this;
+    }
+
+    public int getStorageLanes() { return storageLanes; }
+    public ResourceBudget setStorageLanes(int storageLanes) {
+        this.storageLanes = storageLanes;
+        return this;
+    }
+
+    public int getReplicaLanes() { return replicaLanes; }
+    public ResourceBudget setReplicaLanes(int replicaLanes) {
+        this.replicaLanes = replicaLanes;
+        return this;
+    }
+
+    public int getStorageQueueCapacity() { return storageQueueCapacity; }
+    public ResourceBudget setStorageQueueCapacity(int storageQueueCapacity) {
+        this.storageQueueCapacity = storageQueueCapacity;
+        return this;
+    }
+
+    @Override
+    public String toString() {
+        return "ResourceBudget{" +
+                "ioThreads=" + ioThreads +
+                ", replicationThreads=" + replicationThreads +
+                ", storageLanes=" + storageLanes +
+                ", replicaLanes=" + replicaLanes +
+                ", storageQueueCapacity=" + storageQueueCapacity +
+                '}';
+    }
+}
@@ -3,57 +3,244 @@ import org.rocksdb.*;
 import com.google.common.hash.BloomFilter;
 import com.google.common.hash.Funnel;
 import com.google.common.hash.Funnels;
+import com.dkv.dkvcommon.model.KvMessage;
+import com.dkv.dkvcommon.utils.CounterUtil;
+import java.nio.ByteBuffer;
 import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
 import java.io.IOException;
 
 public class RocksDbEngine implements StorageEngine {
     private RocksDB db;
-    private BloomFilter<CharSequence> bloomFilter;
+    private DBOptions dbOptions;
+    private Statistics statistics;
+    private ReadOptions readOptions;
+    // RocksDB 的 ByteBuffer 接口要求key也在 direct 内存里，每个线程复用一块
+    private static final ThreadLocal<ByteBuffer> DIRECT_KEY_BUFFER =
+            ThreadLocal.withInitial(() -> ByteBuffer.allocateDirect(256));
+    // 需要随DB一起释放的native对象（ColumnFamilyOptions、Cache、Filter、MergeOperator）
+    private final List<AbstractNativeReference> nativeResources = new ArrayList<>();
+    private final List<ColumnFamilyHandle> cfHandles = new ArrayList<>();
+    private final Map<String, NamespaceOptions> namespaceOptions = new LinkedHashMap<>();
+    private final Map<String, ColumnFamilyHandle> namespaceHandles = new HashMap<>();
+    private final long blockCacheCapacity;
+    private BloomFilter<byte[]> bloomFilter;
     private final AtomicLong writeCount = new AtomicLong(0);
+    // 内存布隆过滤器的查询次数和直接判定不存在的次数
+    private final LongAdder bloomChecks = new LongAdder();
+    private final LongAdder bloomNegatives = new LongAdder();
     private static final int BLOOM_FILTER_EXPECTED_INSERTIONS = 1_000_000;
     private static final double BLOOM_FILTER_FPP = 0.01;
+    private static final long DEFAULT_BLOCK_CACHE_CAPACITY = 256L * 1024 * 1024;
+    // Zstd字典训练样本上限 = 字典大小 * 该倍数（RocksDB建议约100倍）
+    private static final int ZSTD_TRAIN_BYTES_FACTOR = 100;
+    // 写停顿状态的缓存时间，避免每个请求都查询RocksDB属性
+    private static final long WRITE_STALL_CHECK_INTERVAL_NANOS = 100_000_000L;
+    private volatile boolean writeStalled;
+    private volatile long writeStallCheckedAt;
+    // 追加操作数之间不插入分隔符，由调用方自行编码记录边界
+    private static final String APPEND_DELIMITER = "";
+    // 数据目录的格式标记：TtlDB 在每个value后附加时间戳，TTL 与非 TTL 打开同一目录会读出错误的value
+    static final String FORMAT_MARKER_FILE = "DKV_VALUE_FORMAT";
+    private static final String FORMAT_TTL = "ttl";
+    private static final String FORMAT_PLAIN = "plain";
+
+    public RocksDbEngine() {
+        this(NamespaceOptions.defaults(), DEFAULT_BLOCK_CACHE_CAPACITY);
+    }
+
+    public RocksDbEngine(List<NamespaceOptions> namespaces) {
+        this(namespaces, DEFAULT_BLOCK_CACHE_CAPACITY);
+    }
+
+    public RocksDbEngine(List<NamespaceOptions> namespaces, long blockCacheCapacity) {
+        for (NamespaceOptions namespace : namespaces) {
+            this.namespaceOptions.put(namespace.getName(), namespace);
+        }
+        // default命名空间必须存在（对应RocksDB的默认Column Family）
+        this.namespaceOptions.putIfAbsent(DEFAULT_NAMESPACE, new NamespaceOptions(DEFAULT_NAMESPACE));
+        this.blockCacheCapacity = blockCacheCapacity;
+    }
 
     @Override
     public void init(String dbPath) throws Exception {
         // 初始化RocksDB配置
         RocksDB.loadLibrary();
 
-        final Options options = new Options()
+        // 不统计细粒度计时器，开销可以忽略
+        this.statistics = new Statistics();
+        statistics.setStatsLevel(StatsLevel.EXCEPT_DETAILED_TIMERS);
+
+        this.dbOptions = new DBOptions()
+                .setStatistics(statistics)
                 .setCreateIfMissing(true)
+                .setCreateMissingColumnFamilies(true)
                 .setMaxBackgroundJobs(4)
-                .setMaxOpenFiles(-1)
-                .setTargetFileSizeBase(64 * 1024 * 1024)
-                .setWriteBufferSize(64 * 1024 * 1024)
-                .setMaxWriteBufferNumber(3);
+                .setMaxOpenFiles(-1);
 
-        // 配置Column Family（可选）
-        final ColumnFamilyOptions cfOptions = new ColumnFamilyOptions()
-                .optimizeUniversalStyleCompaction();
+        // 磁盘上已有但未配置的Column Family也必须打开，按默认配置注册为命名空间
+        for (String existing : listExistingColumnFamilies(dbPath)) {
+            namespaceOptions.putIfAbsent(existing, new NamespaceOptions(existing));
+        }
+
+        // 每个命名空间一个Column Family，各自的compaction、布隆过滤器、block cache和TTL
+        List<ColumnFamilyDescriptor> descriptors = new ArrayList<>();
+        List<Integer> ttls = new ArrayList<>();
+        boolean ttlEnabled = false;
+        for (NamespaceOptions namespace : namespaceOptions.values()) {
+            byte[] cfName = DEFAULT_NAMESPACE.equals(namespace.getName())
+                    ? RocksDB.DEFAULT_COLUMN_FAMILY
+                    : namespace.getName().getBytes(StandardCharsets.UTF_8);
+            descriptors.add(new ColumnFamilyDescriptor(cfName, newColumnFamilyOptions(namespace)));
+            ttls.add(Math.max(0, namespace.getTtlSeconds()));
+            ttlEnabled |= namespace.getTtlSeconds() > 0;
+        }
 
         // 打开数据库
-        this.db = RocksDB.open(options, dbPath);
+        // 注意：TtlDB会在value后附加时间戳，启用TTL前后的数据目录不能混用，按目录里的格式标记检查
+        checkValueFormat(dbPath, ttlEnabled);
+        if (ttlEnabled) {
+            this.db = TtlDB.open(dbOptions, dbPath, descriptors, cfHandles, ttls, false);
+        } else {
+            this.db = RocksDB.open(dbOptions, dbPath, descriptors, cfHandles);
+        }
+
+        writeValueFormat(dbPath, ttlEnabled);
+        this.readOptions = new ReadOptions();
+
+        int i = 0;
+        for (String name : namespaceOptions.keySet()) {
+            namespaceHandles.put(name, cfHandles.get(i++));
+        }
 
         // 初始化BloomFilter
         this.bloomFilter = BloomFilter.create(
-                Funnels.stringFunnel(StandardCharsets.UTF_8),
+                Funnels.byteArrayFunnel(),
                 BLOOM_FILTER_EXPECTED_INSERTIONS,
                 BLOOM_FILTER_FPP
         );
     }
 
+    /**
+     * 目录里已有格式标记且与本次是否启用TTL不一致时拒绝打开；
+     * 没有标记的旧目录无法判断，按本次的格式补写
+     */
+    private static void checkValueFormat(String dbPath, boolean ttlEnabled) throws IOException {
+        Path marker = Paths.get(dbPath, FORMAT_MARKER_FILE);
+        if (!Files.exists(marker)) {
+            return;
+        }
+        String format = new String(Files.readAllBytes(marker), StandardCharsets.UTF_8).trim();
+        String expected = ttlEnabled ? FORMAT_TTL : FORMAT_PLAIN;
+        if (!format.equals(expected)) {
+            throw new IllegalStateException("Data directory " + dbPath + " was written in " + format
+                    + " format but namespaces now " + (ttlEnabled ? "enable" : "disable")
+                    + " TTL; values would be misread. Restore the namespace TTL settings or use a new directory");
+        }
+    }
+
+    private static void writeValueFormat(String dbPath, boolean ttlEnabled) throws IOException {
+        Path marker = Paths.get(dbPath, FORMAT_MARKER_FILE);
+        if (!Files.exists(marker)) {
+            Files.write(marker, (ttlEnabled ? FORMAT_TTL : FORMAT_PLAIN).getBytes(StandardCharsets.UTF_8));
+        }
+    }
+
+    private List<String> listExistingColumnFamilies(String dbPath) {
+        List<String> names = new ArrayList<>();
+        try (Options options = new Options()) {
+            for (byte[] cfName : RocksDB.listColumnFamilies(options, dbPath)) {
+                String name = new String(cfName, StandardCharsets.UTF_8);
+                names.add(name);
+            }
+        } catch (RocksDBException e) {
+            // 数据库还不存在
+        }
+        return names;
+    }
+
+    private ColumnFamilyOptions newColumnFamilyOptions(NamespaceOptions namespace) {
+        // 每个命名空间独占一份block cache，避免大块数据把热点元数据挤出缓存
+        LRUCache blockCache = new LRUCache((long) (blockCacheCapacity * namespace.getBlockCacheShare()));
+        nativeResources.add(blockCache);
+
+        BlockBasedTableConfig tableConfig = new BlockBasedTableConfig()
+                .setBlockCache(blockCache)
+                .setCacheIndexAndFilterBlocks(true);
+        if (namespace.getBloomBitsPerKey() > 0) {
+            org.rocksdb.BloomFilter filter = new org.rocksdb.BloomFilter(namespace.getBloomBitsPerKey());
+            nativeResources.add(filter);
+            tableConfig.setFilterPolicy(filter);
+        }
+
+        // 一个Column Family只能有一个合并算子
+        MergeOperator mergeOperator = namespace.getMergeOperator() == KvMessage.MergeOperator.UINT64_ADD
+                ? new UInt64AddOperator()
+                : new StringAppendOperator(APPEND_DELIMITER);
+        nativeResources.add(mergeOperator);
+
+        ColumnFamilyOptions cfOptions = new ColumnFamilyOptions()
+                .setTargetFileSizeBase(64 * 1024 * 1024)
+                .setWriteBufferSize(64 * 1024 * 1024)
+                .setMaxWriteBufferNumber(3)
+                .setCompactionStyle(namespace.getCompactionStyle())
+                .setTableFormatConfig(tableConfig)
+                .setMergeOperator(mergeOperator)
+                .setCompressionType(namespace.getCompressionType())
+                .setBottommostCompressionType(namespace.getBottommostCompressionType());
+        if (namespace.getBottommostCompressionType() == CompressionType.ZSTD_COMPRESSION
+                && namespace.getZstdDictBytes() > 0) {
+            // 小value（如JSON）单条压缩效果差，按SST采样训练字典后共享字典压缩
+            CompressionOptions bottommostOptions = new CompressionOptions()
+                    .setMaxDictBytes(namespace.getZstdDictBytes())
+                    .setZStdMaxTrainBytes(namespace.getZstdDictBytes() * ZSTD_TRAIN_BYTES_FACTOR)
+                    .setEnabled(true);
+            nativeResources.add(bottommostOptions);
+            cfOptions.setBottommostCompressionOptions(bottommostOptions);
+        }
+        if (namespace.getBlobThreshold() > 0) {
+            // 大value分离到blob文件，compaction只搬运索引，不反复重写大块数据
+            cfOptions.setEnableBlobFiles(true)
+                    .setMinBlobSize(namespace.getBlobThreshold())
+                    .setBlobCompressionType(namespace.getCompressionType())
+                    .setEnableBlobGarbageCollection(true);
+        }
+        nativeResources.add(cfOptions);
+        return cfOptions;
+    }
+
+    private ColumnFamilyHandle handleOf(String namespace) {
+        ColumnFamilyHandle handle = namespaceHandles.get(namespace);
+        if (handle == null) {
+            throw new IllegalArgumentException("Unknown namespace: " + namespace);
+        }
+        return handle;
+    }
+
     @Override
-    public void put(String key, byte[] value) throws Exception {
+    public void put(String namespace, byte[] key, byte[] value) throws Exception {
         if (key == null || value == null) {
             throw new IllegalArgumentException("Key and value cannot be null");
         }
+        ColumnFamilyHandle handle = handleOf(namespace);
 
         synchronized (this) {
-            // 1. 写布隆过滤器
-            bloomFilter.put(key);
+            // 1. 写布隆过滤器（只覆盖default命名空间，其余命名空间依赖SST布隆过滤器）
+            if (DEFAULT_NAMESPACE.equals(namespace)) {
+                bloomFilter.put(key);
+            }
 
             // 2. 写RocksDB
-            db.put(key.getBytes(StandardCharsets.UTF_8), value);
+            db.put(handle, key, value);
 
             // 3. 更新计数器
             writeCount.incrementAndGet();
@@ -66,41 +253,141 @@ public class RocksDbEngine implements StorageEngine {
     }
 
     @Override
-    public byte[] get(String key) throws Exception {
+    public byte[] get(String namespace, byte[] key) throws Exception {
         if (key == null) {
             throw new IllegalArgumentException("Key cannot be null");
         }
+        ColumnFamilyHandle handle = handleOf(namespace);
 
         // 1. 查布隆过滤器（性能优化）
-        if (!bloomFilter.mightContain(key)) {
+        if (DEFAULT_NAMESPACE.equals(namespace) && !mightContain(key)) {
             return null;
         }
 
         // 2. 查RocksDB
-        return db.get(key.getBytes(StandardCharsets.UTF_8));
+        return db.get(handle, key);
+    }
+
+    @Override
+    public int get(String namespace, byte[] key, ByteBuffer target) throws Exception {
+        if (key == null) {
+            throw new IllegalArgumentException("Key cannot be null");
+        }
+        if (!target.isDirect()) {
+            return StorageEngine.super.get(namespace, key, target);
+        }
+        ColumnFamilyHandle handle = handleOf(namespace);
+
+        if (DEFAULT_NAMESPACE.equals(namespace) && !mightContain(key)) {
+            return -1;
+        }
+
+        // RocksDB 直接把value拷进目标缓冲区，不经过 byte[]
+        int size = db.get(handle, readOptions, directKey(key), target);
+        return size == RocksDB.NOT_FOUND ? -1 : size;
+    }
+
+    private boolean mightContain(byte[] key) {
+        bloomChecks.increment();
+        if (bloomFilter.mightContain(key)) {
+            return true;
+        }
+        bloomNegatives.increment();
+        return false;
+    }
+
+    private static ByteBuffer directKey(byte[] keyBytes) {
+        ByteBuffer buffer = DIRECT_KEY_BUFFER.get();
+        if (buffer.capacity() < keyBytes.length) {
+            buffer = ByteBuffer.allocateDirect(Integer.highestOneBit(keyBytes.length) << 1);
+            DIRECT_KEY_BUFFER.set(buffer);
+        }
+        buffer.clear();
+        buffer.put(keyBytes).flip();
+        return buffer;
     }
 
     @Override
-    public void delete(String key) throws Exception {
+    public void delete(String namespace, byte[] key) throws Exception {
         if (key == null) {
             throw new IllegalArgumentException("Key cannot be null");
         }
+        ColumnFamilyHandle handle = handleOf(namespace);
 
         synchronized (this) {
             // 注意：BloomFilter不支持删除操作
             // 我们只能标记删除，或者重建BloomFilter
-            db.delete(key.getBytes(StandardCharsets.UTF_8));
+            db.delete(handle, key);
 
             // 对于删除操作，BloomFilter可能会产生误判
             // 生产环境可以考虑使用Counting Bloom Filter或定期重建
         }
     }
 
+    @Override
+    public void merge(String namespace, byte[] key, byte[] operand) throws Exception {
+        if (key == null || operand == null) {
+            throw new IllegalArgumentException("Key and operand cannot be null");
+        }
+        ColumnFamilyHandle handle = handleOf(namespace);
+
+        if (namespaceOptions.get(namespace).getMergeOperator() == KvMessage.MergeOperator.UINT64_ADD) {
+            if (operand.length != CounterUtil.COUNTER_SIZE) {
+                throw new IllegalArgumentException("Counter operand must be " + CounterUtil.COUNTER_SIZE + " bytes");
+            }
+            db.merge(handle, key, operand);
+        } else {
+            synchronized (this) {
+                if (DEFAULT_NAMESPACE.equals(namespace)) {
+                    bloomFilter.put(key);
+                }
+                db.merge(handle, key, operand);
+            }
+        }
+        writeCount.incrementAndGet();
+    }
+
+    @Override
+    public boolean isWriteStalled() {
+        long now = System.nanoTime();
+        if (now - writeStallCheckedAt < WRITE_STALL_CHECK_INTERVAL_NANOS || db == null) {
+            return writeStalled;
+        }
+        writeStallCheckedAt = now;
+        try {
+            // 写停止，或者因为L0文件/待compaction数据过多正在限速
+            writeStalled = db.getLongProperty("rocksdb.is-write-stopped") > 0
+                    || db.getLongProperty("rocksdb.actual-delayed-write-rate") > 0;
+        } catch (RocksDBException e) {
+            writeStalled = false;
+        }
+        return writeStalled;
+    }
+
     @Override
     public void close() {
+        // Column Family句柄必须先于DB关闭
+        for (ColumnFamilyHandle handle : cfHandles) {
+            handle.close();
+        }
+        cfHandles.clear();
+        namespaceHandles.clear();
         if (db != null) {
             db.close();
         }
+        if (readOptions != null) {
+            readOptions.close();
+        }
+        for (AbstractNativeReference resource : nativeResources) {
+            resource.close();
+        }
+        nativeResources.clear();
+        if (dbOptions != null) {
+            dbOptions.close();
+        }
+        if (statistics != null) {
+            statistics.close();
+        }
     }
 
     // 统计信息
@@ -110,9 +397,245 @@ public class RocksDbEngine implements StorageEngine {
 
     public long getEstimatedSize() {
         try {
-            return db.getLongProperty("rocksdb.estimate-num-keys");
+            long total = 0;
+            for (ColumnFamilyHandle handle : namespaceHandles.values()) {
+                total += db.getLongProperty(handle, "rocksdb.estimate-num-keys");
+            }
+            return total;
         } catch (RocksDBException e) {
             return -1;
         }
     }
+
+    /**
+     * RocksDB Statistics 计数器和DB属性，属性按所有Column Family求和
+     */
+    @Override
+    public Map<String, Number> getMetrics() {
+        Map<String, Number> metrics = new LinkedHashMap<>();
+        if (db == null) {
+            return metrics;
+        }
+        metrics.put("writes_total", writeCount.get());
+        metrics.put("bloom_filter_checks_total", bloomChecks.sum());
+        metrics.put("bloom_filter_negatives_total", bloomNegatives.sum());
+        metrics.put("block_cache_hits_total", statistics.getTickerCount(TickerType.BLOCK_CACHE_HIT));
+        metrics.put("block_cache_misses_total", statistics.getTickerCount(TickerType.BLOCK_CACHE_MISS));
+        metrics.put("sst_bloom_filter_useful_total", statistics.getTickerCount(TickerType.BLOOM_FILTER_USEFUL));
+        metrics.put("memtable_hits_total", statistics.getTickerCount(TickerType.MEMTABLE_HIT));
+        metrics.put("memtable_misses_total", statistics.getTickerCount(TickerType.MEMTABLE_MISS));
+        metrics.put("bytes_written_total", statistics.getTickerCount(TickerType.BYTES_WRITTEN));
+        metrics.put("bytes_read_total", statistics.getTickerCount(TickerType.BYTES_READ));
+        metrics.put("compaction_read_bytes_total", statistics.getTickerCount(TickerType.COMPACT_READ_BYTES));
+        metrics.put("compaction_write_bytes_total", statistics.getTickerCount(TickerType.COMPACT_WRITE_BYTES));
+        metrics.put("write_stall_micros_total", statistics.getTickerCount(TickerType.STALL_MICROS));
+        metrics.put("estimated_keys", sumProperty("rocksdb.estimate-num-keys"));
+        metrics.put("memtable_bytes", sumProperty("rocksdb.cur-size-all-mem-tables"));
+        metrics.put("sst_bytes", sumProperty("rocksdb.total-sst-files-size"));
+        metrics.put("pending_compaction_bytes", sumProperty("rocksdb.estimate-pending-compaction-bytes"));
+        metrics.put("running_compactions", dbProperty("rocksdb.num-running-compactions"));
+        metrics.put("write_stalled", isWriteStalled() ? 1 : 0);
+        return metrics;
+    }
+
+    @Override
+    public KvMessage.MergeOperator getMergeOperator(String namespace) {
+        NamespaceOptions options = namespaceOptions.get(namespace);
+        return options == null ? null : options.getMergeOperator();
+    }
+
+    /**
+     * 开启blob的命名空间里小于阈值的value都内联在SST中，以阈值为首次读取的缓冲大小
+     */
+    @Override
+    public int getValueSizeHint(String namespace) {
+        NamespaceOptions options = namespaceOptions.get(namespace);
+        if (options == null || options.getBlobThreshold() <= 0) {
+            return -1;
+        }
+        return (int) Math.min(options.getBlobThreshold(), Integer.MAX_VALUE);
+    }
+
+    @Override
+    public long estimateKeyCount() {
+        return db == null ? -1 : sumProperty("rocksdb.estimate-num-keys");
+    }
+
+    @Override
+    public long estimateDataBytes() {
+        return db == null ? -1 : sumProperty("rocksdb.total-sst-files-size");
+    }
+
+    /**
+     * 诊断用的详细统计：Statistics 的全部非零计数器和直方图、每个命名空间按层的文件数和大小、
+     * memtable、待compaction字节数和写停顿计数。数据量比 getMetrics 大，只在按需查询时调用
+     */
+    @Override
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        if (db == null) {
+            return stats;
+        }
+        stats.put("tickers", tickerStats());
+        stats.put("histograms", histogramStats());
+
+        Map<String, Object> namespaces = new LinkedHashMap<>();
+        for (String name : namespaceOptions.keySet()) {
+            namespaces.put(name, columnFamilyStats(namespaceHandles.get(name)));
+        }
+        stats.put("namespaces", namespaces);
+        stats.put("pendingCompactionBytes", sumProperty("rocksdb.estimate-pending-compaction-bytes"));
+
+        Map<String, Object> writeStall = new LinkedHashMap<>();
+        writeStall.put("stalled", isWriteStalled());
+        writeStall.put("writeStopped", dbProperty("rocksdb.is-write-stopped") > 0);
+        writeStall.put("delayedWriteRate", dbProperty("rocksdb.actual-delayed-write-rate"));
+        writeStall.put("runningCompactions", dbProperty("rocksdb.num-running-compactions"));
+        writeStall.put("runningFlushes", dbProperty("rocksdb.num-running-flushes"));
+        writeStall.put("stallMicros", statistics.getTickerCount(TickerType.STALL_MICROS));
+        stats.put("writeStall", writeStall);
+        return stats;
+    }
+
+    private Map<String, Long> tickerStats() {
+        Map<String, Long> tickers = new LinkedHashMap<>();
+        for (TickerType ticker : TickerType.values()) {
+            if (ticker == TickerType.TICKER_ENUM_MAX) {
+                continue;
+            }
+            long count = statistics.getTickerCount(ticker);
+            if (count != 0) {
+                tickers.put(ticker.name(), count);
+            }
+        }
+        return tickers;
+    }
+
+    private Map<String, Object> histogramStats() {
+        Map<String, Object> histograms = new LinkedHashMap<>();
+        for (HistogramType type : HistogramType.values()) {
+            if (type == HistogramType.HISTOGRAM_ENUM_MAX) {
+                continue;
+            }
+            HistogramData data = statistics.getHistogramData(type);
+            if (data.getCount() == 0) {
+                continue;
+            }
+            Map<String, Object> histogram = new LinkedHashMap<>();
+            histogram.put("count", data.getCount());
+            histogram.put("average", data.getAverage());
+            histogram.put("p50", data.getMedian());
+            histogram.put("p95", data.getPercentile95());
+            histogram.put("p99", data.getPercentile99());
+            histogram.put("max", data.getMax());
+            histograms.put(type.name(), histogram);
+        }
+        return histograms;
+    }
+
+    private Map<String, Object> columnFamilyStats(ColumnFamilyHandle handle) {
+        Map<String, Object> cf = new LinkedHashMap<>();
+        cf.put("estimatedKeys", cfProperty(handle, "rocksdb.estimate-num-keys"));
+        cf.put("memtableBytes", cfProperty(handle, "rocksdb.cur-size-all-mem-tables"));
+        cf.put("activeMemtableBytes", cfProperty(handle, "rocksdb.cur-size-active-mem-table"));
+        cf.put("immutableMemtables", cfProperty(handle, "rocksdb.num-immutable-mem-table"));
+        cf.put("memtableFlushPending", cfProperty(handle, "rocksdb.mem-table-flush-pending") > 0);
+        cf.put("compactionPending", cfProperty(handle, "rocksdb.compaction-pending") > 0);
+        cf.put("pendingCompactionBytes", cfProperty(handle, "rocksdb.estimate-pending-compaction-bytes"));
+        cf.put("sstBytes", cfProperty(handle, "rocksdb.total-sst-files-size"));
+
+        // 每层的文件数、大小和compaction得分（得分 >= 1 表示该层需要compaction）
+        Map<String, String> cfStats = cfMapProperty(handle, "rocksdb.cfstats");
+        List<Map<String, Object>> levels = new ArrayList<>();
+        for (LevelMetaData level : db.getColumnFamilyMetaData(handle).levels()) {
+            Map<String, Object> levelStats = new LinkedHashMap<>();
+            levelStats.put("level", level.level());
+            levelStats.put("files", level.files().size());
+            levelStats.put("bytes", level.size());
+            String score = cfStats.get("compaction.L" + level.level() + ".Score");
+            if (score != null) {
+                levelStats.put("score", Double.parseDouble(score));
+            }
+            levels.add(levelStats);
+        }
+        cf.put("levels", levels);
+
+        // 各类写停顿（L0文件数、memtable、待compaction字节数）发生的次数
+        Map<String, Long> stalls = new LinkedHashMap<>();
+        for (Map.Entry<String, String> entry : cfStats.entrySet()) {
+            if (entry.getKey().startsWith("io_stalls.")) {
+                stalls.put(entry.getKey().substring("io_stalls.".length()), (long) Double.parseDouble(entry.getValue()));
+            }
+        }
+        cf.put("writeStalls", stalls);
+        return cf;
+    }
+
+    private long cfProperty(ColumnFamilyHandle handle, String property) {
+        try {
+            return db.getLongProperty(handle, property);
+        } catch (RocksDBException e) {
+            return -1;
+        }
+    }
+
+    private Map<String, String> cfMapProperty(ColumnFamilyHandle handle, String property) {
+        try {
+            return db.getMapProperty(handle, property);
+        } catch (RocksDBException e) {
+            return Map.of();
+        }
+    }
+
+    private long sumProperty(String property) {
+        long total = 0;
+        for (ColumnFamilyHandle handle : namespaceHandles.values()) {
+            try {
+                total += db.getLongProperty(handle, property);
+            } catch (RocksDBException e) {
+                // 个别Column Family不支持该属性时跳过
+            }
+        }
+        return total;
+    }
+
+    private long dbProperty(String property) {
+        try {
+            return db.getLongProperty(property);
+        } catch (RocksDBException e) {
+            return -1;
+        }
+    }
+
+    @Override
+    public void scan(String namespace, byte[] prefix, KeyValueVisitor visitor) throws Exception {
+        ColumnFamilyHandle handle = handleOf(namespace);
+        // 迭代器读的是创建时的隐式快照，遍历中删除不影响遍历
+        try (RocksIterator iterator = db.newIterator(handle)) {
+            for (iterator.seek(prefix); iterator.isValid(); iterator.next()) {
+                byte[] key = iterator.key();
+                if (!startsWith(key, prefix) || !visitor.visit(key, iterator.value())) {
+                    return;
+                }
+            }
+            iterator.status();
+        }
+    }
+
+    private static boolean startsWith(byte[] key, byte[] prefix) {
+        if (key.length < prefix.length) {
+            return false;
+        }
+        for (int i = 0; i < prefix.length; i++) {
+            if (key[i] != prefix[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public List<String> getNamespaces() {
+        return new ArrayList<>(namespaceOptions.keySet());
+    }
 }
@@ -0,0 +1,112 @@
+package com.dkv.dkvstorage.rocksdb;
+
+import com.dkv.dkvstorage.transport.NettyTransport;
+import io.netty.channel.EventLoopGroup;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 进程内共享的事件循环和线程池
+ * 同一个JVM里的多个DataNode共用事件循环、复制线程池和存储通道，这部分线程数由 ResourceBudget 决定而不是随节点数增长；
+ * 按引用计数管理，第一个节点启动时创建，最后一个节点停止时释放
+ */
+public final class SharedResources {
+    private static final Logger logger = LoggerFactory.getLogger(SharedResources.class);
+
+    private static ResourceBudget budget;
+    private static SharedResources instance;
+    private static int refCount;
+
+    private final EventLoopGroup bossGroup;
+    private final EventLoopGroup ioGroup;
+    private final ExecutorService replicationExecutor;
+    private final StorageExecutor storageExecutor;
+
+    private SharedResources(ResourceBudget budget) {
+        NettyTransport transport = NettyTransport.get();
+        this.bossGroup = transport.newEventLoopGroup(1);
+        this.ioGroup = transport.newEventLoopGroup(budget.getIoThreads());
+        this.replicationExecutor = Executors.newFixedThreadPool(budget.getReplicationThreads(),
+                new ThreadFactory() {
+                    private final AtomicInteger counter = new AtomicInteger(0);
+                    @Override
+                    public Thread newThread(Runnable r) {
+                        Thread t = new Thread(r, "shared-replication-" + counter.incrementAndGet());
+                        t.setDaemon(true);
+                        return t;
+                    }
+                });
+        this.storageExecutor = new StorageExecutor(StorageExecutor.ExecutionMode.STRIPED_POOL,
+                budget.getStorageLanes(), budget.getReplicaLanes(), budget.getStorageQueueCapacity());
+    }
+
+    /**
+     * 进程启动时配置一次，必须在第一个节点启动之前调用
+     */
+    public static synchronized void configure(ResourceBudget resourceBudget) {
+        if (instance != null) {
+            throw new IllegalStateException("Shared resources already in use");
+        }
+        budget = resourceBudget;
+    }
+
+    public static synchronized SharedResources acquire() {
+        if (instance == null) {
+            ResourceBudget effective = budget != null ? budget : ResourceBudget.fromSystemProperties();
+            instance = new SharedResources(effective);
+            logger.info("Shared resources created: {}", effective);
+        }
+        refCount++;
+        return instance;
+    }
+
+    public static synchronized void release() {
+        if (refCount == 0) {
+            return;
+        }
+        if (--refCount == 0) {
+            instance.shutdown();
+            instance = null;
+            logger.info("Shared resources released");
+        }
+    }
+
+    public EventLoopGroup getBossGroup() {
+        return bossGroup;
+    }
+
+    // 服务端已接入连接和复制客户端连接共用
+    public EventLoopGroup getIoGroup() {
+        return ioGroup;
+    }
+
+    public ExecutorService getReplicationExecutor() {
+        return replicationExecutor;
+    }
+
+    // 节点通过 view() 使用，各自统计和等待自己的任务
+    public StorageExecutor getStorageExecutor() {
+        return storageExecutor;
+    }
+
+    private void shutdown() {
+        storageExecutor.shutdown();
+        replicationExecutor.shutdown();
+        try {
+            if (!replicationExecutor.awaitTermination(5, TimeUnit.SECONDS)) {
+                replicationExecutor.shutdownNow();
+            }
+        } catch (InterruptedException e) {
+            replicationExecutor.shutdownNow();
+            Thread.currentThread().interrupt();
+        }
+        bossGroup.shutdownGracefully();
+        ioGroup.shutdownGracefully();
+    }
+}
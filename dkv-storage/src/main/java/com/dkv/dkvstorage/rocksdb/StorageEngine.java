@@ -1,11 +1,160 @@
 package com.dkv.dkvstorage.rocksdb;
 
+import com.dkv.dkvcommon.model.KvMessage;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
 public interface StorageEngine {
+    String DEFAULT_NAMESPACE = "default";
+    String COUNTER_NAMESPACE = "counters";
+
     void init(String dbPath) throws Exception;
-    void put(String key, byte[] value) throws Exception;
-    byte[] get(String key) throws Exception;
-    void delete(String key) throws Exception;
+
+    // 命名空间：每个命名空间是独立的存储区域（RocksDB 中为独立的 Column Family）
+    // key以字节为准，String 版本按UTF-8编码后转调
+    void put(String namespace, byte[] key, byte[] value) throws Exception;
+    byte[] get(String namespace, byte[] key) throws Exception;
+    void delete(String namespace, byte[] key) throws Exception;
+    /**
+     * 把value读进调用方的缓冲区（从 position 处开始写，position 不变），返回value的完整长度，不存在返回 -1
+     * 剩余空间不够时只写入放得下的部分，调用方按返回的长度重新分配后再读
+     * 默认实现经过一次堆上的副本，RocksDbEngine 对 direct 缓冲区直接由 RocksDB 写入
+     */
+    default int get(String namespace, byte[] key, ByteBuffer target) throws Exception {
+        byte[] value = get(namespace, key);
+        if (value == null) {
+            return -1;
+        }
+        if (value.length <= target.remaining()) {
+            target.duplicate().put(value);
+        }
+        return value.length;
+    }
+
+    /**
+     * 直接读首次分配的缓冲大小建议：命名空间里单帧返回的value大多不超过该大小，未知时返回 -1
+     */
+    default int getValueSizeHint(String namespace) {
+        return -1;
+    }
+    // 合并写：把操作数交给命名空间配置的合并算子，不读取旧值
+    void merge(String namespace, byte[] key, byte[] operand) throws Exception;
+
     void close();
+
+    /**
+     * 遍历到的一条记录，返回 false 停止遍历
+     */
+    interface KeyValueVisitor {
+        boolean visit(byte[] key, byte[] value) throws Exception;
+    }
+
+    /**
+     * 按key顺序遍历命名空间里以 prefix 开头的记录，不经过内存布隆过滤器；
+     * 遍历期间可以删除已访问的key。不支持遍历的引擎抛出 UnsupportedOperationException
+     */
+    default void scan(String namespace, byte[] prefix, KeyValueVisitor visitor) throws Exception {
+        throw new UnsupportedOperationException(getClass().getSimpleName() + " does not support scan");
+    }
+
+    /**
+     * 已配置的命名空间
+     */
+    default Collection<String> getNamespaces() {
+        return Collections.singletonList(DEFAULT_NAMESPACE);
+    }
+
+    // 是否处于写停顿（memtable/L0积压导致写入被限速或停止），用于在入口拒绝写请求
+    default boolean isWriteStalled() {
+        return false;
+    }
+
+    /**
+     * 引擎自身的指标快照，名称不带前缀；以 _total 结尾的是累计计数，其余是当前值
+     */
+    default Map<String, Number> getMetrics() {
+        return Collections.emptyMap();
+    }
+
+    /**
+     * 命名空间配置的合并算子，命名空间不存在时为 null
+     */
+    default KvMessage.MergeOperator getMergeOperator(String namespace) {
+        return null;
+    }
+
+    /**
+     * 估算的 key 数，用于节点负载上报，未知时为 -1
+     */
+    default long estimateKeyCount() {
+        return -1;
+    }
+
+    /**
+     * 数据占用的字节数：磁盘引擎为数据文件大小，内存引擎为占用的内存，未知时为 -1
+     */
+    default long estimateDataBytes() {
+        return -1;
+    }
+
+    /**
+     * 按需查询的详细统计，结构由引擎决定，默认与 getMetrics 相同
+     */
+    default Map<String, Object> getStats() {
+        return new LinkedHashMap<>(getMetrics());
+    }
+
+    default void put(String namespace, String key, byte[] value) throws Exception {
+        put(namespace, keyBytes(key), value);
+    }
+
+    default byte[] get(String namespace, String key) throws Exception {
+        return get(namespace, keyBytes(key));
+    }
+
+    default int get(String namespace, String key, ByteBuffer target) throws Exception {
+        return get(namespace, keyBytes(key), target);
+    }
+
+    default void delete(String namespace, String key) throws Exception {
+        delete(namespace, keyBytes(key));
+    }
+
+    default void merge(String namespace, String key, byte[] operand) throws Exception {
+        merge(namespace, keyBytes(key), operand);
+    }
+
+    default void put(String key, byte[] value) throws Exception {
+        put(DEFAULT_NAMESPACE, key, value);
+    }
+
+    default byte[] get(String key) throws Exception {
+        return get(DEFAULT_NAMESPACE, key);
+    }
+
+    default void delete(String key) throws Exception {
+        delete(DEFAULT_NAMESPACE, key);
+    }
+
+    static byte[] keyBytes(String key) {
+        return key == null ? null : key.getBytes(StandardCharsets.UTF_8);
+    }
+
+    /**
+     * 请求所在的命名空间：显式指定优先，否则计数器合并进 counters，其余进 default
+     */
+    static String resolveNamespace(KvMessage msg) {
+        if (msg.getNamespace() != null) {
+            return msg.getNamespace();
+        }
+        return msg.getMergeOperator() == KvMessage.MergeOperator.UINT64_ADD
+                ? COUNTER_NAMESPACE : DEFAULT_NAMESPACE;
+    }
 }
 
 
@@ -0,0 +1,13 @@
+package com.dkv.dkvstorage.rocksdb;
+
+/**
+ * DataNode 使用的存储引擎
+ */
+public enum StorageEngineType {
+    // 持久化存储（默认）
+    ROCKSDB,
+    // 堆外内存，不落盘，用于缓存层节点
+    OFF_HEAP,
+    // 内存映射的追加日志 + 内存索引，适合写多、keyspace小的场景
+    BITCASK
+}
@@ -0,0 +1,188 @@
+package com.dkv.dkvstorage.rocksdb;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Arrays;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 存储执行器：把RocksDB读写和同步复制从Netty事件循环挪到独立线程
+ * 按key哈希分到固定的单线程通道（lane），同一个key的请求严格按到达顺序执行，
+ * 不同key并行；每个通道的队列有界，满了直接拒绝，由调用方返回繁忙
+ * 副本应用复制写入走单独的一组通道：主节点的通道会阻塞等待副本确认，
+ * 副本和主节点共用通道时（同进程多节点、或两个节点互为主副本）会互相等待；
+ * 副本应用不会再发起同步复制，这组通道总能向前推进
+ */
+public class StorageExecutor {
+    private static final Logger logger = LoggerFactory.getLogger(StorageExecutor.class);
+
+    public enum ExecutionMode {
+        EVENT_LOOP,    // 在事件循环线程上直接执行（旧行为，只适合纯内存、无复制的场景）
+        STRIPED_POOL   // 按key分通道的存储线程池
+    }
+
+    private static final long LANE_KEEP_ALIVE_SECONDS = 60;
+
+    private final ExecutionMode mode;
+    private final ThreadPoolExecutor[] lanes;
+    private final ThreadPoolExecutor[] replicationLanes;
+    private final boolean ownsLanes;
+    // 已提交未执行完的任务，节点视图停止时等它归零
+    private final AtomicInteger pending = new AtomicInteger();
+
+    public StorageExecutor(ExecutionMode mode, int laneCount, int queueCapacity) {
+        this(mode, laneCount, Math.max(1, laneCount / 2), queueCapacity);
+    }
+
+    public StorageExecutor(ExecutionMode mode, int laneCount, int replicationLaneCount, int queueCapacity) {
+        this.mode = mode;
+        this.ownsLanes = true;
+        if (mode == ExecutionMode.EVENT_LOOP) {
+            this.lanes = new ThreadPoolExecutor[0];
+            this.replicationLanes = new ThreadPoolExecutor[0];
+            return;
+        }
+        if (laneCount <= 0 || replicationLaneCount <= 0 || queueCapacity <= 0) {
+            throw new IllegalArgumentException("Lane count and queue capacity must be positive");
+        }
+        this.lanes = newLanes("storage-lane-", laneCount, queueCapacity);
+        this.replicationLanes = newLanes("replica-lane-", replicationLaneCount, queueCapacity);
+    }
+
+    private StorageExecutor(StorageExecutor shared) {
+        this.mode = shared.mode;
+        this.lanes = shared.lanes;
+        this.replicationLanes = shared.replicationLanes;
+        this.ownsLanes = false;
+    }
+
+    /**
+     * 共用同一组通道的节点视图：只统计和等待经由自己提交的任务，shutdown 不关闭通道
+     */
+    public StorageExecutor view() {
+        return new StorageExecutor(this);
+    }
+
+    private static ThreadPoolExecutor[] newLanes(String namePrefix, int laneCount, int queueCapacity) {
+        ThreadPoolExecutor[] lanes = new ThreadPoolExecutor[laneCount];
+        for (int i = 0; i < laneCount; i++) {
+            String threadName = namePrefix + i;
+            // 空闲通道的线程超时退出，同进程节点很多时线程数只随活跃通道增长
+            lanes[i] = new ThreadPoolExecutor(1, 1, LANE_KEEP_ALIVE_SECONDS, TimeUnit.SECONDS,
+                    new ArrayBlockingQueue<>(queueCapacity),
+                    r -> {
+                        Thread t = new Thread(r, threadName);
+                        t.setDaemon(true);
+                        return t;
+                    },
+                    new ThreadPoolExecutor.AbortPolicy());
+            lanes[i].allowCoreThreadTimeOut(true);
+        }
+        return lanes;
+    }
+
+    /**
+     * 提交任务到key所在的通道
+     *
+     * @return false 表示通道队列已满（或已关闭），任务未执行
+     */
+    public boolean execute(byte[] key, Runnable task) {
+        return execute(key, false, task);
+    }
+
+    /**
+     * 提交任务，replication 为 true 时进入副本通道
+     * 同一个key的复制写入之间保持顺序；副本上的读和复制写入不在同一组通道，彼此不排序
+     *
+     * @return false 表示通道队列已满（或已关闭），任务未执行
+     */
+    public boolean execute(byte[] key, boolean replication, Runnable task) {
+        if (mode == ExecutionMode.EVENT_LOOP) {
+            task.run();
+            return true;
+        }
+        ThreadPoolExecutor[] target = replication ? replicationLanes : lanes;
+        pending.incrementAndGet();
+        try {
+            target[laneOf(key, target.length)].execute(() -> {
+                try {
+                    task.run();
+                } finally {
+                    pending.decrementAndGet();
+                }
+            });
+            return true;
+        } catch (RejectedExecutionException e) {
+            pending.decrementAndGet();
+            return false;
+        }
+    }
+
+    private static int laneOf(byte[] key, int laneCount) {
+        return key == null ? 0 : Math.floorMod(Arrays.hashCode(key), laneCount);
+    }
+
+    public ExecutionMode getMode() {
+        return mode;
+    }
+
+    // 所有通道排队中的任务数；节点视图返回本节点提交的未完成任务数
+    public int getQueuedTasks() {
+        if (!ownsLanes) {
+            return pending.get();
+        }
+        int total = 0;
+        for (ThreadPoolExecutor lane : lanes) {
+            total += lane.getQueue().size();
+        }
+        for (ThreadPoolExecutor lane : replicationLanes) {
+            total += lane.getQueue().size();
+        }
+        return total;
+    }
+
+    public void shutdown() {
+        if (!ownsLanes) {
+            awaitPending();
+            return;
+        }
+        ThreadPoolExecutor[] all = new ThreadPoolExecutor[lanes.length + replicationLanes.length];
+        System.arraycopy(lanes, 0, all, 0, lanes.length);
+        System.arraycopy(replicationLanes, 0, all, lanes.length, replicationLanes.length);
+        for (ThreadPoolExecutor lane : all) {
+            lane.shutdown();
+        }
+        try {
+            for (ThreadPoolExecutor lane : all) {
+                if (!lane.awaitTermination(5, TimeUnit.SECONDS)) {
+                    lane.shutdownNow();
+                }
+            }
+        } catch (InterruptedException e) {
+            for (ThreadPoolExecutor lane : all) {
+                lane.shutdownNow();
+            }
+            Thread.currentThread().interrupt();
+        }
+        logger.info("Storage executor shutdown");
+    }
+
+    private void awaitPending() {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        try {
+            while (pending.get() > 0 && System.nanoTime() < deadline) {
+                Thread.sleep(10);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        if (pending.get() > 0) {
+            logger.warn("{} storage tasks still pending after 5s", pending.get());
+        }
+    }
+}
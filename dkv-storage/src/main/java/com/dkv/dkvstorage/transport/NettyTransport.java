@@ -0,0 +1,166 @@
+package com.dkv.dkvstorage.transport;
+
+import io.netty.bootstrap.Bootstrap;
+import io.netty.bootstrap.ServerBootstrap;
+import io.netty.channel.ChannelOption;
+import io.netty.channel.EventLoopGroup;
+import io.netty.channel.ServerChannel;
+import io.netty.channel.epoll.Epoll;
+import io.netty.channel.epoll.EpollChannelOption;
+import io.netty.channel.epoll.EpollEventLoopGroup;
+import io.netty.channel.epoll.EpollServerSocketChannel;
+import io.netty.channel.epoll.EpollSocketChannel;
+import io.netty.channel.nio.NioEventLoopGroup;
+import io.netty.channel.socket.SocketChannel;
+import io.netty.channel.socket.nio.NioServerSocketChannel;
+import io.netty.channel.socket.nio.NioSocketChannel;
+import io.netty.incubator.channel.uring.IOUring;
+import io.netty.incubator.channel.uring.IOUringChannelOption;
+import io.netty.incubator.channel.uring.IOUringEventLoopGroup;
+import io.netty.incubator.channel.uring.IOUringServerSocketChannel;
+import io.netty.incubator.channel.uring.IOUringSocketChannel;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * 进程内统一的 Netty 传输选择
+ * DataNode、ReplicationService、DataNodeAgent 和 DkvClient 都从这里创建事件循环和 Channel，
+ * 保证同一进程里不会混用不同传输（不同传输的 Channel 不能注册到对方的事件循环上）
+ */
+public final class NettyTransport {
+    private static final Logger logger = LoggerFactory.getLogger(NettyTransport.class);
+
+    public enum Type {
+        IO_URING,
+        EPOLL,
+        NIO
+    }
+
+    private static volatile NettyTransport instance;
+
+    private final Type type;
+    private final TransportOptions options;
+
+    private NettyTransport(TransportOptions options) {
+        this.options = options;
+        this.type = resolve(options.getType());
+    }
+
+    /**
+     * 进程启动时配置一次，必须在第一次使用之前调用
+     */
+    public static synchronized void configure(TransportOptions options) {
+        if (instance != null) {
+            throw new IllegalStateException("Netty transport already initialized: " + instance.type);
+        }
+        instance = new NettyTransport(options);
+        logger.info("Netty transport: {} ({})", instance.type, options);
+    }
+
+    public static NettyTransport get() {
+        NettyTransport transport = instance;
+        if (transport == null) {
+            synchronized (NettyTransport.class) {
+                if (instance == null) {
+                    configure(TransportOptions.fromSystemProperties());
+                }
+                transport = instance;
+            }
+        }
+        return transport;
+    }
+
+    /**
+     * 指定的传输不可用时按 io_uring > epoll > NIO 回退
+     */
+    private static Type resolve(Type requested) {
+        if ((requested == null || requested == Type.IO_URING) && IOUring.isAvailable()) {
+            return Type.IO_URING;
+        }
+        if ((requested == null || requested != Type.NIO) && Epoll.isAvailable()) {
+            if (requested == Type.IO_URING) {
+                logger.warn("io_uring unavailable, falling back to epoll", IOUring.unavailabilityCause());
+            }
+            return Type.EPOLL;
+        }
+        if (requested != null && requested != Type.NIO) {
+            logger.warn("Native transport {} unavailable, falling back to NIO", requested);
+        }
+        return Type.NIO;
+    }
+
+    public Type getType() {
+        return type;
+    }
+
+    public EventLoopGroup newEventLoopGroup(int threads) {
+        switch (type) {
+            case IO_URING:
+                return new IOUringEventLoopGroup(threads);
+            case EPOLL:
+                return new EpollEventLoopGroup(threads);
+            default:
+                return new NioEventLoopGroup(threads);
+        }
+    }
+
+    public Class<? extends ServerChannel> serverChannelClass() {
+        switch (type) {
+            case IO_URING:
+                return IOUringServerSocketChannel.class;
+            case EPOLL:
+                return EpollServerSocketChannel.class;
+            default:
+                return NioServerSocketChannel.class;
+        }
+    }
+
+    public Class<? extends SocketChannel> socketChannelClass() {
+        switch (type) {
+            case IO_URING:
+                return IOUringSocketChannel.class;
+            case EPOLL:
+                return EpollSocketChannel.class;
+            default:
+                return NioSocketChannel.class;
+        }
+    }
+
+    /**
+     * 服务端：设置 Channel 类型、SO_REUSEPORT 和已接入连接的套接字参数
+     */
+    public ServerBootstrap apply(ServerBootstrap bootstrap) {
+        bootstrap.channel(serverChannelClass());
+        if (options.isReusePort()) {
+            if (type == Type.IO_URING) {
+                bootstrap.option(IOUringChannelOption.SO_REUSEPORT, true);
+            } else if (type == Type.EPOLL) {
+                bootstrap.option(EpollChannelOption.SO_REUSEPORT, true);
+            }
+        }
+        bootstrap.childOption(ChannelOption.TCP_NODELAY, options.isTcpNoDelay());
+        if (options.getSendBufferSize() > 0) {
+            bootstrap.childOption(ChannelOption.SO_SNDBUF, options.getSendBufferSize());
+        }
+        if (options.getReceiveBufferSize() > 0) {
+            // 接收缓冲区要在 listen 之前设置才会影响窗口扩大因子
+            bootstrap.option(ChannelOption.SO_RCVBUF, options.getReceiveBufferSize());
+        }
+        return bootstrap;
+    }
+
+    /**
+     * 客户端：设置 Channel 类型和套接字参数
+     */
+    public Bootstrap apply(Bootstrap bootstrap) {
+        bootstrap.channel(socketChannelClass())
+                .option(ChannelOption.TCP_NODELAY, options.isTcpNoDelay());
+        if (options.getSendBufferSize() > 0) {
+            bootstrap.option(ChannelOption.SO_SNDBUF, options.getSendBufferSize());
+        }
+        if (options.getReceiveBufferSize() > 0) {
+            bootstrap.option(ChannelOption.SO_RCVBUF, options.getReceiveBufferSize());
+        }
+        return bootstrap;
+    }
+}
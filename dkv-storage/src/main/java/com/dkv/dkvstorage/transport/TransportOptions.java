@@ -0,0 +1,69 @@
+package com.dkv.dkvstorage.transport;
+
+/**
+ * 网络传输配置，默认从系统属性读取：
+ * -Ddkv.transport=auto|io_uring|epoll|nio
+ * -Ddkv.tcpNoDelay=true -Ddkv.reusePort=false
+ * -Ddkv.sendBufferSize=0 -Ddkv.receiveBufferSize=0（0 表示使用系统默认值）
+ */
+public class TransportOptions {
+    private NettyTransport.Type type;      // null 表示自动选择：io_uring > epoll > NIO
+    private boolean tcpNoDelay = true;
+    private boolean reusePort = false;     // 仅 epoll/io_uring 支持
+    private int sendBufferSize = 0;
+    private int receiveBufferSize = 0;
+
+    public static TransportOptions fromSystemProperties() {
+        TransportOptions options = new TransportOptions();
+        String type = System.getProperty("dkv.transport", "auto");
+        if (!"auto".equalsIgnoreCase(type)) {
+            options.setType(NettyTransport.Type.valueOf(type.toUpperCase()));
+        }
+        options.setTcpNoDelay(Boolean.parseBoolean(System.getProperty("dkv.tcpNoDelay", "true")));
+        options.setReusePort(Boolean.parseBoolean(System.getProperty("dkv.reusePort", "false")));
+        options.setSendBufferSize(Integer.getInteger("dkv.sendBufferSize", 0));
+        options.setReceiveBufferSize(Integer.getInteger("dkv.receiveBufferSize", 0));
+        return options;
+    }
+
+    public NettyTransport.Type getType() { return type; }
+    public TransportOptions setType(NettyTransport.Type type) {
+        this.type = type;
+        return this;
+    }
+
+    public boolean isTcpNoDelay() { return tcpNoDelay; }
+    public TransportOptions setTcpNoDelay(boolean tcpNoDelay) {
+        this.tcpNoDelay = tcpNoDelay;
+        return this;
+    }
+
+    public boolean isReusePort() { return reusePort; }
+    public TransportOptions setReusePort(boolean reusePort) {
+        this.reusePort = reusePort;
+        return this;
+    }
+
+    public int getSendBufferSize() { return sendBufferSize; }
+    public TransportOptions setSendBufferSize(int sendBufferSize) {
+        this.sendBufferSize = sendBufferSize;
+        return this;
+    }
+
+    public int getReceiveBufferSize() { return receiveBufferSize; }
+    public TransportOptions setReceiveBufferSize(int receiveBufferSize) {
+        this.receiveBufferSize = receiveBufferSize;
+        return this;
+    }
+
+    @Override
+    public String toString() {
+        return "TransportOptions{" +
+                "type=" + (type == null ? "auto" : type) +
+                ", tcpNoDelay=" + tcpNoDelay +
+                ", reusePort=" + reusePort +
+                ", sendBufferSize=" + sendBufferSize +
+                ", receiveBufferSize=" + receiveBufferSize +
+                '}';
+    }
+}